@@ -145,6 +145,7 @@ public class ActivityServiceClient implements IActivityService {
             }
             result.setErrorMessage(bean.getErrorMessage());
             result.setActivity(bean.getActivity());
+            result.setNextPageCursor(bean.getNextPageCursor());
         } catch (Exception e) {
             String msg = e.getMessage();
             log.error(msg, e);
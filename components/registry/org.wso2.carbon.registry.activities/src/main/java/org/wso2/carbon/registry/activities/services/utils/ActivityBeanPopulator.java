@@ -20,9 +20,12 @@ import org.apache.axis2.context.MessageContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.registry.core.LogEntry;
+import org.wso2.carbon.registry.core.LogEntryCollection;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.RegistryConstants;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.pagination.PaginationContext;
+import org.wso2.carbon.registry.core.pagination.PaginationUtils;
 import org.wso2.carbon.registry.core.session.UserRegistry;
 import org.wso2.carbon.registry.common.beans.ActivityBean;
 import org.wso2.carbon.registry.common.utils.CommonUtil;
@@ -37,6 +40,9 @@ public class ActivityBeanPopulator {
 
     private static final Log log = LogFactory.getLog(ActivityBeanPopulator.class);
 
+    // number of activities returned per page, when the page is not given by pagination headers.
+    private static final int PAGE_SIZE = 100;
+
     public static ActivityBean populate(UserRegistry userRegistry, String userName, String resourcePath, String fromDate,
                                         String toDate, String filter, String pageStr) throws Exception{
         UserRealm realm = userRegistry.getUserRealm();
@@ -113,18 +119,64 @@ public class ActivityBeanPopulator {
         }
 
         try {
-            List<LogEntry> logList = new LinkedList<LogEntry>();
-            for (Integer filterValue : filterValues) {
-                logList.addAll(Arrays.asList(userRegistry.getLogs(resourcePath, filterValue,
-                        userName, computeDate(fromDate), computeDate(toDate), true)));
+            boolean isAdmin = list.contains(
+                    userRegistry.getUserRealm().getRealmConfiguration().getAdminRoleName());
+            if (!isAdmin) {
+                // other users only get to see their own activities.
+                if (userName != null && !userName.equals(userRegistry.getUserName())) {
+                    activityBean.setActivity(new String[0]);
+                    return activityBean;
+                }
+                userName = userRegistry.getUserName();
             }
-            LogEntry[] logs = logList.toArray(new LogEntry[logList.size()]);
-            Arrays.sort(logs, new Comparator<LogEntry>() {
-                public int compare(LogEntry o1, LogEntry o2) {
-                    return o2.getDate().compareTo(o1.getDate());
+            Date from = computeDate(fromDate);
+            Date to = computeDate(toDate);
+
+            List<LogEntry> logList = new ArrayList<LogEntry>();
+            MessageContext messageContext = MessageContext.getCurrentMessageContext();
+            if (messageContext != null && PaginationUtils.isPaginationHeadersExist(messageContext)) {
+                int start;
+                int count;
+                boolean recentFirst;
+                try {
+                    PaginationContext paginationContext =
+                            PaginationUtils.initPaginationContext(messageContext);
+                    start = Math.max(paginationContext.getStart(), 0);
+                    count = paginationContext.getCount();
+                    recentFirst = !"ASC".equals(paginationContext.getSortOrder());
+                } finally {
+                    PaginationContext.destroy();
+                }
+                int rowCount = 0;
+                List<LogStream> streams = new ArrayList<LogStream>(filterValues.size());
+                boolean single = filterValues.size() == 1;
+                for (Integer filterValue : filterValues) {
+                    LogEntryCollection logs = userRegistry.getLogCollection(resourcePath,
+                            filterValue, userName, from, to, recentFirst);
+                    rowCount += logs.getLogCount();
+                    // a single stream is paged by the log store, several streams are merged
+                    // from their start.
+                    streams.add(new LogStream(logs, single ? start : 0,
+                            single ? count : start + count));
+                }
+                PaginationUtils.setRowCount(messageContext, Integer.toString(rowCount));
+                int skipped = 0;
+                LogEntry logEntry;
+                while (logList.size() < count &&
+                        (logEntry = nextLogEntry(streams, recentFirst)) != null) {
+                    if (!single && skipped < start) {
+                        skipped++;
+                        continue;
+                    }
+                    logList.add(logEntry);
                 }
-            });
-            if (list.contains(userRegistry.getUserRealm().getRealmConfiguration().getAdminRoleName())) {
+            } else {
+                activityBean.setNextPageCursor(readPage(userRegistry, resourcePath, filterValues,
+                        userName, from, to, pageStr, logList));
+            }
+
+            LogEntry[] logs = logList.toArray(new LogEntry[logList.size()]);
+            if (isAdmin) {
                 activityBean.setActivity(constructActivityStatements(userRegistry, logs));
             } else{
                 activityBean.setActivity(constructActivityStatementsfornormaluser(userRegistry,
@@ -348,6 +400,122 @@ public class ActivityBeanPopulator {
         }
         return activity;
     }
+    /**
+     * Reads the page of activities, most recent first, following the given cursor.
+     *
+     * @param cursor  the cursor returned with the previous page, or null for the first page
+     * @param logList the list to add the log entries of the page to
+     * @return the cursor of the next page, or null if this is the last page
+     */
+    private static String readPage(UserRegistry userRegistry, String resourcePath,
+                                   List<Integer> filterValues, String userName, Date from,
+                                   Date to, String cursor, List<LogEntry> logList)
+            throws RegistryException {
+        long cursorTime = -1;
+        int cursorIndex = -1;
+        // page numbers passed by older clients are read as the first page.
+        if (cursor != null && cursor.indexOf(':') > 0) {
+            try {
+                cursorTime = Long.parseLong(cursor.substring(0, cursor.indexOf(':')));
+                cursorIndex = Integer.parseInt(cursor.substring(cursor.indexOf(':') + 1));
+            } catch (NumberFormatException e) {
+                throw new RegistryException("Invalid activity page cursor: " + cursor, e);
+            }
+            // the time bound of the log query may be inclusive or not, so the query ends just
+            // after the entry of the cursor, and the entries up to it are skipped below.
+            Date cursorDate = new Date(cursorTime + 1);
+            if (to == null || cursorDate.before(to)) {
+                to = cursorDate;
+            }
+        }
+        List<LogStream> streams = new ArrayList<LogStream>(filterValues.size());
+        for (Integer filterValue : filterValues) {
+            streams.add(new LogStream(userRegistry.getLogCollection(resourcePath, filterValue,
+                    userName, from, to, true), 0, PAGE_SIZE + 1));
+        }
+        long previousTime = -1;
+        int sameTimeIndex = 0;
+        String lastCursor = null;
+        LogEntry logEntry;
+        while ((logEntry = nextLogEntry(streams, true)) != null) {
+            long time = logEntry.getDate().getTime();
+            sameTimeIndex = time == previousTime ? sameTimeIndex + 1 : 0;
+            previousTime = time;
+            if (cursorTime >= 0 &&
+                    (time > cursorTime || (time == cursorTime && sameTimeIndex <= cursorIndex))) {
+                continue;
+            }
+            if (logList.size() == PAGE_SIZE) {
+                return lastCursor;
+            }
+            logList.add(logEntry);
+            lastCursor = time + ":" + sameTimeIndex;
+        }
+        return null;
+    }
+
+    /**
+     * Takes the next log entry, in the given order, out of the given streams.
+     */
+    private static LogEntry nextLogEntry(List<LogStream> streams, boolean recentFirst)
+            throws RegistryException {
+        LogStream selected = null;
+        LogEntry selectedEntry = null;
+        for (LogStream stream : streams) {
+            LogEntry logEntry = stream.peek();
+            if (logEntry != null && (selectedEntry == null || (recentFirst ?
+                    logEntry.getDate().after(selectedEntry.getDate()) :
+                    logEntry.getDate().before(selectedEntry.getDate())))) {
+                selected = stream;
+                selectedEntry = logEntry;
+            }
+        }
+        if (selected != null) {
+            selected.next();
+        }
+        return selectedEntry;
+    }
+
+    /**
+     * The log entries of a single action, read from the log store a chunk at a time.
+     */
+    private static class LogStream {
+
+        private final LogEntryCollection logs;
+        private final int chunkSize;
+        private int start;
+        private LogEntry[] chunk = new LogEntry[0];
+        private int position = 0;
+        private boolean exhausted = false;
+
+        private LogStream(LogEntryCollection logs, int start, int chunkSize) {
+            this.logs = logs;
+            this.start = start;
+            this.chunkSize = Math.max(chunkSize, 1);
+        }
+
+        private LogEntry peek() throws RegistryException {
+            if (position == chunk.length) {
+                if (exhausted) {
+                    return null;
+                }
+                LogEntry[] entries = logs.getLogEntries(start, chunkSize);
+                chunk = entries != null ? entries : new LogEntry[0];
+                start += chunk.length;
+                position = 0;
+                exhausted = chunk.length < chunkSize;
+                if (chunk.length == 0) {
+                    return null;
+                }
+            }
+            return chunk[position];
+        }
+
+        private void next() {
+            position++;
+        }
+    }
+
     /**
      * Converts given strings to Dates
      *
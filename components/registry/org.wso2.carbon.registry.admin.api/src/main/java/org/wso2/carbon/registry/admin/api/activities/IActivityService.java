@@ -38,8 +38,10 @@ public interface IActivityService<ActivityBean> {
      * @param toDate       this parameter can be used to obtain activities up to a given date.
      * @param filter       the type of filter to be used, to only get activities of a particular
      *                     type.
-     * @param pageStr      a string used for pagination. This parameter is not used in the current
-     *                     search API.
+     * @param pageStr      the cursor of the page of activities to return, as returned with the
+     *                     previous page. The first page is returned if this is not a cursor.
+     *                     This parameter is not used when the page is given by pagination
+     *                     headers.
      * @param sessionId    a session identifier. This parameter is not used in the current search
      *                     API.
      *
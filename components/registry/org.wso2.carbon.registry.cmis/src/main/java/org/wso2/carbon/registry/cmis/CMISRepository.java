@@ -29,13 +29,22 @@ import org.apache.chemistry.opencmis.commons.server.ObjectInfoHandler;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.cmis.util.CMISConstants;
 import org.wso2.carbon.registry.cmis.util.CommonUtil;
+import org.wso2.carbon.registry.cmis.util.IndexPager;
 import org.wso2.carbon.registry.cmis.util.PropertyHelper;
+import org.wso2.carbon.registry.cmis.util.QueryTranslator;
+import org.wso2.carbon.registry.common.AttributeSearchService;
+import org.wso2.carbon.registry.common.ResourceData;
 import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.LogEntry;
+import org.wso2.carbon.registry.core.LogEntryCollection;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.pagination.PaginationContext;
+import org.wso2.carbon.registry.core.session.UserRegistry;
 import org.wso2.carbon.registry.cmis.impl.DocumentTypeHandler;
 import org.wso2.carbon.registry.cmis.impl.FolderTypeHandler;
 
@@ -54,6 +63,9 @@ public class CMISRepository {
     private final RegistryTypeManager typeManager;
     private final PathManager pathManager;
     private final String REPOSITORY_ID = "WSO2 CMIS Repository";
+    private static final int CHANGE_LOG_PAGE_SIZE = 100;
+    // number of index hits read at a time while filling a page of query results
+    private static final int QUERY_FETCH_SIZE = 100;
 
     /**
      * Create a new <code>org.wso2.registry.chemistry.greg.CMISRepository</code> instance backed by a Governance Registry repository.
@@ -434,14 +446,10 @@ public class CMISRepository {
             log.trace("<<<<<<< getContentStream for object id " + objectId);
         }
 
-        if (offset != null || length != null) {
-            throw new CmisInvalidArgumentException("Offset and Length are not supported!");
-        }
-
         // get the node
         RegistryDocument gregDocument = getGregNode(objectId).asDocument();
 
-        ContentStream contentStream = gregDocument.getContentStream();
+        ContentStream contentStream = gregDocument.getContentStream(offset, length);
         if(contentStream.getStream() != null){
             return contentStream;
         } else{
@@ -485,10 +493,10 @@ public class CMISRepository {
         result.setHasMoreItems(false);
         int count = 0;
 
-        // iterate through children
+        // iterate through children, stopping as soon as the requested page is filled
         Set<String> splitFilter = splitFilter(filter);
         Iterator<RegistryObject> childNodes = gregFolder.getNodes();
-        while (childNodes.hasNext()) {
+        while (result.getObjects().size() < max && childNodes.hasNext()) {
             RegistryObject child = childNodes.next();
             count++;
 
@@ -497,11 +505,6 @@ public class CMISRepository {
                 continue;
             }
 
-            if (result.getObjects().size() >= max) {
-                result.setHasMoreItems(true);
-                continue;
-            }
-
             // build and add child object
             ObjectInFolderDataImpl objectInFolder = new ObjectInFolderDataImpl();
             objectInFolder.setObject(child.compileObjectType(splitFilter, includeAllowableActions, objectInfos,
@@ -514,7 +517,14 @@ public class CMISRepository {
             result.getObjects().add(objectInFolder);
         }
 
-        result.setNumItems(BigInteger.valueOf(count));
+        // the exact count is only known when all children were visited, otherwise use the
+        // child count of the collection which does not need the remaining children to be loaded
+        if (childNodes.hasNext()) {
+            result.setHasMoreItems(true);
+            result.setNumItems(BigInteger.valueOf(gregFolder.getChildCount()));
+        } else {
+            result.setNumItems(BigInteger.valueOf(count));
+        }
         return result;
     }
 
@@ -892,14 +902,342 @@ public class CMISRepository {
      */
     public ObjectList query(String statement, Boolean searchAllVersions,
                             Boolean includeAllowableActions, BigInteger maxItems, BigInteger skipCount){
-        //TODO: Not supported
         if(log.isTraceEnabled()) {
             log.trace("<<<<<<<<<<< query for the statement " + statement);
         }
 
-        return new ObjectListImpl();
+        if (Boolean.TRUE.equals(searchAllVersions)) {
+            throw new CmisInvalidArgumentException("Searching all versions is not supported");
+        }
+
+        // skip and max
+        int skip = skipCount == null ? 0 : skipCount.intValue();
+        if (skip < 0) {
+            skip = 0;
+        }
+
+        int max = maxItems == null ? Integer.MAX_VALUE : maxItems.intValue();
+        if (max < 0) {
+            max = Integer.MAX_VALUE;
+        }
+
+        QueryTranslator query = QueryTranslator.translate(statement);
+        String typeId = query.getTypeId();
+        if (!RegistryTypeManager.DOCUMENT_TYPE_ID.equals(typeId) && !RegistryTypeManager.FOLDER_TYPE_ID.equals(typeId)
+                && !UnversionedDocumentTypeHandler.DOCUMENT_UNVERSIONED_TYPE_ID.equals(typeId)) {
+            throw new CmisInvalidArgumentException("Type " + typeId + " cannot be queried");
+        }
+        String folderPath = query.getFolderId() != null ? query.getFolderId() : query.getTreeId();
+        if (folderPath != null && !getGregNode(folderPath).isFolder()) {
+            throw new CmisInvalidArgumentException("Not a folder: " + folderPath);
+        }
+
+        // The index cannot filter on the location and type of the results, so its hits are read a
+        // chunk at a time and filtered until the page is full. The total is only known when all
+        // the hits have been read.
+        ObjectListImpl result = new ObjectListImpl();
+        result.setObjects(new ArrayList<ObjectData>());
+        Set<String> splitFilter = splitFilter(query.getSelectList());
+        int matched = 0;
+        boolean hasMoreItems = false;
+        IndexPager pager = new QueryPager(query);
+        while (pager.hasNext() && !hasMoreItems) {
+            List<ResourceData> results;
+            try {
+                results = pager.next();
+            } catch (RegistryException e) {
+                String msg = "Failed to execute the query " + statement;
+                log.error(msg, e);
+                throw new CmisRuntimeException(msg, e);
+            }
+
+            for (ResourceData resourceData : results) {
+                if (resourceData == null || !isQueryMatch(resourceData, query)) {
+                    continue;
+                }
+                RegistryObject gregNode = null;
+                if (UnversionedDocumentTypeHandler.DOCUMENT_UNVERSIONED_TYPE_ID.equals(typeId)) {
+                    gregNode = getGregNode(resourceData.getResourcePath());
+                    if (!typeId.equals(gregNode.getTypeId())) {
+                        continue;
+                    }
+                }
+                matched++;
+                if (matched <= skip) {
+                    continue;
+                }
+                if (result.getObjects().size() >= max) {
+                    hasMoreItems = true;
+                    break;
+                }
+                if (gregNode == null) {
+                    gregNode = getGregNode(resourceData.getResourcePath());
+                }
+                result.getObjects().add(gregNode.compileObjectType(splitFilter, includeAllowableActions, null, false));
+            }
+        }
+
+        if (!hasMoreItems) {
+            result.setNumItems(BigInteger.valueOf(matched));
+        }
+        result.setHasMoreItems(hasMoreItems);
+        return result;
+    }
+
+    private class QueryPager extends IndexPager {
+
+        private final QueryTranslator query;
+
+        private QueryPager(QueryTranslator query) {
+            super(QUERY_FETCH_SIZE);
+            this.query = query;
+        }
+
+        protected int fetch(int offset, int count, List<ResourceData> results)
+                throws RegistryException {
+            PaginationContext paginationContext = PaginationContext.init(offset, count,
+                    query.getSortOrder(), query.getSortBy(), Integer.MAX_VALUE);
+            try {
+                ResourceData[] hits = getSearchService().search(getUserRegistry(), query.getAttributes());
+                if (hits != null) {
+                    results.addAll(Arrays.asList(hits));
+                }
+                return paginationContext.getLength();
+            } finally {
+                PaginationContext.destroy();
+            }
+        }
+    }
+
+    private boolean isQueryMatch(ResourceData resourceData, QueryTranslator query) {
+        String path = resourceData.getResourcePath();
+        if (path == null || path.endsWith(CMISConstants.PWC_SUFFIX)) {
+            return false;
+        }
+        boolean isFolder = "collection".equals(resourceData.getResourceType());
+        if (isFolder != RegistryTypeManager.FOLDER_TYPE_ID.equals(query.getTypeId())) {
+            return false;
+        }
+        if (query.getFolderId() != null) {
+            String parentPath = path.substring(0, path.lastIndexOf('/'));
+            return getFolderPath(query.getFolderId()).equals(parentPath);
+        }
+        if (query.getTreeId() != null) {
+            return path.startsWith(getFolderPath(query.getTreeId()) + "/");
+        }
+        return true;
+    }
+
+    private String getFolderPath(String folderId) {
+        return folderId.endsWith("/") ? folderId.substring(0, folderId.length() - 1) : folderId;
+    }
+
+    private UserRegistry getUserRegistry() {
+        if (!(repository instanceof UserRegistry)) {
+            throw new CmisNotSupportedException("Query is not supported by this repository");
+        }
+        return (UserRegistry) repository;
+    }
+
+    private AttributeSearchService getSearchService() {
+        AttributeSearchService searchService = (AttributeSearchService) PrivilegedCarbonContext
+                .getThreadLocalCarbonContext().getOSGiService(AttributeSearchService.class);
+        if (searchService == null) {
+            throw new CmisRuntimeException("Registry indexing service is not available");
+        }
+        return searchService;
+    }
+
+
+    /**
+     * See CMIS 1.0 section 2.2.6.2 getContentChanges
+     * <p/>
+     * Change events are read from the registry activity log. A change log token identifies a log
+     * entry by its time and its position among the entries logged at the same time, and the
+     * entry it identifies is returned as the first change, as the specification requires.
+     * <p/>
+     * The events of a log entry are never split across pages, and a page holds at least one entry
+     * even if its events exceed <code>maxItems</code>. When there are more changes, the returned
+     * token identifies the first entry not returned, so that paging always makes progress.
+     */
+    public ObjectList getContentChanges(Holder<String> changeLogToken, Boolean includeProperties, String filter,
+                                        BigInteger maxItems) {
+        if(log.isTraceEnabled()) {
+            log.trace("<<<<<<<<<<< getContentChanges for the token " +
+                    (changeLogToken == null ? null : changeLogToken.getValue()));
+        }
+
+        int max = maxItems == null ? Integer.MAX_VALUE : maxItems.intValue();
+        if (max < 0) {
+            max = Integer.MAX_VALUE;
+        }
+
+        String token = changeLogToken == null ? null : changeLogToken.getValue();
+        long fromTime = -1;
+        int fromIndex = 0;
+        if (token != null) {
+            int index = token.indexOf(':');
+            try {
+                fromTime = Long.parseLong(index < 0 ? token : token.substring(0, index));
+                fromIndex = index < 0 ? 0 : Integer.parseInt(token.substring(index + 1));
+            } catch (NumberFormatException e) {
+                throw new CmisInvalidArgumentException("Invalid change log token " + token, e);
+            }
+        }
+
+        ObjectListImpl result = new ObjectListImpl();
+        result.setObjects(new ArrayList<ObjectData>());
+        result.setHasMoreItems(false);
+        Set<String> splitFilter = splitFilter(filter);
+        String lastToken = null;
+
+        try {
+            // the time bound of the log query may be exclusive, so the query starts just before
+            // the entry of the token and the entries before it are skipped below
+            LogEntryCollection logs = repository.getLogCollection(null, LogEntry.ALL, null,
+                    fromTime < 0 ? null : new Date(fromTime - 1), null, false);
+            long previousTime = -1;
+            int sameTimeIndex = 0;
+            int start = 0;
+            boolean done = false;
+            while (!done) {
+                LogEntry[] entries = logs.getLogEntries(start, CHANGE_LOG_PAGE_SIZE);
+                if (entries == null || entries.length == 0) {
+                    break;
+                }
+                for (LogEntry entry : entries) {
+                    long time = entry.getDate().getTime();
+                    sameTimeIndex = time == previousTime ? sameTimeIndex + 1 : 0;
+                    previousTime = time;
+                    if (time < fromTime || (time == fromTime && sameTimeIndex < fromIndex)) {
+                        continue;
+                    }
+                    List<ObjectData> events = compileChangeEvents(entry, includeProperties, splitFilter);
+                    if (events.isEmpty()) {
+                        continue;
+                    }
+                    if (!result.getObjects().isEmpty() && result.getObjects().size() + events.size() > max) {
+                        result.setHasMoreItems(true);
+                        lastToken = time + ":" + sameTimeIndex;
+                        done = true;
+                        break;
+                    }
+                    result.getObjects().addAll(events);
+                    lastToken = time + ":" + sameTimeIndex;
+                }
+                if (entries.length < CHANGE_LOG_PAGE_SIZE) {
+                    break;
+                }
+                start += entries.length;
+            }
+        } catch (RegistryException e) {
+            String msg = "Failed to read the change log";
+            log.error(msg, e);
+            throw new CmisRuntimeException(msg, e);
+        }
+
+        if (changeLogToken != null && lastToken != null) {
+            changeLogToken.setValue(lastToken);
+        }
+        result.setNumItems(BigInteger.valueOf(result.getObjects().size()));
+        return result;
     }
 
+    /**
+     * Maps a registry log entry onto CMIS change events. Moves and renames change the object id,
+     * which is the path, so they are reported as a deletion of the old and a creation of the new
+     * object. Actions which do not change a document or a folder are not reported.
+     */
+    private List<ObjectData> compileChangeEvents(LogEntry entry, Boolean includeProperties, Set<String> filter) {
+        String path = entry.getResourcePath();
+        String targetPath = entry.getActionData();
+        if (targetPath != null && !targetPath.startsWith("/") && path != null) {
+            targetPath = path.substring(0, path.lastIndexOf('/') + 1) + targetPath;
+        }
+        List<ObjectData> events = new ArrayList<ObjectData>();
+        switch (entry.getAction()) {
+            case LogEntry.ADD:
+            case LogEntry.RESTORE:
+            case LogEntry.CREATE_SYMBOLIC_LINK:
+            case LogEntry.CREATE_REMOTE_LINK:
+                addChangeEvent(events, ChangeType.CREATED, path, entry.getDate(), includeProperties, filter);
+                break;
+            case LogEntry.UPDATE:
+                addChangeEvent(events, ChangeType.UPDATED, path, entry.getDate(), includeProperties, filter);
+                break;
+            case LogEntry.DELETE_RESOURCE:
+            case LogEntry.REMOVE_LINK:
+                addChangeEvent(events, ChangeType.DELETED, path, entry.getDate(), includeProperties, filter);
+                break;
+            case LogEntry.MOVE:
+            case LogEntry.RENAME:
+                addChangeEvent(events, ChangeType.DELETED, path, entry.getDate(), includeProperties, filter);
+                addChangeEvent(events, ChangeType.CREATED, targetPath, entry.getDate(), includeProperties, filter);
+                break;
+            case LogEntry.COPY:
+                addChangeEvent(events, ChangeType.CREATED, targetPath, entry.getDate(), includeProperties, filter);
+                break;
+            default:
+                break;
+        }
+        return events;
+    }
+
+    private void addChangeEvent(List<ObjectData> events, ChangeType changeType, String path, Date time,
+                                Boolean includeProperties, Set<String> filter) {
+        // private working copies and versions are not visible as objects of their own
+        if (path == null || path.endsWith(CMISConstants.PWC_SUFFIX) || path.indexOf(';') >= 0) {
+            return;
+        }
+        ObjectDataImpl objectData = null;
+        if (Boolean.TRUE.equals(includeProperties) && changeType != ChangeType.DELETED) {
+            try {
+                if (repository.resourceExists(path)) {
+                    objectData = (ObjectDataImpl) getGregNode(path).compileObjectType(filter, false, null, false);
+                }
+            } catch (RegistryException e) {
+                log.debug("Unable to read the properties of " + path, e);
+            }
+        }
+        if (objectData == null) {
+            objectData = new ObjectDataImpl();
+            PropertiesImpl properties = new PropertiesImpl();
+            properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, path));
+            objectData.setProperties(properties);
+        }
+        ChangeEventInfoDataImpl changeEventInfo = new ChangeEventInfoDataImpl();
+        changeEventInfo.setChangeType(changeType);
+        GregorianCalendar changeTime = new GregorianCalendar();
+        changeTime.setTime(time);
+        changeEventInfo.setChangeTime(changeTime);
+        objectData.setChangeEventInfo(changeEventInfo);
+        events.add(objectData);
+    }
+
+    /**
+     * @return the change log token of the latest entry in the activity log, or null if the log is
+     *         empty
+     */
+    private String getLatestChangeLogToken() {
+        try {
+            LogEntry[] entries = repository.getLogCollection(null, LogEntry.ALL, null, null, null, true)
+                    .getLogEntries(0, CHANGE_LOG_PAGE_SIZE);
+            if (entries == null || entries.length == 0) {
+                return null;
+            }
+            long latestTime = entries[0].getDate().getTime();
+            int sameTimeCount = 0;
+            for (LogEntry entry : entries) {
+                if (entry.getDate().getTime() == latestTime) {
+                    sameTimeCount++;
+                }
+            }
+            return latestTime + ":" + (sameTimeCount - 1);
+        } catch (RegistryException e) {
+            log.debug("Unable to read the latest change log entry", e);
+            return null;
+        }
+    }
 
     protected RepositoryInfo compileRepositoryInfo(String repositoryId) {
         RepositoryInfoImpl fRepositoryInfo = new RepositoryInfoImpl();
@@ -925,13 +1263,17 @@ public class CMISRepository {
         capabilities.setSupportsVersionSpecificFiling(false);
         capabilities.setIsPwcSearchable(false);
         capabilities.setIsPwcUpdatable(true);
-        capabilities.setCapabilityQuery(CapabilityQuery.NONE);
-        capabilities.setCapabilityChanges(CapabilityChanges.NONE);
+        capabilities.setCapabilityQuery(CapabilityQuery.BOTHCOMBINED);
+        capabilities.setCapabilityChanges(CapabilityChanges.PROPERTIES);
         capabilities.setCapabilityContentStreamUpdates(CapabilityContentStreamUpdates.ANYTIME);
         capabilities.setSupportsGetDescendants(true);
         capabilities.setSupportsGetFolderTree(true);
         capabilities.setCapabilityRendition(CapabilityRenditions.NONE);
         fRepositoryInfo.setCapabilities(capabilities);
+        fRepositoryInfo.setLatestChangeLogToken(getLatestChangeLogToken());
+        // only changes to documents and folders are logged, not those to permissions
+        fRepositoryInfo.setChangesIncomplete(true);
+        fRepositoryInfo.setChangesOnType(Arrays.asList(BaseTypeId.CMIS_DOCUMENT, BaseTypeId.CMIS_FOLDER));
 
         return fRepositoryInfo;
     }
@@ -1031,8 +1373,8 @@ public class CMISRepository {
             boolean foldersOnly, int depth, Set<String> filter, Boolean includeAllowableActions,
             Boolean includePathSegments, ObjectInfoHandler objectInfos, boolean requiresObjectInfo) {
 
-        // iterate through children
-        Iterator<RegistryObject> childNodes = gregFolder.getNodes();
+        // iterate through children, documents are not loaded at all for a folder tree
+        Iterator<RegistryObject> childNodes = gregFolder.getNodes(foldersOnly);
         while (childNodes.hasNext()) {
             RegistryObject child = childNodes.next();
 
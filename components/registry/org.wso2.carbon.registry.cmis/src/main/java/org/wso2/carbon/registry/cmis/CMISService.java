@@ -294,6 +294,14 @@ public class CMISService extends AbstractCmisService {
 
     //discovery service
 
+    @Override
+    public ObjectList getContentChanges(String repositoryId, Holder<String> changeLogToken, Boolean includeProperties,
+                                        String filter, Boolean includePolicyIds, Boolean includeAcl,
+                                        BigInteger maxItems, ExtensionsData extension) {
+
+        return gregRepository.getContentChanges(changeLogToken, includeProperties, filter, maxItems);
+    }
+
     @Override
     public ObjectList query(String repositoryId, String statement, Boolean searchAllVersions,
                             Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
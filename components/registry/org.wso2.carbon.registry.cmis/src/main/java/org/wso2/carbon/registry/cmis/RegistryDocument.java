@@ -22,6 +22,7 @@ import org.apache.chemistry.opencmis.commons.enums.Action;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisContentAlreadyExistsException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisStorageException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
@@ -30,12 +31,15 @@ import org.apache.chemistry.opencmis.commons.impl.server.ObjectInfoImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.carbon.registry.cmis.util.CMISConstants;
+import org.wso2.carbon.registry.cmis.util.CountingInputStream;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 
 
 import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.util.Set;
@@ -73,34 +77,62 @@ public abstract class RegistryDocument extends RegistryObject{
     }
     
     public ContentStream getContentStream(){
+        return getContentStream(null, null);
+    }
+
+    /**
+     * See CMIS 1.0 section 2.2.4.10 getContentStream
+     *
+     * @param offset  first byte of the content to return, or <code>null</code> to start at the beginning
+     * @param length  maximum number of bytes to return, or <code>null</code> for the rest of the content
+     * @return  the requested range of the content. The stream is <code>null</code> if there is no content
+     */
+    public ContentStream getContentStream(BigInteger offset, BigInteger length){
 
     	// compile data
         ContentStreamImpl result = new ContentStreamImpl();
         result.setFileName(getName());
-            
+
+        long skip = offset == null ? 0 : offset.longValue();
+        long limit = length == null ? -1 : length.longValue();
+        if (skip < 0 || (length != null && limit < 0)) {
+            throw new CmisInvalidArgumentException("Offset and Length must not be negative!");
+        }
+
         try {
-            result.setLength(BigInteger.valueOf(getPropertyLength(getNode(), CMISConstants.GREG_DATA)));
-            if(getNode().getContent() != null){
-                String mimeType = getNode().getProperty(CMISConstants.GREG_MIMETYPE);
-                result.setMimeType(mimeType);
+            // streamed, so that only the requested range is read rather than the whole content
+            InputStream inputStream = getNode().getContentStream();
+            if(inputStream != null){
+                // the length is only reported if it was recorded when the content was written,
+                // the content is not read to measure it
+                long total = getContentLength(getNode());
+                if (total >= 0) {
+                    long available = Math.max(0, total - skip);
+                    result.setLength(BigInteger.valueOf(limit < 0 ? available : Math.min(available, limit)));
+                } else {
+                    result.setLength(null);
+                }
+                result.setMimeType(getNode().getProperty(CMISConstants.GREG_MIMETYPE));
                 //result.setMimeType(getNode().getMediaType());
-            } else {
-                result.setMimeType(null);
-            }
-            if(getNode().getContent() != null){
 
-                InputStream inputStream = getNode().getContentStream();
+                if (skip > 0 || limit >= 0) {
+                    inputStream = new RangeInputStream(inputStream, skip, limit);
+                }
                 result.setStream(new BufferedInputStream(inputStream));  // stream closed by consumer
             } else {
+                result.setLength(BigInteger.ZERO);
+                result.setMimeType(null);
                 result.setStream(null);
             }
         } catch (RegistryException e) {
             throw new CmisRuntimeException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new CmisRuntimeException(e.getMessage(), e);
         }
 
         return result;
     }
-    
+
     /**
      * See CMIS 1.0 section 2.2.4.16 setContentStream
      *
@@ -131,15 +163,18 @@ public abstract class RegistryDocument extends RegistryObject{
             }
 
             Resource resource = null;
+            CountingInputStream countingStream = null;
             // write content, if available
             if(contentStream == null || contentStream.getStream() == null){
 
                resource = gregVersionContext.getNode();
                resource.setContent(null);
+               resource.removeProperty(CMISConstants.GREG_CONTENT_LENGTH);
             } else{
-            	//Sets the content stream
+            	//Sets the content stream, counting it so that its length is known once stored
                 resource = gregVersionContext.getNode();
-            	resource.setContentStream(contentStream.getStream());
+                countingStream = new CountingInputStream(contentStream.getStream());
+            	resource.setContentStream(countingStream);
                 //TODO MIME-Type --> DONE
             	//contentStream.getMimeType();
             }
@@ -147,8 +182,15 @@ public abstract class RegistryDocument extends RegistryObject{
             String versionContextPath = gregVersionContext.getNode().getPath();
             getRepository().put(versionContextPath, resource);
 
+            Resource stored = getRepository().get(versionContextPath);
+            if (countingStream != null) {
+                stored.setProperty(CMISConstants.GREG_CONTENT_LENGTH, Long.toString(countingStream.getCount()));
+                getRepository().put(versionContextPath, stored);
+                stored = getRepository().get(versionContextPath);
+            }
+
             //set
-            gregVersionContext.setNode(getRepository().get(versionContextPath));
+            gregVersionContext.setNode(stored);
 
             if (autoCheckout) {
                 // auto versioning -> return new version created by checkin
@@ -325,4 +367,69 @@ public abstract class RegistryDocument extends RegistryObject{
 
     }
 
+    /**
+     * Exposes a window of the wrapped stream. The leading bytes are skipped when the stream is
+     * created, so nothing before the offset is handed to the consumer.
+     */
+    private static class RangeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        RangeInputStream(InputStream in, long offset, long length) throws IOException {
+            super(in);
+            this.remaining = length < 0 ? Long.MAX_VALUE : length;
+            long toSkip = offset;
+            while (toSkip > 0) {
+                long skipped = in.skip(toSkip);
+                if (skipped <= 0) {
+                    if (in.read() == -1) {
+                        break;
+                    }
+                    skipped = 1;
+                }
+                toSkip -= skipped;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
 }
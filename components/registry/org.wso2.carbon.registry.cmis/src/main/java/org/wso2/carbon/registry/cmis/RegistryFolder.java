@@ -70,66 +70,64 @@ public class RegistryFolder extends RegistryObject {
      * 		Do I have to give every resource (incl. Collections) except the checked out resources???
      */
     public Iterator<RegistryObject> getNodes() {
+        return getNodes(false);
+    }
+
+    /**
+     * Lazily iterates the children of this folder in name order. A child is only loaded when the
+     * iterator reaches it, so callers which stop early do not pay for the rest of the folder.
+     *
+     * @param foldersOnly  if <code>true</code>, documents are skipped without being loaded
+     * @return  Iterator of <code>GregNode</code>. Checked out documents are left out.
+     */
+    public Iterator<RegistryObject> getNodes(final boolean foldersOnly) {
         try {
             String[] children = getNode().getChildren();
-        	List<String> list = new ArrayList<String>();
-        	
-        	for(String child:children){
-                Resource resource = null;
-                try{
-        		    resource = getRepository().get(child);
-                } catch (RegistryException e){
-                    String msg = "Failed to get the child " + child;
-                    log.error(msg, e);
-                    throw new CmisObjectNotFoundException(msg, e);
-                }
-        		if (hasProperty(resource, CMISConstants.GREG_IS_CHECKED_OUT)){
-        			if(resource.getProperty(CMISConstants.GREG_IS_CHECKED_OUT).equals("true")){
-        	            String property = resource.getProperty(CMISConstants.GREG_CREATED_AS_PWC);
-                        if(property != null && property.equals("true")){
-                            list.add(child);
-                        }
-                    } else{
-        				list.add(child);
-        			}
-                } else {
-        			list.add(child); //if property doesn't exist, still add it to the list
-        		}
-        	}
+            final List<String> list = new ArrayList<String>();
+            if (children != null) {
+                list.addAll(Arrays.asList(children));
+            }
 
             //Sort by name
             Collections.sort(list);
-            //Collections.reverse(list);
 
-        	final Iterator<String> newListIterator = list.iterator();
-        	
-            Iterator<RegistryObject> gregObjects = new Iterator<RegistryObject>() {
+            return new Iterator<RegistryObject>() {
+                private int index = 0;
+                private Resource nextResource = null;
+
                 public boolean hasNext() {
-                    return newListIterator.hasNext();
+                    while (nextResource == null && index < list.size()) {
+                        String child = list.get(index++);
+                        try {
+                            if (foldersOnly && !(getRepository().getMetaData(child) instanceof Collection)) {
+                                continue;
+                            }
+                            Resource resource = getRepository().get(child);
+                            if (isListedChild(resource)) {
+                                nextResource = resource;
+                            }
+                        } catch (RegistryException e) {
+                            String msg = "Failed to get the child " + child;
+                            log.error(msg, e);
+                            throw new CmisObjectNotFoundException(msg, e);
+                        }
+                    }
+                    return nextResource != null;
                 }
 
                 public RegistryObject next() {
-                    try {
-						return create(getRepository().get(newListIterator.next()));
-					} catch (RegistryException e) {
-                        String msg = "Error while iterating the node list ";
-						log.error(msg, e);
-			            throw new CmisRuntimeException(msg, e);
-					}
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Resource resource = nextResource;
+                    nextResource = null;
+                    return create(resource);
                 }
 
                 public void remove() {
                     throw new UnsupportedOperationException();
                 }
             };
-
-            return gregObjects;
-
-            /* 
-             * Lots of GREG code was here. Check with GregFolder.java in the future
-             * 
-             */
-
         }
         catch (RegistryException e) {
             String msg = "Failed to get the nodes ";
@@ -138,6 +136,32 @@ public class RegistryFolder extends RegistryObject {
         }
     }
 
+    /**
+     * @return  the number of children of this folder without loading them. Checked out documents
+     *      which are left out by {@link #getNodes()} are included in the count.
+     */
+    public int getChildCount() {
+        try {
+            return getNode().getChildCount();
+        } catch (RegistryException e) {
+            String msg = "Failed to get the child count ";
+            log.error(msg, e);
+            throw new CmisRuntimeException(msg, e);
+        }
+    }
+
+    /**
+     * Checked out documents are only listed through their private working copy.
+     */
+    private static boolean isListedChild(Resource resource) {
+        if (hasProperty(resource, CMISConstants.GREG_IS_CHECKED_OUT)
+                && resource.getProperty(CMISConstants.GREG_IS_CHECKED_OUT).equals("true")) {
+            String property = resource.getProperty(CMISConstants.GREG_CREATED_AS_PWC);
+            return property != null && property.equals("true");
+        }
+        return true; //if property doesn't exist, still add it to the list
+    }
+
     /**
      * See CMIS 1.0 section 2.2.4.2 createDocumentFromSource
      *
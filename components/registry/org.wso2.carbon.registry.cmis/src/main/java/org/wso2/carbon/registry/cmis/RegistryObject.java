@@ -386,6 +386,25 @@ public abstract class RegistryObject {
         return gregorianCalendar;
     }
     
+    /**
+     * Returns the content length recorded when the content was written, without reading the
+     * content.
+     *
+     * @param node
+     * @return the length of the content, or -1 if it was not recorded
+     */
+    protected static long getContentLength(Resource node) {
+        String length = node.getProperty(CMISConstants.GREG_CONTENT_LENGTH);
+        if (length != null) {
+            try {
+                return Long.parseLong(length);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid content length recorded for " + node.getPath() + ": " + length);
+            }
+        }
+        return -1;
+    }
+
     /**
      * Utility function to retrieve the length of a property of a Registry <code>Node</code>.
      *
@@ -400,6 +419,10 @@ public abstract class RegistryObject {
         if(propertyName.equals(CMISConstants.GREG_DATA)){
             if(property != null && !property.equals("true")){
                 return 0;
+            }
+            long storedLength = getContentLength(node);
+            if (storedLength >= 0) {
+                return storedLength;
             }
         	long count = 0;
             //node.getContent();
@@ -407,7 +430,10 @@ public abstract class RegistryObject {
 
         	if(dataObject == null){
         		return count;
-        	} else{
+        	} else if (dataObject instanceof byte[]) {
+                // content is already in memory, no need to read it through a stream to count it
+                return ((byte[]) dataObject).length;
+            } else{
                 count = 0;
                 byte[] buffer = new byte[64 * 1024];
                 InputStream inputStream = node.getContentStream();
@@ -28,6 +28,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.carbon.registry.cmis.util.CMISConstants;
 import org.wso2.carbon.registry.cmis.util.CommonUtil;
+import org.wso2.carbon.registry.cmis.util.CountingInputStream;
 
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.Resource;
@@ -93,10 +94,12 @@ public class DocumentTypeHandler extends AbstractTypeHandler {
         	Resource fileNode = repository.newResource();
         	
         	// write content, if available
+            CountingInputStream countingStream = null;
             if(contentStream != null && contentStream.getStream() != null){
-            	//set stream
+            	//set stream, counting it so that its length is known once stored
                 fileNode.setProperty(CMISConstants.GREG_DATA, "true");
-            	fileNode.setContentStream(contentStream.getStream());
+                countingStream = new CountingInputStream(contentStream.getStream());
+            	fileNode.setContentStream(countingStream);
             }
 
             //Put to registry AS A PWC (Look at getDestPathOfNode() )
@@ -107,6 +110,10 @@ public class DocumentTypeHandler extends AbstractTypeHandler {
         	// compile the properties
             RegistryFolder.setProperties(repository, fileNode, getTypeDefinition(), properties);
 
+            if (countingStream != null) {
+                fileNode.setProperty(CMISConstants.GREG_CONTENT_LENGTH, Long.toString(countingStream.getCount()));
+            }
+
             //Set MIMETYPE
             if (contentStream != null && contentStream.getMimeType() != null) {
             	fileNode.setProperty(CMISConstants.GREG_MIMETYPE, contentStream.getMimeType());
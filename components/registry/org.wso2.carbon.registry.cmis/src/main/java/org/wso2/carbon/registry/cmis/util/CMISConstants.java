@@ -26,6 +26,7 @@ public class CMISConstants {
     public static final String GREG_CHECKED_OUT_TRACKER = "/_system/config/repository/components/org.wso2.carbon.registry.cmis/checkedOutDocs";
     public static final String GREG_IS_CHECKED_OUT = "registry.cmis.property.ischeckedout";
     public static final String GREG_DATA = "registry.cmis.property.gregdata";
+    public static final String GREG_CONTENT_LENGTH = "registry.cmis.property.contentlength";
 
     public static final String GREG_CHECKED_OUT_BY = "registry.cmis.property.checkedoutby";
     public static final String GREG_PROPERTY_NOT_SET = "registry.cmis.property.notset";
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2006, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.cmis.util;
+
+import org.wso2.carbon.registry.common.ResourceData;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the hits of an index search a chunk at a time.
+ * <p/>
+ * The search service drops the hits the user cannot read or which no longer exist, so a chunk can
+ * hold fewer results than were asked for without the index being exhausted. The offset therefore
+ * always advances by the chunk size, in step with the start of the index query, and the hits run
+ * out only when the offset reaches the total reported by the index.
+ */
+public abstract class IndexPager {
+
+    private final int fetchSize;
+    private int offset = 0;
+    private boolean exhausted = false;
+
+    /**
+     * @param fetchSize the number of index hits read at a time
+     */
+    protected IndexPager(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Searches the index for a chunk of hits.
+     *
+     * @param offset  the position of the first hit in the index
+     * @param count   the number of hits to read
+     * @param results the list the results of the chunk are added to
+     * @return the total number of hits in the index
+     * @throws RegistryException if the index cannot be searched
+     */
+    protected abstract int fetch(int offset, int count, List<ResourceData> results)
+            throws RegistryException;
+
+    /**
+     * @return whether there may be more hits to read
+     */
+    public boolean hasNext() {
+        return !exhausted;
+    }
+
+    /**
+     * Reads the next chunk of hits, which may be empty if all its hits were dropped.
+     *
+     * @return the results of the chunk
+     * @throws RegistryException if the index cannot be searched
+     */
+    public List<ResourceData> next() throws RegistryException {
+        List<ResourceData> results = new ArrayList<ResourceData>();
+        if (exhausted) {
+            return results;
+        }
+        int total = fetch(offset, fetchSize, results);
+        offset += fetchSize;
+        exhausted = offset >= total;
+        return results;
+    }
+}
@@ -0,0 +1,497 @@
+/*
+ * Copyright (c) 2006, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.cmis.util;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+
+import javax.xml.bind.DatatypeConverter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates a CMIS query statement into the attribute map understood by the registry indexing
+ * attribute search, so that queries are answered by the Solr index instead of crawling folders.
+ * <p/>
+ * The supported subset is
+ * <pre>
+ * SELECT * | property [, property]* FROM type [alias]
+ * [WHERE condition [AND condition]*]
+ * [ORDER BY property [ASC | DESC]]
+ * </pre>
+ * where a condition is one of <code>CONTAINS('text')</code>, <code>IN_FOLDER('id')</code>,
+ * <code>IN_TREE('id')</code>, a comparison (<code>=</code>, <code>LIKE</code>) on
+ * <code>cmis:name</code>, <code>cmis:createdBy</code>, <code>cmis:lastModifiedBy</code> or
+ * <code>cmis:contentStreamMimeType</code> (the last three also with <code>&lt;&gt;</code>), a
+ * range comparison on <code>cmis:creationDate</code> or <code>cmis:lastModificationDate</code>
+ * against a <code>TIMESTAMP</code> literal, which the index resolves to the day, or a comparison
+ * on a single registry property. Disjunctions and negations are not supported.
+ */
+public final class QueryTranslator {
+
+    // field names of the registry indexing attribute search
+    private static final String FIELD_CONTENT = "content";
+    private static final String FIELD_RESOURCE_NAME = "resourceName";
+    private static final String FIELD_MEDIA_TYPE = "mediaType";
+    private static final String FIELD_MEDIA_TYPE_NEGATE = "mediaTypeNegate";
+    private static final String FIELD_CREATED_BY = "author";
+    private static final String FIELD_CREATED_BY_NEGATE = "authorNameNegate";
+    private static final String FIELD_LAST_UPDATED_BY = "updater";
+    private static final String FIELD_UPDATED_BY_NEGATE = "updaterNameNegate";
+    private static final String FIELD_CREATED_AFTER = "createdAfter";
+    private static final String FIELD_CREATED_BEFORE = "createdBefore";
+    private static final String FIELD_UPDATED_AFTER = "updatedAfter";
+    private static final String FIELD_UPDATED_BEFORE = "updatedBefore";
+    private static final String FIELD_PROPERTY_NAME = "propertyName";
+    private static final String FIELD_LEFT_PROPERTY_VAL = "leftPropertyValue";
+    private static final String FIELD_RIGHT_PROPERTY_VAL = "rightPropertyValue";
+    private static final String FIELD_LEFT_OP = "leftOp";
+    private static final String FIELD_RIGHT_OP = "rightOp";
+    private static final String NEGATE_VALUE = "on";
+    private static final String OPERATION_NA = "na";
+
+    // the attribute search has no query of its own when no attributes are given
+    private static final String MATCH_ALL = "*:*";
+
+    private static final String SORT_CREATED_DATE = "meta_created_date";
+    private static final String SORT_LAST_UPDATED_DATE = "meta_last_updated_date";
+
+    private static final String INDEX_DATE_FORMAT = "MM/dd/yyyy";
+
+    private final List<String> tokens;
+    private int position = 0;
+
+    private String selectList;
+    private String typeId;
+    private String alias;
+    private final Map<String, String> attributes = new HashMap<String, String>();
+    private String folderId;
+    private String treeId;
+    private String sortBy = "";
+    private String sortOrder = "ASC";
+
+    private QueryTranslator(String statement) {
+        tokens = tokenize(statement);
+    }
+
+    /**
+     * Parses the given CMIS query statement.
+     *
+     * @param statement the CMIS query statement
+     * @return the translated query
+     * @throws CmisInvalidArgumentException if the statement is malformed or uses a construct which
+     *                                      is not supported
+     */
+    public static QueryTranslator translate(String statement) {
+        if (statement == null || statement.trim().length() == 0) {
+            throw new CmisInvalidArgumentException("Query statement is empty");
+        }
+        QueryTranslator translator = new QueryTranslator(statement);
+        translator.parse();
+        return translator;
+    }
+
+    /**
+     * @return the selected properties as a comma separated filter
+     */
+    public String getSelectList() {
+        return selectList;
+    }
+
+    /**
+     * @return the id of the type in the FROM clause
+     */
+    public String getTypeId() {
+        return typeId;
+    }
+
+    /**
+     * @return the attributes to search the index with, a content query matching everything if the
+     *         statement has no condition the index can evaluate
+     */
+    public Map<String, String> getAttributes() {
+        Map<String, String> result = new HashMap<String, String>(attributes);
+        if (result.isEmpty()) {
+            result.put(FIELD_CONTENT, MATCH_ALL);
+        }
+        return result;
+    }
+
+    /**
+     * @return the id of the folder given to IN_FOLDER, or null
+     */
+    public String getFolderId() {
+        return folderId;
+    }
+
+    /**
+     * @return the id of the folder given to IN_TREE, or null
+     */
+    public String getTreeId() {
+        return treeId;
+    }
+
+    /**
+     * @return the field to sort the index results by, or an empty string
+     */
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    /**
+     * @return <code>ASC</code> or <code>DES</code>
+     */
+    public String getSortOrder() {
+        return sortOrder;
+    }
+
+    private void parse() {
+        expect("SELECT");
+        List<String> selected = new ArrayList<String>();
+        do {
+            selected.add(next());
+        } while (accept(","));
+
+        expect("FROM");
+        typeId = next();
+        if (accept("AS")) {
+            alias = next();
+        } else if (peek() != null && !isKeyword(peek(), "WHERE") && !isKeyword(peek(), "ORDER")) {
+            alias = next();
+        }
+
+        StringBuilder select = new StringBuilder();
+        for (String property : selected) {
+            if (select.length() > 0) {
+                select.append(',');
+            }
+            select.append(stripQualifier(property));
+        }
+        selectList = select.toString();
+
+        if (accept("WHERE")) {
+            do {
+                parseCondition();
+            } while (accept("AND"));
+        }
+        if (accept("ORDER")) {
+            expect("BY");
+            parseOrderBy(stripQualifier(next()));
+            if (accept("DESC")) {
+                sortOrder = "DES";
+            } else {
+                accept("ASC");
+            }
+        }
+        if (peek() != null) {
+            if (isKeyword(peek(), "OR") || isKeyword(peek(), "NOT")) {
+                throw new CmisInvalidArgumentException("Only conjunctions of conditions are supported");
+            }
+            throw new CmisInvalidArgumentException("Unexpected token in query: " + peek());
+        }
+    }
+
+    private void parseCondition() {
+        String token = next();
+        if (isKeyword(token, "CONTAINS")) {
+            String[] args = parseFunctionArguments();
+            addAttribute(FIELD_CONTENT, toContentQuery(args[args.length - 1]));
+        } else if (isKeyword(token, "IN_FOLDER")) {
+            String[] args = parseFunctionArguments();
+            folderId = args[args.length - 1];
+        } else if (isKeyword(token, "IN_TREE")) {
+            String[] args = parseFunctionArguments();
+            treeId = args[args.length - 1];
+        } else if (isKeyword(token, "NOT") || token.equals("(")) {
+            throw new CmisInvalidArgumentException("Only conjunctions of conditions are supported");
+        } else {
+            String property = stripQualifier(token);
+            String operator = next();
+            if (isKeyword(operator, "LIKE")) {
+                operator = "=";
+            } else if (isKeyword(operator, "NOT")) {
+                throw new CmisInvalidArgumentException("NOT is not supported");
+            }
+            parseComparison(property, operator, parseLiteral());
+        }
+    }
+
+    private void parseComparison(String property, String operator, String value) {
+        if (PropertyIds.NAME.equals(property)) {
+            requireOperator(property, operator, "=");
+            addAttribute(FIELD_RESOURCE_NAME, value);
+        } else if (PropertyIds.CREATED_BY.equals(property)) {
+            addNegatableAttribute(property, operator, value, FIELD_CREATED_BY, FIELD_CREATED_BY_NEGATE);
+        } else if (PropertyIds.LAST_MODIFIED_BY.equals(property)) {
+            addNegatableAttribute(property, operator, value, FIELD_LAST_UPDATED_BY, FIELD_UPDATED_BY_NEGATE);
+        } else if (PropertyIds.CONTENT_STREAM_MIME_TYPE.equals(property)) {
+            addNegatableAttribute(property, operator, value, FIELD_MEDIA_TYPE, FIELD_MEDIA_TYPE_NEGATE);
+        } else if (PropertyIds.CREATION_DATE.equals(property)) {
+            addDateRange(property, operator, value, FIELD_CREATED_AFTER, FIELD_CREATED_BEFORE);
+        } else if (PropertyIds.LAST_MODIFICATION_DATE.equals(property)) {
+            addDateRange(property, operator, value, FIELD_UPDATED_AFTER, FIELD_UPDATED_BEFORE);
+        } else if (property.startsWith("cmis:")) {
+            throw new CmisInvalidArgumentException("Property " + property + " cannot be queried");
+        } else {
+            addPropertyComparison(property, operator, value);
+        }
+    }
+
+    private void addNegatableAttribute(String property, String operator, String value, String field,
+                                       String negateField) {
+        if ("<>".equals(operator)) {
+            addAttribute(negateField, NEGATE_VALUE);
+        } else {
+            requireOperator(property, operator, "=");
+        }
+        addAttribute(field, value);
+    }
+
+    private void addDateRange(String property, String operator, String value, String afterField,
+                              String beforeField) {
+        String date;
+        try {
+            SimpleDateFormat format = new SimpleDateFormat(INDEX_DATE_FORMAT);
+            date = format.format(DatatypeConverter.parseDateTime(value).getTime());
+        } catch (IllegalArgumentException e) {
+            throw new CmisInvalidArgumentException("Invalid timestamp for " + property + ": " + value, e);
+        }
+        if (">".equals(operator) || ">=".equals(operator)) {
+            addAttribute(afterField, date);
+        } else if ("<".equals(operator) || "<=".equals(operator)) {
+            addAttribute(beforeField, date);
+        } else {
+            throw new CmisInvalidArgumentException("Operator " + operator + " is not supported on " + property);
+        }
+    }
+
+    private void addPropertyComparison(String property, String operator, String value) {
+        String propertyName = attributes.get(FIELD_PROPERTY_NAME);
+        if (propertyName != null && !propertyName.equals(property)) {
+            throw new CmisInvalidArgumentException("Only one registry property can be queried at a time");
+        }
+        attributes.put(FIELD_PROPERTY_NAME, property);
+        if ("=".equals(operator)) {
+            attributes.put(FIELD_RIGHT_PROPERTY_VAL, value);
+            attributes.put(FIELD_RIGHT_OP, "eq");
+        } else if (">".equals(operator) || ">=".equals(operator)) {
+            attributes.put(FIELD_LEFT_PROPERTY_VAL, value);
+            attributes.put(FIELD_LEFT_OP, ">".equals(operator) ? "gt" : "ge");
+            if (!attributes.containsKey(FIELD_RIGHT_OP)) {
+                attributes.put(FIELD_RIGHT_OP, OPERATION_NA);
+            }
+        } else if ("<".equals(operator) || "<=".equals(operator)) {
+            attributes.put(FIELD_RIGHT_PROPERTY_VAL, value);
+            attributes.put(FIELD_RIGHT_OP, "<".equals(operator) ? "lt" : "le");
+            if (!attributes.containsKey(FIELD_LEFT_OP)) {
+                attributes.put(FIELD_LEFT_OP, OPERATION_NA);
+            }
+        } else {
+            throw new CmisInvalidArgumentException("Operator " + operator + " is not supported on " + property);
+        }
+    }
+
+    private void parseOrderBy(String property) {
+        if (PropertyIds.CREATION_DATE.equals(property)) {
+            sortBy = SORT_CREATED_DATE;
+        } else if (PropertyIds.LAST_MODIFICATION_DATE.equals(property)) {
+            sortBy = SORT_LAST_UPDATED_DATE;
+        } else if (PropertyIds.NAME.equals(property)) {
+            sortBy = FIELD_RESOURCE_NAME;
+        } else if (PropertyIds.CREATED_BY.equals(property)) {
+            sortBy = FIELD_CREATED_BY;
+        } else if (PropertyIds.LAST_MODIFIED_BY.equals(property)) {
+            sortBy = FIELD_LAST_UPDATED_BY;
+        } else if (PropertyIds.CONTENT_STREAM_MIME_TYPE.equals(property)) {
+            sortBy = FIELD_MEDIA_TYPE;
+        } else {
+            throw new CmisInvalidArgumentException("Cannot order by " + property);
+        }
+    }
+
+    // CONTAINS requires all the terms to be present, the attribute search joins terms with '&&'
+    // into a conjunction and everything separated by a space into a disjunction
+    private String toContentQuery(String expression) {
+        String text = expression.trim();
+        if (text.length() == 0) {
+            throw new CmisInvalidArgumentException("CONTAINS requires a search expression");
+        }
+        if (text.indexOf('"') >= 0) {
+            return text;
+        }
+        StringBuilder query = new StringBuilder();
+        boolean or = false;
+        for (String term : text.split("\\s+")) {
+            if (term.equals("OR")) {
+                or = true;
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append(or ? " " : "&&");
+            }
+            query.append(term);
+            or = false;
+        }
+        return query.toString();
+    }
+
+    private String[] parseFunctionArguments() {
+        expect("(");
+        List<String> args = new ArrayList<String>();
+        do {
+            String token = peek();
+            if (token != null && token.startsWith("'")) {
+                args.add(parseLiteral());
+            } else {
+                // qualifier of the type the function applies to
+                args.add(next());
+            }
+        } while (accept(","));
+        expect(")");
+        return args.toArray(new String[args.size()]);
+    }
+
+    private String parseLiteral() {
+        String token = next();
+        if (isKeyword(token, "TIMESTAMP")) {
+            token = next();
+        }
+        if (token.startsWith("'")) {
+            return token.substring(1, token.length() - 1);
+        }
+        if (isKeyword(token, "TRUE") || isKeyword(token, "FALSE")) {
+            return token.toLowerCase();
+        }
+        if (token.length() > 0 && (Character.isDigit(token.charAt(0)) || token.charAt(0) == '-')) {
+            return token;
+        }
+        throw new CmisInvalidArgumentException("Expected a literal but found " + token);
+    }
+
+    private void requireOperator(String property, String operator, String expected) {
+        if (!expected.equals(operator)) {
+            throw new CmisInvalidArgumentException("Operator " + operator + " is not supported on " + property);
+        }
+    }
+
+    private void addAttribute(String field, String value) {
+        if (attributes.containsKey(field)) {
+            throw new CmisInvalidArgumentException("Only one condition per property is supported");
+        }
+        attributes.put(field, value);
+    }
+
+    private String stripQualifier(String name) {
+        if (alias != null && name.startsWith(alias + ".")) {
+            return name.substring(alias.length() + 1);
+        }
+        int index = name.indexOf('.');
+        if (index > 0 && name.indexOf(':') > index) {
+            return name.substring(index + 1);
+        }
+        return name;
+    }
+
+    private String peek() {
+        return position < tokens.size() ? tokens.get(position) : null;
+    }
+
+    private String next() {
+        if (position >= tokens.size()) {
+            throw new CmisInvalidArgumentException("Unexpected end of query");
+        }
+        return tokens.get(position++);
+    }
+
+    private boolean accept(String keyword) {
+        String token = peek();
+        if (token != null && isKeyword(token, keyword)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String keyword) {
+        if (!accept(keyword)) {
+            throw new CmisInvalidArgumentException("Expected " + keyword + " but found " + peek());
+        }
+    }
+
+    private static boolean isKeyword(String token, String keyword) {
+        return token.equalsIgnoreCase(keyword);
+    }
+
+    private static List<String> tokenize(String statement) {
+        List<String> result = new ArrayList<String>();
+        int i = 0;
+        int length = statement.length();
+        while (i < length) {
+            char c = statement.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'') {
+                // string literal, quotes are escaped by doubling them or with a backslash
+                StringBuilder literal = new StringBuilder("'");
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        throw new CmisInvalidArgumentException("Unterminated string literal in query");
+                    }
+                    char ch = statement.charAt(i);
+                    if (ch == '\\' && i + 1 < length) {
+                        literal.append(statement.charAt(i + 1));
+                        i += 2;
+                    } else if (ch == '\'' && i + 1 < length && statement.charAt(i + 1) == '\'') {
+                        literal.append('\'');
+                        i += 2;
+                    } else if (ch == '\'') {
+                        i++;
+                        break;
+                    } else {
+                        literal.append(ch);
+                        i++;
+                    }
+                }
+                result.add(literal.append('\'').toString());
+            } else if (c == '<' || c == '>') {
+                if (i + 1 < length && (statement.charAt(i + 1) == '=' ||
+                        (c == '<' && statement.charAt(i + 1) == '>'))) {
+                    result.add(statement.substring(i, i + 2));
+                    i += 2;
+                } else {
+                    result.add(String.valueOf(c));
+                    i++;
+                }
+            } else if (c == '=' || c == ',' || c == '(' || c == ')' || c == '*') {
+                result.add(String.valueOf(c));
+                i++;
+            } else {
+                int start = i;
+                while (i < length && !Character.isWhitespace(statement.charAt(i))
+                        && "'<>=,()".indexOf(statement.charAt(i)) < 0) {
+                    i++;
+                }
+                result.add(statement.substring(start, i));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2006, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.cmis.util;
+
+import junit.framework.TestCase;
+import org.wso2.carbon.registry.common.ResourceData;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class IndexPagerTest extends TestCase {
+
+    public void testReadsAllChunksWhenHitsAreDropped() throws RegistryException {
+        // every third hit is dropped by the search service, so no chunk is full.
+        StubIndex index = new StubIndex(25, 10, 3);
+
+        List<String> paths = readAll(index);
+
+        assertEquals(Arrays.asList(0, 10, 20), index.offsets);
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 25; i++) {
+            if (i % 3 != 0) {
+                expected.add("/hit" + i);
+            }
+        }
+        assertEquals(expected, paths);
+    }
+
+    public void testContinuesPastEmptyChunks() throws RegistryException {
+        // all the hits of a chunk can be dropped.
+        StubIndex index = new StubIndex(30, 10, 1) {
+            protected boolean isDropped(int hit) {
+                return hit < 20;
+            }
+        };
+
+        List<String> paths = readAll(index);
+
+        assertEquals(Arrays.asList(0, 10, 20), index.offsets);
+        assertEquals(10, paths.size());
+        assertEquals("/hit20", paths.get(0));
+    }
+
+    public void testStopsAtTheIndexTotal() throws RegistryException {
+        StubIndex index = new StubIndex(20, 10, 0);
+
+        assertEquals(20, readAll(index).size());
+        assertEquals(Arrays.asList(0, 10), index.offsets);
+        assertFalse(index.hasNext());
+        assertTrue(index.next().isEmpty());
+    }
+
+    public void testEmptyIndex() throws RegistryException {
+        StubIndex index = new StubIndex(0, 10, 0);
+
+        assertTrue(readAll(index).isEmpty());
+        assertEquals(Arrays.asList(0), index.offsets);
+    }
+
+    private static List<String> readAll(IndexPager pager) throws RegistryException {
+        List<String> paths = new ArrayList<String>();
+        while (pager.hasNext()) {
+            for (ResourceData resourceData : pager.next()) {
+                paths.add(resourceData.getResourcePath());
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * An index of numbered hits, dropping every n-th hit as the search service would, or none
+     * if n is 0.
+     */
+    private static class StubIndex extends IndexPager {
+
+        private final int total;
+        private final int dropEvery;
+        private final List<Integer> offsets = new ArrayList<Integer>();
+
+        private StubIndex(int total, int fetchSize, int dropEvery) {
+            super(fetchSize);
+            this.total = total;
+            this.dropEvery = dropEvery;
+        }
+
+        protected boolean isDropped(int hit) {
+            return dropEvery > 0 && hit % dropEvery == 0;
+        }
+
+        protected int fetch(int offset, int count, List<ResourceData> results) {
+            offsets.add(offset);
+            for (int hit = offset; hit < Math.min(offset + count, total); hit++) {
+                if (!isDropped(hit)) {
+                    ResourceData resourceData = new ResourceData();
+                    resourceData.setResourcePath("/hit" + hit);
+                    results.add(resourceData);
+                }
+            }
+            return total;
+        }
+    }
+}
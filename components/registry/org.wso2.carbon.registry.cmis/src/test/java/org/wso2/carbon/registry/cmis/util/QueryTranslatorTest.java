@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2006, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.cmis.util;
+
+import junit.framework.TestCase;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class QueryTranslatorTest extends TestCase {
+
+    public void testQueryWithoutConditionsMatchesEverything() {
+        QueryTranslator query = QueryTranslator.translate("SELECT * FROM cmis:document");
+
+        assertEquals("cmis:document", query.getTypeId());
+        assertEquals("*", query.getSelectList());
+        assertEquals(Collections.singletonMap("content", "*:*"), query.getAttributes());
+    }
+
+    public void testFolderConditionsAreNotIndexAttributes() {
+        QueryTranslator query = QueryTranslator.translate(
+                "SELECT * FROM cmis:document d WHERE IN_FOLDER(d, '/a') AND IN_TREE('/b')");
+
+        assertEquals("/a", query.getFolderId());
+        assertEquals("/b", query.getTreeId());
+        assertEquals(Collections.singletonMap("content", "*:*"), query.getAttributes());
+    }
+
+    public void testContains() {
+        QueryTranslator query = QueryTranslator.translate(
+                "SELECT cmis:name FROM cmis:document WHERE CONTAINS('quick brown OR fox')");
+
+        assertEquals(Collections.singletonMap("content", "quick&&brown fox"), query.getAttributes());
+        assertEquals("cmis:name", query.getSelectList());
+    }
+
+    public void testComparisons() {
+        QueryTranslator query = QueryTranslator.translate(
+                "SELECT d.cmis:name FROM cmis:document AS d WHERE d.cmis:name = 'a.txt' AND " +
+                "d.cmis:createdBy <> 'admin' AND d.cmis:creationDate >= " +
+                "TIMESTAMP '2015-02-03T10:00:00.000Z' ORDER BY d.cmis:lastModificationDate DESC");
+
+        Map<String, String> expected = new HashMap<String, String>();
+        expected.put("resourceName", "a.txt");
+        expected.put("author", "admin");
+        expected.put("authorNameNegate", "on");
+        expected.put("createdAfter", "02/03/2015");
+        assertEquals(expected, query.getAttributes());
+        assertEquals("cmis:name", query.getSelectList());
+        assertEquals("meta_last_updated_date", query.getSortBy());
+        assertEquals("DES", query.getSortOrder());
+    }
+
+    public void testPropertyRange() {
+        QueryTranslator query = QueryTranslator.translate(
+                "SELECT * FROM cmis:document WHERE size > 10 AND size <= 20");
+
+        Map<String, String> expected = new HashMap<String, String>();
+        expected.put("propertyName", "size");
+        expected.put("leftPropertyValue", "10");
+        expected.put("leftOp", "gt");
+        expected.put("rightPropertyValue", "20");
+        expected.put("rightOp", "le");
+        assertEquals(expected, query.getAttributes());
+    }
+
+    public void testUnsupportedStatements() {
+        assertInvalid("");
+        assertInvalid("SELECT * FROM cmis:document WHERE cmis:name = 'a' OR cmis:name = 'b'");
+        assertInvalid("SELECT * FROM cmis:document WHERE NOT CONTAINS('a')");
+        assertInvalid("SELECT * FROM cmis:document WHERE cmis:name > 'a'");
+        assertInvalid("SELECT * FROM cmis:document WHERE cmis:objectId = 'a'");
+        assertInvalid("SELECT * FROM cmis:document WHERE cmis:name = 'a");
+        assertInvalid("SELECT * FROM cmis:document WHERE a = '1' AND b = '2'");
+    }
+
+    private static void assertInvalid(String statement) {
+        try {
+            QueryTranslator.translate(statement);
+            fail("Statement should be rejected: " + statement);
+        } catch (CmisInvalidArgumentException expected) {
+            // expected
+        }
+    }
+}
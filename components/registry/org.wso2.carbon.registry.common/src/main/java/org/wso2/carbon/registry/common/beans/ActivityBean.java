@@ -25,6 +25,8 @@ public class ActivityBean {
 
     protected String errorMessage;
 
+    private String nextPageCursor;
+
     public String getErrorMessage() {
         return errorMessage;
     }
@@ -40,4 +42,12 @@ public class ActivityBean {
     public void setActivity(String [] activity) {
         this.activity = activity;
     }
+
+    public String getNextPageCursor() {
+        return nextPageCursor;
+    }
+
+    public void setNextPageCursor(String nextPageCursor) {
+        this.nextPageCursor = nextPageCursor;
+    }
 }
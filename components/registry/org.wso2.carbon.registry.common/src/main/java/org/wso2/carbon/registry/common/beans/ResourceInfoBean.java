@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2006, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.common.beans;
+
+import edu.umd.cs.findbugs.annotations.SuppressWarnings;
+
+import java.util.Calendar;
+
+/**
+ * The metadata of a resource along with the community features around it, gathered in a single
+ * call. Only the sections asked for are populated, the rest are left null.
+ */
+@SuppressWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+public class ResourceInfoBean {
+
+    public static final String METADATA = "metadata";
+    public static final String COMMENTS = "comments";
+    public static final String TAGS = "tags";
+    public static final String RATINGS = "ratings";
+    public static final String EVENT_TYPES = "eventTypes";
+    public static final String SUBSCRIPTIONS = "subscriptions";
+
+    private String path;
+
+    private String mediaType;
+
+    private String description;
+
+    private String authorUserName;
+
+    private String lastUpdaterUserName;
+
+    private Calendar createdOn;
+
+    private Calendar lastModified;
+
+    private boolean collection;
+
+    private CommentBean comments;
+
+    private TagBean tags;
+
+    private RatingBean ratings;
+
+    private EventTypeBean eventTypes;
+
+    private SubscriptionBean subscriptions;
+
+    private String errorMessage;
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public void setMediaType(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getAuthorUserName() {
+        return authorUserName;
+    }
+
+    public void setAuthorUserName(String authorUserName) {
+        this.authorUserName = authorUserName;
+    }
+
+    public String getLastUpdaterUserName() {
+        return lastUpdaterUserName;
+    }
+
+    public void setLastUpdaterUserName(String lastUpdaterUserName) {
+        this.lastUpdaterUserName = lastUpdaterUserName;
+    }
+
+    public Calendar getCreatedOn() {
+        return createdOn;
+    }
+
+    public void setCreatedOn(Calendar createdOn) {
+        this.createdOn = createdOn;
+    }
+
+    public Calendar getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Calendar lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public boolean isCollection() {
+        return collection;
+    }
+
+    public void setCollection(boolean collection) {
+        this.collection = collection;
+    }
+
+    public CommentBean getComments() {
+        return comments;
+    }
+
+    public void setComments(CommentBean comments) {
+        this.comments = comments;
+    }
+
+    public TagBean getTags() {
+        return tags;
+    }
+
+    public void setTags(TagBean tags) {
+        this.tags = tags;
+    }
+
+    public RatingBean getRatings() {
+        return ratings;
+    }
+
+    public void setRatings(RatingBean ratings) {
+        this.ratings = ratings;
+    }
+
+    public EventTypeBean getEventTypes() {
+        return eventTypes;
+    }
+
+    public void setEventTypes(EventTypeBean eventTypes) {
+        this.eventTypes = eventTypes;
+    }
+
+    public SubscriptionBean getSubscriptions() {
+        return subscriptions;
+    }
+
+    public void setSubscriptions(SubscriptionBean subscriptions) {
+        this.subscriptions = subscriptions;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
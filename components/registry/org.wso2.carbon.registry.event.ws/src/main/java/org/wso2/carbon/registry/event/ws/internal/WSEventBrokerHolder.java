@@ -29,6 +29,8 @@ public class WSEventBrokerHolder {
 
     private ConfigurationContextService configurationContextService;
 
+    private WSEventDispatcher wsEventDispatcher;
+
     public static WSEventBrokerHolder getInstance(){
         return wsEventBrokerHolder;
     }
@@ -50,8 +52,19 @@ public class WSEventBrokerHolder {
     }
 
     public void registerWSEventDispatcher(){
-        WSEventDispatcher wsEventDispatcher = new WSEventDispatcher();
+        this.wsEventDispatcher = new WSEventDispatcher();
         this.eventBroker.registerEventDispatcher(
                 EventBrokerConstants.WS_EVENT_DISPATCHER_NAME, wsEventDispatcher);
     }
+
+    public WSEventDispatcher getWSEventDispatcher(){
+        return wsEventDispatcher;
+    }
+
+    public void shutdownWSEventDispatcher(){
+        if (this.wsEventDispatcher != null) {
+            this.wsEventDispatcher.shutdown();
+            this.wsEventDispatcher = null;
+        }
+    }
 }
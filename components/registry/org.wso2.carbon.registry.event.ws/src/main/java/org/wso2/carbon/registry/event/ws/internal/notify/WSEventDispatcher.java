@@ -24,6 +24,10 @@ import org.apache.axis2.AxisFault;
 import org.apache.axis2.addressing.EndpointReference;
 import org.apache.axis2.client.Options;
 import org.apache.axis2.client.ServiceClient;
+import org.apache.axis2.transport.http.HTTPConstants;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.registry.event.ws.internal.util.EventingConstants;
@@ -34,10 +38,100 @@ import org.wso2.carbon.registry.event.core.Message;
 import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
 import org.wso2.carbon.utils.ConfigurationContextService;
 
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers notifications to WS-Eventing subscribers. Notifications are sent on a small pool of
+ * sender threads, and a failed send is retried with an exponentially growing delay. Each endpoint
+ * has a queue of its own, so notifications reach an endpoint one at a time and in the order they
+ * were queued, while different endpoints are sent to concurrently. The service client of an
+ * endpoint is kept between notifications, and the HTTP connections are kept alive in a pool
+ * shared by all endpoints.
+ * <p/>
+ * The number of notifications queued or being sent to an endpoint is bounded, and further
+ * notifications to the endpoint are dropped until it catches up, so that an endpoint which is
+ * down neither holds up the callers nor the notifications to other endpoints. An endpoint is
+ * forgotten, along with its client, once it has been idle for a while or its subscription ends.
+ */
 public class WSEventDispatcher implements EventDispatcher {
 
      private static Log log = LogFactory.getLog(WSEventDispatcher.class);
 
+    /* System properties tuning the delivery of notifications */
+    public static final String MAX_BACKLOG_PROPERTY = "ws.event.dispatcher.maxBacklog";
+    public static final String SENDER_THREADS_PROPERTY = "ws.event.dispatcher.senderThreads";
+    public static final String MAX_RETRIES_PROPERTY = "ws.event.dispatcher.maxRetries";
+    public static final String IDLE_TIMEOUT_PROPERTY = "ws.event.dispatcher.idleTimeout";
+
+    private static final int DEFAULT_MAX_BACKLOG = 256;
+    private static final int DEFAULT_SENDER_THREADS = 8;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final long DEFAULT_RETRY_DELAY = 500;
+    private static final int DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000;
+
+    private final int maxBacklog;
+    private final int senderThreads;
+    private final int maxRetries;
+    private final long retryDelay;
+    private final long idleTimeout;
+
+    private volatile ScheduledExecutorService sender;
+
+    private final MultiThreadedHttpConnectionManager connectionManager;
+    private final HttpClient httpClient;
+
+    private final ConcurrentMap<String, Endpoint> endpoints =
+            new ConcurrentHashMap<String, Endpoint>();
+
+    public WSEventDispatcher() {
+        this(Integer.getInteger(MAX_BACKLOG_PROPERTY, DEFAULT_MAX_BACKLOG),
+                Integer.getInteger(SENDER_THREADS_PROPERTY, DEFAULT_SENDER_THREADS),
+                Integer.getInteger(MAX_RETRIES_PROPERTY, DEFAULT_MAX_RETRIES),
+                DEFAULT_RETRY_DELAY,
+                Integer.getInteger(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT));
+    }
+
+    protected WSEventDispatcher(int maxBacklog, int senderThreads, int maxRetries,
+                                long retryDelay) {
+        this(maxBacklog, senderThreads, maxRetries, retryDelay, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * @param maxBacklog    the number of notifications which can be queued or being sent to an
+     *                      endpoint
+     * @param senderThreads the number of threads sending notifications
+     * @param maxRetries    the number of times a failed send is retried
+     * @param retryDelay    the delay before the first retry in milliseconds, doubled for each
+     *                      further retry
+     * @param idleTimeout   the time in milliseconds after which an endpoint nothing was sent to
+     *                      is forgotten
+     */
+    protected WSEventDispatcher(int maxBacklog, int senderThreads, int maxRetries,
+                                long retryDelay, long idleTimeout) {
+        this.maxBacklog = Math.max(maxBacklog, 1);
+        this.senderThreads = Math.max(senderThreads, 1);
+        this.maxRetries = Math.max(maxRetries, 0);
+        this.retryDelay = retryDelay;
+        this.idleTimeout = Math.max(idleTimeout, 1);
+
+        // the default allows two connections to a host, which would leave all but two sender
+        // threads waiting when the subscribers are on the same host.
+        connectionManager = new MultiThreadedHttpConnectionManager();
+        HttpConnectionManagerParams params = connectionManager.getParams();
+        params.setDefaultMaxConnectionsPerHost(this.senderThreads);
+        params.setMaxTotalConnections(this.senderThreads);
+        httpClient = new HttpClient(connectionManager);
+    }
+
     public void notify(Message message, Subscription subscription) {
 
         String endpoint = subscription.getEventSinkURL();
@@ -49,7 +143,7 @@ public class WSEventDispatcher implements EventDispatcher {
                 EventingConstants.NOTIFICATION_NS_PREFIX);
         OMElement topicEle = factory.createOMElement(EventingConstants.WSE_EN_TOPIC, topicNs);
         topicEle.setText(topic);
-        
+
         OMElement domainElement = null;
         String tenantDomain = message.getProperty(MultitenantConstants.TENANT_DOMAIN_HEADER_NAME);
         if (tenantDomain != null) {
@@ -69,48 +163,370 @@ public class WSEventDispatcher implements EventDispatcher {
         }
     }
 
-    protected synchronized void sendNotification(OMElement topicHeader,
+    /**
+     * Queues a notification to be sent to the given endpoint. The notification is sent after
+     * those queued before it for the same endpoint, and is dropped if the backlog of the endpoint
+     * is full. Failures to deliver the notification are logged.
+     *
+     * @throws AxisFault if the notification could not be queued
+     */
+    protected void sendNotification(OMElement topicHeader,
                                     OMElement tenantDomainHeader,
                                     OMElement payload,
                                     String endpoint)
             throws AxisFault {
-        // The parameter args is used as a mechanism to pass any argument into this method, which
-        // is used by the implementations that extend the behavior of the default Carbon Event
-        // Dispatcher.
+        Delivery delivery = new Delivery(topicHeader, tenantDomainHeader, payload);
+        try {
+            // an endpoint being forgotten does not take notifications, which go to a new one.
+            while (!getEndpoint(endpoint).add(delivery)) {
+                // retry
+            }
+        } catch (RejectedExecutionException e) {
+            throw new AxisFault("Unable to queue the notification to " + endpoint, e);
+        }
+    }
+
+    protected void sendNotification(OMElement topicHeader,
+                                    OMElement payload,
+                                    String endpoint)
+            throws AxisFault {
+        sendNotification(topicHeader, null, payload, endpoint);
+    }
+
+    /**
+     * Forgets the given endpoint once the notifications queued for it are sent, releasing its
+     * client. Called when a subscription to the endpoint ends.
+     *
+     * @param endpointURL the URL of the endpoint
+     */
+    public void release(String endpointURL) {
+        if (endpointURL == null) {
+            return;
+        }
+        Endpoint endpoint = endpoints.get(endpointURL);
+        if (endpoint != null) {
+            endpoint.release();
+        }
+    }
+
+    /**
+     * Stops sending notifications, dropping those not sent yet, and releases the clients and
+     * connections kept.
+     */
+    public void shutdown() {
+        ScheduledExecutorService currentSender = sender;
+        if (currentSender != null) {
+            currentSender.shutdownNow();
+        }
+        for (Endpoint endpoint : endpoints.values()) {
+            endpoint.cleanup();
+        }
+        endpoints.clear();
+        connectionManager.shutdown();
+    }
+
+    int getEndpointCount() {
+        return endpoints.size();
+    }
+
+    private ScheduledExecutorService getSender() {
+        if (sender == null) {
+            synchronized (this) {
+                if (sender == null) {
+                    sender = new ScheduledThreadPoolExecutor(senderThreads, new SenderThreadFactory());
+                }
+            }
+        }
+        return sender;
+    }
+
+    private Endpoint getEndpoint(String endpointURL) {
+        Endpoint endpoint = endpoints.get(endpointURL);
+        if (endpoint == null) {
+            Endpoint newEndpoint = new Endpoint(endpointURL);
+            endpoint = endpoints.putIfAbsent(endpointURL, newEndpoint);
+            if (endpoint == null) {
+                endpoint = newEndpoint;
+            }
+        }
+        return endpoint;
+    }
+
+    private ServiceClient createClient(String endpoint) throws AxisFault {
         ConfigurationContextService configurationContextService =
                 WSEventBrokerHolder.getInstance().getConfigurationContextService();
-
-        ServiceClient serviceClient =
-                new ServiceClient(configurationContextService.getClientConfigContext(), null);
+        ServiceClient serviceClient = configurationContextService != null ?
+                new ServiceClient(configurationContextService.getClientConfigContext(), null) :
+                new ServiceClient();
 
         Options options = new Options();
         options.setTo(new EndpointReference(endpoint));
         options.setAction(EventingConstants.WSE_PUBLISH);
+        // keeps the connections to the endpoint open between notifications, in the pool of this
+        // dispatcher rather than the one of the client configuration context.
+        options.setProperty(HTTPConstants.REUSE_HTTP_CLIENT, Boolean.TRUE);
+        options.setProperty(HTTPConstants.CACHED_HTTP_CLIENT, httpClient);
+        options.setProperty(HTTPConstants.AUTO_RELEASE_CONNECTION, Boolean.TRUE);
         serviceClient.setOptions(options);
-        serviceClient.addHeader(topicHeader);
+        return serviceClient;
+    }
+
+    private static void cleanup(ServiceClient serviceClient) {
+        try {
+            serviceClient.cleanup();
+        } catch (AxisFault e) {
+            log.debug("Unable to clean up the service client", e);
+        }
+    }
+
+    /**
+     * The notifications queued for an endpoint. At most one task sends them at a time, taking
+     * the notification at the head of the queue, and a notification being retried holds back
+     * those behind it. The queue holds the notification being sent until it is done with.
+     */
+    private class Endpoint implements Runnable {
+
+        private final String endpoint;
+
+        // guarded by this, the queue is only empty when no task is scheduled.
+        private final Queue<Delivery> deliveries = new LinkedList<Delivery>();
+        private boolean scheduled = false;
+        private int dropped = 0;
+        private long lastActive = System.currentTimeMillis();
+        private boolean evictionScheduled = false;
+        private boolean released = false;
+        private boolean retired = false;
+
+        // used by the task sending to the endpoint, and cleaned up on shutdown.
+        private volatile ServiceClient serviceClient;
+
+        private final Runnable eviction = new Runnable() {
+            public void run() {
+                evictIfIdle();
+            }
+        };
 
-        if (tenantDomainHeader != null){
-            serviceClient.addHeader(tenantDomainHeader);
+        private Endpoint(String endpoint) {
+            this.endpoint = endpoint;
         }
 
-        serviceClient.fireAndForget(payload);
+        /**
+         * @return false if the endpoint is forgotten, and does not take the notification
+         */
+        private boolean add(Delivery delivery) {
+            synchronized (this) {
+                if (retired) {
+                    return false;
+                }
+                released = false;
+                if (deliveries.size() >= maxBacklog) {
+                    if (dropped++ == 0) {
+                        log.warn("Too many notifications are waiting to be sent to " + endpoint +
+                                ", dropping notifications until it catches up");
+                    }
+                    return true;
+                }
+                deliveries.add(delivery);
+                if (scheduled) {
+                    return true;
+                }
+                scheduled = true;
+            }
+            try {
+                getSender().execute(this);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    deliveries.remove(delivery);
+                    scheduled = false;
+                }
+                throw e;
+            }
+            return true;
+        }
+
+        public void run() {
+            Delivery delivery;
+            synchronized (this) {
+                delivery = deliveries.peek();
+            }
+            try {
+                send(delivery);
+            } catch (AxisFault e) {
+                if (retry(delivery, e)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                log.error("Unable to send message to " + endpoint, e);
+            }
+            int droppedCount;
+            boolean idle = false;
+            boolean retire = false;
+            boolean scheduleEviction = false;
+            synchronized (this) {
+                deliveries.poll();
+                droppedCount = dropped;
+                dropped = 0;
+                if (deliveries.isEmpty()) {
+                    idle = true;
+                    scheduled = false;
+                    lastActive = System.currentTimeMillis();
+                    if (released) {
+                        retire = retired = true;
+                    } else if (!evictionScheduled) {
+                        scheduleEviction = evictionScheduled = true;
+                    }
+                }
+            }
+            if (droppedCount > 0) {
+                log.warn("Dropped " + droppedCount + " notifications to " + endpoint);
+            }
+            if (idle) {
+                if (retire) {
+                    forget();
+                } else if (scheduleEviction) {
+                    scheduleEviction(idleTimeout);
+                }
+                return;
+            }
+            // the next notification goes behind those of other endpoints.
+            try {
+                getSender().execute(this);
+            } catch (RejectedExecutionException e) {
+                log.debug("The dispatcher is shut down, dropping the messages to " + endpoint);
+            }
+        }
+
+        private void send(Delivery delivery) throws AxisFault {
+            if (serviceClient == null) {
+                serviceClient = createClient(endpoint);
+            }
+            boolean sent = false;
+            try {
+                serviceClient.removeHeaders();
+                // the elements are moved into the envelope, and are sent again if this send fails.
+                serviceClient.addHeader(delivery.topicHeader.cloneOMElement());
+                if (delivery.tenantDomainHeader != null) {
+                    serviceClient.addHeader(delivery.tenantDomainHeader.cloneOMElement());
+                }
+                serviceClient.fireAndForget(delivery.payload.cloneOMElement());
+                serviceClient.cleanupTransport();
+                sent = true;
+            } finally {
+                if (!sent) {
+                    // a client which failed is not reused.
+                    cleanup();
+                }
+            }
+        }
+
+        private boolean retry(Delivery delivery, AxisFault e) {
+            if (delivery.attempt >= maxRetries) {
+                log.error("Unable to send message to " + endpoint + " after " +
+                        (delivery.attempt + 1) + " attempts", e);
+                return false;
+            }
+            long delay = retryDelay << delivery.attempt;
+            delivery.attempt++;
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to send message to " + endpoint + ", retrying in " + delay +
+                        "ms", e);
+            }
+            try {
+                getSender().schedule(this, delay, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (RejectedExecutionException rejected) {
+                log.error("Unable to send message to " + endpoint, e);
+                return false;
+            }
+        }
+
+        private void release() {
+            synchronized (this) {
+                if (retired) {
+                    return;
+                }
+                released = true;
+                // otherwise forgotten once the queued notifications are sent.
+                if (scheduled) {
+                    return;
+                }
+                retired = true;
+            }
+            forget();
+        }
+
+        private void evictIfIdle() {
+            long delay;
+            synchronized (this) {
+                if (retired) {
+                    return;
+                }
+                if (scheduled) {
+                    // checked again once the queued notifications are sent.
+                    evictionScheduled = false;
+                    return;
+                }
+                delay = lastActive + idleTimeout - System.currentTimeMillis();
+                if (delay <= 0) {
+                    retired = true;
+                }
+            }
+            if (delay > 0) {
+                scheduleEviction(delay);
+                return;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Forgetting the idle endpoint " + endpoint);
+            }
+            forget();
+        }
+
+        private void scheduleEviction(long delay) {
+            try {
+                getSender().schedule(eviction, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                log.debug("The dispatcher is shut down, not checking whether " + endpoint +
+                        " is idle");
+            }
+        }
+
+        private void forget() {
+            endpoints.remove(endpoint, this);
+            cleanup();
+        }
+
+        private void cleanup() {
+            ServiceClient currentClient = serviceClient;
+            serviceClient = null;
+            if (currentClient != null) {
+                WSEventDispatcher.cleanup(currentClient);
+            }
+        }
     }
 
-    protected void sendNotification(OMElement topicHeader,
-                                    OMElement payload,
-                                    String endpoint)
-            throws AxisFault {
-        // The parameter args is used as a mechanism to pass any argument into this method, which
-        // is used by the implementations that extend the behavior of the default Carbon Event
-        // Dispatcher.
-        ServiceClient serviceClient = new ServiceClient();
+    private static class Delivery {
 
-        Options options = new Options();
-        options.setTo(new EndpointReference(endpoint));
-        options.setAction(EventingConstants.WSE_PUBLISH);
-        serviceClient.setOptions(options);
-        serviceClient.addHeader(topicHeader);
+        private final OMElement topicHeader;
+        private final OMElement tenantDomainHeader;
+        private final OMElement payload;
+
+        private int attempt = 0;
+
+        private Delivery(OMElement topicHeader, OMElement tenantDomainHeader, OMElement payload) {
+            this.topicHeader = topicHeader;
+            this.tenantDomainHeader = tenantDomainHeader;
+            this.payload = payload;
+        }
+    }
+
+    private static class SenderThreadFactory implements ThreadFactory {
 
-        serviceClient.fireAndForget(payload);
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "WSEventDispatcher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
 }
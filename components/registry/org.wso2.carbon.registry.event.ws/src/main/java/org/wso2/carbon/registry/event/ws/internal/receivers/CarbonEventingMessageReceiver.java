@@ -32,6 +32,7 @@ import org.wso2.carbon.registry.event.ws.internal.builders.exceptions.InvalidMes
 import org.wso2.carbon.registry.event.ws.internal.builders.utils.BuilderUtils;
 import org.wso2.carbon.registry.event.ws.internal.WSEventBrokerHolder;
 import org.wso2.carbon.registry.event.ws.internal.exception.WSEventException;
+import org.wso2.carbon.registry.event.ws.internal.notify.WSEventDispatcher;
 import org.wso2.carbon.registry.event.ws.internal.util.EventingConstants;
 import org.wso2.carbon.registry.event.ws.internal.util.EventBrokerUtils;
 import org.wso2.carbon.registry.event.core.EventBroker;
@@ -194,7 +195,12 @@ public class CarbonEventingMessageReceiver extends AbstractMessageReceiver {
                 log.debug("UnSubscribe response recived for Subscription ID : " +
                           subscription.getId());
             }
+            Subscription subscribed = getBrokerService().getSubscription(subscription.getId());
             getBrokerService().unsubscribe(subscription.getId());
+            WSEventDispatcher dispatcher = WSEventBrokerHolder.getInstance().getWSEventDispatcher();
+            if (subscribed != null && dispatcher != null) {
+                dispatcher.release(subscribed.getEventSinkURL());
+            }
             if (log.isDebugEnabled()) {
                 log.debug("Sending UnSubscribe responce for Subscription ID : " +
                           subscription.getId());
@@ -0,0 +1,360 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.registry.event.ws.internal.notify;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class WSEventDispatcherTest extends TestCase {
+
+    private static final long TIMEOUT = 30000;
+
+    private static final Pattern NOTIFICATION = Pattern.compile("notification-(\\d+)");
+
+    private OMFactory factory;
+    private OMElement topicHeader;
+
+    private WSEventDispatcher dispatcher;
+    private EventSink eventSink;
+
+    protected void setUp() throws Exception {
+        factory = OMAbstractFactory.getOMFactory();
+        topicHeader = factory.createOMElement("Topic", null);
+        topicHeader.setText("/registry/notifications");
+    }
+
+    protected void tearDown() throws Exception {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        if (eventSink != null) {
+            eventSink.stop();
+        }
+    }
+
+    public void testReusesConnection() throws Exception {
+        eventSink = new EventSink(0);
+        dispatcher = new WSEventDispatcher(16, 4, 0, 1);
+
+        String endpoint = eventSink.getEndpoint("sink");
+        for (int i = 0; i < 20; i++) {
+            dispatcher.sendNotification(topicHeader, createPayload(i), endpoint);
+        }
+
+        assertTrue(eventSink.waitFor(20));
+        assertEquals(range(0, 20), eventSink.getNotifications("/sink"));
+        // the client of the endpoint is kept along with its connection.
+        assertEquals("Connections opened: " + eventSink.getConnections(), 1,
+                eventSink.getConnections().size());
+    }
+
+    public void testRetriesFailedSendsInOrder() throws Exception {
+        // nothing listens on the port of the event sink until it is started again.
+        eventSink = new EventSink(0);
+        int port = eventSink.getPort();
+        String endpoint = eventSink.getEndpoint("sink");
+        eventSink.stop();
+        dispatcher = new WSEventDispatcher(16, 4, 5, 200);
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.sendNotification(topicHeader, createPayload(i), endpoint);
+        }
+        Thread.sleep(100);
+        eventSink = new EventSink(port);
+
+        // the notification being retried holds back those queued behind it.
+        assertTrue(eventSink.waitFor(5));
+        assertEquals(range(0, 5), eventSink.getNotifications("/sink"));
+    }
+
+    public void testGivesUpAfterMaxRetries() throws Exception {
+        eventSink = new EventSink(0);
+        int port = eventSink.getPort();
+        String endpoint = eventSink.getEndpoint("sink");
+        eventSink.stop();
+        dispatcher = new WSEventDispatcher(2, 2, 1, 1);
+
+        for (int i = 0; i < 2; i++) {
+            dispatcher.sendNotification(topicHeader, createPayload(i), endpoint);
+        }
+        Thread.sleep(500);
+        eventSink = new EventSink(port);
+
+        // the notifications given up on must not hold on to the backlog of the endpoint, which
+        // only has room for two.
+        for (int i = 2; i < 4; i++) {
+            dispatcher.sendNotification(topicHeader, createPayload(i), endpoint);
+        }
+        assertTrue(eventSink.waitFor(2));
+        assertEquals(range(2, 4), eventSink.getNotifications("/sink"));
+    }
+
+    public void testUnreachableEndpointDoesNotHoldBackOthers() throws Exception {
+        EventSink stopped = new EventSink(0);
+        String unreachable = stopped.getEndpoint("sink");
+        stopped.stop();
+        eventSink = new EventSink(0);
+        dispatcher = new WSEventDispatcher(2, 2, 5, 10000);
+
+        // the notifications beyond the backlog of the unreachable endpoint are dropped, rather
+        // than waiting for it to come back.
+        for (int i = 0; i < 10; i++) {
+            dispatcher.sendNotification(topicHeader, createPayload(i), unreachable);
+        }
+        for (int i = 10; i < 12; i++) {
+            dispatcher.sendNotification(topicHeader, createPayload(i),
+                    eventSink.getEndpoint("sink"));
+        }
+        assertTrue(eventSink.waitFor(2));
+        assertEquals(range(10, 12), eventSink.getNotifications("/sink"));
+    }
+
+    public void testDropsNotificationsBeyondBacklog() throws Exception {
+        eventSink = new EventSink(0);
+        eventSink.latency = 500;
+        dispatcher = new WSEventDispatcher(2, 2, 0, 1);
+
+        String endpoint = eventSink.getEndpoint("sink");
+        for (int i = 0; i < 10; i++) {
+            dispatcher.sendNotification(topicHeader, createPayload(i), endpoint);
+        }
+        assertTrue(eventSink.waitFor(2));
+        dispatcher.sendNotification(topicHeader, createPayload(10), endpoint);
+
+        assertTrue(eventSink.waitFor(3));
+        assertEquals(Arrays.asList(0, 1, 10), eventSink.getNotifications("/sink"));
+    }
+
+    public void testForgetsIdleEndpoints() throws Exception {
+        eventSink = new EventSink(0);
+        dispatcher = new WSEventDispatcher(16, 2, 0, 1, 50);
+
+        String endpoint = eventSink.getEndpoint("sink");
+        dispatcher.sendNotification(topicHeader, createPayload(0), endpoint);
+        assertTrue(eventSink.waitFor(1));
+        assertTrue(waitForEndpoints(0));
+
+        dispatcher.sendNotification(topicHeader, createPayload(1), endpoint);
+        assertTrue(eventSink.waitFor(2));
+        assertEquals(range(0, 2), eventSink.getNotifications("/sink"));
+    }
+
+    public void testReleasesEndpointOfEndedSubscription() throws Exception {
+        eventSink = new EventSink(0);
+        eventSink.latency = 200;
+        dispatcher = new WSEventDispatcher(16, 2, 0, 1);
+
+        String endpoint = eventSink.getEndpoint("sink");
+        for (int i = 0; i < 3; i++) {
+            dispatcher.sendNotification(topicHeader, createPayload(i), endpoint);
+        }
+        dispatcher.release(endpoint);
+        assertEquals(1, dispatcher.getEndpointCount());
+
+        // the notifications queued before the subscription ended are still sent.
+        assertTrue(eventSink.waitFor(3));
+        assertEquals(range(0, 3), eventSink.getNotifications("/sink"));
+        assertTrue(waitForEndpoints(0));
+    }
+
+    public void testSendsToEndpointsConcurrently() throws Exception {
+        int endpoints = 4;
+        int notifications = 100;
+        eventSink = new EventSink(0);
+        eventSink.latency = 20;
+        dispatcher = new WSEventDispatcher(notifications, endpoints, 0, 1);
+
+        for (int i = 0; i < notifications; i++) {
+            dispatcher.sendNotification(topicHeader, createPayload(i),
+                    eventSink.getEndpoint("sink" + (i % endpoints)));
+        }
+        assertTrue(eventSink.waitFor(notifications));
+
+        // the endpoints are on one host, which the default connection manager would limit to
+        // two connections.
+        assertTrue("Notifications were sent to at most " + eventSink.maxConcurrentRequests.get() +
+                " endpoints at a time", eventSink.maxConcurrentRequests.get() > 2);
+        for (int i = 0; i < endpoints; i++) {
+            List<Integer> expected = new ArrayList<Integer>();
+            for (int j = i; j < notifications; j += endpoints) {
+                expected.add(j);
+            }
+            assertEquals(expected, eventSink.getNotifications("/sink" + i));
+        }
+    }
+
+    private boolean waitForEndpoints(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (dispatcher.getEndpointCount() != expected) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    private OMElement createPayload(int i) {
+        OMElement payload = factory.createOMElement("event", null);
+        payload.setText("notification-" + i);
+        return payload;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> range = new ArrayList<Integer>();
+        for (int i = from; i < to; i++) {
+            range.add(i);
+        }
+        return range;
+    }
+
+    /**
+     * A local HTTP endpoint recording the notifications it receives, per path and in the order
+     * they arrive, and the client ports they arrive from.
+     */
+    private static class EventSink implements HttpHandler {
+
+        private volatile long latency = 0;
+
+        private final HttpServer server;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+
+        private final AtomicInteger received = new AtomicInteger();
+        private final AtomicInteger concurrentRequests = new AtomicInteger();
+        private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+
+        // guarded by this
+        private final Map<String, List<Integer>> notifications =
+                new HashMap<String, List<Integer>>();
+        private final Set<Integer> connections = new HashSet<Integer>();
+
+        private EventSink(int port) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+            server.createContext("/", this);
+            server.setExecutor(executor);
+            server.start();
+        }
+
+        private int getPort() {
+            return server.getAddress().getPort();
+        }
+
+        private String getEndpoint(String path) {
+            return "http://localhost:" + getPort() + "/" + path;
+        }
+
+        private void stop() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+
+        public void handle(HttpExchange exchange) throws IOException {
+            int concurrent = concurrentRequests.incrementAndGet();
+            try {
+                int max;
+                while (concurrent > (max = maxConcurrentRequests.get()) &&
+                        !maxConcurrentRequests.compareAndSet(max, concurrent)) {
+                    // retry
+                }
+                String request = read(exchange.getRequestBody());
+                if (latency > 0) {
+                    try {
+                        Thread.sleep(latency);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                Matcher matcher = NOTIFICATION.matcher(request);
+                if (matcher.find()) {
+                    record(exchange.getRequestURI().getPath(),
+                            exchange.getRemoteAddress().getPort(),
+                            Integer.parseInt(matcher.group(1)));
+                }
+                exchange.sendResponseHeaders(202, -1);
+            } finally {
+                concurrentRequests.decrementAndGet();
+                exchange.close();
+            }
+        }
+
+        private synchronized void record(String path, int clientPort, int notification) {
+            List<Integer> received = notifications.get(path);
+            if (received == null) {
+                received = new ArrayList<Integer>();
+                notifications.put(path, received);
+            }
+            received.add(notification);
+            connections.add(clientPort);
+            this.received.incrementAndGet();
+        }
+
+        private synchronized List<Integer> getNotifications(String path) {
+            List<Integer> received = notifications.get(path);
+            return received != null ?
+                    new ArrayList<Integer>(received) : new ArrayList<Integer>();
+        }
+
+        private synchronized Set<Integer> getConnections() {
+            return new HashSet<Integer>(connections);
+        }
+
+        private boolean waitFor(int expected) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (received.get() < expected) {
+                if (System.currentTimeMillis() > deadline) {
+                    return false;
+                }
+                Thread.sleep(5);
+            }
+            return true;
+        }
+
+        private static String read(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toString("UTF-8");
+        }
+    }
+}
@@ -680,6 +680,8 @@ public class RegistryEventDispatcher extends WSEventDispatcher {
                         if(log.isDebugEnabled()){
                             log.debug("\nThe payload contains in the publishing  event is : \n" + payload.toString());
                         }
+                        // the notification is only queued here, it is sent on the threads of the
+                        // WS-Eventing dispatcher which log the failures to deliver it.
                         super.sendNotification(topicEle, payload, endpoint);
                     }
                 } catch (AxisFault e) {
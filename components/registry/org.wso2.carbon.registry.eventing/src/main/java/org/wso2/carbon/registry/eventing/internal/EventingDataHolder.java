@@ -23,6 +23,7 @@ import org.wso2.carbon.email.verification.util.EmailVerifcationSubscriber;
 import org.wso2.carbon.email.verification.util.EmailVerifierConfig;
 import org.wso2.carbon.registry.event.core.EventBroker;
 import org.wso2.carbon.registry.core.service.RegistryService;
+import org.wso2.carbon.registry.eventing.RegistryEventDispatcher;
 import org.wso2.carbon.registry.eventing.services.EventingService;
 
 public class EventingDataHolder {
@@ -54,6 +55,8 @@ public class EventingDataHolder {
 
     private NotificationConfig  notificationConfig;
 
+    private RegistryEventDispatcher registryEventDispatcher;
+
     public RegistryService getRegistryService() {
         return registryService;
     }
@@ -125,4 +128,12 @@ public class EventingDataHolder {
     public void setNotificationConfig(NotificationConfig notificationConfig) {
         this.notificationConfig = notificationConfig;
     }
+
+    public RegistryEventDispatcher getRegistryEventDispatcher() {
+        return registryEventDispatcher;
+    }
+
+    public void setRegistryEventDispatcher(RegistryEventDispatcher registryEventDispatcher) {
+        this.registryEventDispatcher = registryEventDispatcher;
+    }
 }
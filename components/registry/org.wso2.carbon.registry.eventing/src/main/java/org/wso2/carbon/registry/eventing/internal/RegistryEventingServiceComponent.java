@@ -151,6 +151,13 @@ public class RegistryEventingServiceComponent {
 
     protected void deactivate(ComponentContext context) {
         unregisterEventingService();
+        EventingServiceImpl.shutdownDispatcher();
+        RegistryEventDispatcher dispatcher =
+                EventingDataHolder.getInstance().getRegistryEventDispatcher();
+        if (dispatcher != null) {
+            EventingDataHolder.getInstance().setRegistryEventDispatcher(null);
+            dispatcher.shutdown();
+        }
         log.debug("Registry Eventing bundle is deactivated ");
     }
 
@@ -447,6 +454,7 @@ public class RegistryEventingServiceComponent {
     private void setupDispatchers() throws Exception {
         RegistryEventDispatcher dispatcher = new RegistryEventDispatcher();
         dispatcher.init(EventingDataHolder.getInstance().getConfigurationContext());
+        EventingDataHolder.getInstance().setRegistryEventDispatcher(dispatcher);
         if (EventingDataHolder.getInstance().getRegistryEventBrokerService() != null) {
             EventingDataHolder.getInstance().getRegistryEventBrokerService().registerEventDispatcher(
                     RegistryEventingConstants.TOPIC_PREFIX, dispatcher);
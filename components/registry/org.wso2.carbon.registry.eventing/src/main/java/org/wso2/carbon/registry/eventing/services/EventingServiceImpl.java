@@ -221,6 +221,16 @@ public class EventingServiceImpl implements EventingService, SubscriptionEmailVe
         notify(event, endpoint, false);
     }
 
+    /**
+     * Shuts down the dispatcher of the notifications sent to the endpoints given to this service.
+     */
+    public synchronized static void shutdownDispatcher() {
+        if (dispatcher != null) {
+            ((RegistryEventDispatcher) dispatcher).shutdown();
+            dispatcher = null;
+        }
+    }
+
     private synchronized static void initializeDispatcher() {
         if (dispatcher == null) {
             dispatcher = new RegistryEventDispatcher();
@@ -367,7 +377,13 @@ public class EventingServiceImpl implements EventingService, SubscriptionEmailVe
 
     public boolean unsubscribe(String subscriptionID) {
         try {
+            Subscription subscription = getSubscription(subscriptionID);
             EventingDataHolder.getInstance().getRegistryEventBrokerService().unsubscribe(subscriptionID);
+            RegistryEventDispatcher registryEventDispatcher =
+                    EventingDataHolder.getInstance().getRegistryEventDispatcher();
+            if (subscription != null && registryEventDispatcher != null) {
+                registryEventDispatcher.release(subscription.getEventSinkURL());
+            }
             return true;
         } catch (EventBrokerException e) {
             log.error("Unable to unsubscribe using given id: " + subscriptionID, e);
@@ -18,20 +18,27 @@
  */
 package org.wso2.carbon.registry.extensions.handlers;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 
@@ -145,6 +152,21 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
 
     private static final Log log = LogFactory.getLog(ZipWSDLMediaTypeHandler.class);
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String UPLOAD_THREAD_NAME_PREFIX = "GovernanceArchiveUpload-";
+
+    private static final long RETRY_BASE_DELAY = 500;
+
+    private static final long RETRY_MAX_DELAY = 30000;
+
+    // the upload pools of all handlers, shut down when the bundle is deactivated.
+    private static final Set<ExecutorService> uploadExecutors =
+            Collections.newSetFromMap(new ConcurrentHashMap<ExecutorService, Boolean>());
+
+    // shared by the archive uploads of this handler; sized by its threadPoolSize.
+    private volatile ExecutorService uploadExecutor;
+
     public void setThreadPoolSize(String threadPoolSize) {
         this.threadPoolSize = Integer.parseInt(threadPoolSize);
     }
@@ -191,13 +213,14 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
             } catch (Exception ignore) { }
             try {
                 if (resource != null) {
-                    Object resourceContent = resource.getContent();
-                    InputStream in = new ByteArrayInputStream((byte[]) resourceContent);
+                    // read the archive as a stream, so that it is spooled to disk without another
+                    // in-memory copy.
+                    InputStream in = resource.getContentStream();
                     Stack<File> fileList = new Stack<File>();
                     List<String> uriList = new LinkedList<String>();
                     List<UploadTask> tasks = new LinkedList<UploadTask>();
 
-                    int threadPoolSize = this.threadPoolSize;
+                    int window = threadPoolSize;
 
                     File tempFile = File.createTempFile(tempFilePrefix, archiveExtension);
                     File tempDir = new File(tempFile.getAbsolutePath().substring(0,
@@ -205,29 +228,27 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
                     try {
                         BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
                         try {
-                            byte[] contentChunk = new byte[1024];
-                            int byteCount;
-                            while ((byteCount = in.read(contentChunk)) != -1) {
-                                out.write(contentChunk, 0, byteCount);
-                            }
+                            copy(in, out);
                             out.flush();
                         } finally {
                             out.close();
                         }
-                        ZipEntry entry;
+                        // the content is on disk now; let go of it before the entries are extracted.
+                        in.close();
+                        resource.setContent(null);
 
                         makeDir(tempDir);
-                        ZipInputStream zs;
+                        ZipFile zipFile;
                         List<String> wsdlUriList = new LinkedList<String>();
                         List<String> xsdUriList = new LinkedList<String>();
                         List<String> wadlUriList = new LinkedList<String>();
                         List<String> swaggerUriList = new LinkedList<String>();
-                        zs = new ZipInputStream(new FileInputStream(tempFile));
+                        zipFile = new ZipFile(tempFile);
                         try {
-                            entry = zs.getNextEntry();
-                            while (entry != null) {
+                            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                            while (entries.hasMoreElements()) {
+                                ZipEntry entry = entries.nextElement();
                                 String entryName = entry.getName();
-                                FileOutputStream os;
                                 File file = new File(tempFile.getAbsolutePath().substring(0,
                                         tempFile.getAbsolutePath().length() -
                                                 archiveExtension.length()) + File.separator + entryName);
@@ -236,26 +257,24 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
                                         makeDirs(file);
                                         fileList.push(file);
                                     }
-                                    entry = zs.getNextEntry();
                                     continue;
                                 }
                                 File parentFile = file.getParentFile();
                                 if (!parentFile.exists()) {
                                     makeDirs(parentFile);
                                 }
-                                os = new FileOutputStream(file);
+                                InputStream entryStream = zipFile.getInputStream(entry);
                                 try {
-                                    fileList.push(file);
-                                    byte[] contentChunk = new byte[1024];
-                                    int byteCount;
-                                    while ((byteCount = zs.read(contentChunk)) != -1) {
-                                        os.write(contentChunk, 0, byteCount);
+                                    OutputStream os = new FileOutputStream(file);
+                                    try {
+                                        fileList.push(file);
+                                        copy(entryStream, os);
+                                    } finally {
+                                        os.close();
                                     }
                                 } finally {
-                                    os.close();
+                                    entryStream.close();
                                 }
-                                zs.closeEntry();
-                                entry = zs.getNextEntry();
                                 if (entryName != null &&
                                         entryName.toLowerCase().endsWith(wsdlExtension)) {
                                     String uri = tempFile.toURI().toString();
@@ -347,7 +366,7 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
                                 }
                             }
                         } finally {
-                            zs.close();
+                            zipFile.close();
                         }
                         Map<String, String> localPathMap = null;
                         if (CurrentSession.getLocalPathMap() != null) {
@@ -358,15 +377,16 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
                             throw new RegistryException(
                                     "No Files found in the given archive");
                         }
-                        for (String uri : wsdlUriList) {
-                            tasks.add(new UploadWSDLTask(requestContext, uri,
+                        // schemas go first, so that WSDLs importing them find them already added.
+                        for (String uri : xsdUriList) {
+                            tasks.add(new UploadXSDTask(requestContext, uri,
                                     CurrentSession.getTenantId(),
                                     CurrentSession.getUserRegistry(), CurrentSession.getUserRealm(),
                                     CurrentSession.getUser(), CurrentSession.getCallerTenantId(),
                                     localPathMap));
                         }
-                        for (String uri : xsdUriList) {
-                            tasks.add(new UploadXSDTask(requestContext, uri,
+                        for (String uri : wsdlUriList) {
+                            tasks.add(new UploadWSDLTask(requestContext, uri,
                                     CurrentSession.getTenantId(),
                                     CurrentSession.getUserRegistry(), CurrentSession.getUserRealm(),
                                     CurrentSession.getUser(), CurrentSession.getCallerTenantId(),
@@ -402,21 +422,20 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
                         // calculate thread pool size for efficient use of resources in concurrent
                         // update scenarios.
                         int toAdd = wsdlUriList.size() + xsdUriList.size();
-                        if (toAdd < threadPoolSize) {
-                            if (toAdd < (threadPoolSize / 8)) {
-                                threadPoolSize = 0;
-                            } else if (toAdd < (threadPoolSize / 2)) {
-                                threadPoolSize = (threadPoolSize / 8);
+                        if (toAdd < window) {
+                            if (toAdd < (window / 8)) {
+                                window = 0;
+                            } else if (toAdd < (window / 2)) {
+                                window = (window / 8);
                             } else {
-                                threadPoolSize = (threadPoolSize / 4);
+                                window = (window / 4);
                             }
                         }
                     } finally {
                         in.close();
-                        resourceContent = null;
                         resource.setContent(null);
                     }
-                    uploadFiles(tasks, tempFile, fileList, tempDir, threadPoolSize, path, uriList,
+                    uploadFiles(tasks, tempFile, fileList, tempDir, window, path, uriList,
                             requestContext);
                 }
             } catch (IOException e) {
@@ -477,6 +496,24 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
      */
     protected String addWSDLFromZip(RequestContext requestContext, String uri)
             throws RegistryException {
+        return addWSDLFromZip(requestContext, uri, null);
+    }
+
+    /**
+     * Method that runs the WSDL upload procedure as part of an archive upload.
+     *
+     * @param requestContext    requestContext the request context for the import/put operation
+     * @param uri               the URL from which the WSDL is imported
+     * @param importAccumulator the accumulator collecting the symbolic links of the archive, or
+     *                          null to create them right away
+     *
+     * @return the path at which the WSDL was uploaded to
+     *
+     * @throws RegistryException if the operation failed.
+     */
+    protected String addWSDLFromZip(RequestContext requestContext, String uri,
+                                    ImportAccumulator importAccumulator)
+            throws RegistryException {
         if (uri != null) {
             Resource local = requestContext.getRegistry().newResource();
             String version = requestContext.getResource().getProperty("version");
@@ -500,6 +537,7 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
             path = path + wsdlName;
             requestContext.setResourcePath(new ResourcePath(path));
             WSDLProcessor wsdlProcessor = buildWSDLProcessor(requestContext, this.useOriginalSchema);
+            wsdlProcessor.setImportAccumulator(importAccumulator);
             String addedPath = wsdlProcessor.addWSDLToRegistry(requestContext, uri, local, false,
                     true, disableWSDLValidation,disableSymlinkCreation);
             if (CommonConstants.ENABLE.equals(System.getProperty(
@@ -627,6 +665,24 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
      */
     protected String addSchemaFromZip(RequestContext requestContext, String uri)
             throws RegistryException {
+        return addSchemaFromZip(requestContext, uri, null);
+    }
+
+    /**
+     * Method that runs the schema upload procedure as part of an archive upload.
+     *
+     * @param requestContext    requestContext the request context for the import/put operation
+     * @param uri               the URL from which the schema is imported
+     * @param importAccumulator the accumulator collecting the symbolic links of the archive, or
+     *                          null to create them right away
+     *
+     * @return the path at which the schema was uploaded to
+     *
+     * @throws RegistryException if the operation failed.
+     */
+    protected String addSchemaFromZip(RequestContext requestContext, String uri,
+                                      ImportAccumulator importAccumulator)
+            throws RegistryException {
         if (uri != null) {
             Resource local = requestContext.getRegistry().newResource();
             String version = requestContext.getResource().getProperty("version");
@@ -659,6 +715,7 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
             }
             SchemaProcessor schemaProcessor =
                     buildSchemaProcessor(requestContext, validationInfo, this.useOriginalSchema);
+            schemaProcessor.setImportAccumulator(importAccumulator);
 
             String addedPath = schemaProcessor
                     .importSchemaToRegistry(requestContext, path,
@@ -739,6 +796,14 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
         }
     }
 
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] contentChunk = new byte[BUFFER_SIZE];
+        int byteCount;
+        while ((byteCount = in.read(contentChunk)) != -1) {
+            out.write(contentChunk, 0, byteCount);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -799,19 +864,29 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
     }
 
     protected void uploadFiles(List<UploadTask> tasks,
-                           File tempFile, Stack<File> fileList, File tempDir, int poolSize,
+                           File tempFile, Stack<File> fileList, File tempDir, int window,
                            String path, List<String> uriList, RequestContext requestContext)
             throws RegistryException {
         CommonUtil.loadImportedArtifactMap();
+        long startTime = System.currentTimeMillis();
+        ImportAccumulator importAccumulator = new ImportAccumulator();
+        for (UploadTask task : tasks) {
+            task.setImportAccumulator(importAccumulator);
+        }
+        List<List<UploadTask>> levels = getUploadLevels(tasks);
         try {
-            if (poolSize <= 0) {
+            // an archive uploaded from within an upload task is processed on the same thread, as
+            // waiting for the shared pool from one of its own threads could starve it.
+            if (window <= 0 || Thread.currentThread().getName().startsWith(UPLOAD_THREAD_NAME_PREFIX)) {
                 boolean updateLockAvailable = CommonUtil.isUpdateLockAvailable();
                 if (!updateLockAvailable) {
                     CommonUtil.releaseUpdateLock();
                 }
                 try {
-                    for (UploadTask task : tasks) {
-                        task.run();
+                    for (List<UploadTask> level : levels) {
+                        for (UploadTask task : level) {
+                            task.run();
+                        }
                     }
                 } finally {
                     if (!updateLockAvailable) {
@@ -819,44 +894,22 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
                     }
                 }
             } else {
-                ExecutorService executorService = Executors.newFixedThreadPool(poolSize);
-                if (!CommonUtil.isArtifactIndexMapExisting()) {
-                    CommonUtil.createArtifactIndexMap();
-                }
-                if (!CommonUtil.isSymbolicLinkMapExisting()) {
-                    CommonUtil.createSymbolicLinkMap();
-                }
-                for (UploadTask task : tasks) {
-                    executorService.submit(task);
-                }
-                executorService.shutdown();
-                while (!executorService.isTerminated()) {
-
+                ExecutorService executorService = getUploadExecutor();
+                // each level is in place before the next one, which may import from it, is started.
+                int completed = 0;
+                for (List<UploadTask> level : levels) {
+                    completed = runUploadTasks(executorService, level, window, completed,
+                            tasks.size());
                 }
             }
         } finally {
             CommonUtil.clearImportedArtifactMap();
         }
         try {
-            if (CommonUtil.isArtifactIndexMapExisting()) {
-                Map<String, String> artifactIndexMap =
-                        CommonUtil.getAndRemoveArtifactIndexMap();
-
-                if (log.isDebugEnabled()) {
-                    for (Map.Entry<String, String> entry : artifactIndexMap.entrySet()) {
-                        log.debug("Added Artifact Entry: " + entry.getKey());
-                    }
-                }
-
-//                CommonUtil.addGovernanceArtifactEntriesWithRelativeValues(
-//                        CommonUtil.getUnchrootedSystemRegistry(requestContext), artifactIndexMap);
-            }
             Registry registry = requestContext.getRegistry();
-            if (!isDisableSymlinkCreation() && CommonUtil.isSymbolicLinkMapExisting()) {
-                Map<String, String> symbolicLinkMap =
-                        CommonUtil.getAndRemoveSymbolicLinkMap();
-
-                for (Map.Entry<String, String> entry : symbolicLinkMap.entrySet()) {
+            if (!isDisableSymlinkCreation()) {
+                for (Map.Entry<String, String> entry :
+                        importAccumulator.getSymbolicLinks().entrySet()) {
                     if (log.isDebugEnabled()) {
                         log.debug("Added Symbolic Link: " + entry.getKey());
                     }
@@ -874,13 +927,18 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
             log.error("Unable to build artifact index.", e);
         }
         Map<String, String> taskResults = new LinkedHashMap<String, String>();
+        int failedCount = 0;
+        int retryCount = 0;
         for (UploadTask task : tasks) {
+            retryCount += task.getRetries();
             if (task.getFailed()) {
                 taskResults.put(task.getUri(), null);
+                failedCount++;
             } else {
                 taskResults.put(task.getUri(), task.getResult());
             }
         }
+        long elapsedTime = System.currentTimeMillis() - startTime;
         onPutCompleted(path, taskResults, uriList, requestContext);
         try {
             delete(tempFile);
@@ -891,7 +949,127 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
         } catch (IOException e) {
             log.error("Unable to cleanup temporary files", e);
         }
-        log.info("Completed uploading files from archive file");
+        log.info("Completed uploading files from archive file " + path + ": " + tasks.size() +
+                " files in " + elapsedTime + " ms (" +
+                (elapsedTime > 0 ? (tasks.size() * 1000L / elapsedTime) : tasks.size()) +
+                " files/s), " + failedCount + " failed, " + retryCount + " retries");
+    }
+
+    /**
+     * Orders the upload tasks by the import graph of the schemas and WSDLs of the archive. A
+     * level only holds schemas and WSDLs which import from earlier levels, so that the tasks of
+     * a level can run in parallel. The remaining tasks make up the last level.
+     */
+    private List<List<UploadTask>> getUploadLevels(List<UploadTask> tasks) {
+        Map<String, UploadTask> documentTasks = new LinkedHashMap<String, UploadTask>();
+        List<UploadTask> otherTasks = new LinkedList<UploadTask>();
+        for (UploadTask task : tasks) {
+            if (task instanceof UploadXSDTask || task instanceof UploadWSDLTask) {
+                documentTasks.put(task.getUri(), task);
+            } else {
+                otherTasks.add(task);
+            }
+        }
+        List<List<UploadTask>> levels = new LinkedList<List<UploadTask>>();
+        if (!documentTasks.isEmpty()) {
+            for (List<String> uris : new ImportGraph(documentTasks.keySet()).getLevels()) {
+                List<UploadTask> level = new LinkedList<UploadTask>();
+                for (String uri : uris) {
+                    level.add(documentTasks.get(uri));
+                }
+                levels.add(level);
+            }
+        }
+        if (!otherTasks.isEmpty()) {
+            levels.add(otherTasks);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Uploading " + tasks.size() + " files of the archive in " + levels.size() +
+                    " levels");
+        }
+        return levels;
+    }
+
+    /**
+     * Runs the given tasks on the shared upload pool, keeping at most <code>window</code> of them
+     * in flight, and waits for all of them to complete.
+     *
+     * @return the number of tasks of the archive completed so far
+     */
+    private int runUploadTasks(ExecutorService executorService, List<UploadTask> tasks, int window,
+                               int completed, int total) throws RegistryException {
+        CompletionService<UploadTask> completionService =
+                new ExecutorCompletionService<UploadTask>(executorService);
+        Iterator<UploadTask> iterator = tasks.iterator();
+        int inFlight = 0;
+        try {
+            while (iterator.hasNext() || inFlight > 0) {
+                while (inFlight < window && iterator.hasNext()) {
+                    UploadTask task = iterator.next();
+                    task.captureUploadContext();
+                    completionService.submit(task, task);
+                    inFlight++;
+                }
+                UploadTask task = completionService.take().get();
+                inFlight--;
+                completed++;
+                if (log.isDebugEnabled()) {
+                    log.debug("Processed " + completed + " of " + total + " files of the archive: " +
+                            task.getUri() + (task.getFailed() ? " (failed)" : ""));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            String msg = "Interrupted while waiting for the files of the archive to be uploaded";
+            log.error(msg, e);
+            throw new RegistryException(msg, e);
+        } catch (ExecutionException e) {
+            String msg = "Failed to upload a file of the archive";
+            log.error(msg, e.getCause());
+            throw new RegistryException(msg, e.getCause());
+        }
+        return completed;
+    }
+
+    /**
+     * Returns the upload pool of this handler, which is sized by its configured
+     * <code>threadPoolSize</code>. The number of tasks of an archive given to the pool at a time
+     * is limited separately, by the window the archive is uploaded with.
+     */
+    private ExecutorService getUploadExecutor() {
+        if (uploadExecutor == null || uploadExecutor.isShutdown()) {
+            synchronized (this) {
+                if (uploadExecutor == null || uploadExecutor.isShutdown()) {
+                    int size = Math.max(1, threadPoolSize);
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60,
+                            TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private final AtomicInteger threadCount = new AtomicInteger();
+
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable,
+                                    UPLOAD_THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                    executor.allowCoreThreadTimeOut(true);
+                    uploadExecutors.add(executor);
+                    uploadExecutor = executor;
+                }
+            }
+        }
+        return uploadExecutor;
+    }
+
+    /**
+     * Shuts down the upload pools of all handlers. Archives being uploaded are completed, but no
+     * further tasks are accepted by the pools.
+     */
+    public static void shutdownUploadExecutors() {
+        for (Iterator<ExecutorService> iterator = uploadExecutors.iterator(); iterator.hasNext();) {
+            iterator.next().shutdown();
+            iterator.remove();
+        }
     }
 
     protected static abstract class UploadTask implements Runnable {
@@ -904,7 +1082,14 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
         private String userId;
         private int callerTenantId;
         private Map<String, String> localPathMap;
-        private Random random = new Random(10);
+        private Random random = new Random();
+
+        private ImportAccumulator importAccumulator;
+
+        // imported artifacts of the uploading thread, handed over to the pool thread running
+        // this task.
+        private boolean uploadContextCaptured = false;
+        private Set<String> importedArtifacts;
 
         protected String result = null;
         protected boolean failed = false;
@@ -923,7 +1108,23 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
             this.localPathMap = localPathMap;
         }
 
+        void captureUploadContext() {
+            importedArtifacts = CommonUtil.getImportedArtifacts();
+            uploadContextCaptured = true;
+        }
+
+        public void setImportAccumulator(ImportAccumulator importAccumulator) {
+            this.importAccumulator = importAccumulator;
+        }
+
+        public ImportAccumulator getImportAccumulator() {
+            return importAccumulator;
+        }
+
         public void run() {
+            if (uploadContextCaptured) {
+                CommonUtil.setImportedArtifacts(importedArtifacts);
+            }
             try {
                 PrivilegedCarbonContext.startTenantFlow();
                 //This is for fixing CARBON-14469.
@@ -939,6 +1140,9 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
                 doWork();
             } finally {
                 PrivilegedCarbonContext.endTenantFlow();
+                if (uploadContextCaptured) {
+                    CommonUtil.setImportedArtifacts(null);
+                }
             }
         }
 
@@ -947,13 +1151,19 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
             if (retries < ZipWSDLMediaTypeHandler.numberOfRetry) {
                 ++retries;
                 log.info("Retrying to upload resource: " + uri);
-                int i = random.nextInt(10);
+                // exponential backoff with jitter, so that conflicting uploads do not retry in step.
+                long delay = Math.min(RETRY_MAX_DELAY,
+                        RETRY_BASE_DELAY * (1L << Math.min(retries - 1, 16)));
+                delay = delay / 2 + (long) (random.nextDouble() * (delay / 2));
                 if (log.isDebugEnabled()) {
-                    log.debug("Waiting for " + i + " seconds");
+                    log.debug("Waiting for " + delay + " ms");
                 }
                 try {
-                    Thread.sleep(1000 * i);
-                } catch (InterruptedException ignored) {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed = true;
+                    return;
                 }
                 doWork();
             } else {
@@ -1020,6 +1230,10 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
         public boolean getFailed() {
             return failed;
         }
+
+        public int getRetries() {
+            return retries;
+        }
     }
 
     protected class UploadFileTask extends UploadTask {
@@ -1049,24 +1263,23 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
             resource.setMediaType(this.mediaType);
             InputStream inputStream;
             try {
-                inputStream = new URL(uri).openStream();
+                inputStream = new BufferedInputStream(new URL(uri).openStream(), BUFFER_SIZE);
             } catch (IOException e) {
                 throw new RegistryException("The URL " + uri + " is incorrect.", e);
             }
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            int nextChar;
             try {
-                while ((nextChar = inputStream.read()) != -1) {
-                    outputStream.write(nextChar);
+                // the extracted file backs the content, which is streamed to the repository.
+                resource.setContentStream(inputStream);
+                String path = RegistryUtils.getParentPath(requestContext.getResourcePath().getPath()) +
+                        RegistryConstants.PATH_SEPARATOR + RegistryUtils.getResourceName(uri);
+                result = registry.put(path, resource);
+            } finally {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close the content stream of " + uri, e);
                 }
-                outputStream.flush();
-            } catch (IOException e) {
-                throw new RegistryException("Failed to read content from URL " + uri, e);
             }
-            resource.setContent(outputStream.toByteArray());
-            String path = RegistryUtils.getParentPath(requestContext.getResourcePath().getPath()) +
-                    RegistryConstants.PATH_SEPARATOR + RegistryUtils.getResourceName(uri);
-            result = registry.put(path, resource);
         }
     }
 
@@ -1081,7 +1294,7 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
 
         protected void doProcessing(RequestContext requestContext, String uri)
                 throws RegistryException {
-            result = addSchemaFromZip(requestContext, uri);
+            result = addSchemaFromZip(requestContext, uri, getImportAccumulator());
         }
     }
 
@@ -1096,7 +1309,7 @@ public class ZipWSDLMediaTypeHandler extends WSDLMediaTypeHandler {
 
         protected void doProcessing(RequestContext requestContext, String uri)
                 throws RegistryException {
-            result = addWSDLFromZip(requestContext, uri);
+            result = addWSDLFromZip(requestContext, uri, getImportAccumulator());
         }
     }
 
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2008, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.extensions.handlers.utils;
+
+import org.apache.ws.commons.schema.XmlSchemaCollection;
+import org.apache.ws.commons.schema.resolver.DefaultURIResolver;
+import org.apache.ws.commons.schema.resolver.URIResolver;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * Resolves the schemas imported into an {@link XmlSchemaCollection} through the
+ * {@link ParsedDocumentCache}.
+ * <p/>
+ * The collection parses the source returned by a resolver itself, unless it already holds a
+ * schema of the imported namespace read from the resolved location. An imported schema is
+ * therefore read into the collection from the cached document before its location is returned.
+ * Chameleon includes and imports without a namespace are left to the collection, as the schema
+ * they are read into does not have the namespace of the document.
+ */
+public class CachedSchemaResolver implements URIResolver {
+
+    private static final String TARGET_NAMESPACE = "targetNamespace";
+
+    private final XmlSchemaCollection collection;
+    private final URIResolver resolver = new DefaultURIResolver();
+
+    /**
+     * @param collection the collection this resolver is set on
+     */
+    public CachedSchemaResolver(XmlSchemaCollection collection) {
+        this.collection = collection;
+    }
+
+    /**
+     * Creates a collection which resolves its imports through the {@link ParsedDocumentCache}.
+     *
+     * @return the collection
+     */
+    public static XmlSchemaCollection newCollection() {
+        XmlSchemaCollection collection = new XmlSchemaCollection();
+        collection.setSchemaResolver(new CachedSchemaResolver(collection));
+        return collection;
+    }
+
+    public InputSource resolveEntity(String targetNamespace, String schemaLocation,
+                                     String baseUri) {
+        InputSource source = resolver.resolveEntity(targetNamespace, schemaLocation, baseUri);
+        if (source == null || source.getSystemId() == null || targetNamespace == null ||
+                targetNamespace.length() == 0) {
+            return source;
+        }
+        String systemId = source.getSystemId();
+        if (collection.getXmlSchema(systemId).length > 0) {
+            return source;
+        }
+        Document document = ParsedDocumentCache.getDocument(systemId);
+        if (document != null && targetNamespace.equals(
+                document.getDocumentElement().getAttribute(TARGET_NAMESPACE))) {
+            collection.read(document, systemId, null);
+        }
+        return source;
+    }
+}
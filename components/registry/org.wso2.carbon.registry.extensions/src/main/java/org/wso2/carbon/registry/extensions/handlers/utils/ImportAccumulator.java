@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2008, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.extensions.handlers.utils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the symbolic links of a bulk import, which are created once all the artifacts of
+ * the import have been added. A single instance is shared by all the
+ * threads adding the artifacts of an import.
+ */
+public class ImportAccumulator {
+
+    private final Map<String, String> symbolicLinks = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Records a symbolic link to be created at the end of the import. A link recorded later for
+     * the same path replaces the earlier one.
+     *
+     * @param path       the path of the symbolic link
+     * @param targetPath the path the link points to
+     */
+    public void addSymbolicLink(String path, String targetPath) {
+        symbolicLinks.put(path, targetPath);
+    }
+
+    public Map<String, String> getSymbolicLinks() {
+        return Collections.unmodifiableMap(symbolicLinks);
+    }
+}
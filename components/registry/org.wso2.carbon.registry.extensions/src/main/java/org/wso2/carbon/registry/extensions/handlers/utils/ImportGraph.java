@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2008, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.extensions.handlers.utils;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The import graph of a set of local WSDL and XML schema documents, such as the content of a
+ * governance archive. The documents are ordered into levels, so that a document only imports or
+ * includes documents of earlier levels, and the documents of a level can be added in parallel.
+ */
+public class ImportGraph {
+
+    private static final String XSD_NAMESPACE = "http://www.w3.org/2001/XMLSchema";
+    private static final String WSDL_NAMESPACE = "http://schemas.xmlsoap.org/wsdl/";
+
+    private static final String SCHEMA_LOCATION = "schemaLocation";
+    private static final String LOCATION = "location";
+
+    // document URI -> URIs of the documents of the graph it depends on
+    private Map<String, Set<String>> dependencies = new LinkedHashMap<String, Set<String>>();
+
+    private Map<String, Integer> levels = new HashMap<String, Integer>();
+
+    /**
+     * Resolves the imports of the given documents. Imports of documents outside the given set
+     * are ignored, and so are documents which cannot be read.
+     *
+     * @param uris the file URIs of the documents
+     */
+    public ImportGraph(Collection<String> uris) {
+        Map<String, String> urisByPath = new HashMap<String, String>();
+        for (String uri : uris) {
+            String path = getPath(uri);
+            if (path != null) {
+                urisByPath.put(path, uri);
+            }
+        }
+        for (String uri : uris) {
+            Set<String> documentDependencies = new LinkedHashSet<String>();
+            for (String location : getImportLocations(uri)) {
+                String dependency = urisByPath.get(resolve(uri, location));
+                if (dependency != null && !dependency.equals(uri)) {
+                    documentDependencies.add(dependency);
+                }
+            }
+            dependencies.put(uri, documentDependencies);
+        }
+    }
+
+    /**
+     * @return the documents, ordered into levels of documents which only depend on documents
+     *         of earlier levels
+     */
+    public List<List<String>> getLevels() {
+        List<List<String>> result = new ArrayList<List<String>>();
+        for (String uri : dependencies.keySet()) {
+            int level = getLevel(uri, new HashSet<String>());
+            while (result.size() <= level) {
+                result.add(new ArrayList<String>());
+            }
+            result.get(level).add(uri);
+        }
+        return result;
+    }
+
+    private int getLevel(String uri, Set<String> inProgress) {
+        Integer level = levels.get(uri);
+        if (level != null) {
+            return level;
+        }
+        // a cycle of imports is broken at the document it was entered from.
+        if (!inProgress.add(uri)) {
+            return -1;
+        }
+        int result = 0;
+        for (String dependency : dependencies.get(uri)) {
+            result = Math.max(result, getLevel(dependency, inProgress) + 1);
+        }
+        inProgress.remove(uri);
+        levels.put(uri, result);
+        return result;
+    }
+
+    private List<String> getImportLocations(String uri) {
+        List<String> locations = new ArrayList<String>();
+        // parsed without document type declarations or external entities, and kept for the
+        // processors which read the document again when it is added.
+        Document document = ParsedDocumentCache.getDocument(uri);
+        if (document == null) {
+            // the upload of the document reports what is wrong with it.
+            return locations;
+        }
+        addLocations(document, XSD_NAMESPACE, "import", SCHEMA_LOCATION, locations);
+        addLocations(document, XSD_NAMESPACE, "include", SCHEMA_LOCATION, locations);
+        addLocations(document, XSD_NAMESPACE, "redefine", SCHEMA_LOCATION, locations);
+        addLocations(document, WSDL_NAMESPACE, "import", LOCATION, locations);
+        return locations;
+    }
+
+    private void addLocations(Document document, String namespace, String localName,
+                              String attribute, List<String> locations) {
+        NodeList elements = document.getElementsByTagNameNS(namespace, localName);
+        for (int i = 0; i < elements.getLength(); i++) {
+            String location = ((Element) elements.item(i)).getAttribute(attribute);
+            if (location != null && location.length() > 0) {
+                locations.add(location);
+            }
+        }
+    }
+
+    private String resolve(String uri, String location) {
+        try {
+            return new URI(uri).resolve(new URI(location)).normalize().getPath();
+        } catch (URISyntaxException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String getPath(String uri) {
+        try {
+            return new URI(uri).normalize().getPath();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+}
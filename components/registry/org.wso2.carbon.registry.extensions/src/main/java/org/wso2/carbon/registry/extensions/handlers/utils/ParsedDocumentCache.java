@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2008, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.extensions.handlers.utils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of parsed WSDL and XML schema documents, keyed by a hash of their content and
+ * shared across handler invocations, so that a schema imported by many documents of a bulk
+ * import, or uploaded again, is parsed once. Each caller gets a private copy of the cached
+ * document, as the processors rewrite locations in the definitions built from it.
+ * <p/>
+ * Documents are parsed without document type declarations or external entities. Content which
+ * cannot be parsed that way is not cached, and is left to the caller to read as before.
+ */
+public final class ParsedDocumentCache {
+
+    /* The system property giving the number of documents kept, 0 disabling the cache */
+    public static final String CACHE_SIZE_PROPERTY = "registry.parsed.document.cache.size";
+
+    private static final Log log = LogFactory.getLog(ParsedDocumentCache.class);
+
+    private static final int DEFAULT_CACHE_SIZE = 500;
+
+    // larger documents are parsed every time, rather than holding on to their DOM.
+    private static final int MAX_CACHEABLE_SIZE = 1024 * 1024;
+
+    private static final int maxEntries =
+            Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE);
+
+    // content hash -> document, in access order
+    private static final Map<String, Document> documents =
+            new LinkedHashMap<String, Document>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<String, Document> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private static final DocumentBuilderFactory documentBuilderFactory;
+
+    static {
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+        documentBuilderFactory.setValidating(false);
+        documentBuilderFactory.setExpandEntityReferences(false);
+        setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        setFeature("http://xml.org/sax/features/external-general-entities", false);
+        setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        // fully expanded documents can be cloned from several threads.
+        setFeature("http://apache.org/xml/features/dom/defer-node-expansion", false);
+    }
+
+    private ParsedDocumentCache() {
+    }
+
+    private static void setFeature(String feature, boolean value) {
+        try {
+            documentBuilderFactory.setFeature(feature, value);
+        } catch (ParserConfigurationException e) {
+            log.warn("The XML parser does not support the feature " + feature, e);
+        }
+    }
+
+    /**
+     * Returns a parsed copy of the given document content.
+     *
+     * @param content the content of a WSDL or XML schema
+     * @return a document which the caller is free to modify, or null if the content cannot be
+     *         parsed
+     */
+    public static Document getDocument(byte[] content) {
+        if (maxEntries <= 0 || content.length > MAX_CACHEABLE_SIZE) {
+            return parse(content);
+        }
+        String key = hash(content);
+        Document document;
+        synchronized (documents) {
+            document = documents.get(key);
+        }
+        if (document == null) {
+            misses.incrementAndGet();
+            document = parse(content);
+            if (document == null) {
+                return null;
+            }
+            synchronized (documents) {
+                documents.put(key, document);
+            }
+        } else {
+            hits.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Using the cached document " + key);
+            }
+        }
+        synchronized (document) {
+            return (Document) document.cloneNode(true);
+        }
+    }
+
+    /**
+     * Returns a parsed copy of the document at the given location.
+     *
+     * @param location the URL of a WSDL or XML schema
+     * @return a document which the caller is free to modify, or null if the document cannot be
+     *         read or parsed
+     */
+    public static Document getDocument(String location) {
+        byte[] content;
+        try {
+            InputStream in = new URL(location).openStream();
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] contentChunk = new byte[8192];
+                int byteCount;
+                while ((byteCount = in.read(contentChunk)) != -1) {
+                    out.write(contentChunk, 0, byteCount);
+                }
+                content = out.toByteArray();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // left to the caller to report, which reads the document itself.
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to read the document at " + location, e);
+            }
+            return null;
+        }
+        return getDocument(content);
+    }
+
+    /**
+     * @return the number of documents which were found in the cache
+     */
+    public static long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of documents which were not found in the cache, and were parsed
+     */
+    public static long getMissCount() {
+        return misses.get();
+    }
+
+    private static Document parse(byte[] content) {
+        try {
+            DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+            // reported by the caller, rather than printed to the console by the parser.
+            documentBuilder.setErrorHandler(new DefaultHandler());
+            return documentBuilder.parse(new ByteArrayInputStream(content));
+        } catch (ParserConfigurationException e) {
+            log.error("Failed to create a document builder", e);
+            return null;
+        } catch (SAXException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to parse the document", e);
+            }
+            return null;
+        } catch (IOException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to parse the document", e);
+            }
+            return null;
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder key = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16))
+                        .append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256.
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
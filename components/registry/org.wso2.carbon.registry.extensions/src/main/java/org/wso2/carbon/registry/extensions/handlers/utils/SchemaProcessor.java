@@ -25,6 +25,7 @@ import org.apache.ws.commons.schema.XmlSchema;
 import org.apache.ws.commons.schema.XmlSchemaCollection;
 import org.apache.ws.commons.schema.XmlSchemaExternal;
 import org.apache.ws.commons.schema.XmlSchemaObjectCollection;
+import org.w3c.dom.Document;
 import org.wso2.carbon.CarbonException;
 import org.wso2.carbon.registry.core.*;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
@@ -50,8 +51,8 @@ import java.util.*;
 public class SchemaProcessor {
     private Registry registry;
     private Registry systemRegistry;
-    private List<String> processedSchemas;
-    private List<String> visitedSchemas;
+    private Set<String> processedSchemas;
+    private Set<String> visitedSchemas;
     private Map<String, SchemaInfo> schemas;
     private List<Association> associations;
     private String baseURI = null;
@@ -59,6 +60,7 @@ public class SchemaProcessor {
     private static final String SCHEMA_VALIDATION_MESSAGE = "Schema Validation Message ";
     private static final String SCHEMA_STATUS = "Schema Validation";
     private boolean useOriginalSchema;
+    private ImportAccumulator importAccumulator;
 
     private String resourceName = "";
 
@@ -77,8 +79,8 @@ public class SchemaProcessor {
         }
         i = 0;
         schemas = new LinkedHashMap<String, SchemaInfo> ();
-        processedSchemas = new ArrayList<String>();
-        visitedSchemas = new ArrayList<String>();
+        processedSchemas = new HashSet<String>();
+        visitedSchemas = new HashSet<String>();
         associations = new ArrayList<Association>();
         this.validationInfo = validationInfo;
     }
@@ -88,6 +90,14 @@ public class SchemaProcessor {
         this.useOriginalSchema = useOriginalSchema;
     }
 
+    /**
+     * Sets the accumulator of the bulk import this schema is added by. Symbolic links are then
+     * recorded in the accumulator rather than created right away.
+     */
+    public void setImportAccumulator(ImportAccumulator importAccumulator) {
+        this.importAccumulator = importAccumulator;
+    }
+
     /* Save the schema, schema imports, associations in the registry. Intended to used by the XSD Media-type handler
        only.
      */
@@ -104,9 +114,8 @@ public class SchemaProcessor {
         List<String> dependeinciesList = new ArrayList<String>();
 
         resourceName = resourcePath.substring(resourcePath.lastIndexOf(RegistryConstants.PATH_SEPARATOR) + 1);
-        XmlSchemaCollection xmlSchemaCollection = new XmlSchemaCollection();
-        ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream((byte[])requestContext.getResource().getContent());
-        InputSource inputSource = new InputSource(byteArrayInputStream);
+        XmlSchemaCollection xmlSchemaCollection = CachedSchemaResolver.newCollection();
+        byte[] content = (byte[]) requestContext.getResource().getContent();
         String url = "http://this.schema.needs/a/valid/source/url/to/proceed.xsd";
 
         String version = requestContext.getResource().getProperty("version");
@@ -121,7 +130,13 @@ public class SchemaProcessor {
         XmlSchema xmlSchema;
         try {
             xmlSchemaCollection.setBaseUri(url);
-            xmlSchema = xmlSchemaCollection.read(inputSource, null);
+            Document document = ParsedDocumentCache.getDocument(content);
+            if (document != null) {
+                xmlSchema = xmlSchemaCollection.read(document, url, null);
+            } else {
+                xmlSchema = xmlSchemaCollection.read(
+                        new InputSource(new ByteArrayInputStream(content)), null);
+            }
             xmlSchema.setSourceURI(url);
             evaluateSchemasRecursively(xmlSchema, null, false, true);
         }catch (URISyntaxException e) {
@@ -205,15 +220,20 @@ public class SchemaProcessor {
         if(version == null){
             version = CommonConstants.SCHEMA_VERSION_DEFAULT_VALUE;
         }
-        XmlSchemaCollection xmlSchemaCollection = new XmlSchemaCollection();
+        XmlSchemaCollection xmlSchemaCollection = CachedSchemaResolver.newCollection();
         xmlSchemaCollection.setBaseUri(url);
         baseURI = url;
-        InputSource inputSource = new InputSource(url);
 
         try {
             // Here we assue schema is correct. Schema validation is beyond our scope, so we don't
             // bother with a ValidationEventHandler.
-            XmlSchema xmlSchema = xmlSchemaCollection.read(inputSource, null);
+            XmlSchema xmlSchema;
+            Document document = ParsedDocumentCache.getDocument(url);
+            if (document != null) {
+                xmlSchema = xmlSchemaCollection.read(document, url, null);
+            } else {
+                xmlSchema = xmlSchemaCollection.read(new InputSource(url), null);
+            }
             evaluateSchemasRecursively(xmlSchema, null, false, true);
         }catch (URISyntaxException e) {
             String msg = "Syntax error in the uri";
@@ -271,7 +291,7 @@ public class SchemaProcessor {
                                     new File(schemaImport.getReferencedSchema().getDocumentBaseURI()).toString());
                         }
                     }
-                    xmlSchemaCollection = new XmlSchemaCollection();
+                    xmlSchemaCollection = CachedSchemaResolver.newCollection();
                     /* setting base URI in the collection to load relative schemas */
                     xmlSchemaCollection.setBaseUri(wsdlDocumentBaseURI);
                     xmlSchema = xmlSchemaCollection.read(schema.getElement());
@@ -714,7 +734,9 @@ public class SchemaProcessor {
             if(!disableSymlinkCreation) {
                 while (true) {
                     if (!registry.resourceExists(symlinkPath)) {
-                        if (CommonUtil.isSymbolicLinkMapExisting()) {
+                        if (importAccumulator != null) {
+                            importAccumulator.addSymbolicLink(symlinkPath, schemaPath);
+                        } else if (CommonUtil.isSymbolicLinkMapExisting()) {
                             CommonUtil.addToSymbolicLinkMap(symlinkPath, schemaPath);
                         } else {
                             systemRegistry.createLink(symlinkPath, schemaPath);
@@ -25,6 +25,7 @@ import org.apache.axiom.om.OMNamespace;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
@@ -70,12 +71,14 @@ public class WSDLProcessor {
     public static final String INCLUDE_TAG = "include";
     private static final String SAMPLE_BASE_URL = "http://this.wsdl.needs/a/valid/url/to/proceed.wsdl";
 
+    private static volatile WSDLFactory wsdlFactory;
+
     private static String commonWSDLLocation;
     private static String commonSchemaLocation;
     private static String commonPolicyLocation;
 
-    private List<String> visitedWSDLs;
-    private List<String> processedWSDLs;
+    private Set<String> visitedWSDLs;
+    private Set<String> processedWSDLs;
     private Map<String, WSDLInfo> wsdls;
 
     private WSDLValidationInfo wsdlValidationInfo = null;
@@ -83,6 +86,8 @@ public class WSDLProcessor {
 
     private boolean hasWSDLImports = false;
 
+    private ImportAccumulator importAccumulator;
+
     private static Log log = LogFactory.getLog(WSDLProcessor.class);
 
     private static InheritableThreadLocal<Set<String>> importedWSDLs =
@@ -139,8 +144,8 @@ public class WSDLProcessor {
         }
         i = 0;
         associations = new ArrayList<Association>();
-        visitedWSDLs = new ArrayList<String>();
-        processedWSDLs = new ArrayList<String>();
+        visitedWSDLs = new HashSet<String>();
+        processedWSDLs = new HashSet<String>();
         schemaProcessor = buildSchemaProcessor(requestContext, null);
         wsdls = new LinkedHashMap<String, WSDLInfo>();
         resourceName = "";
@@ -151,6 +156,37 @@ public class WSDLProcessor {
         schemaProcessor = buildSchemaProcessor(requestContext, null, useOriginalSchema);
     }
 
+    // the factory is stateless, and looking it up costs a service provider scan per call.
+    private static WSDLFactory getWSDLFactory() throws WSDLException {
+        if (wsdlFactory == null) {
+            wsdlFactory = WSDLFactory.newInstance();
+        }
+        return wsdlFactory;
+    }
+
+    /**
+     * Sets the accumulator of the bulk import this WSDL is added by. Symbolic links of the WSDL
+     * and its schemas are then recorded in the accumulator rather than created right away.
+     */
+    public void setImportAccumulator(ImportAccumulator importAccumulator) {
+        this.importAccumulator = importAccumulator;
+        schemaProcessor.setImportAccumulator(importAccumulator);
+    }
+
+    private void createSymbolicLink(String symlinkPath, String targetPath, boolean replace)
+            throws RegistryException {
+        if (importAccumulator != null) {
+            importAccumulator.addSymbolicLink(symlinkPath, targetPath);
+        } else if (CommonUtil.isSymbolicLinkMapExisting()) {
+            CommonUtil.addToSymbolicLinkMap(symlinkPath, targetPath);
+        } else {
+            if (replace) {
+                systemRegistry.removeLink(symlinkPath);
+            }
+            systemRegistry.createLink(symlinkPath, targetPath);
+        }
+    }
+
     public static void setCommonWSDLLocation(String commonWSDLLocation) {
         WSDLProcessor.commonWSDLLocation = commonWSDLLocation;
     }
@@ -482,8 +518,7 @@ public class WSDLProcessor {
         originalDefinition = null;
 
         try {
-            wsdlReader = new ExWSDLReaderImpl(
-                    (WSDLReaderImpl) WSDLFactory.newInstance().newWSDLReader());
+            wsdlReader = new ExWSDLReaderImpl((WSDLReaderImpl) getWSDLFactory().newWSDLReader());
         } catch (WSDLException e) {
             String msg = "Could not initiate the wsdl reader. Caused by: " + e.getMessage();
             throw new RegistryException(msg);
@@ -494,12 +529,21 @@ public class WSDLProcessor {
 
         try {
             if (isPut) {
-                ByteArrayInputStream byteArrayInputStream =
-                        new ByteArrayInputStream((byte[]) context.getResource().getContent());
-                InputSource inputSource = new InputSource(byteArrayInputStream);
-                wsdlDefinition = wsdlReader.readWSDL(null, inputSource);
+                byte[] content = (byte[]) context.getResource().getContent();
+                Document document = ParsedDocumentCache.getDocument(content);
+                if (document != null) {
+                    wsdlDefinition = wsdlReader.readWSDL(null, document);
+                } else {
+                    InputSource inputSource = new InputSource(new ByteArrayInputStream(content));
+                    wsdlDefinition = wsdlReader.readWSDL(null, inputSource);
+                }
             } else {
-                wsdlDefinition = wsdlReader.readWSDL(wsdlLocation);
+                Document document = ParsedDocumentCache.getDocument(wsdlLocation);
+                if (document != null) {
+                    wsdlDefinition = wsdlReader.readWSDL(wsdlLocation, document);
+                } else {
+                    wsdlDefinition = wsdlReader.readWSDL(wsdlLocation);
+                }
             }
             originalDefinition = wsdlDefinition;
         } catch (WSDLException e) {
@@ -725,7 +769,7 @@ public class WSDLProcessor {
         try {
             for (WSDLInfo wsdlInfo : wsdls.values()) {
                 Definition wsdlDefinition = wsdlInfo.getWSDLDefinition();
-                WSDLWriter wsdlWriter = WSDLFactory.newInstance().newWSDLWriter();
+                WSDLWriter wsdlWriter = getWSDLFactory().newWSDLWriter();
                 ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
                 wsdlWriter.writeWSDL(wsdlDefinition, byteArrayOutputStream);
                 byte[] wsdlResourceContent = byteArrayOutputStream.toByteArray();
@@ -832,11 +876,7 @@ public class WSDLProcessor {
             }
             String symlinkPath = symlinkLocation + resourceName;
             if (!registry.resourceExists(symlinkPath)) {
-                if (CommonUtil.isSymbolicLinkMapExisting()) {
-                    CommonUtil.addToSymbolicLinkMap(symlinkPath, wsdlPath);
-                } else {
-                    systemRegistry.createLink(symlinkPath, wsdlPath);
-                }
+                createSymbolicLink(symlinkPath, wsdlPath, false);
             } else if (newWSDLUpload) {
                 if (registry.get(symlinkPath).getProperty(RegistryConstants.REGISTRY_LINK) != null) {
                     String actualPath = registry.get(symlinkPath).getProperty(RegistryConstants.REGISTRY_ACTUAL_PATH);
@@ -844,12 +884,7 @@ public class WSDLProcessor {
                         if (actualPath != null) {
                             registry.delete(actualPath);
                         }
-                        if (CommonUtil.isSymbolicLinkMapExisting()) {
-                            CommonUtil.addToSymbolicLinkMap(symlinkPath, wsdlPath);
-                        } else {
-                            systemRegistry.removeLink(symlinkPath);
-                            systemRegistry.createLink(symlinkPath, wsdlPath);
-                        }
+                        createSymbolicLink(symlinkPath, wsdlPath, true);
                     }
                 } else {
                     registry.delete(symlinkPath);
@@ -962,7 +997,7 @@ public class WSDLProcessor {
         try {
             for (WSDLInfo wsdlInfo : wsdls.values()) {
                 Definition wsdlDefinition = wsdlInfo.getWSDLDefinition();
-                WSDLWriter wsdlWriter = WSDLFactory.newInstance().newWSDLWriter();
+                WSDLWriter wsdlWriter = getWSDLFactory().newWSDLWriter();
                 ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
                 wsdlWriter.writeWSDL(wsdlDefinition, byteArrayOutputStream);
                 byte[] wsdlResourceContent = byteArrayOutputStream.toByteArray();
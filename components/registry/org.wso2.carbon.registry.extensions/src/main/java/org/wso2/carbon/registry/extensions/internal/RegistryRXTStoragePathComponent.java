@@ -22,6 +22,7 @@ import org.apache.commons.logging.LogFactory;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.ComponentContext;
 import org.wso2.carbon.registry.core.service.RegistryService;
+import org.wso2.carbon.registry.extensions.handlers.ZipWSDLMediaTypeHandler;
 import org.wso2.carbon.registry.extensions.services.RXTStoragePathService;
 import org.wso2.carbon.registry.extensions.services.RXTStoragePathServiceImpl;
 import org.wso2.carbon.registry.extensions.services.Utils;
@@ -63,6 +64,7 @@ public class RegistryRXTStoragePathComponent {
             extensionServiceRegistration = null;
         }
         Utils.setRxtService(null);
+        ZipWSDLMediaTypeHandler.shutdownUploadExecutors();
         if (log.isDebugEnabled()) {
             log.debug("******* Registry Extensions bundle is deactivated ******* ");
         }
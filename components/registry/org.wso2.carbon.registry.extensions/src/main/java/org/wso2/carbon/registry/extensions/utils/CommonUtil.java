@@ -1031,6 +1031,19 @@ public class CommonUtil {
         return importedArtifacts.get().contains(path);
     }
 
+    // used to hand over the set to threads of a shared pool, which do not inherit it.
+    public static Set<String> getImportedArtifacts() {
+        return importedArtifacts.get();
+    }
+
+    public static void setImportedArtifacts(Set<String> artifacts) {
+        if (artifacts == null) {
+            importedArtifacts.remove();
+        } else {
+            importedArtifacts.set(artifacts);
+        }
+    }
+
     // handling the possibility that handlers are not called within each other. 
     private static ThreadLocal<Boolean> scmTaskInProgress = new ThreadLocal<Boolean>() {
         protected Boolean initialValue() {
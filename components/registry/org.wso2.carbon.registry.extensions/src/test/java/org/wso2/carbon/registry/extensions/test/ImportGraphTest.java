@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2008, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.extensions.test;
+
+import junit.framework.TestCase;
+import org.wso2.carbon.registry.extensions.handlers.utils.ImportGraph;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ImportGraphTest extends TestCase {
+
+    private File directory;
+
+    public void setUp() throws IOException {
+        directory = File.createTempFile("import-graph", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+    }
+
+    protected void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    public void testLevels() throws IOException {
+        String common = schema("common.xsd");
+        String a = schema("a.xsd", "common.xsd");
+        String b = schema("b.xsd", "common.xsd");
+        String service = wsdl("service.wsdl", "a.xsd", "b.xsd");
+
+        List<List<String>> levels = new ImportGraph(Arrays.asList(service, b, a, common))
+                .getLevels();
+
+        assertEquals(3, levels.size());
+        assertEquals(Arrays.asList(common), levels.get(0));
+        assertEquals(set(a, b), new HashSet<String>(levels.get(1)));
+        assertEquals(Arrays.asList(service), levels.get(2));
+    }
+
+    public void testCycle() throws IOException {
+        String a = schema("a.xsd", "b.xsd");
+        String b = schema("b.xsd", "a.xsd");
+        String self = schema("self.xsd", "self.xsd");
+
+        List<List<String>> levels = new ImportGraph(Arrays.asList(a, b, self)).getLevels();
+
+        // every document is added exactly once, and the cycle is broken at the document it was
+        // entered from.
+        assertEquals(set(a, b, self), documents(levels));
+        assertEquals(3, count(levels));
+        assertEquals(set(b, self), new HashSet<String>(levels.get(0)));
+        assertEquals(Arrays.asList(a), levels.get(1));
+    }
+
+    public void testMissingImports() throws IOException {
+        String a = schema("a.xsd", "missing.xsd", "http://example.org/remote.xsd");
+        String b = schema("b.xsd", "a.xsd");
+        String broken = write("broken.xsd", "<xs:schema");
+        String absent = new File(directory, "absent.xsd").toURI().toString();
+
+        List<List<String>> levels = new ImportGraph(Arrays.asList(a, b, broken, absent))
+                .getLevels();
+
+        // imports outside the given documents are ignored, and so are documents which cannot
+        // be read.
+        assertEquals(2, levels.size());
+        assertEquals(set(a, broken, absent), new HashSet<String>(levels.get(0)));
+        assertEquals(Arrays.asList(b), levels.get(1));
+    }
+
+    public void testExternalEntitiesAreNotResolved() throws IOException {
+        String a = schema("a.xsd");
+        // the import would only be found by expanding the external entity.
+        write("entity.txt", "<xs:import schemaLocation=\"a.xsd\"/>");
+        String b = write("b.xsd", "<?xml version=\"1.0\"?>" +
+                "<!DOCTYPE xs:schema [<!ENTITY imports SYSTEM \"entity.txt\">]>" +
+                "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">&imports;" +
+                "</xs:schema>");
+
+        List<List<String>> levels = new ImportGraph(Arrays.asList(a, b)).getLevels();
+
+        assertEquals(1, levels.size());
+        assertEquals(set(a, b), new HashSet<String>(levels.get(0)));
+    }
+
+    private String schema(String name, String... imports) throws IOException {
+        StringBuilder content = new StringBuilder();
+        content.append("<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">");
+        for (String location : imports) {
+            content.append("<xs:import schemaLocation=\"").append(location).append("\"/>");
+        }
+        content.append("</xs:schema>");
+        return write(name, content.toString());
+    }
+
+    private String wsdl(String name, String... imports) throws IOException {
+        StringBuilder content = new StringBuilder();
+        content.append("<wsdl:definitions xmlns:wsdl=\"http://schemas.xmlsoap.org/wsdl/\" ")
+                .append("xmlns:xs=\"http://www.w3.org/2001/XMLSchema\"><wsdl:types><xs:schema>");
+        for (String location : imports) {
+            content.append("<xs:import schemaLocation=\"").append(location).append("\"/>");
+        }
+        content.append("</xs:schema></wsdl:types></wsdl:definitions>");
+        return write(name, content.toString());
+    }
+
+    private String write(String name, String content) throws IOException {
+        File file = new File(directory, name);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return file.toURI().toString();
+    }
+
+    private static Set<String> documents(List<List<String>> levels) {
+        Set<String> documents = new HashSet<String>();
+        for (List<String> level : levels) {
+            documents.addAll(level);
+        }
+        return documents;
+    }
+
+    private static int count(List<List<String>> levels) {
+        List<String> documents = new ArrayList<String>();
+        for (List<String> level : levels) {
+            documents.addAll(level);
+        }
+        return documents.size();
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<String>(Arrays.asList(values));
+    }
+}
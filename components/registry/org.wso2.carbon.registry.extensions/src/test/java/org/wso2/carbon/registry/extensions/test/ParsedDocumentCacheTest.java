@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2008, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.extensions.test;
+
+import junit.framework.TestCase;
+import org.w3c.dom.Document;
+import org.wso2.carbon.registry.extensions.handlers.utils.ParsedDocumentCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class ParsedDocumentCacheTest extends TestCase {
+
+    public void testSameContentIsParsedOnce() throws IOException {
+        byte[] content = schema("http://example.org/same/" + System.nanoTime());
+        long hits = ParsedDocumentCache.getHitCount();
+        long misses = ParsedDocumentCache.getMissCount();
+
+        Document first = ParsedDocumentCache.getDocument(content);
+        File file = File.createTempFile("cached", ".xsd");
+        try {
+            write(file, content);
+            Document second = ParsedDocumentCache.getDocument(file.toURI().toString());
+
+            assertNotNull(first);
+            assertNotNull(second);
+            assertEquals(1, ParsedDocumentCache.getMissCount() - misses);
+            assertEquals(1, ParsedDocumentCache.getHitCount() - hits);
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testCallersGetPrivateCopies() {
+        String targetNamespace = "http://example.org/copies/" + System.nanoTime();
+        byte[] content = schema(targetNamespace);
+
+        Document first = ParsedDocumentCache.getDocument(content);
+        first.getDocumentElement().setAttribute("targetNamespace", "http://example.org/changed");
+        Document second = ParsedDocumentCache.getDocument(content);
+
+        assertNotSame(first, second);
+        assertEquals(targetNamespace, second.getDocumentElement().getAttribute("targetNamespace"));
+    }
+
+    public void testDocumentTypeDeclarationsAreNotParsed() {
+        byte[] content = ("<?xml version=\"1.0\"?>" +
+                "<!DOCTYPE schema [<!ENTITY value SYSTEM \"file:///etc/passwd\">]>" +
+                "<schema>&value;</schema>").getBytes();
+        long misses = ParsedDocumentCache.getMissCount();
+
+        assertNull(ParsedDocumentCache.getDocument(content));
+        // the content is looked up again the next time, as it was not cached.
+        assertNull(ParsedDocumentCache.getDocument(content));
+        assertEquals(2, ParsedDocumentCache.getMissCount() - misses);
+    }
+
+    public void testUnreadableLocation() {
+        assertNull(ParsedDocumentCache.getDocument(
+                new File("missing-" + System.nanoTime() + ".xsd").toURI().toString()));
+    }
+
+    private static byte[] schema(String targetNamespace) {
+        return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"" +
+                targetNamespace + "\"><xs:element name=\"value\" type=\"xs:string\"/>" +
+                "</xs:schema>").getBytes();
+    }
+
+    private static void write(File file, byte[] content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+}
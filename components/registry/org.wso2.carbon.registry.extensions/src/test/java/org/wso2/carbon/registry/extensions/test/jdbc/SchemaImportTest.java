@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2008, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.extensions.test.jdbc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.internal.RegistryCoreServiceComponent;
+import org.wso2.carbon.registry.core.jdbc.EmbeddedRegistryService;
+import org.wso2.carbon.registry.core.jdbc.handlers.HandlerLifecycleManager;
+import org.wso2.carbon.registry.core.jdbc.handlers.filters.MediaTypeMatcher;
+import org.wso2.carbon.registry.extensions.handlers.XSDMediaTypeHandler;
+import org.wso2.carbon.registry.extensions.handlers.utils.ParsedDocumentCache;
+import org.wso2.carbon.registry.extensions.test.utils.BaseTestCase;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SchemaImportTest extends BaseTestCase {
+
+    private static final String XSD_MEDIA_TYPE = "application/x-xsd+xml";
+
+    protected static Registry registry = null;
+
+    private HttpServer server;
+    private Map<String, String> schemas = new HashMap<String, String>();
+    private Map<String, AtomicInteger> fetchCounts = new ConcurrentHashMap<String, AtomicInteger>();
+
+    public void setUp() throws RegistryException {
+        super.setUp();
+        if (registry == null) {
+            EmbeddedRegistryService embeddedRegistry = ctx.getEmbeddedRegistryService();
+            new RegistryCoreServiceComponent().registerBuiltInHandlers(embeddedRegistry);
+            registry = embeddedRegistry.getGovernanceSystemRegistry();
+
+            XSDMediaTypeHandler handler = new XSDMediaTypeHandler();
+            handler.setDisableSchemaValidation("true");
+            registry.getRegistryContext().getHandlerManager().addHandler(null,
+                    new MediaTypeMatcher(XSD_MEDIA_TYPE), handler,
+                    HandlerLifecycleManager.DEFAULT_REPORTING_HANDLER_PHASE);
+        }
+
+        schemas.put("/top.xsd", schema("http://example.org/top",
+                "<xs:import namespace=\"http://example.org/a\" schemaLocation=\"a.xsd\"/>" +
+                "<xs:import namespace=\"http://example.org/b\" schemaLocation=\"b.xsd\"/>"));
+        schemas.put("/a.xsd", schema("http://example.org/a",
+                "<xs:import namespace=\"http://example.org/common\" schemaLocation=\"common.xsd\"/>"));
+        schemas.put("/b.xsd", schema("http://example.org/b",
+                "<xs:import namespace=\"http://example.org/common\" schemaLocation=\"common.xsd\"/>"));
+        schemas.put("/common.xsd", schema("http://example.org/common", ""));
+        schemas.put("/other.xsd", schema("http://example.org/other/" + System.nanoTime(),
+                "<xs:import namespace=\"http://example.org/common\" schemaLocation=\"common.xsd\"/>"));
+
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new RegistryException("Unable to start the schema server", e);
+        }
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                fetchCounts.putIfAbsent(path, new AtomicInteger());
+                fetchCounts.get(path).incrementAndGet();
+                String schema = schemas.get(path);
+                if (schema == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] body = schema.getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "text/xml");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                try {
+                    out.write(body);
+                } finally {
+                    out.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    protected void tearDown() throws Exception {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    public void testSharedImportIsParsedOnce() throws RegistryException {
+        long lookups = ParsedDocumentCache.getHitCount() + ParsedDocumentCache.getMissCount();
+        importSchema("/imports/top.xsd", "/top.xsd");
+
+        assertEquals("The imported schema should be fetched once.", 1, fetchCount("/top.xsd"));
+        assertEquals("A directly imported schema should be fetched once.", 1, fetchCount("/a.xsd"));
+        assertEquals("A directly imported schema should be fetched once.", 1, fetchCount("/b.xsd"));
+        assertEquals("A schema imported by two schemas should be fetched once.", 1,
+                fetchCount("/common.xsd"));
+        assertEquals("Each schema should be read through the cache once.", 4,
+                ParsedDocumentCache.getHitCount() + ParsedDocumentCache.getMissCount() - lookups);
+    }
+
+    public void testImportedSchemaIsCachedAcrossImports() throws RegistryException {
+        importSchema("/imports/first/top.xsd", "/top.xsd");
+
+        long hits = ParsedDocumentCache.getHitCount();
+        long misses = ParsedDocumentCache.getMissCount();
+        importSchema("/imports/second/other.xsd", "/other.xsd");
+
+        assertEquals("The new schema should be parsed.", 1,
+                ParsedDocumentCache.getMissCount() - misses);
+        assertEquals("The schema imported by the earlier import should be taken from the cache.",
+                1, ParsedDocumentCache.getHitCount() - hits);
+    }
+
+    private void importSchema(String path, String location) throws RegistryException {
+        String sourceURL = "http://localhost:" + server.getAddress().getPort() + location;
+        Resource resource = registry.newResource();
+        resource.setMediaType(XSD_MEDIA_TYPE);
+        registry.importResource(path, sourceURL, resource);
+    }
+
+    private int fetchCount(String path) {
+        AtomicInteger count = fetchCounts.get(path);
+        return count != null ? count.get() : 0;
+    }
+
+    private static String schema(String targetNamespace, String imports) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"" +
+                targetNamespace + "\" elementFormDefault=\"qualified\">" + imports +
+                "<xs:element name=\"value\" type=\"xs:string\"/>" +
+                "</xs:schema>";
+    }
+}
@@ -67,6 +67,7 @@ public final class IndexingConstants {
     public static final String FIELD_CREATED_BY = "author";
     public static final String FIELD_RESOURCE_NAME = "resourceName";
     public static final String FIELD_PROPERTY_VALUES = "propertyValues";
+    public static final String FIELD_RATING = "rating";
     public static final String ADVANCE_SEARCH = "AdvanceSearch";
 
     // New fields need for index search
@@ -98,5 +99,7 @@ public final class IndexingConstants {
 
     public static final String META_LAST_UPDATED_DATE = "meta_last_updated_date";
     public static final String META_CREATED_DATE = "meta_created_date";
+    // Sort key used by the advanced search for the created date
+    public static final String SORT_BY_CREATED = "created";
 
 }
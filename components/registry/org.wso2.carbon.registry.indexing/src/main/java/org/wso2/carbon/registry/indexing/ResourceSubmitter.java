@@ -183,6 +183,12 @@ public class ResourceSubmitter implements Runnable {
                                     log.debug("Resource comment added: Resource at " + path +
                                             " has been submitted to the Indexing Server");
                                 }
+                            } else if (logEntry.getAction() == LogEntry.RATING) {
+                                indexingManager.submitFileForIndexing(tenantId, tenantDomain, path, null);
+                                if (log.isDebugEnabled()) {
+                                    log.debug("Resource rated: Resource at " + path +
+                                            " has been submitted to the Indexing Server");
+                                }
                             } else if (logEntry.getAction() == LogEntry.ADD_ASSOCIATION) {
                                 indexingManager.submitFileForIndexing(tenantId, tenantDomain, path, null);
                                 if (log.isDebugEnabled()) {
@@ -254,6 +260,7 @@ public class ResourceSubmitter implements Runnable {
                         logEntries[i].getAction() == LogEntry.ADD ||
                         logEntries[i].getAction() == LogEntry.TAG ||
                         logEntries[i].getAction() == LogEntry.COMMENT ||
+                        logEntries[i].getAction() == LogEntry.RATING ||
                         logEntries[i].getAction() == LogEntry.ADD_ASSOCIATION ||
                         logEntries[i].getAction() == LogEntry.MOVE ||
                         logEntries[i].getAction() == LogEntry.COPY ||
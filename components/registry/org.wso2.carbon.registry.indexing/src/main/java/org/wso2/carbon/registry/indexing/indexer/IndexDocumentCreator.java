@@ -117,6 +117,8 @@ public class IndexDocumentCreator {
             addTags();
             // Set Association types and destinations of the resource to the attribute list
             addAssociations();
+            // Set the average rating of the resource to the attribute list
+            addRating();
         }
         // Set Property names and values of the resource to the attribute list
         addPropertyData();
@@ -219,6 +221,15 @@ public class IndexDocumentCreator {
             }
         }
     }
+    /**
+     *  Method to set the resource average rating to IndexDocument attribute list.
+     */
+    private void addRating() throws RegistryException {
+        // Unrated resources are indexed with a zero rating, so that they sort along with the rest
+        float rating = registry.getAverageRating(resourcePath);
+        attributes.put(IndexingConstants.FIELD_RATING, Arrays.asList(Float.toString(rating)));
+    }
+
     /**
      *  Method to set the resource comments to IndexDocument attribute list.
      */
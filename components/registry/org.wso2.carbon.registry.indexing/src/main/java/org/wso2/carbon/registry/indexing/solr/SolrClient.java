@@ -341,6 +341,10 @@ public class SolrClient {
                     for (String value : fieldList.getValue()) {
                         solrInputDocument.addField(IndexingConstants.FIELD_ALLOWED_ROLES, value);
                     }
+                } else if (IndexingConstants.FIELD_RATING.equals(fieldList.getKey())) {
+                    // Add the rating as a single valued double field, so that results can be sorted on it
+                    solrInputDocument.addField(IndexingConstants.FIELD_RATING + SolrConstants.SOLR_DOUBLE_FIELD_KEY_SUFFIX,
+                            Double.parseDouble(fieldList.getValue().get(0)));
                 } else {
                     // Add date fields
                     if (fieldList.getKey().equals(IndexingConstants.FIELD_CREATED_DATE) || fieldList.getKey()
@@ -582,7 +586,8 @@ public class SolrClient {
                     query.setRows(paginationContext.getCount());
 
                     String sortBy = paginationContext.getSortBy();
-                    if (IndexingConstants.META_CREATED_DATE.equals(sortBy)) {
+                    if (IndexingConstants.META_CREATED_DATE.equals(sortBy) ||
+                            IndexingConstants.SORT_BY_CREATED.equals(sortBy)) {
                         sortBy = IndexingConstants.FIELD_CREATED_DATE;
                     } else if (IndexingConstants.META_LAST_UPDATED_DATE.equals(sortBy)) {
                         sortBy = IndexingConstants.FIELD_LAST_UPDATED_DATE;
@@ -679,6 +684,9 @@ public class SolrClient {
                 IndexingConstants.FIELD_LAST_UPDATED_DATE.equals(sortBy)) {
             query.setSort(sortBy + SolrConstants.SOLR_DATE_FIELD_KEY_SUFFIX,
                     "ASC".equals(sortOrder) ? SolrQuery.ORDER.asc : SolrQuery.ORDER.desc);
+        } else if (IndexingConstants.FIELD_RATING.equals(sortBy)) {
+            query.setSort(sortBy + SolrConstants.SOLR_DOUBLE_FIELD_KEY_SUFFIX,
+                    "ASC".equals(sortOrder) ? SolrQuery.ORDER.asc : SolrQuery.ORDER.desc);
         } else {
             query.setSort(sortBy + SolrConstants.SOLR_STRING_FIELD_KEY_SUFFIX,
                     "ASC".equals(sortOrder) ? SolrQuery.ORDER.asc : SolrQuery.ORDER.desc);
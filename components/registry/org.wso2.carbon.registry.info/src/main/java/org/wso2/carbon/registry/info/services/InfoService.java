@@ -126,6 +126,25 @@ public class InfoService extends RegistryAbstractAdmin implements IInfoService {
         return SubscriptionBeanPopulator.populate(registry, path);
     }
 
+    /**
+     * Returns the metadata of a resource along with its comments, tags, ratings, event types and
+     * subscriptions in a single call, which fetches the resource and checks its permissions once
+     * instead of once for each of the separate calls.
+     *
+     * @param path      the resource path of this resource/collection.
+     * @param sections  the sections to return, as defined by {@link ResourceInfoBean}. All
+     *                  sections are returned if none are given.
+     * @param sessionId a session identifier. This parameter is not used in the current API.
+     *
+     * @return a bean containing the requested sections.
+     * @throws RegistryException if the operation failed.
+     */
+    public ResourceInfoBean getResourceInfo(String path, String[] sections, String sessionId)
+            throws RegistryException {
+        UserRegistry registry = (UserRegistry) getRootRegistry();
+        return ResourceInfoBeanPopulator.populate(registry, path, sections);
+    }
+
     public SubscriptionBean subscribe(String path, String endpoint, String eventName,
                                       String sessionId) throws RegistryException {
         String tempPath = path.substring(0, path.lastIndexOf("/"));
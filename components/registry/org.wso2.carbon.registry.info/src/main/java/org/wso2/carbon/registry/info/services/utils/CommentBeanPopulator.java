@@ -23,18 +23,33 @@ import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.registry.core.session.UserRegistry;
 import org.wso2.carbon.registry.common.beans.CommentBean;
 import org.wso2.carbon.registry.common.beans.utils.Comment;
-import org.wso2.carbon.registry.common.utils.UserUtil;
 
 import java.util.Calendar;
-import java.util.List;
 
 public class CommentBeanPopulator {
     public static CommentBean populate(UserRegistry userRegistry, String path) {
+        try {
+            Resource resource = userRegistry.get(path);
+            return populate(userRegistry, path,
+                    InfoUtil.isPutAllowed(userRegistry, path, resource));
+        } catch (RegistryException e) {
+
+            String msg = "Failed to get comment information of the resource. " + e.getMessage();
+
+            CommentBean commentBean = new CommentBean();
+            commentBean.setErrorMessage(msg);
+            return commentBean;
+        }
+    }
+
+    /**
+     * Populates the comments of a resource whose permissions have already been looked up.
+     */
+    public static CommentBean populate(UserRegistry userRegistry, String path, boolean putAllowed) {
 
         CommentBean commentBean = new CommentBean();
 
         try {
-            Resource resource = userRegistry.get(path);
             org.wso2.carbon.registry.core.Comment[] c = userRegistry.getComments(path);
             Comment [] comments = new Comment [c.length];
             Comment comment;
@@ -66,36 +81,7 @@ public class CommentBeanPopulator {
             ResourcePath resourcePath = new ResourcePath(path);
             commentBean.setPathWithVersion(resourcePath.getPathWithVersion());
             commentBean.setVersionView(!resourcePath.isCurrentVersion());
-            List mountPoints = resource.getPropertyValues("registry.mountpoint");
-            List targetPoints = resource.getPropertyValues("registry.targetpoint");
-//            List paths = resource.getPropertyValues("registry.path");
-            List actualPaths = resource.getPropertyValues("registry.actualpath");
-            String user = resource.getProperty("registry.user");
-            if (resource.getProperty("registry.link") != null) {
-
-                if(mountPoints != null && targetPoints != null) {
-//                    String mountPoint = (String)mountPoints.get(0);
-//                    String targetPoint = (String)targetPoints.get(0);
-//                        String tempPath;
-//                        if (targetPoint.equals(RegistryConstants.PATH_SEPARATOR) && !path.equals(mountPoint)) {
-//                            tempPath = ((String)paths.get(0)).substring(mountPoint.length());
-//                        } else {
-//                            tempPath = targetPoint + ((String)paths.get(0)).substring(mountPoint.length());
-//                        }
-                    String tempPath = (String)actualPaths.get(0);
-                    commentBean.setPutAllowed(
-                            UserUtil.isPutAllowed(userRegistry.getUserName(), tempPath, userRegistry));
-                } else if (user != null) {
-                    if (userRegistry.getUserName().equals(user)) {
-                        commentBean.setPutAllowed(true);
-                    } else {
-                        commentBean.setPutAllowed(UserUtil.isPutAllowed(
-                                userRegistry.getUserName(), path, userRegistry));
-                    }
-                }
-            } else {
-                commentBean.setPutAllowed(UserUtil.isPutAllowed(userRegistry.getUserName(), path, userRegistry));
-            }
+            commentBean.setPutAllowed(putAllowed);
             commentBean.setLoggedIn(!RegistryConstants.ANONYMOUS_USER.equals(userRegistry.getUserName()));
         } catch (RegistryException e) {
 
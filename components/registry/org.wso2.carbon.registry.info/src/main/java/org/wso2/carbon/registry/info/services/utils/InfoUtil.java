@@ -18,6 +18,7 @@ package org.wso2.carbon.registry.info.services.utils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.registry.event.core.subscription.Subscription;
+import org.wso2.carbon.registry.common.utils.UserUtil;
 import org.wso2.carbon.registry.core.ActionConstants;
 import org.wso2.carbon.registry.core.RegistryConstants;
 import org.wso2.carbon.registry.core.Resource;
@@ -27,6 +28,8 @@ import org.wso2.carbon.registry.core.utils.AccessControlConstants;
 import org.wso2.carbon.registry.core.utils.RegistryUtils;
 import org.wso2.carbon.registry.info.internal.InfoDataHolder;
 
+import java.util.List;
+
 public class InfoUtil {
 
     private static final Log log = LogFactory.getLog(InfoUtil.class);
@@ -127,4 +130,33 @@ public class InfoUtil {
         }
     }
 
+    /**
+     * Determines whether the user of the registry can modify the given resource, checking the
+     * path the resource is linked to if it is a link.
+     *
+     * @param registry the registry of the user
+     * @param path     the path of the resource
+     * @param resource the resource at the path
+     * @return whether the user can modify the resource
+     * @throws RegistryException if the permissions of the user could not be read
+     */
+    public static boolean isPutAllowed(UserRegistry registry, String path, Resource resource)
+            throws RegistryException {
+        List mountPoints = resource.getPropertyValues("registry.mountpoint");
+        List targetPoints = resource.getPropertyValues("registry.targetpoint");
+        List actualPaths = resource.getPropertyValues("registry.actualpath");
+        String user = resource.getProperty("registry.user");
+        if (resource.getProperty("registry.link") != null) {
+            if (mountPoints != null && targetPoints != null) {
+                String tempPath = (String) actualPaths.get(0);
+                return UserUtil.isPutAllowed(registry.getUserName(), tempPath, registry);
+            } else if (user != null) {
+                return registry.getUserName().equals(user) ||
+                        UserUtil.isPutAllowed(registry.getUserName(), path, registry);
+            }
+            return false;
+        }
+        return UserUtil.isPutAllowed(registry.getUserName(), path, registry);
+    }
+
 }
@@ -26,6 +26,22 @@ import org.wso2.carbon.registry.common.utils.UserUtil;
 public class RatingBeanPopulator {
 
     public static RatingBean populate(UserRegistry userRegistry, String path) {
+        try {
+            return populate(userRegistry, path,
+                    UserUtil.isPutAllowed(userRegistry.getUserName(), path, userRegistry));
+        } catch (RegistryException e) {
+            String msg = "Failed to get ratings information of the resource " +
+                    new ResourcePath(path) + ". " + e.getMessage();
+            RatingBean ratingBean = new RatingBean();
+            ratingBean.setErrorMessage(msg);
+            return ratingBean;
+        }
+    }
+
+    /**
+     * Populates the ratings of a resource whose permissions have already been looked up.
+     */
+    public static RatingBean populate(UserRegistry userRegistry, String path, boolean putAllowed) {
 
         RatingBean ratingBean = new RatingBean();
         ResourcePath resourcePath = new ResourcePath(path);
@@ -91,7 +107,7 @@ public class RatingBeanPopulator {
 
             ratingBean.setVersionView(!resourcePath.isCurrentVersion());
             ratingBean.setPathWithVersion(resourcePath.getPathWithVersion());
-            ratingBean.setPutAllowed(UserUtil.isPutAllowed(userRegistry.getUserName(), path, userRegistry));
+            ratingBean.setPutAllowed(putAllowed);
             ratingBean.setLoggedIn(!RegistryConstants.ANONYMOUS_USER.equals(userRegistry.getUserName()));
         } catch (RegistryException e) {
             String msg = "Failed to get ratings information of the resource " +
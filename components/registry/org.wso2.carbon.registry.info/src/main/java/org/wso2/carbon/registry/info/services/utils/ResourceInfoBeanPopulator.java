@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2006, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.info.services.utils;
+
+import org.wso2.carbon.registry.common.beans.ResourceInfoBean;
+import org.wso2.carbon.registry.common.utils.UserUtil;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.session.UserRegistry;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ResourceInfoBeanPopulator {
+
+    private static final String[] ALL_SECTIONS = new String[] {
+            ResourceInfoBean.METADATA, ResourceInfoBean.COMMENTS, ResourceInfoBean.TAGS,
+            ResourceInfoBean.RATINGS, ResourceInfoBean.EVENT_TYPES, ResourceInfoBean.SUBSCRIPTIONS};
+
+    /**
+     * Populates the requested sections of the information of a resource, fetching the resource
+     * and checking whether the user can modify it only once for all of them.
+     *
+     * @param userRegistry the registry of the user
+     * @param path         the path of the resource
+     * @param sections     the sections to populate, as defined by {@link ResourceInfoBean}, or
+     *                     null or empty to populate all of them
+     * @return the information of the resource
+     */
+    public static ResourceInfoBean populate(UserRegistry userRegistry, String path,
+                                            String[] sections) {
+        ResourceInfoBean resourceInfoBean = new ResourceInfoBean();
+        resourceInfoBean.setPath(path);
+        Set<String> requestedSections = new HashSet<String>(Arrays.asList(
+                sections == null || sections.length == 0 ? ALL_SECTIONS : sections));
+
+        Resource resource;
+        try {
+            resource = userRegistry.get(path);
+        } catch (RegistryException e) {
+            String msg = "Failed to get information of the resource " + path + ". " +
+                    e.getMessage();
+            resourceInfoBean.setErrorMessage(msg);
+            return resourceInfoBean;
+        }
+
+        try {
+            if (requestedSections.contains(ResourceInfoBean.METADATA)) {
+                resourceInfoBean.setCollection(resource instanceof Collection);
+                resourceInfoBean.setMediaType(resource.getMediaType());
+                resourceInfoBean.setDescription(resource.getDescription());
+                resourceInfoBean.setAuthorUserName(resource.getAuthorUserName());
+                resourceInfoBean.setLastUpdaterUserName(resource.getLastUpdaterUserName());
+                resourceInfoBean.setCreatedOn(toCalendar(resource.getCreatedTime()));
+                resourceInfoBean.setLastModified(toCalendar(resource.getLastModified()));
+            }
+
+            boolean isLink = resource.getProperty("registry.link") != null;
+            Boolean putAllowed = null;
+            if (requestedSections.contains(ResourceInfoBean.COMMENTS) ||
+                    requestedSections.contains(ResourceInfoBean.TAGS)) {
+                putAllowed = InfoUtil.isPutAllowed(userRegistry, path, resource);
+            }
+            if (requestedSections.contains(ResourceInfoBean.COMMENTS)) {
+                resourceInfoBean.setComments(
+                        CommentBeanPopulator.populate(userRegistry, path, putAllowed));
+            }
+            if (requestedSections.contains(ResourceInfoBean.TAGS)) {
+                resourceInfoBean.setTags(TagBeanPopulator.populate(userRegistry, path, putAllowed));
+            }
+            if (requestedSections.contains(ResourceInfoBean.RATINGS)) {
+                // ratings are checked against the path itself, which is what was checked above
+                // unless the resource is a link.
+                boolean ratingPutAllowed = putAllowed != null && !isLink ? putAllowed :
+                        UserUtil.isPutAllowed(userRegistry.getUserName(), path, userRegistry);
+                resourceInfoBean.setRatings(
+                        RatingBeanPopulator.populate(userRegistry, path, ratingPutAllowed));
+            }
+            if (requestedSections.contains(ResourceInfoBean.EVENT_TYPES)) {
+                String eventTypePath = path;
+                if (isLink && resource.getProperty("registry.mountpoint") != null &&
+                        resource.getProperty("registry.targetpoint") != null) {
+                    eventTypePath = resource.getProperty("registry.actualpath");
+                }
+                resourceInfoBean.setEventTypes(
+                        EventTypeBeanPopulator.populate(userRegistry, eventTypePath));
+            }
+            if (requestedSections.contains(ResourceInfoBean.SUBSCRIPTIONS)) {
+                resourceInfoBean.setSubscriptions(
+                        SubscriptionBeanPopulator.populate(userRegistry, path, resource));
+            }
+        } catch (RegistryException e) {
+            String msg = "Failed to get information of the resource " + path + ". " +
+                    e.getMessage();
+            resourceInfoBean.setErrorMessage(msg);
+        } finally {
+            resource.discard();
+        }
+
+        return resourceInfoBean;
+    }
+
+    private static Calendar toCalendar(Date date) {
+        if (date == null) {
+            return null;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return calendar;
+    }
+}
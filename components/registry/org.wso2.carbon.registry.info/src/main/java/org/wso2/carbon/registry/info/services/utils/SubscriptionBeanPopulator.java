@@ -150,9 +150,6 @@ public class SubscriptionBeanPopulator {
 
     public static SubscriptionBean populate(UserRegistry userRegistry, String path) {
         Resource resource = null;
-        boolean recurse = false;
-        String url = null;
-        String userName = null;
         if (!path.startsWith(SubscriptionBeanPopulator.RECURSE)) {
             try {
                 resource = userRegistry.get(path);
@@ -160,7 +157,25 @@ public class SubscriptionBeanPopulator {
                 log.warn("Unable to fetch Resource at path: " + path);
                 resource = null;
             }
-        } else {
+        }
+        return populate(userRegistry, path, resource);
+    }
+
+    /**
+     * Populates the subscriptions of a resource which has already been fetched.
+     *
+     * @param userRegistry the registry of the user
+     * @param path         the path of the resource, prefixed with {@link #RECURSE} to include the
+     *                     subscriptions of the resources under it
+     * @param resource     the resource at the path, or null if it could not be fetched
+     * @return the subscriptions the user can see
+     */
+    public static SubscriptionBean populate(UserRegistry userRegistry, String path,
+                                            Resource resource) {
+        boolean recurse = false;
+        String url = null;
+        String userName = null;
+        if (path.startsWith(SubscriptionBeanPopulator.RECURSE)) {
             path = path.substring(RECURSE.length());
             recurse = true;
         }
@@ -23,16 +23,29 @@ import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.registry.core.session.UserRegistry;
 import org.wso2.carbon.registry.common.beans.TagBean;
 import org.wso2.carbon.registry.common.beans.utils.Tag;
-import org.wso2.carbon.registry.common.utils.UserUtil;
-
-import java.util.List;
 
 public class TagBeanPopulator {
     public static TagBean populate(UserRegistry userRegistry, String path) {
+        try {
+            Resource resource = userRegistry.get(path);
+            return populate(userRegistry, path,
+                    InfoUtil.isPutAllowed(userRegistry, path, resource));
+        } catch (RegistryException e) {
+
+            String msg = "Failed to get tagging information of resource . " + e.getMessage();
+            TagBean tagBean = new TagBean();
+            tagBean.setErrorMessage(msg);
+            return tagBean;
+        }
+    }
+
+    /**
+     * Populates the tags of a resource whose permissions have already been looked up.
+     */
+    public static TagBean populate(UserRegistry userRegistry, String path, boolean putAllowed) {
         TagBean tagBean = new TagBean();
 
         try {
-            Resource resource = userRegistry.get(path);
             org.wso2.carbon.registry.core.Tag[] t = userRegistry.getTags(path);
             Tag[] tags = new Tag [t.length];
             Tag tag;
@@ -49,36 +62,7 @@ public class TagBeanPopulator {
             ResourcePath resourcePath = new ResourcePath(path);
             tagBean.setPathWithVersion(resourcePath.getPathWithVersion());
             tagBean.setVersionView(!resourcePath.isCurrentVersion());
-            List mountPoints = resource.getPropertyValues("registry.mountpoint");
-            List targetPoints = resource.getPropertyValues("registry.targetpoint");
-//            List paths = resource.getPropertyValues("registry.path");
-            List actualPaths = resource.getPropertyValues("registry.actualpath");
-            String user = resource.getProperty("registry.user");
-            if (resource.getProperty("registry.link") != null) {
-
-                if(mountPoints != null && targetPoints != null) {
-//                    String mountPoint = (String)mountPoints.get(0);
-//                    String targetPoint = (String)targetPoints.get(0);
-//                        String tempPath;
-//                        if (targetPoint.equals(RegistryConstants.PATH_SEPARATOR) && !path.equals(mountPoint)) {
-//                            tempPath = ((String)paths.get(0)).substring(mountPoint.length());
-//                        } else {
-//                            tempPath = targetPoint + ((String)paths.get(0)).substring(mountPoint.length());
-//                        }
-                    String tempPath = (String)actualPaths.get(0);
-                    tagBean.setPutAllowed(
-                            UserUtil.isPutAllowed(userRegistry.getUserName(), tempPath, userRegistry));
-                } else if (user != null) {
-                    if (userRegistry.getUserName().equals(user)) {
-                        tagBean.setPutAllowed(true);
-                    } else {
-                        tagBean.setPutAllowed(UserUtil.isPutAllowed(
-                                userRegistry.getUserName(), path, userRegistry));
-                    }
-                }
-            } else {
-                tagBean.setPutAllowed(UserUtil.isPutAllowed(userRegistry.getUserName(), path, userRegistry));
-            }
+            tagBean.setPutAllowed(putAllowed);
             tagBean.setLoggedIn(!RegistryConstants.ANONYMOUS_USER.equals(userRegistry.getUserName()));
 
         } catch (RegistryException e) {
@@ -105,8 +105,9 @@ public class RegistryNode implements Node {
     public void setCollection(String s) throws RegistryException { //Non JCR method  //s-abs path:assume
 
         try {
-            if (s != null && registrySession.getUserRegistry().get(s) instanceof CollectionImpl) {
-                resource = (CollectionImpl) registrySession.getUserRegistry().get(s);
+            Resource collection = (s != null) ? registrySession.getCachedResource(s) : null;
+            if (collection instanceof CollectionImpl) {
+                resource = (CollectionImpl) collection;
             }
         } catch (RegistryException e) {
             String msg = "Exception occurred in registry collection creation " + this;
@@ -711,9 +712,10 @@ public class RegistryNode implements Node {
         }
         RegistryNode subNode = null;
         try {
-            if (registrySession.getUserRegistry().resourceExists(abs)) {
+            Resource subResource = registrySession.getCachedResource(abs);
+            if (subResource != null) {
                 subNode = new RegistryNode(abs, registrySession);
-                subNode.resource = (CollectionImpl) registrySession.getUserRegistry().get(abs);
+                subNode.resource = (CollectionImpl) subResource;
                 subNode.nodeType = (RegistryNodeType) (registrySession.getWorkspace().getNodeTypeManager().getNodeType(subNode.resource.getDescription()));
 
             } else {
@@ -728,34 +730,17 @@ public class RegistryNode implements Node {
     }
 
     public NodeIterator getNodes() throws RepositoryException {
-
-        List<Node> nodes = new ArrayList<Node>();
-        CollectionImpl tempCollection = null;
         try {
-
-            if (registrySession.getUserRegistry().get(nodePath) instanceof CollectionImpl) {
-                tempCollection = (CollectionImpl) registrySession.getUserRegistry().get(nodePath);
-                String[] children = tempCollection.getChildren();
-                for (int i = 0; i < children.length; i++) {
-                    if(isARegistryCollection(children[i])) {
-                        if(RegistryJCRItemOperationUtil.isSystemConfigNode(children[i])) {
-                            continue;
-                        }
-                        nodes.add(registrySession.getNode(children[i]));
-                    }
-                }
+            if (registrySession.getCachedMetaData(nodePath) instanceof CollectionImpl) {
+                // Children are paged in and loaded one at a time as the iterator advances
+                return new RegistryNodeIterator(registrySession, nodePath);
             }
         } catch (RegistryException e) {
             String msg = "failed to resolve the path of the given node or violation of repository syntax " + this;
             log.debug(msg);
             throw new RepositoryException(msg, e);
         }
-        RegistryNodeIterator nodeIterator = new RegistryNodeIterator(nodes);
-        return (NodeIterator) nodeIterator;
-    }
-
-    private boolean isARegistryCollection(String path) throws RegistryException {
-      return registrySession.getUserRegistry().get(path)  instanceof CollectionImpl;
+        return new RegistryNodeIterator(new ArrayList<Node>());
     }
 
     public NodeIterator getNodes(String s) throws RepositoryException {
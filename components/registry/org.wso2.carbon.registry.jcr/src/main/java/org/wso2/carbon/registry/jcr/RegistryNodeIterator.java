@@ -16,39 +16,95 @@
 
 package org.wso2.carbon.registry.jcr;
 
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.CollectionImpl;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.jcr.util.RegistryJCRItemOperationUtil;
+
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 
 public class RegistryNodeIterator implements NodeIterator {
 
+    private static final int PAGE_SIZE = 100;
+
     List<Node> nodes;
     Iterator iterator;
     private long counter = 0;
 
+    // Lazy iteration over the children of a registry collection
+    private RegistrySession registrySession;
+    private String parentPath;
+    private int pageStart = 0;
+    private boolean lastPageLoaded = false;
+    private LinkedList<String> pendingPaths = new LinkedList<String>();
+    private boolean pendingPathsFiltered = false;
+    private Node nextNode;
+    private long size = -1;
+
     public RegistryNodeIterator(List<Node> list) {
 
         this.nodes = list;
         this.iterator = nodes.iterator();
+        this.size = nodes.size();
+
+    }
+
+    /**
+     * Creates an iterator over the child nodes of the given collection. Child paths are fetched a
+     * page at a time, and the metadata of each child is loaded only when the iterator reaches it.
+     *
+     * @param registrySession the session the nodes belong to.
+     * @param parentPath      the path of the parent collection.
+     */
+    public RegistryNodeIterator(RegistrySession registrySession, String parentPath) {
+
+        this.registrySession = registrySession;
+        this.parentPath = parentPath;
 
     }
 
     public Node nextNode() {
 
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more child nodes under " + parentPath);
+        }
         counter++;
-
-        return (Node) iterator.next();
+        if (iterator != null) {
+            return (Node) iterator.next();
+        }
+        Node node = nextNode;
+        nextNode = null;
+        return node;
     }
 
     public void skip(long l) {
-        counter = l;
+        for (long i = 0; i < l; i++) {
+            nextNode();
+        }
     }
 
     public long getSize() {
 
-        return nodes.size();
+        if (size < 0) {
+            try {
+                while (!lastPageLoaded) {
+                    loadNextPage();
+                }
+                filterPendingPaths();
+            } catch (RepositoryException e) {
+                throw new IllegalStateException("Failed to count child nodes of " + parentPath, e);
+            }
+            size = counter + (nextNode != null ? 1 : 0) + pendingPaths.size();
+        }
+        return size;
     }
 
     public long getPosition() {
@@ -58,15 +114,80 @@ public class RegistryNodeIterator implements NodeIterator {
 
     public boolean hasNext() {
 
-        return iterator.hasNext();
+        if (iterator != null) {
+            return iterator.hasNext();
+        }
+        try {
+            while (nextNode == null) {
+                if (pendingPaths.isEmpty()) {
+                    if (lastPageLoaded) {
+                        return false;
+                    }
+                    loadNextPage();
+                    continue;
+                }
+                String path = pendingPaths.removeFirst();
+                Resource child = registrySession.getCachedMetaData(path);
+                if (child instanceof CollectionImpl) {
+                    nextNode = registrySession.createNode(path, (CollectionImpl) child);
+                }
+            }
+        } catch (RegistryException e) {
+            throw new IllegalStateException("Failed to load child node of " + parentPath, e);
+        } catch (RepositoryException e) {
+            throw new IllegalStateException("Failed to load child node of " + parentPath, e);
+        }
+        return true;
     }
 
     public Object next() {
-        return iterator.next();
+        return nextNode();
     }
 
     public void remove() {
 
+        if (iterator == null) {
+            throw new UnsupportedOperationException("Child nodes cannot be removed through " +
+                    "the iterator");
+        }
         iterator.remove();
     }
+
+    private void loadNextPage() throws RepositoryException {
+        try {
+            Collection page = registrySession.getUserRegistry().get(parentPath, pageStart,
+                    PAGE_SIZE);
+            String[] children = page.getChildren();
+            if (children == null || children.length < PAGE_SIZE) {
+                lastPageLoaded = true;
+            }
+            if (children != null) {
+                for (String child : children) {
+                    if (!RegistryJCRItemOperationUtil.isSystemConfigNode(child)) {
+                        pendingPaths.add(child);
+                    }
+                }
+            }
+            pageStart += PAGE_SIZE;
+        } catch (RegistryException e) {
+            throw new RepositoryException("Failed to list child nodes of " + parentPath, e);
+        }
+    }
+
+    private void filterPendingPaths() throws RepositoryException {
+        if (pendingPathsFiltered) {
+            return;
+        }
+        try {
+            Iterator<String> paths = pendingPaths.iterator();
+            while (paths.hasNext()) {
+                if (!(registrySession.getCachedMetaData(paths.next()) instanceof CollectionImpl)) {
+                    paths.remove();
+                }
+            }
+        } catch (RegistryException e) {
+            throw new RepositoryException("Failed to list child nodes of " + parentPath, e);
+        }
+        pendingPathsFiltered = true;
+    }
 }
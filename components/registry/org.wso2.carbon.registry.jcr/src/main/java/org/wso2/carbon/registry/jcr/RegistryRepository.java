@@ -21,8 +21,10 @@ import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.registry.api.Registry;
 import org.wso2.carbon.registry.core.RegistryConstants;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.jdbc.EmbeddedRegistryService;
 import org.wso2.carbon.registry.core.service.RegistryService;
 import org.wso2.carbon.registry.core.session.UserRegistry;
+import org.wso2.carbon.registry.jcr.util.ItemCacheInvalidationHandler;
 import org.wso2.carbon.registry.jcr.util.RegistryJCRSpecificStandardLoderUtil;
 
 import javax.jcr.*;
@@ -157,6 +159,12 @@ public class RegistryRepository implements Repository {
         keyMap.put(Repository.QUERY_JOINS, "true");
 
         RegistryJCRSpecificStandardLoderUtil.init();
+
+        // writes to a remote registry can not be observed, so sessions only cache items read
+        // from an embedded one.
+        if (registryService instanceof EmbeddedRegistryService) {
+            ItemCacheInvalidationHandler.register(registryService);
+        }
     }
 
     public Set getWorkspaces() { // will be deprecated
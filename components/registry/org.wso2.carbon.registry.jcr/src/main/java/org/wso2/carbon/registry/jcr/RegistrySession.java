@@ -24,15 +24,19 @@ import org.wso2.carbon.registry.core.CollectionImpl;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.ResourceImpl;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
 import org.wso2.carbon.registry.core.session.UserRegistry;
 import org.wso2.carbon.registry.jcr.nodetype.RegistryNodeType;
 import org.wso2.carbon.registry.jcr.retention.RegistryRetentionManager;
 import org.wso2.carbon.registry.jcr.retention.RegistryRetentionPolicy;
 import org.wso2.carbon.registry.jcr.security.RegistryAccessControlManager;
+import org.wso2.carbon.registry.jcr.util.ItemCacheInvalidationHandler;
 import org.wso2.carbon.registry.jcr.util.RegistryJCRItemOperationUtil;
 import org.wso2.carbon.registry.jcr.util.RegistryJCRSpecificStandardLoderUtil;
 import org.wso2.carbon.registry.jcr.util.security.PrivilegeRegistry;
 import org.wso2.carbon.registry.jcr.util.test.data.TCKTestDataLoader;
+import org.wso2.carbon.registry.jcr.xml.RegistryImportContentHandler;
+import org.wso2.carbon.registry.jcr.xml.RegistryXMLExporter;
 import org.wso2.carbon.user.core.UserStoreException;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
@@ -52,6 +56,8 @@ import java.security.AccessControlException;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 public class RegistrySession implements Session {
@@ -74,6 +80,16 @@ public class RegistrySession implements Session {
     private String USER_ID = "";
     private boolean SESSION_SAVED = true;
 
+    /*
+     Resources loaded by this session, keyed by path. Full resources back getNode/getItem, while
+     metadata backs existence and type checks. Both are dropped as soon as the registry has been
+     written to, as counted by ItemCacheInvalidationHandler.
+    */
+    private static final int ITEM_CACHE_SIZE = 1000;
+    private final Map<String, Resource> itemCache = new ItemCache();
+    private final Map<String, Resource> metadataCache = new ItemCache();
+    private long itemCacheWriteCount = -1;
+
     public void sessionPending() {
          SESSION_SAVED = false;
     }
@@ -170,6 +186,102 @@ public class RegistrySession implements Session {
         return userRegistry;
     }
 
+    /**
+     * Returns the resource at the given path, loading it only if this session has not already
+     * loaded it since the last write to the registry.
+     *
+     * @param path the absolute registry path.
+     * @return the resource, or null if there is no resource at the given path.
+     * @throws RegistryException if the resource could not be loaded.
+     */
+    public Resource getCachedResource(String path) throws RegistryException {
+        if (!validateItemCache()) {
+            try {
+                return userRegistry.get(path);
+            } catch (ResourceNotFoundException e) {
+                return null;
+            }
+        }
+        Resource resource = itemCache.get(path);
+        if (resource == null) {
+            try {
+                resource = userRegistry.get(path);
+            } catch (ResourceNotFoundException e) {
+                return null;
+            }
+            if (resource != null) {
+                itemCache.put(path, resource);
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Returns the metadata of the resource at the given path. The content and the children of
+     * the returned resource are not loaded.
+     *
+     * @param path the absolute registry path.
+     * @return the resource metadata, or null if there is no resource at the given path.
+     * @throws RegistryException if the metadata could not be loaded.
+     */
+    public Resource getCachedMetaData(String path) throws RegistryException {
+        if (!validateItemCache()) {
+            try {
+                return userRegistry.getMetaData(path);
+            } catch (ResourceNotFoundException e) {
+                return null;
+            }
+        }
+        Resource resource = itemCache.get(path);
+        if (resource == null) {
+            resource = metadataCache.get(path);
+        }
+        if (resource == null) {
+            try {
+                resource = userRegistry.getMetaData(path);
+            } catch (ResourceNotFoundException e) {
+                return null;
+            }
+            if (resource != null) {
+                metadataCache.put(path, resource);
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Discards all resources loaded by this session.
+     */
+    public void clearItemCache() {
+        itemCache.clear();
+        metadataCache.clear();
+    }
+
+    /**
+     * Drops the cached resources if the registry has been written to since they were loaded.
+     *
+     * @return whether resources can be cached at all.
+     */
+    private boolean validateItemCache() {
+        if (!ItemCacheInvalidationHandler.isRegistered()) {
+            return false;
+        }
+        long writeCount = ItemCacheInvalidationHandler.getWriteCount();
+        if (writeCount != itemCacheWriteCount) {
+            clearItemCache();
+            itemCacheWriteCount = writeCount;
+        }
+        return true;
+    }
+
+    RegistryNode createNode(String path, CollectionImpl collection) throws RepositoryException {
+        RegistryNode node = new RegistryNode(path, this);
+        node.resource = collection;
+        node.nodeType = (RegistryNodeType) getWorkspace().getNodeTypeManager().getNodeType(
+                collection.getDescription());
+        return node;
+    }
+
     public String getWorkspaceName() {
         return workspaceName;
     }
@@ -254,13 +366,14 @@ public class RegistrySession implements Session {
 //            }
 
             try {
-                if (userRegistry.resourceExists(s)) {
-                    if (userRegistry.get(s) instanceof CollectionImpl) {
+                Resource resource = getCachedMetaData(s);
+                if (resource != null) {
+                    if (resource instanceof CollectionImpl) {
                         anItem = getNode(s);
-                    } else if (userRegistry.get(s) instanceof ResourceImpl) {
+                    } else if (resource instanceof ResourceImpl) {
                         anItem = getNode(tempPath).getProperty(tempArr[tempArr.length - 1]);
                     }
-                } else if (userRegistry.resourceExists(tempPath)) {
+                } else if (getCachedMetaData(tempPath) != null) {
                     anItem = getNode(tempPath).getProperty(tempArr[tempArr.length - 1]);
                 } else {
                     throw new PathNotFoundException("Item does not exists at path " + s);
@@ -282,9 +395,12 @@ public class RegistrySession implements Session {
 
         RegistryNode subNode = null;
         try {
-            if (getUserRegistry().resourceExists(s)) {
+            Resource resource = getCachedResource(s);
+            if (resource != null) {
                 subNode = new RegistryNode(s, this);
-                subNode.setCollection(s);
+                if (resource instanceof CollectionImpl) {
+                    subNode.resource = (CollectionImpl) resource;
+                }
                 subNode.nodeType = (RegistryNodeType) getWorkspace().getNodeTypeManager().getNodeType(subNode.resource.getDescription());
             } else {
                 throw new PathNotFoundException("failed to resolve the path of the given node");
@@ -322,7 +438,7 @@ public class RegistrySession implements Session {
     public boolean nodeExists(String s) throws RepositoryException {
         boolean nodeEx = false;
         try {
-            if ((userRegistry != null) && userRegistry.resourceExists(s)) {
+            if ((userRegistry != null) && getCachedMetaData(s) != null) {
                 nodeEx = true;
             }
         } catch (RegistryException e) {
@@ -401,6 +517,7 @@ public class RegistrySession implements Session {
     }
 
     private void removePendingChanges() throws RepositoryException {
+        clearItemCache();
         ((RegistryRetentionManager)getRetentionManager()).getPendingRetentionPolicies().clear();
 
         // revert transient deletions
@@ -446,36 +563,50 @@ public class RegistrySession implements Session {
     }
 
     public ContentHandler getImportContentHandler(String s, int i) throws PathNotFoundException,
-            ConstraintViolationException, VersionException, LockException, RepositoryException {  //TODO
+            ConstraintViolationException, VersionException, LockException, RepositoryException {
 
-
-        return null;
+        return new RegistryImportContentHandler(this, s, i);
     }
 
     public void importXML(String s, InputStream inputStream, int i) throws IOException, PathNotFoundException,
             ItemExistsException, ConstraintViolationException, VersionException, InvalidSerializedDataException,
-            LockException, RepositoryException { //TODO
-
+            LockException, RepositoryException {
 
+        new RegistryImportContentHandler(this, s, i).importXML(inputStream);
     }
 
     public void exportSystemView(String s, ContentHandler contentHandler, boolean b, boolean b1) throws PathNotFoundException,
-            SAXException, RepositoryException {  //TODO
+            SAXException, RepositoryException {
 
+        new RegistryXMLExporter(this, contentHandler, b, b1, true).export(s);
     }
 
     public void exportSystemView(String s, OutputStream outputStream, boolean b, boolean b1) throws IOException,
-            PathNotFoundException, RepositoryException { //TODO
+            PathNotFoundException, RepositoryException {
 
+        try {
+            exportSystemView(s, RegistryXMLExporter.createSerializer(outputStream), b, b1);
+        } catch (SAXException e) {
+            throw new RepositoryException("Failed to export the system view of " + s, e);
+        }
+        outputStream.flush();
     }
 
     public void exportDocumentView(String s, ContentHandler contentHandler, boolean b, boolean b1) throws PathNotFoundException,
-            SAXException, RepositoryException {  //TODO
+            SAXException, RepositoryException {
 
+        new RegistryXMLExporter(this, contentHandler, b, b1, false).export(s);
     }
 
     public void exportDocumentView(String s, OutputStream outputStream, boolean b, boolean b1) throws IOException,
-            PathNotFoundException, RepositoryException { //TODO
+            PathNotFoundException, RepositoryException {
+
+        try {
+            exportDocumentView(s, RegistryXMLExporter.createSerializer(outputStream), b, b1);
+        } catch (SAXException e) {
+            throw new RepositoryException("Failed to export the document view of " + s, e);
+        }
+        outputStream.flush();
     }
 
     public void setNamespacePrefix(String s, String s1) throws NamespaceException, RepositoryException {
@@ -570,5 +701,15 @@ public class RegistrySession implements Session {
         return regRetentionMngr;
     }
 
+    private static class ItemCache extends LinkedHashMap<String, Resource> {
+
+        private ItemCache() {
+            super(16, 0.75f, true);
+        }
 
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Resource> eldest) {
+            return size() > ITEM_CACHE_SIZE;
+        }
+    }
 }
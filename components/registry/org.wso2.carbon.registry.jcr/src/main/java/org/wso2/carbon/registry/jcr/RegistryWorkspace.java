@@ -24,6 +24,7 @@ import org.wso2.carbon.registry.jcr.observation.RegistryObservationManager;
 import org.wso2.carbon.registry.jcr.query.RegistryQueryManager;
 import org.wso2.carbon.registry.jcr.util.RegistryJCRItemOperationUtil;
 import org.wso2.carbon.registry.jcr.version.RegistryVersionManager;
+import org.wso2.carbon.registry.jcr.xml.RegistryImportContentHandler;
 import org.xml.sax.ContentHandler;
 
 import javax.jcr.*;
@@ -209,13 +210,12 @@ public class RegistryWorkspace implements Workspace {
 
     public ContentHandler getImportContentHandler(String s, int i) throws PathNotFoundException, ConstraintViolationException, VersionException, LockException, AccessDeniedException, RepositoryException {
 
-
-        return null;
+        return new RegistryImportContentHandler(registrySession, s, i);
     }
 
     public void importXML(String s, InputStream inputStream, int i) throws IOException, VersionException, PathNotFoundException, ItemExistsException, ConstraintViolationException, InvalidSerializedDataException, LockException, AccessDeniedException, RepositoryException {
 
-
+        new RegistryImportContentHandler(registrySession, s, i).importXML(inputStream);
     }
 
     public void createWorkspace(String s) throws AccessDeniedException, UnsupportedRepositoryOperationException, RepositoryException {  //TODO
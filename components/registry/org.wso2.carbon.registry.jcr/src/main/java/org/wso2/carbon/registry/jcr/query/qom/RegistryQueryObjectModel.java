@@ -44,6 +44,11 @@ public class RegistryQueryObjectModel implements QueryObjectModel {
     private Column[] columns = null;
     private RegistrySession session = null;
     private String statement = "";
+    private long limit = -1;
+    private long offset = 0;
+
+    private static final String DIRECT_QUERY_PREFIX = "org.wso2.registry.direct.query;;";
+    private static final int NODE_BATCH_SIZE = 100;
 
     private List sourceSet = new ArrayList();
 
@@ -294,9 +299,55 @@ public class RegistryQueryObjectModel implements QueryObjectModel {
 
     }
 
-    public List evaluateFullTextSearch(List set, Constraint constraint) {  //mine
-        // TODO
-        return null;
+    public List evaluateFullTextSearch(List set, Constraint constraint) throws RepositoryException {  //mine
+
+        List result = new ArrayList();
+        FullTextSearch fullTextSearch = (FullTextSearch) constraint;
+
+        if (!(fullTextSearch.getFullTextSearchExpression() instanceof Literal)) {
+            throw new InvalidQueryException("Unsupported full-text search expression "
+                    + fullTextSearch.getFullTextSearchExpression());
+        }
+        String[] terms = RegistryQueryPlanner.getFullTextTerms(fullTextSearch);
+        String propName = fullTextSearch.getPropertyName();
+
+        for (Object obj : set) {
+            Node node = (Node) obj;
+            List<String> values = new ArrayList<String>();
+
+            PropertyIterator properties = (propName != null && propName.length() != 0) ?
+                    node.getProperties(propName) : node.getProperties();
+            while (properties.hasNext()) {
+                Property property = properties.nextProperty();
+                if (property.isMultiple()) {
+                    for (Value value : property.getValues()) {
+                        values.add(value.getString().toLowerCase());
+                    }
+                } else if (property.getType() != PropertyType.BINARY) {
+                    values.add(property.getString().toLowerCase());
+                }
+            }
+
+            boolean matches = true;
+            for (String term : terms) {
+                boolean found = false;
+                for (String value : values) {
+                    if (value.contains(term)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                result.add(node);
+            }
+        }
+
+        return result;
     }
 
     public List evaluateOr(List set, Constraint constraint) throws RepositoryException {  //mine
@@ -461,49 +512,6 @@ public class RegistryQueryObjectModel implements QueryObjectModel {
         return nodes;
     }
 
-    private List getSourceSet(String ntName) {
-
-        Registry registry = session.getUserRegistry();
-        Resource q1 = null;
-        String sql1 = "SELECT REG_PATH_ID, REG_NAME FROM REG_RESOURCE WHERE REG_DESCRIPTION ='" + ntName + "'";
-        List nodes = new ArrayList();
-        try {
-//these modifications are done so the queries are not stored in the registry
-
-/*
-            q1 = registry.newResource();
-
-            q1.setContent(sql1);
-
-            q1.setMediaType(RegistryConstants.SQL_QUERY_MEDIA_TYPE);
-
-            q1.addProperty(RegistryConstants.RESULT_TYPE_PROPERTY_NAME,
-
-                    RegistryConstants.RESOURCES_RESULT_TYPE);
-
-            registry.put(RegistryConstants.CONFIG_REGISTRY_BASE_PATH + RegistryConstants.QUERIES_COLLECTION_PATH + "/custom-queries", q1);
-*/
-            Map parameters = new HashMap();
-            parameters.put("query", sql1);
-//            Resource result = registry.executeQuery(RegistryConstants.CONFIG_REGISTRY_BASE_PATH + RegistryConstants.QUERIES_COLLECTION_PATH + "/custom-queries", parameters);
-            Resource result = registry.executeQuery(null, parameters);
-
-            String[] paths = (String[]) result.getContent();
-
-            for (String path : paths) {
-
-                nodes.add(session.getNode(path));
-            }
-
-        } catch (Exception e) {
-
-            e.printStackTrace();
-        }
-        return nodes;
-
-    }
-
-
     /**
      * @return
      * @throws InvalidQueryException
@@ -513,26 +521,69 @@ public class RegistryQueryObjectModel implements QueryObjectModel {
     public QueryResult execute() throws InvalidQueryException, RepositoryException {
 
         QueryResult queryResult = null;
+        List result = null;
 
         if (source instanceof Selector) {   // we do not support outer joins
-            sourceSet = sourceSelector(source);
-
+            result = executePlannedQuery(((RegistrySelector) source).getNodeTypeName());
 
         } else if (source instanceof Join) {   // we do not support outer joins yet
             sourceSet = sourceJoin(source);
-
+            result = executeQuery(sourceSet, getConstraint());
         }
 
-        List result = executeQuery(sourceSet, getConstraint());
         queryResult = new RegistryQueryResult(result, session);
 
         return queryResult;
     }
 
-    private List sourceSelector(Source source) {
-        String ntName = ((RegistrySelector) source).getNodeTypeName();
-        return getSourceSet(ntName);
+    /**
+     * Pushes as much of the constraint as possible into a registry query and evaluates only the
+     * residual constraint in memory. Nodes are loaded in batches, and loading stops as soon as
+     * the requested window given by the offset and the limit is filled.
+     */
+    private List executePlannedQuery(String ntName) throws RepositoryException {
+
+        RegistryQueryPlanner planner = new RegistryQueryPlanner(session.getUserRegistry(),
+                session.getWorkspaceRootPath(), ntName, getConstraint());
+        Constraint residual = planner.getResidualConstraint();
+        statement = DIRECT_QUERY_PREFIX + planner.getSQL();
 
+        String[] paths;
+        try {
+            paths = planner.execute();
+        } catch (RegistryException e) {
+            throw new RepositoryException("Error while executing query " + statement, e);
+        }
+
+        List result = new ArrayList();
+        if (residual == null) {
+            int from = (int) Math.min(offset, paths.length);
+            int to = limit < 0 ? paths.length : (int) Math.min(paths.length, from + limit);
+            for (int i = from; i < to; i++) {
+                result.add(session.getNode(paths[i]));
+            }
+            return result;
+        }
+
+        long skipped = 0;
+        for (int i = 0; i < paths.length && (limit < 0 || result.size() < limit); i += NODE_BATCH_SIZE) {
+            List batch = new ArrayList();
+            for (int j = i; j < Math.min(paths.length, i + NODE_BATCH_SIZE); j++) {
+                batch.add(session.getNode(paths[j]));
+            }
+            List matched = executeQuery(batch, residual);
+            if (matched == null) {
+                continue;
+            }
+            for (Object node : matched) {
+                if (skipped < offset) {
+                    skipped++;
+                } else if (limit < 0 || result.size() < limit) {
+                    result.add(node);
+                }
+            }
+        }
+        return result;
     }
 
     private List sourceJoin(Source source) {
@@ -608,10 +659,12 @@ public class RegistryQueryObjectModel implements QueryObjectModel {
 
     public void setLimit(long l) {
 
+        this.limit = l;
     }
 
     public void setOffset(long l) {
 
+        this.offset = l < 0 ? 0 : l;
     }
 
     public String getStatement() {
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.jcr.query.qom;
+
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.config.StaticConfiguration;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import javax.jcr.query.qom.And;
+import javax.jcr.query.qom.ChildNode;
+import javax.jcr.query.qom.Comparison;
+import javax.jcr.query.qom.Constraint;
+import javax.jcr.query.qom.DescendantNode;
+import javax.jcr.query.qom.FullTextSearch;
+import javax.jcr.query.qom.Literal;
+import javax.jcr.query.qom.PropertyValue;
+import javax.jcr.query.qom.QueryObjectModelFactory;
+import javax.jcr.query.qom.SameNode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates a query object model constraint into a direct registry SQL query over the node
+ * collections of a selector. Constraints which can be answered by the registry database
+ * (string equality on a property, full-text search on property values, child, descendant and
+ * same node constraints and conjunctions of these) are pushed into the SQL query. Whatever
+ * cannot be translated is kept as a residual constraint which has to be evaluated in memory on
+ * the nodes returned by the query.
+ * <p/>
+ * Only string properties set directly on a node are stored as registry properties of its
+ * collection, while other values (such as those set through {@link javax.jcr.Value}s) are
+ * stored as child resources named after the property. A property constraint is therefore only
+ * pushed into the query when no resource under the path searched carries the name of the
+ * property.
+ */
+class RegistryQueryPlanner {
+
+    private static final String SYSTEM_PROPERTY_PREFIX = "jcr:";
+
+    private List<String> tables = new ArrayList<String>();
+    private List<String> conditions = new ArrayList<String>();
+    private List<Object> params = new ArrayList<Object>();
+
+    private boolean pathJoined = false;
+    private int propertyJoinCount = 0;
+
+    private Constraint residualConstraint = null;
+
+    private Registry registry;
+    // the path under which the nodes are searched
+    private String scopePath;
+    // property name -> whether some node stores the property as a child resource
+    private Map<String, Boolean> resourceProperties = new HashMap<String, Boolean>();
+
+    /**
+     * @param registry          the registry to query
+     * @param workspaceRootPath the path of the workspace in the registry
+     * @param nodeTypeName      the node type of the selector, or null for any node type
+     * @param constraint        the constraint of the query
+     */
+    public RegistryQueryPlanner(Registry registry, String workspaceRootPath, String nodeTypeName,
+                                Constraint constraint) throws RepositoryException {
+
+        this.registry = registry;
+        String workspacePath = normalizePath(workspaceRootPath);
+        String constraintPath = getScopePath(constraint);
+        scopePath = constraintPath != null && constraintPath.startsWith(workspacePath) ?
+                constraintPath : workspacePath;
+        conditions.add("R.REG_NAME IS NULL");
+        if (nodeTypeName != null) {
+            conditions.add("R.REG_DESCRIPTION=?");
+            params.add(nodeTypeName);
+        }
+        residualConstraint = plan(constraint);
+    }
+
+    /**
+     * @return the constraint which could not be pushed into the SQL query, or null if the query
+     *         answers the whole constraint
+     */
+    public Constraint getResidualConstraint() {
+
+        return residualConstraint;
+    }
+
+    public String getSQL() {
+
+        StringBuilder query = new StringBuilder();
+        query.append("SELECT R.REG_PATH_ID, R.REG_NAME FROM REG_RESOURCE R");
+        for (String table : tables) {
+            query.append(table);
+        }
+        boolean first = true;
+        for (String condition : conditions) {
+            query.append(first ? " WHERE " : " AND ");
+            query.append(condition);
+            first = false;
+        }
+        return query.toString();
+    }
+
+    /**
+     * Executes the planned query against the registry of the session.
+     *
+     * @return paths of the matching node collections
+     * @throws RegistryException if the query fails
+     */
+    public String[] execute() throws RegistryException {
+
+        return executeQuery(getSQL(), params);
+    }
+
+    private String[] executeQuery(String sql, List<Object> queryParams) throws RegistryException {
+
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        for (int i = 0; i < queryParams.size(); i++) {
+            parameters.put(Integer.toString(i + 1), queryParams.get(i));
+        }
+        parameters.put("query", sql);
+        Resource result = registry.executeQuery(null, parameters);
+        String[] paths = (String[]) result.getContent();
+        return paths != null ? paths : new String[0];
+    }
+
+    private Constraint plan(Constraint constraint) throws RepositoryException {
+
+        if (constraint == null) {
+            return null;
+        }
+        if (constraint instanceof And) {
+            Constraint residual1 = plan(((And) constraint).getConstraint1());
+            Constraint residual2 = plan(((And) constraint).getConstraint2());
+            if (residual1 == null) {
+                return residual2;
+            } else if (residual2 == null) {
+                return residual1;
+            }
+            return new RegistryAnd(residual1, residual2);
+        }
+        if (constraint instanceof Comparison && pushComparison((Comparison) constraint)) {
+            return null;
+        }
+        if (constraint instanceof FullTextSearch && pushFullTextSearch((FullTextSearch) constraint)) {
+            return null;
+        }
+        if (constraint instanceof ChildNode) {
+            String parentPath = normalizePath(((ChildNode) constraint).getParentPath());
+            joinPath();
+            conditions.add("P.REG_PATH_VALUE LIKE ? AND P.REG_PATH_VALUE NOT LIKE ?");
+            params.add(parentPath + "/%");
+            params.add(parentPath + "/%/%");
+            return null;
+        }
+        if (constraint instanceof DescendantNode) {
+            String ancestorPath = normalizePath(((DescendantNode) constraint).getAncestorPath());
+            joinPath();
+            conditions.add("P.REG_PATH_VALUE LIKE ?");
+            params.add(ancestorPath + "/%");
+            return null;
+        }
+        if (constraint instanceof SameNode) {
+            joinPath();
+            conditions.add("P.REG_PATH_VALUE=?");
+            params.add(((SameNode) constraint).getPath());
+            return null;
+        }
+        return constraint;
+    }
+
+    /**
+     * Finds a path the nodes matching the given constraint are at or under, from the child,
+     * descendant or same node constraints it requires.
+     *
+     * @return the path, or null if the constraint does not limit the nodes to a path
+     */
+    private String getScopePath(Constraint constraint) {
+
+        if (constraint instanceof And) {
+            String path = getScopePath(((And) constraint).getConstraint1());
+            return path != null ? path : getScopePath(((And) constraint).getConstraint2());
+        }
+        if (constraint instanceof ChildNode) {
+            return normalizePath(((ChildNode) constraint).getParentPath());
+        }
+        if (constraint instanceof DescendantNode) {
+            return normalizePath(((DescendantNode) constraint).getAncestorPath());
+        }
+        if (constraint instanceof SameNode) {
+            return normalizePath(((SameNode) constraint).getPath());
+        }
+        return null;
+    }
+
+    private boolean pushComparison(Comparison comparison) throws RepositoryException {
+
+        // Property values are stored as strings, so only string equality gives the same answer
+        // as the typed in-memory comparison.
+        if (!(comparison.getOperand1() instanceof PropertyValue)
+                || !(comparison.getOperand2() instanceof Literal)
+                || !QueryObjectModelFactory.JCR_OPERATOR_EQUAL_TO.equals(comparison.getOperator())) {
+            return false;
+        }
+        String propertyName = ((PropertyValue) comparison.getOperand1()).getPropertyName();
+        Value value = ((Literal) comparison.getOperand2()).getLiteralValue();
+        if (value == null || value.getType() != PropertyType.STRING
+                || propertyName.startsWith(SYSTEM_PROPERTY_PREFIX)
+                || isResourceProperty(propertyName)) {
+            return false;
+        }
+        String alias = joinProperty();
+        conditions.add(alias + ".REG_NAME=? AND " + alias + ".REG_VALUE=?");
+        params.add(propertyName);
+        params.add(value.getString());
+        return true;
+    }
+
+    private boolean pushFullTextSearch(FullTextSearch fullTextSearch) throws RepositoryException {
+
+        if (!(fullTextSearch.getFullTextSearchExpression() instanceof Literal)) {
+            return false;
+        }
+        // without a property name, every property of a node is searched, including those stored
+        // as child resources.
+        String propertyName = fullTextSearch.getPropertyName();
+        if (propertyName == null || propertyName.length() == 0
+                || isResourceProperty(propertyName)) {
+            return false;
+        }
+        String[] terms = getFullTextTerms(fullTextSearch);
+        for (String term : terms) {
+            String alias = joinProperty();
+            conditions.add(alias + ".REG_NAME=? AND lower(" + alias + ".REG_VALUE) LIKE ?");
+            params.add(propertyName);
+            params.add("%" + term + "%");
+        }
+        return true;
+    }
+
+    /**
+     * Splits the literal expression of a full-text search into lower case search terms. All the
+     * terms need to be present for a node to match.
+     */
+    static String[] getFullTextTerms(FullTextSearch fullTextSearch) throws RepositoryException {
+
+        Value value = ((Literal) fullTextSearch.getFullTextSearchExpression()).getLiteralValue();
+        String expression = value.getString().trim().toLowerCase();
+        if (expression.length() == 0) {
+            return new String[0];
+        }
+        return expression.split("\\s+");
+    }
+
+    /**
+     * Checks whether any node under the path searched may store the given property as a child
+     * resource, in which case the property is not found among the registry properties of the
+     * node collections.
+     */
+    private boolean isResourceProperty(String propertyName) throws RepositoryException {
+
+        Boolean resourceProperty = resourceProperties.get(propertyName);
+        if (resourceProperty == null) {
+            List<Object> queryParams = new ArrayList<Object>();
+            queryParams.add(scopePath);
+            queryParams.add(propertyName);
+            queryParams.add(scopePath);
+            queryParams.add(scopePath + "/%");
+            try {
+                // returns at most the collection searched, if a resource of the name is under it.
+                // collections have no name of their own, so only resources are matched.
+                resourceProperty = executeQuery(
+                        "SELECT R.REG_PATH_ID, R.REG_NAME FROM REG_RESOURCE R WHERE "
+                                + "R.REG_NAME IS NULL AND R.REG_PATH_ID IN (SELECT P.REG_PATH_ID "
+                                + "FROM REG_PATH P WHERE P.REG_PATH_VALUE=?) AND EXISTS (SELECT "
+                                + "PR.REG_PATH_ID FROM REG_RESOURCE PR, REG_PATH PP WHERE "
+                                + "PR.REG_PATH_ID=PP.REG_PATH_ID AND PR.REG_NAME=? AND "
+                                + "(PP.REG_PATH_VALUE=? OR PP.REG_PATH_VALUE LIKE ?))",
+                        queryParams).length > 0;
+            } catch (RegistryException e) {
+                throw new RepositoryException("Error while looking up the storage of the property "
+                        + propertyName, e);
+            }
+            resourceProperties.put(propertyName, resourceProperty);
+        }
+        return resourceProperty;
+    }
+
+    private void joinPath() {
+
+        if (!pathJoined) {
+            tables.add(", REG_PATH P");
+            conditions.add("R.REG_PATH_ID=P.REG_PATH_ID");
+            pathJoined = true;
+        }
+    }
+
+    private String joinProperty() {
+
+        propertyJoinCount++;
+        String property = "PP" + propertyJoinCount;
+        String resourceProperty = "RP" + propertyJoinCount;
+        tables.add(", REG_PROPERTY " + property);
+        tables.add(", REG_RESOURCE_PROPERTY " + resourceProperty);
+        if (StaticConfiguration.isVersioningProperties()) {
+            conditions.add("R.REG_VERSION=" + resourceProperty + ".REG_VERSION AND "
+                    + resourceProperty + ".REG_PROPERTY_ID=" + property + ".REG_ID");
+        } else {
+            conditions.add("R.REG_PATH_ID=" + resourceProperty + ".REG_PATH_ID AND "
+                    + resourceProperty + ".REG_RESOURCE_NAME IS NULL AND "
+                    + resourceProperty + ".REG_PROPERTY_ID=" + property + ".REG_ID");
+        }
+        return property;
+    }
+
+    private String normalizePath(String path) {
+
+        if (path.endsWith("/")) {
+            return path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.jcr.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.jdbc.handlers.Handler;
+import org.wso2.carbon.registry.core.jdbc.handlers.HandlerLifecycleManager;
+import org.wso2.carbon.registry.core.jdbc.handlers.RequestContext;
+import org.wso2.carbon.registry.core.jdbc.handlers.filters.URLMatcher;
+import org.wso2.carbon.registry.core.service.RegistryService;
+import org.wso2.carbon.registry.core.session.UserRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the writes made to the registry, whichever session or API they are made through. The
+ * item caches of the JCR sessions are only valid while this count does not change, so no write
+ * needs to invalidate them on its own. The caches are disabled unless this handler could be
+ * registered, which is only possible on an embedded registry.
+ */
+public class ItemCacheInvalidationHandler extends Handler {
+
+    private static Log log = LogFactory.getLog(ItemCacheInvalidationHandler.class);
+
+    private static final AtomicLong writeCount = new AtomicLong();
+
+    private static volatile boolean registered = false;
+
+    /**
+     * Registers the handler with the given registry, if it has not been registered yet.
+     *
+     * @param registryService the service of an embedded registry.
+     */
+    public static synchronized void register(RegistryService registryService) {
+        if (registered) {
+            return;
+        }
+        try {
+            URLMatcher filter = new URLMatcher();
+            filter.setPutPattern(".*");
+            filter.setImportPattern(".*");
+            filter.setPutChildPattern(".*");
+            filter.setDeletePattern(".*");
+            filter.setMovePattern(".*");
+            filter.setCopyPattern(".*");
+            filter.setRenamePattern(".*");
+            filter.setCreateLinkPattern(".*");
+            filter.setRemoveLinkPattern(".*");
+            filter.setRestoreVersionPattern(".*");
+            filter.setRestorePattern(".*");
+            filter.setInvokeAspectPattern(".*");
+            UserRegistry registry = registryService.getRegistry();
+            registry.getRegistryContext().getHandlerManager().addHandler(null, filter,
+                    new ItemCacheInvalidationHandler(),
+                    HandlerLifecycleManager.DEFAULT_REPORTING_HANDLER_PHASE);
+            registered = true;
+        } catch (RegistryException e) {
+            log.error("Unable to register the JCR item cache invalidation handler, JCR " +
+                    "sessions will not cache items", e);
+        }
+    }
+
+    /**
+     * @return whether writes are being counted, and items can therefore be cached.
+     */
+    public static boolean isRegistered() {
+        return registered;
+    }
+
+    /**
+     * @return the number of writes made to the registry since the handler was registered.
+     */
+    public static long getWriteCount() {
+        return writeCount.get();
+    }
+
+    public void put(RequestContext requestContext) throws RegistryException {
+        writeCount.incrementAndGet();
+    }
+
+    public void importResource(RequestContext requestContext) throws RegistryException {
+        writeCount.incrementAndGet();
+    }
+
+    public void putChild(RequestContext requestContext) throws RegistryException {
+        writeCount.incrementAndGet();
+    }
+
+    public void delete(RequestContext requestContext) throws RegistryException {
+        writeCount.incrementAndGet();
+    }
+
+    public String move(RequestContext requestContext) throws RegistryException {
+        writeCount.incrementAndGet();
+        return null;
+    }
+
+    public String copy(RequestContext requestContext) throws RegistryException {
+        writeCount.incrementAndGet();
+        return null;
+    }
+
+    public String rename(RequestContext requestContext) throws RegistryException {
+        writeCount.incrementAndGet();
+        return null;
+    }
+
+    public void createLink(RequestContext requestContext) throws RegistryException {
+        writeCount.incrementAndGet();
+    }
+
+    public void removeLink(RequestContext requestContext) throws RegistryException {
+        writeCount.incrementAndGet();
+    }
+
+    public void restoreVersion(RequestContext requestContext) throws RegistryException {
+        writeCount.incrementAndGet();
+    }
+
+    public void restore(RequestContext requestContext) throws RegistryException {
+        writeCount.incrementAndGet();
+    }
+
+    public void invokeAspect(RequestContext requestContext) throws RegistryException {
+        writeCount.incrementAndGet();
+    }
+}
@@ -0,0 +1,607 @@
+/*
+ * Copyright (c) 2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.jcr.xml;
+
+import org.apache.axiom.util.base64.Base64Utils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.session.UserRegistry;
+import org.wso2.carbon.registry.jcr.RegistrySession;
+import org.wso2.carbon.registry.jcr.util.RegistryJCRItemOperationUtil;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.jcr.ImportUUIDBehavior;
+import javax.jcr.InvalidSerializedDataException;
+import javax.jcr.ItemExistsException;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports a JCR system view or document view into the registry as the SAX events arrive. A
+ * node is written as soon as its properties are known, i.e. when its first child node starts
+ * or when it ends, so memory use is bounded by the depth of the imported tree. Binary values
+ * are decoded into temporary files while they are read.
+ * <p/>
+ * The writes are committed in registry transactions of a batch of nodes each, so that a large
+ * import does not hold one transaction open throughout. A failed import rolls back the nodes of
+ * the current batch, and leaves those of the batches committed before it in place.
+ */
+public class RegistryImportContentHandler extends DefaultHandler {
+
+    private static final Log log = LogFactory.getLog(RegistryImportContentHandler.class);
+
+    private static final int BASE64_CHUNK_SIZE = 4 * 1024;
+
+    /* The system property giving the number of nodes imported in each transaction */
+    public static final String BATCH_SIZE_PROPERTY = "registry.jcr.import.batch.size";
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private RegistrySession session;
+    private UserRegistry userRegistry;
+    private String parentPath;
+    private int uuidBehavior;
+    private int batchSize;
+    private int batchCount = 0;
+
+    private Boolean systemView = null;
+    private LinkedList<ImportedNode> nodeStack = new LinkedList<ImportedNode>();
+    private ImportedProperty currentProperty = null;
+    private StringBuilder text = new StringBuilder();
+    private boolean inValue = false;
+
+    private StringBuilder base64 = new StringBuilder();
+    private File binaryFile = null;
+    private OutputStream binaryOut = null;
+
+    private boolean inTransaction = false;
+    // parent paths already checked for retention policies and holds
+    private Set<String> checkedPaths = new HashSet<String>();
+
+    public RegistryImportContentHandler(RegistrySession session, String parentAbsPath, int uuidBehavior)
+            throws PathNotFoundException, RepositoryException {
+        this(session, parentAbsPath, uuidBehavior,
+                Integer.getInteger(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE));
+    }
+
+    RegistryImportContentHandler(RegistrySession session, String parentAbsPath, int uuidBehavior,
+                                 int batchSize) throws PathNotFoundException, RepositoryException {
+        this.session = session;
+        this.batchSize = Math.max(1, batchSize);
+        this.userRegistry = session.getUserRegistry();
+        this.parentPath = RegistryXMLUtil.toRegistryPath(session, parentAbsPath);
+        this.uuidBehavior = uuidBehavior;
+        RegistryJCRItemOperationUtil.validateReadOnlyItemOpr(session);
+        try {
+            if (!userRegistry.resourceExists(parentPath)) {
+                throw new PathNotFoundException("No node exists at " + parentAbsPath);
+            }
+        } catch (RegistryException e) {
+            throw new RepositoryException("Failed to resolve the path " + parentAbsPath, e);
+        }
+    }
+
+    /**
+     * Parses the given stream and imports its content.
+     *
+     * @param in system view or document view XML
+     * @throws IOException         if the stream cannot be read
+     * @throws RepositoryException if the content cannot be imported
+     */
+    public void importXML(InputStream in) throws IOException, RepositoryException {
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature("http://xml.org/sax/features/namespace-prefixes", false);
+            SAXParser parser = factory.newSAXParser();
+            parser.parse(new InputSource(in), this);
+        } catch (ParserConfigurationException e) {
+            abort();
+            throw new RepositoryException("Unable to create a parser for the import", e);
+        } catch (SAXException e) {
+            abort();
+            if (e.getException() instanceof RepositoryException) {
+                throw (RepositoryException) e.getException();
+            }
+            throw new InvalidSerializedDataException("Invalid serialized data " + e.getMessage(), e);
+        } catch (IOException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Rolls back the writes of the import and releases temporary files. Used when the import
+     * fails half way.
+     */
+    public void abort() {
+        closeBinary(true);
+        if (currentProperty != null) {
+            deleteBinaries(currentProperty);
+        }
+        for (ImportedNode node : nodeStack) {
+            for (ImportedProperty property : node.typedProperties) {
+                deleteBinaries(property);
+            }
+        }
+        if (inTransaction) {
+            try {
+                userRegistry.rollbackTransaction();
+            } catch (RegistryException e) {
+                log.error("Failed to rollback the import transaction", e);
+            }
+            inTransaction = false;
+            // items read since the writes were counted may hold what has been rolled back.
+            session.clearItemCache();
+        }
+    }
+
+    @Override
+    public void startDocument() throws SAXException {
+        beginTransaction();
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        commitTransaction();
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes)
+            throws SAXException {
+        if (systemView == null) {
+            systemView = RegistryXMLUtil.SV_URI.equals(uri) && "node".equals(localName);
+        }
+        if (systemView) {
+            startSystemViewElement(uri, localName, attributes);
+        } else {
+            startDocumentViewElement(qName, attributes);
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if (systemView) {
+            endSystemViewElement(uri, localName);
+        } else {
+            flushText();
+            writeNode(nodeStack.removeLast());
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (systemView != null && systemView) {
+            if (!inValue) {
+                return;
+            }
+            if (currentProperty.type == PropertyType.BINARY) {
+                appendBase64(ch, start, length);
+            } else {
+                text.append(ch, start, length);
+            }
+        } else {
+            text.append(ch, start, length);
+        }
+    }
+
+    private void startSystemViewElement(String uri, String localName, Attributes attributes)
+            throws SAXException {
+        if (!RegistryXMLUtil.SV_URI.equals(uri)) {
+            throw new SAXException(new InvalidSerializedDataException("Unexpected element " + localName));
+        }
+        if ("node".equals(localName)) {
+            if (!nodeStack.isEmpty()) {
+                writeNode(nodeStack.getLast());
+            }
+            nodeStack.addLast(newNode(attributes.getValue(RegistryXMLUtil.SV_URI, "name")));
+        } else if ("property".equals(localName)) {
+            String type = attributes.getValue(RegistryXMLUtil.SV_URI, "type");
+            currentProperty = new ImportedProperty(attributes.getValue(RegistryXMLUtil.SV_URI, "name"),
+                    type != null ? PropertyType.valueFromName(type) : PropertyType.STRING,
+                    "true".equals(attributes.getValue(RegistryXMLUtil.SV_URI, "multiple")));
+        } else if ("value".equals(localName)) {
+            inValue = true;
+            text.setLength(0);
+            if (currentProperty.type == PropertyType.BINARY) {
+                openBinary();
+            }
+        }
+    }
+
+    private void endSystemViewElement(String uri, String localName) throws SAXException {
+        if ("node".equals(localName)) {
+            writeNode(nodeStack.removeLast());
+        } else if ("property".equals(localName)) {
+            setProperty(nodeStack.getLast(), currentProperty);
+            currentProperty = null;
+        } else if ("value".equals(localName)) {
+            inValue = false;
+            if (currentProperty.type == PropertyType.BINARY) {
+                currentProperty.binaries.add(finishBinary());
+            } else {
+                currentProperty.values.add(text.toString());
+            }
+        }
+    }
+
+    private void startDocumentViewElement(String qName, Attributes attributes) throws SAXException {
+        flushText();
+        if (!nodeStack.isEmpty()) {
+            writeNode(nodeStack.getLast());
+        }
+        ImportedNode node = newNode(RegistryXMLUtil.decodeName(qName));
+        for (int i = 0; i < attributes.getLength(); i++) {
+            String attributeName = attributes.getQName(i);
+            if (attributeName.startsWith("xmlns")) {
+                continue;
+            }
+            ImportedProperty property = new ImportedProperty(RegistryXMLUtil.decodeName(attributeName),
+                    PropertyType.STRING, false);
+            if (RegistryXMLUtil.JCR_MIXIN_TYPES.equals(property.name)) {
+                for (String value : attributes.getValue(i).split(" ")) {
+                    property.values.add(RegistryXMLUtil.decodeName(value));
+                }
+            } else {
+                property.values.add(attributes.getValue(i));
+            }
+            setProperty(node, property);
+        }
+        nodeStack.addLast(node);
+    }
+
+    /**
+     * Text inside a document view element becomes a jcr:xmltext child node.
+     */
+    private void flushText() throws SAXException {
+        String value = text.toString();
+        text.setLength(0);
+        if (value.trim().length() == 0 || nodeStack.isEmpty()) {
+            return;
+        }
+        ImportedNode parent = nodeStack.getLast();
+        writeNode(parent);
+        // the registry has no same-name siblings, so text nodes after the first are numbered.
+        parent.xmlTextCount++;
+        String name = parent.xmlTextCount == 1 ?
+                RegistryXMLUtil.JCR_XMLTEXT : RegistryXMLUtil.JCR_XMLTEXT + parent.xmlTextCount;
+        ImportedNode xmlText = new ImportedNode(parent.path + "/" + name, false);
+        xmlText.stringProperties.put(RegistryXMLUtil.JCR_XMLCHARACTERS, Arrays.asList(value));
+        writeNode(xmlText);
+    }
+
+    private ImportedNode newNode(String name) throws SAXException {
+        if (name == null || name.length() == 0) {
+            throw new SAXException(new InvalidSerializedDataException("Node without a name"));
+        }
+        if (nodeStack.isEmpty() && RegistryXMLUtil.JCR_ROOT.equals(name)) {
+            // the content of an exported root node is merged into the import target
+            return new ImportedNode(parentPath, true);
+        }
+        String base = nodeStack.isEmpty() ? parentPath : nodeStack.getLast().path;
+        return new ImportedNode(base.endsWith("/") ? base + name : base + "/" + name, false);
+    }
+
+    private void setProperty(ImportedNode node, ImportedProperty property) throws SAXException {
+        String name = property.name;
+        if (RegistryXMLUtil.JCR_PRIMARY_TYPE.equals(name)) {
+            if (!property.values.isEmpty()) {
+                node.primaryType = property.values.get(0);
+            }
+            return;
+        }
+        if (RegistryXMLUtil.JCR_UUID.equals(name)) {
+            // node identifiers are the node paths, which change with the import location
+            return;
+        }
+        String registryType = RegistryXMLUtil.getRegistryType(property.type);
+        if (registryType == null) {
+            node.stringProperties.put(name, property.values);
+        } else if (property.type == PropertyType.BINARY && !property.multiple) {
+            property.registryType = registryType;
+            node.typedProperties.add(property);
+        } else if (property.multiple) {
+            property.registryType = RegistryXMLUtil.TYPE_VALUES;
+            node.typedProperties.add(property);
+        } else {
+            if (property.type == PropertyType.DATE && !property.values.isEmpty()) {
+                try {
+                    long millis = DatatypeConverter.parseDateTime(property.values.get(0)).getTimeInMillis();
+                    property.values.set(0, String.valueOf(millis));
+                } catch (IllegalArgumentException e) {
+                    throw new SAXException(new InvalidSerializedDataException(
+                            "Invalid date value for property " + name, e));
+                }
+            }
+            property.registryType = registryType;
+            node.typedProperties.add(property);
+        }
+    }
+
+    private void writeNode(ImportedNode node) throws SAXException {
+        if (node.written) {
+            return;
+        }
+        node.written = true;
+        try {
+            Resource collection;
+            if (node.existing) {
+                checkWritable(node.path);
+                collection = userRegistry.get(node.path);
+            } else {
+                checkWritable(getParentPath(node.path));
+                if (userRegistry.resourceExists(node.path)) {
+                    if (uuidBehavior == ImportUUIDBehavior.IMPORT_UUID_COLLISION_REMOVE_EXISTING
+                            || uuidBehavior == ImportUUIDBehavior.IMPORT_UUID_COLLISION_REPLACE_EXISTING) {
+                        checkRemovable(node.path);
+                        userRegistry.delete(node.path);
+                    } else {
+                        abort();
+                        throw new SAXException(new ItemExistsException("An item already exists at " + node.path));
+                    }
+                }
+                collection = userRegistry.newCollection();
+                collection.setProperty(RegistryXMLUtil.JCR_UUID, node.path);
+            }
+            collection.setDescription(node.primaryType != null ?
+                    node.primaryType : RegistryXMLUtil.DEFAULT_PRIMARY_TYPE);
+            for (Map.Entry<String, List<String>> property : node.stringProperties.entrySet()) {
+                collection.setProperty(property.getKey(), property.getValue());
+            }
+            userRegistry.put(node.path, collection);
+
+            for (ImportedProperty property : node.typedProperties) {
+                writeTypedProperty(node.path, property);
+            }
+            node.stringProperties.clear();
+            node.typedProperties.clear();
+
+            if (++batchCount >= batchSize) {
+                commitTransaction();
+                beginTransaction();
+            }
+        } catch (RepositoryException e) {
+            abort();
+            throw new SAXException(e);
+        } catch (RegistryException e) {
+            abort();
+            throw repositoryError("Failed to import the node " + node.path, e);
+        } catch (IOException e) {
+            abort();
+            throw repositoryError("Failed to import binary content of the node " + node.path, e);
+        }
+    }
+
+    private void writeTypedProperty(String nodePath, ImportedProperty property)
+            throws RegistryException, IOException, SAXException {
+        Resource resource = userRegistry.newResource();
+        resource.setProperty(RegistryXMLUtil.PROPERTY_TYPE, property.registryType);
+        InputStream in = null;
+        try {
+            if (RegistryXMLUtil.TYPE_VALUES.equals(property.registryType)) {
+                if (property.type == PropertyType.BINARY) {
+                    // multiple values are kept as strings, as RegistryNode keeps them.
+                    for (File binary : property.binaries) {
+                        property.values.add(readString(binary));
+                    }
+                }
+                resource.setProperty(property.name, property.values);
+            } else if (property.type == PropertyType.BINARY) {
+                if (!property.binaries.isEmpty()) {
+                    in = new FileInputStream(property.binaries.get(0));
+                    resource.setContentStream(in);
+                }
+            } else if (!property.values.isEmpty()) {
+                resource.setContent(property.values.get(0));
+            }
+            userRegistry.put(nodePath + "/" + property.name, resource);
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+            deleteBinaries(property);
+        }
+    }
+
+    private static String readString(File binary) throws IOException {
+        InputStream in = new FileInputStream(binary);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BASE64_CHUNK_SIZE];
+            int byteCount;
+            while ((byteCount = in.read(buffer)) != -1) {
+                out.write(buffer, 0, byteCount);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void deleteBinaries(ImportedProperty property) {
+        for (File binary : property.binaries) {
+            if (!binary.delete()) {
+                binary.deleteOnExit();
+            }
+        }
+        property.binaries.clear();
+    }
+
+    private void beginTransaction() throws SAXException {
+        try {
+            userRegistry.beginTransaction();
+            inTransaction = true;
+            batchCount = 0;
+        } catch (RegistryException e) {
+            throw repositoryError("Failed to start the import transaction", e);
+        }
+    }
+
+    private void commitTransaction() throws SAXException {
+        if (inTransaction) {
+            try {
+                userRegistry.commitTransaction();
+            } catch (RegistryException e) {
+                abort();
+                throw repositoryError("Failed to commit the imported content", e);
+            }
+            inTransaction = false;
+        }
+    }
+
+    /**
+     * Checks that nodes can be added to or modified at the given path, the same way as a node
+     * added through the session would be.
+     */
+    private void checkWritable(String path) throws RepositoryException {
+        if (checkedPaths.add(path)) {
+            RegistryJCRItemOperationUtil.checkRetentionPolicy(session, path);
+            RegistryJCRItemOperationUtil.checkRetentionHold(session, path);
+        }
+    }
+
+    /**
+     * Checks that the node at the given path can be removed to replace it with an imported one.
+     */
+    private void checkRemovable(String path) throws RepositoryException {
+        RegistryJCRItemOperationUtil.checkRetentionPolicyWithParent(session, path);
+        RegistryJCRItemOperationUtil.checkRetentionHoldWithParent(session, path);
+    }
+
+    private static String getParentPath(String path) {
+        int index = path.lastIndexOf('/');
+        return index > 0 ? path.substring(0, index) : "/";
+    }
+
+    private void openBinary() throws SAXException {
+        try {
+            binaryFile = File.createTempFile("jcr-import", ".bin");
+            binaryOut = new FileOutputStream(binaryFile);
+            base64.setLength(0);
+        } catch (IOException e) {
+            throw repositoryError("Failed to create a temporary file for binary content", e);
+        }
+    }
+
+    private void appendBase64(char[] ch, int start, int length) throws SAXException {
+        for (int i = start; i < start + length; i++) {
+            if (!Character.isWhitespace(ch[i])) {
+                base64.append(ch[i]);
+            }
+        }
+        if (base64.length() >= BASE64_CHUNK_SIZE) {
+            int decodable = base64.length() - (base64.length() % 4);
+            writeDecoded(base64.substring(0, decodable));
+            base64.delete(0, decodable);
+        }
+    }
+
+    private File finishBinary() throws SAXException {
+        if (base64.length() > 0) {
+            writeDecoded(base64.toString());
+            base64.setLength(0);
+        }
+        File file = binaryFile;
+        closeBinary(false);
+        return file;
+    }
+
+    private void writeDecoded(String chunk) throws SAXException {
+        try {
+            binaryOut.write(Base64Utils.decode(chunk));
+        } catch (IOException e) {
+            throw repositoryError("Failed to write binary content to a temporary file", e);
+        }
+    }
+
+    private void closeBinary(boolean delete) {
+        if (binaryOut != null) {
+            try {
+                binaryOut.close();
+            } catch (IOException e) {
+                log.warn("Failed to close the temporary binary file " + binaryFile, e);
+            }
+            binaryOut = null;
+        }
+        if (delete && binaryFile != null && !binaryFile.delete()) {
+            binaryFile.deleteOnExit();
+        }
+        binaryFile = null;
+    }
+
+    private SAXException repositoryError(String msg, Exception e) {
+        log.error(msg, e);
+        return new SAXException(new RepositoryException(msg, e));
+    }
+
+    private static class ImportedNode {
+
+        private String path;
+        private boolean existing;
+        private boolean written = false;
+        private int xmlTextCount = 0;
+        private String primaryType = null;
+        private Map<String, List<String>> stringProperties = new LinkedHashMap<String, List<String>>();
+        private List<ImportedProperty> typedProperties = new ArrayList<ImportedProperty>();
+
+        private ImportedNode(String path, boolean existing) {
+            this.path = path;
+            this.existing = existing;
+        }
+    }
+
+    private static class ImportedProperty {
+
+        private String name;
+        private int type;
+        private boolean multiple;
+        private String registryType = null;
+        private List<String> values = new ArrayList<String>();
+        private List<File> binaries = new ArrayList<File>();
+
+        private ImportedProperty(String name, int type, boolean multiple) {
+            this.name = name;
+            this.type = type;
+            this.multiple = multiple;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.jcr.xml;
+
+import org.apache.axiom.util.base64.Base64Utils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.session.UserRegistry;
+import org.wso2.carbon.registry.core.utils.RegistryUtils;
+import org.wso2.carbon.registry.jcr.RegistrySession;
+import org.wso2.carbon.registry.jcr.util.RegistryJCRItemOperationUtil;
+import org.wso2.carbon.registry.jcr.util.RegistryJCRSpecificStandardLoderUtil;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.jcr.PathNotFoundException;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Streams a subtree of the workspace as a JCR system view or document view. The registry tree
+ * is walked directly, one page of children at a time, so only the current path from the export
+ * root and one page of child paths per level are held in memory. Binary values are written to
+ * the content handler as base64 in fixed size chunks instead of being loaded as a whole.
+ */
+public class RegistryXMLExporter {
+
+    private static final Log log = LogFactory.getLog(RegistryXMLExporter.class);
+
+    private static final int PAGE_SIZE = 100;
+    // a multiple of 3, so that every chunk encodes to base64 without padding
+    private static final int BINARY_CHUNK_SIZE = 3 * 1024;
+
+    private RegistrySession session;
+    private UserRegistry userRegistry;
+    private ContentHandler contentHandler;
+    private boolean skipBinary;
+    private boolean noRecurse;
+    private boolean systemView;
+
+    public RegistryXMLExporter(RegistrySession session, ContentHandler contentHandler,
+                               boolean skipBinary, boolean noRecurse, boolean systemView) {
+        this.session = session;
+        this.userRegistry = session.getUserRegistry();
+        this.contentHandler = contentHandler;
+        this.skipBinary = skipBinary;
+        this.noRecurse = noRecurse;
+        this.systemView = systemView;
+    }
+
+    /**
+     * Creates a content handler which serializes the SAX events it receives to the given stream.
+     *
+     * @param out the stream to write to
+     * @return a serializing content handler
+     * @throws RepositoryException if no serializer is available
+     */
+    public static ContentHandler createSerializer(OutputStream out) throws RepositoryException {
+        try {
+            SAXTransformerFactory factory = (SAXTransformerFactory) TransformerFactory.newInstance();
+            TransformerHandler handler = factory.newTransformerHandler();
+            handler.getTransformer().setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            handler.getTransformer().setOutputProperty(OutputKeys.INDENT, "no");
+            handler.setResult(new StreamResult(out));
+            return handler;
+        } catch (TransformerConfigurationException e) {
+            throw new RepositoryException("Unable to create an XML serializer for the export", e);
+        }
+    }
+
+    public void export(String absPath) throws PathNotFoundException, SAXException, RepositoryException {
+        String path = RegistryXMLUtil.toRegistryPath(session, absPath);
+        try {
+            if (!userRegistry.resourceExists(path)
+                    || !(userRegistry.getMetaData(path) instanceof Collection)) {
+                throw new PathNotFoundException("No node exists at " + absPath);
+            }
+        } catch (RegistryException e) {
+            throw new RepositoryException("Failed to resolve the path " + absPath, e);
+        }
+
+        Map<String, String> namespaces = RegistryJCRSpecificStandardLoderUtil.getJCRSystemNameSpacePrefxMap();
+        contentHandler.startDocument();
+        for (Map.Entry<String, String> namespace : namespaces.entrySet()) {
+            contentHandler.startPrefixMapping(namespace.getValue(), namespace.getKey());
+        }
+        if (systemView && !namespaces.containsKey(RegistryXMLUtil.SV_URI)) {
+            contentHandler.startPrefixMapping(RegistryXMLUtil.SV_PREFIX, RegistryXMLUtil.SV_URI);
+        }
+
+        try {
+            exportNode(path, true);
+        } catch (RegistryException e) {
+            String msg = "Failed to export the node at " + absPath;
+            log.error(msg, e);
+            throw new RepositoryException(msg, e);
+        } catch (IOException e) {
+            String msg = "Failed to read binary content while exporting " + absPath;
+            log.error(msg, e);
+            throw new RepositoryException(msg, e);
+        }
+
+        if (systemView && !namespaces.containsKey(RegistryXMLUtil.SV_URI)) {
+            contentHandler.endPrefixMapping(RegistryXMLUtil.SV_PREFIX);
+        }
+        for (String prefix : namespaces.values()) {
+            contentHandler.endPrefixMapping(prefix);
+        }
+        contentHandler.endDocument();
+    }
+
+    private void exportNode(String path, boolean exportRoot)
+            throws RegistryException, SAXException, IOException, RepositoryException {
+        Resource node = userRegistry.get(path, 0, PAGE_SIZE);
+        String name = exportRoot && RegistryXMLUtil.isWorkspaceRoot(session, path) ?
+                RegistryXMLUtil.JCR_ROOT : RegistryXMLUtil.getName(path);
+
+        if (systemView) {
+            AttributesImpl attributes = new AttributesImpl();
+            addSvAttribute(attributes, "name", name);
+            startSvElement("node", attributes);
+            exportSystemViewProperties(node);
+        } else {
+            String elementName = RegistryXMLUtil.encodeName(name);
+            contentHandler.startElement("", elementName, elementName, getDocumentViewAttributes(node));
+        }
+
+        if (!noRecurse) {
+            for (int start = 0; ; start += PAGE_SIZE) {
+                String[] children = getChildren(path, start);
+                for (String child : children) {
+                    if (!RegistryJCRItemOperationUtil.isSystemConfigNode(child)
+                            && userRegistry.getMetaData(child) instanceof Collection) {
+                        exportNode(child, false);
+                    }
+                }
+                if (children.length < PAGE_SIZE) {
+                    break;
+                }
+            }
+        }
+
+        if (systemView) {
+            endSvElement("node");
+        } else {
+            String elementName = RegistryXMLUtil.encodeName(name);
+            contentHandler.endElement("", elementName, elementName);
+        }
+    }
+
+    private void exportSystemViewProperties(Resource node)
+            throws RegistryException, SAXException, IOException {
+        String primaryType = node.getDescription() != null ?
+                node.getDescription() : RegistryXMLUtil.DEFAULT_PRIMARY_TYPE;
+        exportSystemViewProperty(RegistryXMLUtil.JCR_PRIMARY_TYPE, PropertyType.NAME, false,
+                new String[]{primaryType});
+
+        Properties properties = node.getProperties();
+        for (String propName : properties.stringPropertyNames()) {
+            if (isExportedProperty(propName)) {
+                List<String> values = node.getPropertyValues(propName);
+                exportSystemViewProperty(propName, getStringPropertyType(propName),
+                        values.size() > 1 || RegistryXMLUtil.JCR_MIXIN_TYPES.equals(propName),
+                        values.toArray(new String[values.size()]));
+            }
+        }
+
+        String path = node.getPath();
+        for (int start = 0; ; start += PAGE_SIZE) {
+            String[] children = getChildren(path, start);
+            for (String child : children) {
+                Resource meta = userRegistry.getMetaData(child);
+                if (meta instanceof Collection) {
+                    continue;
+                }
+                Resource res = userRegistry.get(child);
+                String registryType = res.getProperty(RegistryXMLUtil.PROPERTY_TYPE);
+                if (registryType == null) {
+                    continue;
+                }
+                String propName = RegistryXMLUtil.getName(child);
+                int type = RegistryXMLUtil.getJCRType(registryType);
+
+                if (type == PropertyType.BINARY) {
+                    AttributesImpl attributes = new AttributesImpl();
+                    addSvAttribute(attributes, "name", propName);
+                    addSvAttribute(attributes, "type", PropertyType.nameFromValue(type));
+                    startSvElement("property", attributes);
+                    startSvElement("value", new AttributesImpl());
+                    if (!skipBinary) {
+                        writeBase64(res);
+                    }
+                    endSvElement("value");
+                    endSvElement("property");
+                } else if (RegistryXMLUtil.TYPE_VALUES.equals(registryType)) {
+                    List<String> values = res.getPropertyValues(propName);
+                    String[] valueArray = values != null ?
+                            values.toArray(new String[values.size()]) : new String[0];
+                    exportSystemViewProperty(propName, type, true, valueArray);
+                } else {
+                    exportSystemViewProperty(propName, type, false,
+                            new String[]{getStringValue(res, registryType)});
+                }
+            }
+            if (children.length < PAGE_SIZE) {
+                break;
+            }
+        }
+    }
+
+    private void exportSystemViewProperty(String name, int type, boolean multiple, String[] values)
+            throws SAXException {
+        AttributesImpl attributes = new AttributesImpl();
+        addSvAttribute(attributes, "name", name);
+        addSvAttribute(attributes, "type", PropertyType.nameFromValue(type));
+        if (multiple) {
+            addSvAttribute(attributes, "multiple", "true");
+        }
+        startSvElement("property", attributes);
+        for (String value : values) {
+            startSvElement("value", new AttributesImpl());
+            char[] chars = value.toCharArray();
+            contentHandler.characters(chars, 0, chars.length);
+            endSvElement("value");
+        }
+        endSvElement("property");
+    }
+
+    private AttributesImpl getDocumentViewAttributes(Resource node)
+            throws RegistryException, IOException {
+        AttributesImpl attributes = new AttributesImpl();
+        String primaryType = node.getDescription() != null ?
+                node.getDescription() : RegistryXMLUtil.DEFAULT_PRIMARY_TYPE;
+        addAttribute(attributes, RegistryXMLUtil.JCR_PRIMARY_TYPE, primaryType);
+
+        Properties properties = node.getProperties();
+        for (String propName : properties.stringPropertyNames()) {
+            if (isExportedProperty(propName)) {
+                addAttribute(attributes, propName, joinValues(node.getPropertyValues(propName)));
+            }
+        }
+
+        String path = node.getPath();
+        for (int start = 0; ; start += PAGE_SIZE) {
+            String[] children = getChildren(path, start);
+            for (String child : children) {
+                if (userRegistry.getMetaData(child) instanceof Collection) {
+                    continue;
+                }
+                Resource res = userRegistry.get(child);
+                String registryType = res.getProperty(RegistryXMLUtil.PROPERTY_TYPE);
+                if (registryType == null) {
+                    continue;
+                }
+                String propName = RegistryXMLUtil.getName(child);
+                if (RegistryXMLUtil.TYPE_INPUT_STREAM.equals(registryType)) {
+                    // document view keeps values in attributes, so binaries cannot be streamed
+                    addAttribute(attributes, propName, skipBinary ? "" : readBase64(res));
+                } else if (RegistryXMLUtil.TYPE_VALUES.equals(registryType)) {
+                    addAttribute(attributes, propName, joinValues(res.getPropertyValues(propName)));
+                } else {
+                    addAttribute(attributes, propName, getStringValue(res, registryType));
+                }
+            }
+            if (children.length < PAGE_SIZE) {
+                break;
+            }
+        }
+        return attributes;
+    }
+
+    private String[] getChildren(String path, int start) throws RegistryException {
+        Resource page = userRegistry.get(path, start, PAGE_SIZE);
+        if (page instanceof Collection) {
+            String[] children = ((Collection) page).getChildren();
+            return children != null ? children : new String[0];
+        }
+        return new String[0];
+    }
+
+    private boolean isExportedProperty(String propName) {
+        return !RegistryXMLUtil.JCR_PRIMARY_TYPE.equals(propName)
+                && !RegistryJCRSpecificStandardLoderUtil.getimplicitPropertiyNames().contains(propName)
+                && !RegistryJCRSpecificStandardLoderUtil.getJCRSystemPropertyValues().contains(propName);
+    }
+
+    private int getStringPropertyType(String propName) {
+        if (RegistryXMLUtil.JCR_MIXIN_TYPES.equals(propName)) {
+            return PropertyType.NAME;
+        }
+        return PropertyType.STRING;
+    }
+
+    private String getStringValue(Resource res, String registryType) throws RegistryException {
+        Object content = res.getContent();
+        String value;
+        if (content instanceof byte[]) {
+            value = RegistryUtils.decodeBytes((byte[]) content);
+        } else {
+            value = content != null ? content.toString() : "";
+        }
+        if (RegistryXMLUtil.TYPE_CALENDAR.equals(registryType) && value.length() != 0) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(Long.parseLong(value.trim()));
+            value = DatatypeConverter.printDateTime(calendar);
+        }
+        return value;
+    }
+
+    private void writeBase64(Resource res) throws RegistryException, SAXException, IOException {
+        InputStream in = res.getContentStream();
+        if (in == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[BINARY_CHUNK_SIZE];
+            int filled = 0;
+            int read;
+            while ((read = in.read(buffer, filled, buffer.length - filled)) != -1) {
+                filled += read;
+                if (filled == buffer.length) {
+                    char[] chars = Base64Utils.encode(buffer, 0, filled).toCharArray();
+                    contentHandler.characters(chars, 0, chars.length);
+                    filled = 0;
+                }
+            }
+            if (filled > 0) {
+                char[] chars = Base64Utils.encode(buffer, 0, filled).toCharArray();
+                contentHandler.characters(chars, 0, chars.length);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private String readBase64(Resource res) throws RegistryException, IOException {
+        InputStream in = res.getContentStream();
+        if (in == null) {
+            return "";
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BINARY_CHUNK_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            byte[] bytes = out.toByteArray();
+            return Base64Utils.encode(bytes, 0, bytes.length);
+        } finally {
+            in.close();
+        }
+    }
+
+    private String joinValues(List<String> values) {
+        if (values == null) {
+            return "";
+        }
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (joined.length() > 0) {
+                joined.append(' ');
+            }
+            // spaces inside a multi-valued attribute are escaped as in ISO 9075
+            joined.append(value.replace(" ", "_x0020_"));
+        }
+        return joined.toString();
+    }
+
+    private void addAttribute(AttributesImpl attributes, String name, String value) {
+        String qName = RegistryXMLUtil.encodeName(name);
+        attributes.addAttribute("", qName, qName, RegistryXMLUtil.CDATA, value);
+    }
+
+    private void addSvAttribute(AttributesImpl attributes, String localName, String value) {
+        attributes.addAttribute(RegistryXMLUtil.SV_URI, localName,
+                RegistryXMLUtil.SV_PREFIX + ":" + localName, RegistryXMLUtil.CDATA, value);
+    }
+
+    private void startSvElement(String localName, AttributesImpl attributes) throws SAXException {
+        contentHandler.startElement(RegistryXMLUtil.SV_URI, localName,
+                RegistryXMLUtil.SV_PREFIX + ":" + localName, attributes);
+    }
+
+    private void endSvElement(String localName) throws SAXException {
+        contentHandler.endElement(RegistryXMLUtil.SV_URI, localName,
+                RegistryXMLUtil.SV_PREFIX + ":" + localName);
+    }
+}
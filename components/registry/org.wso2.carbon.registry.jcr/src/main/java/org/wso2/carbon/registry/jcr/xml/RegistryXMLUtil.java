@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.jcr.xml;
+
+import org.wso2.carbon.registry.jcr.RegistrySession;
+
+import javax.jcr.PropertyType;
+
+/**
+ * Helpers shared by the system/document view exporter and the import content handler.
+ */
+final class RegistryXMLUtil {
+
+    static final String SV_URI = "http://www.jcp.org/jcr/sv/1.0";
+    static final String SV_PREFIX = "sv";
+    static final String CDATA = "CDATA";
+
+    static final String JCR_ROOT = "jcr:root";
+    static final String JCR_PRIMARY_TYPE = "jcr:primaryType";
+    static final String JCR_MIXIN_TYPES = "jcr:mixinTypes";
+    static final String JCR_UUID = "jcr:uuid";
+    static final String JCR_XMLTEXT = "jcr:xmltext";
+    static final String JCR_XMLCHARACTERS = "jcr:xmlcharacters";
+    static final String DEFAULT_PRIMARY_TYPE = "nt:unstructured";
+
+    // Property type markers used by RegistryNode for properties stored as child resources
+    static final String PROPERTY_TYPE = "registry.jcr.property.type";
+    static final String TYPE_INPUT_STREAM = "input_stream";
+    static final String TYPE_BOOLEAN = "boolean";
+    static final String TYPE_DOUBLE = "double";
+    static final String TYPE_LONG = "long";
+    static final String TYPE_BIG_DECIMAL = "big_decimal";
+    static final String TYPE_CALENDAR = "calendar";
+    static final String TYPE_VALUE = "value_type";
+    static final String TYPE_VALUES = "values_type";
+
+    private RegistryXMLUtil() {
+    }
+
+    /**
+     * Resolves a JCR absolute path against the workspace root of the session, the same way
+     * RegistrySession#getItem does.
+     */
+    static String toRegistryPath(RegistrySession session, String absPath) {
+
+        String root = session.getWorkspaceRootPath();
+        String path = absPath;
+        if (!path.contains(root)) {
+            path = root.substring(0, root.length() - 1) + path;
+        }
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    static boolean isWorkspaceRoot(RegistrySession session, String path) {
+
+        String root = session.getWorkspaceRootPath();
+        return root.equals(path) || root.equals(path + "/");
+    }
+
+    static String getName(String path) {
+
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    static int getJCRType(String registryType) {
+
+        if (TYPE_INPUT_STREAM.equals(registryType)) {
+            return PropertyType.BINARY;
+        } else if (TYPE_BOOLEAN.equals(registryType)) {
+            return PropertyType.BOOLEAN;
+        } else if (TYPE_DOUBLE.equals(registryType)) {
+            return PropertyType.DOUBLE;
+        } else if (TYPE_LONG.equals(registryType)) {
+            return PropertyType.LONG;
+        } else if (TYPE_BIG_DECIMAL.equals(registryType)) {
+            return PropertyType.DECIMAL;
+        } else if (TYPE_CALENDAR.equals(registryType)) {
+            return PropertyType.DATE;
+        }
+        return PropertyType.STRING;
+    }
+
+    /**
+     * @return the registry type marker for a JCR property type, or null if values of the type
+     *         are stored as plain string properties of the node collection
+     */
+    static String getRegistryType(int jcrType) {
+
+        switch (jcrType) {
+            case PropertyType.BINARY:
+                return TYPE_INPUT_STREAM;
+            case PropertyType.BOOLEAN:
+                return TYPE_BOOLEAN;
+            case PropertyType.DOUBLE:
+                return TYPE_DOUBLE;
+            case PropertyType.LONG:
+                return TYPE_LONG;
+            case PropertyType.DECIMAL:
+                return TYPE_BIG_DECIMAL;
+            case PropertyType.DATE:
+                return TYPE_CALENDAR;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Encodes a JCR name into a valid XML name as described in ISO 9075, escaping every illegal
+     * character as _xHHHH_.
+     */
+    static String encodeName(String name) {
+
+        StringBuilder encoded = new StringBuilder();
+        int colon = name.indexOf(':');
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean valid = (i == colon && i > 0)
+                    || Character.isLetter(c) || c == '_'
+                    || (i > 0 && (Character.isDigit(c) || c == '-' || c == '.'));
+            if (c == '_' && isEscapeSequence(name, i)) {
+                valid = false;
+            }
+            if (valid) {
+                encoded.append(c);
+            } else {
+                encoded.append("_x").append(String.format("%04X", (int) c)).append('_');
+            }
+        }
+        return encoded.toString();
+    }
+
+    static String decodeName(String name) {
+
+        if (name.indexOf("_x") < 0) {
+            return name;
+        }
+        StringBuilder decoded = new StringBuilder();
+        int i = 0;
+        while (i < name.length()) {
+            if (isEscapeSequence(name, i)) {
+                decoded.append((char) Integer.parseInt(name.substring(i + 2, i + 6), 16));
+                i += 7;
+            } else {
+                decoded.append(name.charAt(i));
+                i++;
+            }
+        }
+        return decoded.toString();
+    }
+
+    private static boolean isEscapeSequence(String name, int index) {
+
+        if (index + 6 >= name.length() || name.charAt(index) != '_' || name.charAt(index + 1) != 'x'
+                || name.charAt(index + 6) != '_') {
+            return false;
+        }
+        for (int i = index + 2; i < index + 6; i++) {
+            if (Character.digit(name.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
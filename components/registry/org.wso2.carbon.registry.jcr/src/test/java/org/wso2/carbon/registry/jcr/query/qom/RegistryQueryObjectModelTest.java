@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.jcr.query.qom;
+
+import org.wso2.carbon.registry.jcr.test.utils.BaseTestCase;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import javax.jcr.ValueFactory;
+import javax.jcr.query.qom.Constraint;
+import javax.jcr.query.qom.QueryObjectModel;
+import javax.jcr.query.qom.QueryObjectModelFactory;
+import java.util.HashSet;
+import java.util.Set;
+
+public class RegistryQueryObjectModelTest extends BaseTestCase {
+
+    private Session session;
+    private Node testRoot;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        session = repository.login(new SimpleCredentials("admin", "admin".toCharArray()));
+        Node root = session.getRootNode();
+        if (root.hasNode("qomTest")) {
+            root.getNode("qomTest").remove();
+            session.save();
+        }
+        testRoot = root.addNode("qomTest");
+        session.save();
+    }
+
+    protected void tearDown() throws Exception {
+        if (session != null) {
+            testRoot.remove();
+            if (session.getRootNode().hasNode("qomOther")) {
+                session.getRootNode().getNode("qomOther").remove();
+            }
+            session.save();
+            session.logout();
+        }
+    }
+
+    public void testEqualityOnStringProperties() throws Exception {
+        testRoot.addNode("red").setProperty("colour", "red");
+        testRoot.addNode("blue").setProperty("colour", "blue");
+        session.save();
+
+        assertEquals(names("red"), query(equalTo("colour", "red")));
+    }
+
+    public void testEqualityOnValueProperties() throws Exception {
+        ValueFactory valueFactory = session.getValueFactory();
+        testRoot.addNode("red").setProperty("shade", valueFactory.createValue("red"));
+        testRoot.addNode("blue").setProperty("shade", valueFactory.createValue("blue"));
+        session.save();
+
+        assertEquals(names("red"), query(equalTo("shade", "red")));
+    }
+
+    public void testEqualityOnMixedProperties() throws Exception {
+        ValueFactory valueFactory = session.getValueFactory();
+        testRoot.addNode("string").setProperty("size", "large");
+        testRoot.addNode("value").setProperty("size", valueFactory.createValue("large"));
+        testRoot.addNode("other").setProperty("size", "small");
+        session.save();
+
+        assertEquals(names("string", "value"), query(equalTo("size", "large")));
+    }
+
+    public void testResourcePropertiesElsewhereDoNotPreventPushDown() throws Exception {
+        // stored as a child resource named after the property, outside the path searched.
+        session.getRootNode().addNode("qomOther").setProperty("tone",
+                session.getValueFactory().createValue("red"));
+        testRoot.addNode("red").setProperty("tone", "red");
+        testRoot.addNode("blue").setProperty("tone", "blue");
+        session.save();
+
+        QueryObjectModel query = createQuery(equalTo("tone", "red"));
+        assertEquals(names("red"), names(query.execute().getNodes()));
+        assertTrue(query.getStatement(), query.getStatement().contains("REG_PROPERTY"));
+    }
+
+    public void testFullTextSearchOnValueProperties() throws Exception {
+        ValueFactory valueFactory = session.getValueFactory();
+        testRoot.addNode("fox").setProperty("text",
+                valueFactory.createValue("the quick brown fox"));
+        testRoot.addNode("dog").setProperty("text", valueFactory.createValue("the lazy dog"));
+        session.save();
+
+        QueryObjectModelFactory qomFactory = getQOMFactory();
+        assertEquals(names("fox"), query(qomFactory.fullTextSearch("s", "text",
+                qomFactory.literal(session.getValueFactory().createValue("quick fox")))));
+    }
+
+    private Constraint equalTo(String propertyName, String value) throws Exception {
+        QueryObjectModelFactory qomFactory = getQOMFactory();
+        return qomFactory.comparison(qomFactory.propertyValue("s", propertyName),
+                QueryObjectModelFactory.JCR_OPERATOR_EQUAL_TO,
+                qomFactory.literal(session.getValueFactory().createValue(value)));
+    }
+
+    private Set<String> query(Constraint constraint) throws Exception {
+        return names(createQuery(constraint).execute().getNodes());
+    }
+
+    private QueryObjectModel createQuery(Constraint constraint) throws Exception {
+        QueryObjectModelFactory qomFactory = getQOMFactory();
+        constraint = qomFactory.and(qomFactory.childNode("s", testRoot.getPath()), constraint);
+        return qomFactory.createQuery(qomFactory.selector("nt:base", "s"), constraint, null, null);
+    }
+
+    private static Set<String> names(NodeIterator nodes) throws Exception {
+        Set<String> names = new HashSet<String>();
+        while (nodes.hasNext()) {
+            names.add(nodes.nextNode().getName());
+        }
+        return names;
+    }
+
+    private QueryObjectModelFactory getQOMFactory() throws Exception {
+        return session.getWorkspace().getQueryManager().getQOMFactory();
+    }
+
+    private static Set<String> names(String... names) {
+        Set<String> set = new HashSet<String>();
+        for (String name : names) {
+            set.add(name);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.jcr.xml;
+
+import org.apache.axiom.util.base64.Base64Utils;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.session.UserRegistry;
+import org.wso2.carbon.registry.jcr.RegistrySession;
+import org.wso2.carbon.registry.jcr.test.utils.BaseTestCase;
+
+import javax.jcr.ImportUUIDBehavior;
+import javax.jcr.ItemExistsException;
+import javax.jcr.Node;
+import javax.jcr.SimpleCredentials;
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+public class RegistryImportContentHandlerTest extends BaseTestCase {
+
+    private RegistrySession session;
+    private Node testRoot;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        session = (RegistrySession) repository.login(
+                new SimpleCredentials("admin", "admin".toCharArray()));
+        Node root = session.getRootNode();
+        if (root.hasNode("importTest")) {
+            root.getNode("importTest").remove();
+            session.save();
+        }
+        testRoot = root.addNode("importTest");
+        session.save();
+    }
+
+    protected void tearDown() throws Exception {
+        if (session != null) {
+            testRoot.remove();
+            session.save();
+            session.logout();
+        }
+    }
+
+    public void testFailedImportKeepsCommittedBatches() throws Exception {
+        testRoot.addNode("c5");
+        session.save();
+
+        // the merged root and c1 make up the first batch, c2 and c3 the second, and c4 is
+        // rolled back along with the failing c5.
+        String xml = "<jcr:root xmlns:jcr=\"http://www.jcp.org/jcr/1.0\">" +
+                "<c1/><c2/><c3/><c4/><c5/></jcr:root>";
+        try {
+            new RegistryImportContentHandler(session, testRoot.getPath(),
+                    ImportUUIDBehavior.IMPORT_UUID_COLLISION_THROW, 2).importXML(
+                    new ByteArrayInputStream(xml.getBytes("UTF-8")));
+            fail("The import should fail on the existing node");
+        } catch (ItemExistsException expected) {
+            // expected
+        }
+
+        UserRegistry registry = session.getUserRegistry();
+        String parentPath = RegistryXMLUtil.toRegistryPath(session, testRoot.getPath());
+        assertTrue(registry.resourceExists(parentPath + "/c1"));
+        assertTrue(registry.resourceExists(parentPath + "/c2"));
+        assertTrue(registry.resourceExists(parentPath + "/c3"));
+        assertFalse(registry.resourceExists(parentPath + "/c4"));
+    }
+
+    public void testImportsAllValuesOfMultipleBinaryProperty() throws Exception {
+        String xml = "<sv:node xmlns:sv=\"http://www.jcp.org/jcr/sv/1.0\" sv:name=\"binaries\">" +
+                "<sv:property sv:name=\"jcr:primaryType\" sv:type=\"Name\">" +
+                "<sv:value>nt:unstructured</sv:value></sv:property>" +
+                "<sv:property sv:name=\"data\" sv:type=\"Binary\" sv:multiple=\"true\">" +
+                "<sv:value>" + Base64Utils.encode("first".getBytes("UTF-8")) + "</sv:value>" +
+                "<sv:value>" + Base64Utils.encode("second".getBytes("UTF-8")) + "</sv:value>" +
+                "</sv:property></sv:node>";
+        new RegistryImportContentHandler(session, testRoot.getPath(),
+                ImportUUIDBehavior.IMPORT_UUID_COLLISION_THROW).importXML(
+                new ByteArrayInputStream(xml.getBytes("UTF-8")));
+
+        String parentPath = RegistryXMLUtil.toRegistryPath(session, testRoot.getPath());
+        Resource property = session.getUserRegistry().get(parentPath + "/binaries/data");
+        assertEquals(RegistryXMLUtil.TYPE_VALUES,
+                property.getProperty(RegistryXMLUtil.PROPERTY_TYPE));
+        assertEquals(Arrays.asList("first", "second"), property.getPropertyValues("data"));
+    }
+}
@@ -16,16 +16,9 @@
 
 package org.wso2.carbon.registry.resource.services.utils;
 
-import org.apache.axiom.om.OMAttribute;
-import org.apache.axiom.om.OMElement;
-import org.apache.axiom.om.util.AXIOMUtil;
-import org.apache.axiom.om.xpath.AXIOMXPath;
 import org.apache.axis2.context.MessageContext;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.jaxen.JaxenException;
 import org.wso2.carbon.registry.common.CommonConstants;
 import org.wso2.carbon.registry.common.ResourceData;
 import org.wso2.carbon.registry.common.utils.UserUtil;
@@ -40,18 +33,13 @@ import org.wso2.carbon.registry.resource.beans.CollectionContentBean;
 import org.wso2.carbon.registry.resource.beans.ContentBean;
 import org.wso2.carbon.registry.resource.beans.ContentDownloadBean;
 import org.wso2.carbon.registry.resource.download.DownloadManagerService;
-import org.wso2.carbon.utils.CarbonUtils;
 
 import javax.activation.DataHandler;
 import javax.activation.DataSource;
-import javax.xml.namespace.QName;
-import java.io.*;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 public class ContentUtil {
 
@@ -363,11 +351,6 @@ public class ContentUtil {
 
     private static ContentDownloadBean getDownloadContent(String path, Registry _registry) throws Exception {
         UserRegistry registry = (UserRegistry)_registry;
-        InputStream zipContentStream = null;
-        File srcDir = null;
-        File zipFile = null;
-        String COLLECTION = "collection";
-        ByteArrayOutputStream outputStream = null;
         ContentDownloadBean zipContent;
         try {
 
@@ -378,181 +361,31 @@ public class ContentUtil {
             }
 
             ContentDownloadBean bean = GetDownloadContentUtil.getContentDownloadBean(path, registry);
-            String zipDirPath = CarbonUtils.getCarbonHome() + File.separator + "tmp" + File.separator + bean.toString();
-            String zipDependencyPath = zipDirPath +File.separator + "dependencies";
-            String zipPath = zipDirPath + "-zip.zip";
 
             Association[] associations = registry.getAssociations(path,"depends");
 
+            zipContent = new ContentDownloadBean();
             if (associations.length != 0) {
-                srcDir = new File(zipDirPath);
-                srcDir.mkdir();
-                new File(zipDependencyPath).mkdir();
-                zipFile = new File(zipPath);
-
-     //                Creating artifact file itself
-                File _tmp = new File(zipDirPath + File.separator + bean.getResourceName());
-                DataOutputStream _fos = new DataOutputStream(new FileOutputStream(_tmp));
-                byte[] _bytes = IOUtils.toByteArray(bean.getContent().getInputStream());
-
-                createDependencies(associations,registry,zipDependencyPath,path,COLLECTION, new String(_bytes),_fos,true);
-
-                ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipFile));
-                zipDir(zipDirPath, zos);
-                zos.close();
-                zipContentStream = new FileInputStream(new File(zipPath));
-
+                // the archive is built as the client reads it, rather than in memory.
+                DataSource contentSource = new InputStreamBasedDataSource(
+                        new DependencyBundleInputStream(path, registry));
+                zipContent.setContent(new DataHandler(contentSource));
             } else if (bean.getContent() != null) {
-                zipContentStream = bean.getContent().getInputStream();
+                zipContent.setContent(bean.getContent());
             } else {
                 String msg = "The resource content was empty.";
                 log.error(msg);
                 return null;
             }
 
-            if (zipContentStream != null) {
-
-                try {
-                    outputStream = new ByteArrayOutputStream();
-
-                    byte[] contentChunk = new byte[1024];
-                    int byteCount;
-                    while ((byteCount = zipContentStream.read(contentChunk)) != -1) {
-                        outputStream.write(contentChunk, 0, byteCount);
-                    }
-                    outputStream.flush();
-
-                } finally {
-                    zipContentStream.close();
-
-                    if (outputStream != null) {
-                        outputStream.close();
-                    }
-                }
-            }
-        zipContent = new ContentDownloadBean();
-        DataSource contentSource = new InputStreamBasedDataSource(new ByteArrayInputStream(outputStream.toByteArray()));
-        DataHandler content = new DataHandler(contentSource);
-        zipContent.setContent(content);
-
         } catch (RegistryException e) {
             String msg = "Failed to get resource content. " + e.getMessage();
             log.error(msg, e);
             return null;
-        } finally {
-            FileUtils.deleteQuietly(srcDir);
-            FileUtils.deleteQuietly(zipFile);
         }
 
         return zipContent;
     }
 
-        private static void createDependencies(Association[] associations, UserRegistry registry, String zipDependencyPath,
-                                           String scrPath, String COLLECTION,String content,DataOutputStream srcOutputStream,boolean isMasterArtifact) throws Exception {
-        for (Association associationBean : associations) {
-            if (isADependency(associationBean, registry, scrPath, COLLECTION)) {
-                ContentDownloadBean dependencyBean = GetDownloadContentUtil.getContentDownloadBean(associationBean.getDestinationPath(), registry);
-                InputStream dependencyContentStream = dependencyBean.getContent().getInputStream();
-                File tmp = new File(zipDependencyPath + File.separator + dependencyBean.getResourceName());
-                DataOutputStream fos = new DataOutputStream(new FileOutputStream(tmp));
-                byte[] bytes = IOUtils.toByteArray(dependencyContentStream);
-                createDependencies(registry.getAssociations(associationBean.getDestinationPath(),"depends"),
-                        registry,zipDependencyPath,associationBean.getDestinationPath(),COLLECTION,new String(bytes),fos,false);
-            }
-        }
-
-        if(scrPath.endsWith(".wsdl") || scrPath.endsWith(".xsd")) {
-            OMElement srcOMElement = AXIOMUtil.stringToOM(content);
-            updateSchemaImports(srcOMElement,isMasterArtifact);
-            updateWSDLImports(srcOMElement,isMasterArtifact);
-            IOUtils.write(srcOMElement.toString().getBytes(), srcOutputStream);
-        } else {
-            IOUtils.write(content.getBytes(), srcOutputStream);
-        }
-
-    }
-
-    private static boolean isADependency(Association associationBean,UserRegistry registry,String scrPath,String COLLECTION) throws Exception {
-        if(associationBean.getDestinationPath() == null ||
-                (!registry.resourceExists(associationBean.getDestinationPath()))){
-            return false;
-        }
-        ResourceData resourceData = ContentUtil.getResourceData(new String[]{associationBean.getDestinationPath()}, registry)[0];
-          boolean isCollection = resourceData.getResourceType().equals(COLLECTION);
-          return (associationBean.getAssociationType() != null && associationBean.getAssociationType().equals("depends")
-                  && associationBean.getSourcePath().equals(scrPath) && !isCollection);
-    }
-
-
-    private static OMElement updateSchemaImports(OMElement omElement,boolean isMasterArtifact) throws JaxenException {
-
-        AXIOMXPath xPath = new AXIOMXPath("//xs:schema/xs:import[@schemaLocation]");
-//        "http://schemas.xmlsoap.org/wsdl/"
-        xPath.addNamespace("xs", "http://www.w3.org/2001/XMLSchema");
-        Object result = xPath.evaluate(omElement);
-        if(!(result instanceof ArrayList)){
-         return omElement;
-        }
-        List list = (ArrayList)result;
-        for (Object obj : list) {
-            OMElement _import = (OMElement) obj;
-            OMAttribute attribute = _import.getAttribute(new QName("schemaLocation"));
-            String newValue = isMasterArtifact ? "dependencies" + attribute.getAttributeValue().substring(attribute.getAttributeValue().lastIndexOf("/"))
-                    :attribute.getAttributeValue().substring(attribute.getAttributeValue().lastIndexOf("/")+1);
-            attribute.setAttributeValue(newValue);
-        }
-      return omElement;
-    }
-
-    private static OMElement updateWSDLImports(OMElement omElement,boolean isMasterArtifact) throws JaxenException {
-
-        AXIOMXPath xPath = new AXIOMXPath("//wsd:import[@location]");
-        xPath.addNamespace("wsd", "http://schemas.xmlsoap.org/wsdl/");
-
-        Object result = xPath.evaluate(omElement);
-        if(!(result instanceof ArrayList)){
-         return omElement;
-        }
-        List list = (ArrayList) result;
-        for (Object obj : list) {
-            OMElement _import = (OMElement) obj;
-            OMAttribute attribute = _import.getAttribute(new QName("location"));
-            String newValue = isMasterArtifact ? "dependencies" + attribute.getAttributeValue().substring(attribute.getAttributeValue().lastIndexOf("/"))
-                    :attribute.getAttributeValue().substring(attribute.getAttributeValue().lastIndexOf("/")+1);
-            attribute.setAttributeValue(newValue);
-        }
-      return omElement;
-    }
-
-
-    private static void zipDir(String dirToZip, ZipOutputStream zos) throws org.wso2.carbon.registry.api.RegistryException {
-        try {
-
-            File zipDir = new File(dirToZip);
-            String[] dirList = zipDir.list();
-            byte[] readBuffer = new byte[1024];
-            int bytesIn = 0;
-            for (int i = 0; i < dirList.length; i++) {
-                File f = new File(zipDir,dirList[i]);
-                if(f.isDirectory()) {
-                  zipDir(f.getPath(),zos);
-                  continue;
-                } else {
-                FileInputStream fis = new FileInputStream(f.getPath());
-                ZipEntry anEntry = new ZipEntry(f.getPath().contains("dependencies") ? "dependencies" + File.separator + f.getName():f.getName());
-                zos.putNextEntry(anEntry);
-                while ((bytesIn = fis.read(readBuffer)) != -1) {
-                    zos.write(readBuffer, 0, bytesIn);
-                }
-                zos.flush();
-                fis.close();
-            }
-            }
-
-        } catch (Exception e) {
-            throw new org.wso2.carbon.registry.api.RegistryException("Error occurred while zipping the file");
-        }
-    }
-
 }
 
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2008, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.resource.services.utils;
+
+import org.apache.axiom.om.OMAttribute;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.axiom.om.xpath.AXIOMXPath;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jaxen.JaxenException;
+import org.wso2.carbon.registry.core.Association;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
+import org.wso2.carbon.registry.core.session.UserRegistry;
+import org.wso2.carbon.registry.core.utils.RegistryUtils;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A ZIP archive of a resource along with the resources it depends on, built while it is read.
+ * The resource is placed at the top level of the archive and its dependencies, followed
+ * transitively, under <code>dependencies/</code>, with the imports of WSDL and XML schema
+ * documents pointed to the entries of the archive. Each dependency is visited once, however
+ * many resources depend on it, and no more than a single document is held in memory at a time.
+ * <p/>
+ * The archive is built on the thread reading the stream, using the given registry.
+ */
+public class DependencyBundleInputStream extends InputStream {
+
+    private static final Log log = LogFactory.getLog(DependencyBundleInputStream.class);
+
+    private static final String DEPENDS = "depends";
+    private static final String DEPENDENCIES_DIR = "dependencies/";
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private UserRegistry registry;
+
+    // resources to be added to the archive, in the order they were reached
+    private LinkedList<String> pendingPaths = new LinkedList<String>();
+    private Set<String> visitedPaths = new HashSet<String>();
+    private Set<String> entryNames = new HashSet<String>();
+
+    // holds the compressed bytes not read yet. it is reset whenever it has been read through.
+    private Buffer buffer = new Buffer();
+    private ZipOutputStream zipOutputStream = new ZipOutputStream(buffer);
+    private int position = 0;
+
+    // the resource whose content is being copied to the archive, if any
+    private Resource entryResource;
+    private InputStream entryContent;
+    private byte[] chunk = new byte[CHUNK_SIZE];
+
+    private boolean finished = false;
+
+    public DependencyBundleInputStream(String path, UserRegistry registry) {
+        this.registry = registry;
+        visitedPaths.add(path);
+        pendingPaths.add(path);
+    }
+
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : (b[0] & 0xff);
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == buffer.size()) {
+            if (finished) {
+                return -1;
+            }
+            buffer.reset();
+            position = 0;
+            fill();
+        }
+        int count = Math.min(len, buffer.size() - position);
+        System.arraycopy(buffer.getBytes(), position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    public int available() throws IOException {
+        return buffer.size() - position;
+    }
+
+    public void close() throws IOException {
+        finished = true;
+        pendingPaths.clear();
+        closeEntryContent();
+    }
+
+    /**
+     * Moves the archive a step further: copies the next chunk of the current entry, starts the
+     * next entry or ends the archive. The step may not produce any compressed bytes.
+     */
+    private void fill() throws IOException {
+        if (entryContent != null) {
+            int count = entryContent.read(chunk);
+            if (count == -1) {
+                closeEntryContent();
+                zipOutputStream.closeEntry();
+            } else {
+                zipOutputStream.write(chunk, 0, count);
+            }
+        } else if (!pendingPaths.isEmpty()) {
+            try {
+                // the first path is the resource itself, the rest are its dependencies
+                addEntry(pendingPaths.removeFirst(), entryNames.isEmpty());
+            } catch (RegistryException e) {
+                String msg = "Failed to add the resource to the archive of its dependencies. " +
+                        e.getMessage();
+                log.error(msg, e);
+                throw new IOException(msg, e);
+            }
+        } else {
+            zipOutputStream.finish();
+            finished = true;
+        }
+    }
+
+    private void addEntry(String path, boolean isMasterArtifact)
+            throws RegistryException, IOException {
+        Resource resource;
+        try {
+            resource = registry.get(path);
+        } catch (ResourceNotFoundException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Skipping the missing dependency " + path);
+            }
+            return;
+        }
+        if (resource instanceof Collection) {
+            resource.discard();
+            return;
+        }
+
+        for (Association association : registry.getAssociations(path, DEPENDS)) {
+            String destinationPath = association.getDestinationPath();
+            if (destinationPath != null && DEPENDS.equals(association.getAssociationType())
+                    && path.equals(association.getSourcePath())
+                    && visitedPaths.add(destinationPath)) {
+                pendingPaths.add(destinationPath);
+            }
+        }
+
+        String resourceName = RegistryUtils.getResourceName(path);
+        String entryName = isMasterArtifact ? resourceName : DEPENDENCIES_DIR + resourceName;
+        if (!entryNames.add(entryName)) {
+            log.warn("Skipping " + path + ", as the archive already has an entry named " +
+                    entryName);
+            resource.discard();
+            return;
+        }
+        zipOutputStream.putNextEntry(new ZipEntry(entryName));
+
+        if (path.endsWith(".wsdl") || path.endsWith(".xsd")) {
+            InputStream contentStream = resource.getContentStream();
+            try {
+                if (contentStream != null) {
+                    OMElement element = AXIOMUtil.stringToOM(
+                            new String(IOUtils.toByteArray(contentStream)));
+                    updateSchemaImports(element, isMasterArtifact);
+                    updateWSDLImports(element, isMasterArtifact);
+                    zipOutputStream.write(element.toString().getBytes());
+                }
+            } catch (XMLStreamException e) {
+                String msg = "Failed to read the imports of " + path + ". " + e.getMessage();
+                log.error(msg, e);
+                throw new RegistryException(msg, e);
+            } catch (JaxenException e) {
+                String msg = "Failed to update the imports of " + path + ". " + e.getMessage();
+                log.error(msg, e);
+                throw new RegistryException(msg, e);
+            } finally {
+                IOUtils.closeQuietly(contentStream);
+                resource.discard();
+            }
+            zipOutputStream.closeEntry();
+        } else {
+            entryContent = resource.getContentStream();
+            if (entryContent == null) {
+                resource.discard();
+                zipOutputStream.closeEntry();
+            } else {
+                entryResource = resource;
+            }
+        }
+    }
+
+    private void closeEntryContent() {
+        IOUtils.closeQuietly(entryContent);
+        entryContent = null;
+        if (entryResource != null) {
+            entryResource.discard();
+            entryResource = null;
+        }
+    }
+
+    private static OMElement updateSchemaImports(OMElement omElement,boolean isMasterArtifact) throws JaxenException {
+
+        AXIOMXPath xPath = new AXIOMXPath("//xs:schema/xs:import[@schemaLocation]");
+//        "http://schemas.xmlsoap.org/wsdl/"
+        xPath.addNamespace("xs", "http://www.w3.org/2001/XMLSchema");
+        Object result = xPath.evaluate(omElement);
+        if(!(result instanceof ArrayList)){
+         return omElement;
+        }
+        List list = (ArrayList)result;
+        for (Object obj : list) {
+            OMElement _import = (OMElement) obj;
+            OMAttribute attribute = _import.getAttribute(new QName("schemaLocation"));
+            String newValue = isMasterArtifact ? "dependencies" + attribute.getAttributeValue().substring(attribute.getAttributeValue().lastIndexOf("/"))
+                    :attribute.getAttributeValue().substring(attribute.getAttributeValue().lastIndexOf("/")+1);
+            attribute.setAttributeValue(newValue);
+        }
+      return omElement;
+    }
+
+    private static OMElement updateWSDLImports(OMElement omElement,boolean isMasterArtifact) throws JaxenException {
+
+        AXIOMXPath xPath = new AXIOMXPath("//wsd:import[@location]");
+        xPath.addNamespace("wsd", "http://schemas.xmlsoap.org/wsdl/");
+
+        Object result = xPath.evaluate(omElement);
+        if(!(result instanceof ArrayList)){
+         return omElement;
+        }
+        List list = (ArrayList) result;
+        for (Object obj : list) {
+            OMElement _import = (OMElement) obj;
+            OMAttribute attribute = _import.getAttribute(new QName("location"));
+            String newValue = isMasterArtifact ? "dependencies" + attribute.getAttributeValue().substring(attribute.getAttributeValue().lastIndexOf("/"))
+                    :attribute.getAttributeValue().substring(attribute.getAttributeValue().lastIndexOf("/")+1);
+            attribute.setAttributeValue(newValue);
+        }
+      return omElement;
+    }
+
+    /**
+     * Gives access to the bytes written, without copying them.
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+
+        private Buffer() {
+            super(CHUNK_SIZE * 2);
+        }
+
+        private byte[] getBytes() {
+            return buf;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.registry.core.session.UserRegistry;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.ResourceImpl;
 import org.wso2.carbon.registry.core.utils.RegistryUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -33,12 +34,28 @@ import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 public class ResourceServlet extends HttpServlet {
 
     private static final Log log = LogFactory.getLog(ResourceServlet.class);
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // a request for more ranges than this is answered with the whole content.
+    private static final int MAX_RANGES = 16;
+
+    private static final String BOUNDARY = "REGISTRY_BYTE_RANGES";
+
+    // the end of the content is looked for this far into a single range, so that a range
+    // running past it is answered with the bytes and the length there are.
+    private static final int MAX_READ_AHEAD = 16 * BUFFER_SIZE;
+
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
@@ -69,14 +86,39 @@ public class ResourceServlet extends HttpServlet {
                 return;
             }
 
-            response.setDateHeader("Last-Modified", resource.getLastModified().getTime());
+            String eTag = getETag(resource);
+            long lastModified = resource.getLastModified() != null ?
+                    resource.getLastModified().getTime() : -1;
+            response.setHeader("ETag", eTag);
+            if (lastModified != -1) {
+                response.setDateHeader("Last-Modified", lastModified);
+            }
+            if (isNotModified(request, eTag, lastModified)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                resource.discard();
+                return;
+            }
+            response.setHeader("Accept-Ranges", "bytes");
 
+            String contentType;
             if (resource.getMediaType() != null && resource.getMediaType().length() > 0) {
-                response.setContentType(resource.getMediaType());
+                contentType = resource.getMediaType();
+                response.setContentType(contentType);
             } else {
                 response.setHeader(
                         "Content-Disposition", "attachment; filename=" + RegistryUtils.getResourceName(path));
-                response.setContentType("application/download");
+                contentType = "application/download";
+                response.setContentType(contentType);
+            }
+
+            String range = request.getHeader("Range");
+            if (range != null && isRangeApplicable(request, eTag, lastModified)) {
+                List<long[]> ranges = getRanges(range);
+                if (ranges != null) {
+                    writeRanges(ranges, resource, path, contentType, response);
+                    resource.discard();
+                    return;
+                }
             }
 
             InputStream contentStream = resource.getContentStream();
@@ -84,7 +126,7 @@ public class ResourceServlet extends HttpServlet {
 
                 try {
                     ServletOutputStream servletOutputStream = response.getOutputStream();
-                    byte[] contentChunk = new byte[1024];
+                    byte[] contentChunk = new byte[BUFFER_SIZE];
                     int byteCount;
                     while ((byteCount = contentStream.read(contentChunk)) != -1) {
                         servletOutputStream.write(contentChunk, 0, byteCount);
@@ -102,6 +144,7 @@ public class ResourceServlet extends HttpServlet {
                 if (content != null) {
 
                     if (content instanceof byte[]) {
+                        response.setContentLength(((byte[]) content).length);
                         ServletOutputStream servletOutputStream = response.getOutputStream();
                         servletOutputStream.write((byte[])content);
                         response.flushBuffer();
@@ -123,4 +166,241 @@ public class ResourceServlet extends HttpServlet {
             return;
         }
     }
+
+    private static String getETag(Resource resource) {
+        long versionNumber = 0;
+        if (resource instanceof ResourceImpl) {
+            versionNumber = ((ResourceImpl) resource).getVersionNumber();
+        }
+        long lastModified = resource.getLastModified() != null ? resource.getLastModified().getTime() : 0;
+        return "\"" + versionNumber + "-" + lastModified + "\"";
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, String eTag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            // If-Modified-Since is not looked at when the client has an entity tag.
+            return matches(ifNoneMatch, eTag);
+        }
+        long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+        // HTTP dates are precise to the second.
+        return ifModifiedSince != -1 && lastModified != -1 &&
+                lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static boolean isRangeApplicable(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.trim().startsWith("\"")) {
+            return ifRange.trim().equals(eTag);
+        }
+        long ifRangeDate = getDateHeader(request, "If-Range");
+        return ifRangeDate != -1 && lastModified != -1 && lastModified / 1000 == ifRangeDate / 1000;
+    }
+
+    private static boolean matches(String entityTags, String eTag) {
+        for (String entityTag : entityTags.split(",")) {
+            entityTag = entityTag.trim();
+            if (entityTag.startsWith("W/")) {
+                entityTag = entityTag.substring(2);
+            }
+            if (entityTag.equals("*") || entityTag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            // a malformed date is treated as if the header was not sent.
+            return -1;
+        }
+    }
+
+    /**
+     * Parses a byte range header into the first and last positions of each range, sorted and
+     * with overlapping or adjacent ranges merged. The length of the content is not known without
+     * reading all of it, so only ranges with both positions given are served. Returns null if
+     * the header cannot be parsed, asks for too many ranges or for a range counted from the end
+     * of the content, in which case the whole content is sent.
+     */
+    private static List<long[]> getRanges(String range) {
+        if (!range.startsWith("bytes=")) {
+            return null;
+        }
+        String[] rangeSpecs = range.substring("bytes=".length()).split(",");
+        if (rangeSpecs.length > MAX_RANGES) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<long[]>();
+        for (String rangeSpec : rangeSpecs) {
+            rangeSpec = rangeSpec.trim();
+            int dash = rangeSpec.indexOf('-');
+            if (dash <= 0 || dash == rangeSpec.length() - 1) {
+                return null;
+            }
+            long first;
+            long last;
+            try {
+                first = Long.parseLong(rangeSpec.substring(0, dash));
+                last = Long.parseLong(rangeSpec.substring(dash + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (first < 0 || last < first) {
+                return null;
+            }
+            ranges.add(new long[]{first, last});
+        }
+        return coalesce(ranges);
+    }
+
+    // sorts the ranges and merges those which overlap or are adjacent, so that each byte is sent
+    // once and the content can be read in a single pass.
+    private static List<long[]> coalesce(List<long[]> ranges) {
+        Collections.sort(ranges, new Comparator<long[]>() {
+            public int compare(long[] range1, long[] range2) {
+                return range1[0] < range2[0] ? -1 : (range1[0] == range2[0] ? 0 : 1);
+            }
+        });
+        List<long[]> coalesced = new ArrayList<long[]>();
+        long[] current = null;
+        for (long[] byteRange : ranges) {
+            if (current != null && byteRange[0] <= current[1] + 1) {
+                current[1] = Math.max(current[1], byteRange[1]);
+            } else {
+                current = byteRange;
+                coalesced.add(current);
+            }
+        }
+        return coalesced;
+    }
+
+    /**
+     * Writes the given ranges of the content. The first range is reached before the headers are
+     * committed, so content ending before it is answered as not satisfiable. The end of the
+     * content is looked for within a single range, and found there, is sent in the
+     * <code>Content-Range</code> header as the length of the content, which is otherwise unknown.
+     */
+    private static void writeRanges(List<long[]> ranges, Resource resource, String path,
+                                    String contentType, HttpServletResponse response)
+            throws RegistryException, IOException {
+        InputStream in = resource.getContentStream();
+        if (in == null) {
+            throw new IOException("Resource " + path + " has no content");
+        }
+        try {
+            long[] firstRange = ranges.get(0);
+            long skipped = skip(in, firstRange[0]);
+            if (skipped < firstRange[0]) {
+                response.setHeader("Content-Range", "bytes */" + skipped);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (ranges.size() == 1) {
+                long length = firstRange[1] - firstRange[0] + 1;
+                byte[] readAhead = new byte[(int) Math.min(MAX_READ_AHEAD, length)];
+                int readAheadCount = read(in, readAhead);
+                if (readAheadCount == 0) {
+                    response.setHeader("Content-Range", "bytes */" + firstRange[0]);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                if (readAheadCount < readAhead.length) {
+                    // the content ends within the range.
+                    long last = firstRange[0] + readAheadCount - 1;
+                    response.setHeader("Content-Range",
+                            "bytes " + firstRange[0] + "-" + last + "/" + (last + 1));
+                    length = readAheadCount;
+                } else {
+                    response.setHeader("Content-Range",
+                            "bytes " + firstRange[0] + "-" + firstRange[1] + "/*");
+                }
+                // the length of a range may not fit the int of setContentLength.
+                response.setHeader("Content-Length", Long.toString(length));
+                ServletOutputStream servletOutputStream = response.getOutputStream();
+                servletOutputStream.write(readAhead, 0, readAheadCount);
+                copyFully(in, servletOutputStream, length - readAheadCount, path);
+                response.flushBuffer();
+                servletOutputStream.flush();
+            } else {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setContentType("multipart/byteranges; boundary=" + BOUNDARY);
+                ServletOutputStream servletOutputStream = response.getOutputStream();
+                // the ranges are sorted and do not overlap, so each one starts after the last.
+                long position = firstRange[0];
+                for (long[] byteRange : ranges) {
+                    servletOutputStream.print("\r\n--" + BOUNDARY + "\r\n");
+                    servletOutputStream.print("Content-Type: " + contentType + "\r\n");
+                    servletOutputStream.print("Content-Range: bytes " + byteRange[0] + "-" +
+                            byteRange[1] + "/*\r\n\r\n");
+                    skipFully(in, byteRange[0] - position, path);
+                    copyFully(in, servletOutputStream, byteRange[1] - byteRange[0] + 1, path);
+                    position = byteRange[1] + 1;
+                }
+                servletOutputStream.print("\r\n--" + BOUNDARY + "--\r\n");
+                response.flushBuffer();
+                servletOutputStream.flush();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    // skips the given number of bytes, returning fewer only where the content ends.
+    private static long skip(InputStream in, long n) throws IOException {
+        long remaining = n;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    break;
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+        return n - remaining;
+    }
+
+    // fills the buffer, returning fewer bytes only where the content ends.
+    private static int read(InputStream in, byte[] buffer) throws IOException {
+        int count = 0;
+        while (count < buffer.length) {
+            int byteCount = in.read(buffer, count, buffer.length - count);
+            if (byteCount == -1) {
+                break;
+            }
+            count += byteCount;
+        }
+        return count;
+    }
+
+    // the headers of a partial response are committed by now, so content ending before a range
+    // was sent must fail the response rather than send the wrong bytes.
+    private static void skipFully(InputStream in, long n, String path) throws IOException {
+        if (skip(in, n) < n) {
+            throw new IOException("Content of " + path + " ended before the requested range");
+        }
+    }
+
+    private static void copyFully(InputStream in, OutputStream out, long length, String path)
+            throws IOException {
+        byte[] contentChunk = new byte[(int) Math.min(BUFFER_SIZE, length)];
+        long remaining = length;
+        while (remaining > 0) {
+            int byteCount = in.read(contentChunk, 0, (int) Math.min(contentChunk.length, remaining));
+            if (byteCount == -1) {
+                throw new IOException("Content of " + path + " ended within the requested range");
+            }
+            out.write(contentChunk, 0, byteCount);
+            remaining -= byteCount;
+        }
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ *  Copyright (c) WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.registry.search.handlers;
+
+import org.wso2.carbon.registry.core.ResourcePath;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.jdbc.handlers.Handler;
+import org.wso2.carbon.registry.core.jdbc.handlers.RequestContext;
+import org.wso2.carbon.registry.core.session.CurrentSession;
+import org.wso2.carbon.registry.search.services.utils.AssociationIndex;
+
+/**
+ * Keeps the {@link AssociationIndex} in line with the registry, by applying each association
+ * added or removed, and dropping the paths affected by other changes of the association graph,
+ * once the change has been made.
+ */
+public class AssociationIndexHandler extends Handler {
+
+    private AssociationIndex index = AssociationIndex.getInstance();
+
+    public void addAssociation(RequestContext requestContext) throws RegistryException {
+        index.addAssociation(CurrentSession.getTenantId(),
+                getPathWithoutVersion(requestContext.getSourcePath()),
+                getPathWithoutVersion(requestContext.getTargetPath()),
+                requestContext.getAssociationType());
+    }
+
+    public void removeAssociation(RequestContext requestContext) throws RegistryException {
+        index.removeAssociation(CurrentSession.getTenantId(),
+                getPathWithoutVersion(requestContext.getSourcePath()),
+                getPathWithoutVersion(requestContext.getTargetPath()),
+                requestContext.getAssociationType());
+    }
+
+    public void delete(RequestContext requestContext) throws RegistryException {
+        index.invalidateTree(CurrentSession.getTenantId(),
+                requestContext.getResourcePath().getPath());
+    }
+
+    public void restore(RequestContext requestContext) throws RegistryException {
+        index.invalidateTree(CurrentSession.getTenantId(),
+                requestContext.getResourcePath().getPath());
+    }
+
+    public String move(RequestContext requestContext) throws RegistryException {
+        invalidateTrees(requestContext);
+        return null;
+    }
+
+    public String rename(RequestContext requestContext) throws RegistryException {
+        invalidateTrees(requestContext);
+        return null;
+    }
+
+    public String copy(RequestContext requestContext) throws RegistryException {
+        // associations are copied along with the resources.
+        index.invalidateTree(CurrentSession.getTenantId(), requestContext.getTargetPath());
+        return null;
+    }
+
+    private void invalidateTrees(RequestContext requestContext) {
+        int tenantId = CurrentSession.getTenantId();
+        index.invalidateTree(tenantId, requestContext.getSourcePath());
+        index.invalidateTree(tenantId, requestContext.getTargetPath());
+    }
+
+    private String getPathWithoutVersion(String pathWithVersion) {
+        ResourcePath path = new ResourcePath(pathWithVersion);
+        return path.getPath();
+    }
+}
@@ -24,12 +24,15 @@ import org.wso2.carbon.CarbonConstants;
 import org.wso2.carbon.registry.common.AttributeSearchService;
 import org.wso2.carbon.registry.common.ResourceData;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.jdbc.handlers.HandlerLifecycleManager;
+import org.wso2.carbon.registry.core.jdbc.handlers.filters.URLMatcher;
 import org.wso2.carbon.registry.core.jdbc.queries.QueryProcessorManager;
 import org.wso2.carbon.registry.core.service.RegistryService;
 import org.wso2.carbon.registry.core.session.UserRegistry;
 import org.wso2.carbon.registry.indexing.service.ContentSearchService;
 import org.wso2.carbon.registry.search.beans.AdvancedSearchResultsBean;
 import org.wso2.carbon.registry.search.beans.CustomSearchParameterBean;
+import org.wso2.carbon.registry.search.handlers.AssociationIndexHandler;
 import org.wso2.carbon.registry.search.services.MetadataSearchService;
 import org.wso2.carbon.registry.search.services.XPathQueryProcessor;
 import org.wso2.carbon.registry.search.services.utils.AdvancedSearchResultsBeanPopulator;
@@ -78,6 +81,21 @@ public class RegistryMgtUISearchServiceComponent {
         } catch (RegistryException e) {
             log.error("Unable to registry query processors", e);
         }
+        try {
+            URLMatcher filter = new URLMatcher();
+            filter.setAddAssociationPattern(".*");
+            filter.setRemoveAssociationPattern(".*");
+            filter.setDeletePattern(".*");
+            filter.setMovePattern(".*");
+            filter.setRenamePattern(".*");
+            filter.setCopyPattern(".*");
+            filter.setRestorePattern(".*");
+            dataHolder.getRegistryService().getConfigSystemRegistry().getRegistryContext()
+                    .getHandlerManager().addHandler(null, filter, new AssociationIndexHandler(),
+                    HandlerLifecycleManager.DEFAULT_REPORTING_HANDLER_PHASE);
+        } catch (RegistryException e) {
+            log.error("Unable to register the association index handler", e);
+        }
         log.debug("******* Registry Search bundle is activated ******* ");
     }
 
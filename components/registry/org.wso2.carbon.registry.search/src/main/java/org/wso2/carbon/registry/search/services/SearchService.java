@@ -16,7 +16,6 @@
 
 package org.wso2.carbon.registry.search.services;
 
-import org.apache.axis2.context.MessageContext;
 import org.apache.commons.lang.StringUtils;
 import org.wso2.carbon.context.CarbonContext;
 import org.wso2.carbon.registry.admin.api.search.ISearchService;
@@ -25,8 +24,6 @@ import org.wso2.carbon.registry.common.ResourceData;
 import org.wso2.carbon.registry.common.services.RegistryAbstractAdmin;
 import org.wso2.carbon.registry.core.RegistryConstants;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
-import org.wso2.carbon.registry.core.pagination.PaginationContext;
-import org.wso2.carbon.registry.core.pagination.PaginationUtils;
 import org.wso2.carbon.registry.core.session.UserRegistry;
 import org.wso2.carbon.registry.core.utils.RegistryUtils;
 import org.wso2.carbon.registry.indexing.IndexingConstants;
@@ -40,8 +37,6 @@ import org.wso2.carbon.registry.search.services.utils.CustomSearchParameterPopul
 import org.wso2.carbon.registry.search.services.utils.SearchResultsBeanPopulator;
 import org.wso2.carbon.registry.search.services.utils.SearchUtils;
 
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -119,11 +114,12 @@ public class SearchService extends RegistryAbstractAdmin implements
         }
         advancedSearchResultsBean = new AdvancedSearchResultsBean();
         if (advanceSearchResourceData != null && advanceSearchResourceData.length > 0) {
-            advanceSearchResourceData = getSortedSearchResults(advanceSearchResourceData);
+            // The index sorts and pages the results as given in the pagination headers, and sets
+            // the total number of matches as the row count, so the results are returned as they are.
             advancedSearchResultsBean.setResourceDataList(advanceSearchResourceData);
 
             if (!isEmptyResourceDataList(advancedSearchResultsBean)) {
-                return getPaginatedResult(advancedSearchResultsBean);
+                return advancedSearchResultsBean;
             }
 
         }
@@ -132,120 +128,6 @@ public class SearchService extends RegistryAbstractAdmin implements
     }
 
 
-    /**
-     * Method to sort search results based on created date, author and rating.
-     *
-     * @param results   search results
-     * @return          sorted search results based on sort criteria
-     */
-    private ResourceData[] getSortedSearchResults(ResourceData[] results) {
-        MessageContext messageContext = MessageContext.getCurrentMessageContext();
-        if (messageContext != null && PaginationUtils.isPaginationHeadersExist(messageContext)) {
-
-            String createdDate = "created";
-            String author = "author";
-            String rating = "rating";
-            try {
-                PaginationContext paginationContext = PaginationUtils.initPaginationContext(messageContext);
-
-                String sortOrder = paginationContext.getSortOrder();
-                String sortBy = paginationContext.getSortBy();
-                if (sortBy != null && sortOrder != null) {
-                    // Sort by created date
-                    if (createdDate.equals(sortBy)) {
-                        sortReultsOnCreatedDate(results, sortOrder);
-                    }
-                    // Sort by author
-                    else if (author.equals(sortBy)) {
-                        sortResultsOnAuthor(results, sortOrder);
-                    }
-                    // Sort by average rating
-                    else if (rating.equals(sortBy)) {
-                        sortResultsOnrating(results, sortOrder);
-                    }
-                }
-
-            } finally {
-                PaginationContext.destroy();
-            }
-            return results;
-        } else {
-            return results;
-        }
-    }
-
-
-    /**
-     * Method to sort search results based on created date.
-     *
-     * @param results   search results
-     * @param sortOrder ascending or descending
-     * @return          sorted search results based on created date
-     */
-    private ResourceData[] sortReultsOnCreatedDate(ResourceData[] results, final String sortOrder) {
-        final String sortCriteria = "ASC";
-        Arrays.sort(results, new Comparator<ResourceData>() {
-            @Override
-            public int compare(ResourceData o1, ResourceData o2) {
-                if (sortCriteria.equals(sortOrder)) {
-                    return o1.getCreatedOn().compareTo(o2.getCreatedOn());
-                } else {
-                    return o2.getCreatedOn().compareTo(o1.getCreatedOn());
-                }
-            }
-        });
-
-        return results;
-    }
-
-
-    /**
-     * Method to sort search results based on author.
-     *
-     * @param results   search results
-     * @param sortOrder ascending or descending
-     * @return          sorted search results based on author
-     */
-    private ResourceData[] sortResultsOnAuthor(ResourceData[] results, final String sortOrder) {
-        final String sortCriteria = "ASC";
-        Arrays.sort(results, new Comparator<ResourceData>() {
-            @Override
-            public int compare(ResourceData o1, ResourceData o2) {
-                if (sortCriteria.equals(sortOrder)) {
-                    return o1.getAuthorUserName().compareTo(o2.getAuthorUserName());
-                } else {
-                    return o2.getAuthorUserName().compareTo(o1.getAuthorUserName());
-                }
-            }
-        });
-        return results;
-    }
-
-
-    /**
-     * Method to sort search results based on average rating.
-     *
-     * @param results   search results
-     * @param sortOrder ascending or descending
-     * @return          sorted search results based on average rating
-     */
-    private ResourceData[] sortResultsOnrating(ResourceData[] results, final String sortOrder) {
-        final String sortCriteria = "ASC";
-        Arrays.sort(results, new Comparator<ResourceData>() {
-            @Override
-            public int compare(ResourceData o1, ResourceData o2) {
-                Float rating1 = Float.valueOf(o1.getAverageRating());
-                Float rating2 = Float.valueOf(o2.getAverageRating());
-                if (sortCriteria.equals(sortOrder)) {
-                    return rating1.compareTo(rating2);
-                } else {
-                    return rating2.compareTo(rating1);
-                }
-            }
-        });
-        return results;
-    }
-
     /**
      * Method to check whether the result set is empty
      *
@@ -413,53 +295,6 @@ public class SearchService extends RegistryAbstractAdmin implements
         return advanceSearchAttributes;
     }
 
-    /**
-     * Method to get the paginated result for advance search
-     *
-     * @param advancedSearchResultsBean AdvancedSearchResultsBean
-     * @return paginated result
-     */
-    private AdvancedSearchResultsBean getPaginatedResult(AdvancedSearchResultsBean advancedSearchResultsBean) {
-        ResourceData[] paginatedResult;
-        MessageContext messageContext = MessageContext.getCurrentMessageContext();
-        if (messageContext != null && PaginationUtils.isPaginationHeadersExist(messageContext)
-                && advancedSearchResultsBean.getResourceDataList() != null) {
-
-            int rowCount = advancedSearchResultsBean.getResourceDataList().length;
-            try {
-                PaginationUtils.setRowCount(messageContext, Integer.toString(rowCount));
-                PaginationContext paginationContext = PaginationUtils.initPaginationContext(messageContext);
-
-                int start = paginationContext.getStart();
-                int count = paginationContext.getCount();
-
-
-                int startIndex;
-                if (start == 1) {
-                    startIndex = 0;
-                } else {
-                    startIndex = start;
-                }
-                if (rowCount < start + count) {
-                    paginatedResult = new ResourceData[rowCount - startIndex];
-                    System.arraycopy(advancedSearchResultsBean.getResourceDataList(), startIndex, paginatedResult, 0,
-                            (rowCount - startIndex));
-                } else {
-                    paginatedResult = new ResourceData[count];
-                    System.arraycopy(advancedSearchResultsBean.getResourceDataList(), startIndex, paginatedResult, 0,
-                            count);
-                }
-                advancedSearchResultsBean.setResourceDataList(paginatedResult);
-                return advancedSearchResultsBean;
-
-            } finally {
-                PaginationContext.destroy();
-            }
-        } else {
-            return advancedSearchResultsBean;
-        }
-    }
-
     /* (non-Javadoc)
      * @see org.wso2.carbon.registry.search.services.ISearchService#getMediaTypeSearch(java.lang.String)
 	 */
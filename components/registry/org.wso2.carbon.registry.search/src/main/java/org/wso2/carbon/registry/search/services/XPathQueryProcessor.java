@@ -25,6 +25,7 @@ import org.wso2.carbon.registry.core.dataaccess.QueryProcessor;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.registry.core.session.CurrentSession;
 import org.wso2.carbon.registry.core.utils.MediaTypesUtils;
+import org.wso2.carbon.registry.search.services.utils.AssociationIndex;
 
 import java.util.*;
 
@@ -34,8 +35,13 @@ public class XPathQueryProcessor implements QueryProcessor {
 
     private static final String NO_CONTAINMENT_SUFFIX = "(.)";
 
+    // number of paths whose contained resources are looked up with a single query.
+    private static final int CONTAINMENT_BATCH_SIZE = 100;
+
     private MetadataSearchService service;
 
+    private AssociationIndex associationIndex = AssociationIndex.getInstance();
+
     public XPathQueryProcessor(MetadataSearchService service) {
         this.service = service;
     }
@@ -83,38 +89,30 @@ public class XPathQueryProcessor implements QueryProcessor {
                     }
                     Set<String> associations = new HashSet<String>();
                     Set<String> temp = new HashSet<String>();
+                    int tenantId = CurrentSession.getTenantId();
+                    boolean containment = !relation.endsWith(NO_CONTAINMENT_SUFFIX);
+                    String associationType = containment ? relation : relation.substring(0,
+                            relation.length() - NO_CONTAINMENT_SUFFIX.length());
                     for (String path : paths) {
-                        Association[] list;
-                        if (relation.endsWith(NO_CONTAINMENT_SUFFIX)) {
-                            list = registry.getAssociations(path, relation.substring(0,
-                                    relation.length() - NO_CONTAINMENT_SUFFIX.length()));
-                        } else {
-                            list = registry.getAssociations(path, relation);
-                            String resourcePath = path + RegistryConstants.PATH_SEPARATOR +
-                                    relation;
-                            if (registry.resourceExists(resourcePath)) {
-                                if (i == parts.length - 1) {
-                                    // if this is the last part, then add children.
-                                    Resource containedResource = registry.get(resourcePath);
-                                    if (containedResource instanceof Collection) {
-                                        String[] children =
-                                                ((Collection) containedResource).getChildren();
-                                        if (children != null) {
-                                            temp.addAll(Arrays.asList(children));
-                                        }
-                                    } else {
-                                        temp.add(resourcePath);
+                        associations.addAll(associationIndex.getTargets(registry, tenantId, path,
+                                associationType));
+                    }
+                    if (containment) {
+                        for (String resourcePath : getContainedPaths(registry, paths, relation)) {
+                            if (i == parts.length - 1) {
+                                // if this is the last part, then add children.
+                                Resource containedResource = registry.get(resourcePath);
+                                if (containedResource instanceof Collection) {
+                                    String[] children =
+                                            ((Collection) containedResource).getChildren();
+                                    if (children != null) {
+                                        temp.addAll(Arrays.asList(children));
                                     }
                                 } else {
                                     temp.add(resourcePath);
                                 }
-                            }
-                        }
-                        for (Association association : list) {
-                            if (association.getSourcePath().equals(path) &&
-                                    association.getDestinationPath().startsWith(
-                                            RegistryConstants.ROOT_PATH)) {
-                                associations.add(association.getDestinationPath());
+                            } else {
+                                temp.add(resourcePath);
                             }
                         }
                     }
@@ -139,6 +137,52 @@ public class XPathQueryProcessor implements QueryProcessor {
         }
     }
 
+    /**
+     * Finds which of the given paths contain a resource or collection of the given name, with a
+     * query for each batch of paths instead of a lookup for each path.
+     *
+     * @param registry the registry to query
+     * @param paths    the paths of the containing collections
+     * @param name     the name of the contained resource or collection
+     * @return the paths of the contained resources and collections that exist
+     * @throws RegistryException if the query failed
+     */
+    protected Set<String> getContainedPaths(Registry registry, Set<String> paths, String name)
+            throws RegistryException {
+        Set<String> containedPaths = new HashSet<String>();
+        List<String> batch = new ArrayList<String>(CONTAINMENT_BATCH_SIZE);
+        for (Iterator<String> iterator = paths.iterator(); iterator.hasNext(); ) {
+            batch.add(iterator.next());
+            if (batch.size() == CONTAINMENT_BATCH_SIZE || !iterator.hasNext()) {
+                StringBuilder parents = new StringBuilder();
+                StringBuilder collections = new StringBuilder();
+                Map<String, Object> parameters = new HashMap<String, Object>();
+                int index = 1;
+                parameters.put(Integer.toString(index++), name);
+                for (String path : batch) {
+                    parents.append(parents.length() == 0 ? "?" : ",?");
+                    parameters.put(Integer.toString(index++), path);
+                }
+                for (String path : batch) {
+                    collections.append(collections.length() == 0 ? "?" : ",?");
+                    parameters.put(Integer.toString(index++),
+                            (path.endsWith(RegistryConstants.PATH_SEPARATOR) ?
+                                    path : path + RegistryConstants.PATH_SEPARATOR) + name);
+                }
+                parameters.put("query", "SELECT R.REG_PATH_ID, R.REG_NAME FROM REG_RESOURCE R, " +
+                        "REG_PATH P WHERE R.REG_PATH_ID=P.REG_PATH_ID AND ((R.REG_NAME=? AND " +
+                        "P.REG_PATH_VALUE IN (" + parents + ")) OR (R.REG_NAME IS NULL AND " +
+                        "P.REG_PATH_VALUE IN (" + collections + ")))");
+                String[] results = (String[]) registry.executeQuery(null, parameters).getContent();
+                if (results != null) {
+                    containedPaths.addAll(Arrays.asList(results));
+                }
+                batch.clear();
+            }
+        }
+        return containedPaths;
+    }
+
     protected Set<String> executeQueryForPart(String part) throws RegistryException {
         Set<String> paths = new HashSet<String>();
         String[] subParts = part.split("\\[");
@@ -0,0 +1,350 @@
+/*
+ *  Copyright (c) WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.registry.search.services.utils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.ActionConstants;
+import org.wso2.carbon.registry.core.Association;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.RegistryConstants;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.utils.AuthorizationUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory index of the association graph of each tenant, used to evaluate association
+ * steps of XPath queries without going to the database for every path. The outgoing
+ * associations of a path are loaded once and kept, along with the reverse edges. Associations
+ * added or removed afterwards are applied to the paths already loaded, and the paths under a
+ * resource which is deleted, moved, renamed or restored are loaded again when next needed.
+ * <p/>
+ * The graph holds every association of the tenant, and is shared by its users. The targets a
+ * user is not allowed to read are left out when the graph is queried, so that a change of
+ * permissions applies to the next query.
+ */
+public class AssociationIndex {
+
+    /* The system property giving the time in milliseconds after which a loaded path is loaded
+       again, bounding the time a change made through another node of a cluster goes unnoticed */
+    public static final String MAX_AGE_PROPERTY = "registry.search.association.index.maxAge";
+
+    private static final Log log = LogFactory.getLog(AssociationIndex.class);
+
+    // number of paths whose associations are kept per tenant.
+    private static final int MAX_NODES = 100000;
+
+    private static final int DEFAULT_MAX_AGE = 10 * 60 * 1000;
+
+    private static final long maxAge = Integer.getInteger(MAX_AGE_PROPERTY, DEFAULT_MAX_AGE);
+
+    private static final AssociationIndex instance = new AssociationIndex();
+
+    // tenant -> graph
+    private final Map<Integer, TenantGraph> graphs = new ConcurrentHashMap<Integer, TenantGraph>();
+
+    private AssociationIndex() {
+    }
+
+    public static AssociationIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the paths the given path is associated to with the given association type, which
+     * the user of the current session is allowed to read.
+     *
+     * @param registry the registry to load the associations of the path from
+     * @param tenantId the tenant the registry belongs to
+     * @param path     the source path of the associations
+     * @param type     the association type
+     * @return the destination paths of the associations
+     * @throws RegistryException if loading the associations or checking the permissions failed
+     */
+    public Set<String> getTargets(Registry registry, int tenantId, String path, String type)
+            throws RegistryException {
+        TenantGraph graph = getGraph(tenantId);
+        Set<String> targets = graph.getTargets(path, type);
+        if (targets == null) {
+            long version = graph.getVersion();
+            Map<String, Set<String>> node = load(registry, path);
+            if (node.containsKey(type)) {
+                // the node is changed in the graph once it is put there.
+                targets = new HashSet<String>(node.get(type));
+            }
+            graph.put(path, node, version);
+        }
+        if (targets == null || targets.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> authorizedTargets = new HashSet<String>();
+        for (String target : targets) {
+            if (AuthorizationUtils.authorize(target, ActionConstants.GET)) {
+                authorizedTargets.add(target);
+            }
+        }
+        return authorizedTargets;
+    }
+
+    /**
+     * Records an association added to the registry.
+     */
+    public void addAssociation(int tenantId, String source, String target, String type) {
+        TenantGraph graph = graphs.get(tenantId);
+        if (graph != null && target.startsWith(RegistryConstants.ROOT_PATH)) {
+            graph.addEdge(source, target, type);
+        }
+    }
+
+    /**
+     * Records an association removed from the registry.
+     */
+    public void removeAssociation(int tenantId, String source, String target, String type) {
+        TenantGraph graph = graphs.get(tenantId);
+        if (graph != null) {
+            graph.removeEdge(source, target, type);
+        }
+    }
+
+    /**
+     * Drops what is known of the associations of the given path, the paths under it, and the
+     * paths associated to any of these.
+     */
+    public void invalidateTree(int tenantId, String path) {
+        TenantGraph graph = graphs.get(tenantId);
+        if (graph != null) {
+            graph.invalidateTree(path);
+        }
+    }
+
+    private TenantGraph getGraph(int tenantId) {
+        TenantGraph graph = graphs.get(tenantId);
+        if (graph == null) {
+            synchronized (graphs) {
+                graph = graphs.get(tenantId);
+                if (graph == null) {
+                    graph = new TenantGraph();
+                    graphs.put(tenantId, graph);
+                }
+            }
+        }
+        return graph;
+    }
+
+    private Map<String, Set<String>> load(Registry registry, String path)
+            throws RegistryException {
+        Map<String, Set<String>> node = new HashMap<String, Set<String>>();
+        Association[] associations = registry.getAllAssociations(path);
+        if (associations != null) {
+            for (Association association : associations) {
+                // both incoming and outgoing associations are returned, only keep the outgoing.
+                if (association.getSourcePath().equals(path) &&
+                        association.getDestinationPath().startsWith(RegistryConstants.ROOT_PATH)) {
+                    Set<String> targets = node.get(association.getAssociationType());
+                    if (targets == null) {
+                        targets = new HashSet<String>();
+                        node.put(association.getAssociationType(), targets);
+                    }
+                    targets.add(association.getDestinationPath());
+                }
+            }
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Loaded the associations of " + path);
+        }
+        return node;
+    }
+
+    private static class TenantGraph {
+
+        // source -> type -> targets, in access order
+        private final LinkedHashMap<String, Node> nodes =
+                new LinkedHashMap<String, Node>(16, 0.75f, true) {
+                    protected boolean removeEldestEntry(Map.Entry<String, Node> eldest) {
+                        if (size() > MAX_NODES) {
+                            removeReverseEdges(eldest.getKey(), eldest.getValue());
+                            return true;
+                        }
+                        return false;
+                    }
+                };
+
+        // target -> sources, for the sources in the index
+        private final Map<String, Set<String>> reverseEdges = new HashMap<String, Set<String>>();
+
+        // bumped on every change, so that a node loaded concurrently with a change is not kept.
+        private long version = 0;
+
+        private synchronized long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return a copy of the targets, or null if the path is not loaded
+         */
+        private synchronized Set<String> getTargets(String path, String type) {
+            Node node = nodes.get(path);
+            if (node == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - node.loadedTime > maxAge) {
+                removeNode(path);
+                return null;
+            }
+            Set<String> targets = node.targetsByType.get(type);
+            return targets != null ?
+                    new HashSet<String>(targets) : Collections.<String>emptySet();
+        }
+
+        private synchronized void put(String path, Map<String, Set<String>> targetsByType,
+                                      long loadedVersion) {
+            if (loadedVersion != version) {
+                return;
+            }
+            removeNode(path);
+            nodes.put(path, new Node(targetsByType));
+            for (Set<String> targets : targetsByType.values()) {
+                for (String target : targets) {
+                    addReverseEdge(target, path);
+                }
+            }
+        }
+
+        private synchronized void addEdge(String source, String target, String type) {
+            version++;
+            Node node = nodes.get(source);
+            if (node == null) {
+                return;
+            }
+            Set<String> targets = node.targetsByType.get(type);
+            if (targets == null) {
+                targets = new HashSet<String>();
+                node.targetsByType.put(type, targets);
+            }
+            targets.add(target);
+            addReverseEdge(target, source);
+        }
+
+        private synchronized void removeEdge(String source, String target, String type) {
+            version++;
+            Node node = nodes.get(source);
+            if (node == null) {
+                return;
+            }
+            Set<String> targets = node.targetsByType.get(type);
+            if (targets == null || !targets.remove(target)) {
+                return;
+            }
+            if (targets.isEmpty()) {
+                node.targetsByType.remove(type);
+            }
+            for (Set<String> remaining : node.targetsByType.values()) {
+                if (remaining.contains(target)) {
+                    // still associated to the target with another type.
+                    return;
+                }
+            }
+            Set<String> sources = reverseEdges.get(target);
+            if (sources != null) {
+                sources.remove(source);
+                if (sources.isEmpty()) {
+                    reverseEdges.remove(target);
+                }
+            }
+        }
+
+        private synchronized void invalidateTree(String path) {
+            version++;
+            String prefix = path.endsWith(RegistryConstants.PATH_SEPARATOR) ?
+                    path : path + RegistryConstants.PATH_SEPARATOR;
+            Set<String> paths = new HashSet<String>();
+            for (String source : nodes.keySet()) {
+                if (source.equals(path) || source.startsWith(prefix)) {
+                    paths.add(source);
+                }
+            }
+            for (String target : reverseEdges.keySet()) {
+                if (target.equals(path) || target.startsWith(prefix)) {
+                    paths.add(target);
+                }
+            }
+            for (String affected : paths) {
+                removeNode(affected);
+                removeSources(affected);
+            }
+        }
+
+        private void addReverseEdge(String target, String source) {
+            Set<String> sources = reverseEdges.get(target);
+            if (sources == null) {
+                sources = new HashSet<String>();
+                reverseEdges.put(target, sources);
+            }
+            sources.add(source);
+        }
+
+        private void removeSources(String target) {
+            Set<String> sources = reverseEdges.remove(target);
+            if (sources != null) {
+                for (String source : sources) {
+                    removeNode(source);
+                }
+            }
+        }
+
+        private void removeNode(String path) {
+            Node node = nodes.remove(path);
+            if (node != null) {
+                removeReverseEdges(path, node);
+            }
+        }
+
+        private void removeReverseEdges(String path, Node node) {
+            for (Set<String> targets : node.targetsByType.values()) {
+                for (String target : targets) {
+                    Set<String> sources = reverseEdges.get(target);
+                    if (sources != null) {
+                        sources.remove(path);
+                        if (sources.isEmpty()) {
+                            reverseEdges.remove(target);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Node {
+
+        private final long loadedTime = System.currentTimeMillis();
+
+        private final Map<String, Set<String>> targetsByType;
+
+        private Node(Map<String, Set<String>> targetsByType) {
+            this.targetsByType = targetsByType;
+        }
+    }
+}
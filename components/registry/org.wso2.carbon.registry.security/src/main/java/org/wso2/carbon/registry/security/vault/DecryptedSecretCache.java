@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.registry.security.vault;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the secrets decrypted by {@link RegistrySecretRepository}, so that resolving
+ * an alias does not cost an asymmetric decryption each time. A secret is kept along with the
+ * encrypted value it was decrypted from, and is only returned while the vault still holds that
+ * value, so a secret changed through any node or any path of the registry is decrypted again.
+ * Secrets are held as character arrays, which are cleared when they leave the cache.
+ */
+public class DecryptedSecretCache {
+
+    /* The system property giving the number of secrets kept, 0 disabling the cache */
+    public static final String CACHE_SIZE_PROPERTY = "secure.vault.secret.cache.size";
+
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+
+    private static final DecryptedSecretCache instance =
+            new DecryptedSecretCache(Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE));
+
+    private final int maxEntries;
+
+    // tenant id and alias -> secret, in access order
+    private final LinkedHashMap<String, Entry> entries;
+
+    private DecryptedSecretCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxEntries) {
+                    eldest.getValue().clear();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static DecryptedSecretCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the secret decrypted from the given encrypted value of the alias.
+     *
+     * @param tenantId       the tenant the vault belongs to
+     * @param alias          the alias of the secret
+     * @param encryptedValue the encrypted value the vault currently holds for the alias
+     * @return the secret, or null if it is not known or was decrypted from another value
+     */
+    public synchronized String get(int tenantId, String alias, String encryptedValue) {
+        String key = getKey(tenantId, alias);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.encryptedValue.equals(encryptedValue)) {
+            entries.remove(key);
+            entry.clear();
+            return null;
+        }
+        return new String(entry.secret);
+    }
+
+    /**
+     * Keeps the secret decrypted from the given encrypted value of the alias. The cache takes
+     * ownership of the secret array, which must not be used afterwards.
+     */
+    public synchronized void put(int tenantId, String alias, String encryptedValue,
+                                 char[] secret) {
+        if (maxEntries <= 0) {
+            Arrays.fill(secret, '\0');
+            return;
+        }
+        Entry previous = entries.put(getKey(tenantId, alias), new Entry(encryptedValue, secret));
+        if (previous != null) {
+            previous.clear();
+        }
+    }
+
+    /**
+     * Drops the secret of the given alias.
+     */
+    public synchronized void invalidate(int tenantId, String alias) {
+        Entry entry = entries.remove(getKey(tenantId, alias));
+        if (entry != null) {
+            entry.clear();
+        }
+    }
+
+    /**
+     * Drops the secrets of the given tenant, such as when the tenant is unloaded.
+     */
+    public synchronized void invalidate(int tenantId) {
+        String prefix = tenantId + ":";
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix)) {
+                entry.getValue().clear();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops all secrets.
+     */
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            entry.clear();
+        }
+        entries.clear();
+    }
+
+    private static String getKey(int tenantId, String alias) {
+        return tenantId + ":" + alias;
+    }
+
+    private static class Entry {
+
+        private final String encryptedValue;
+
+        private final char[] secret;
+
+        private Entry(String encryptedValue, char[] secret) {
+            this.encryptedValue = encryptedValue;
+            this.secret = secret;
+        }
+
+        private void clear() {
+            Arrays.fill(secret, '\0');
+        }
+    }
+}
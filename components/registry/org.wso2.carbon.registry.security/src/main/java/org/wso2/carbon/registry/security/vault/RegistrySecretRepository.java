@@ -18,6 +18,10 @@
 
 package org.wso2.carbon.registry.security.vault;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Properties;
 
 import org.apache.axis2.AxisFault;
@@ -43,6 +47,8 @@ public class RegistrySecretRepository implements SecretRepository {
     /* Parent secret repository */
     private SecretRepository parentRepository;
 
+    private DecryptedSecretCache secretCache = DecryptedSecretCache.getInstance();
+
     public RegistrySecretRepository() {
         super();
     }
@@ -55,9 +61,10 @@ public class RegistrySecretRepository implements SecretRepository {
     public String getSecret(String alias) {
 
         UserRegistry registry = null;
+        int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
         try {
             registry = SecurityServiceHolder.getInstance().getRegistryService().getConfigSystemRegistry(
-                    CarbonContext.getThreadLocalCarbonContext().getTenantId());
+                    tenantId);
         } catch (RegistryException e) {
             log.error("Can not proceed decyption due to the secret repository intialization error");
             return null;
@@ -78,6 +85,12 @@ public class RegistrySecretRepository implements SecretRepository {
                 return null;
             }
         }
+        String encryptedValue = propertyValue.trim();
+        String cachedText = secretCache.get(tenantId, alias, encryptedValue);
+        if (cachedText != null) {
+            return cachedText;
+        }
+
         DecryptionProvider decyptProvider = CipherInitializer.getInstance().getDecryptionProvider();
 
         if (decyptProvider == null) {
@@ -85,7 +98,14 @@ public class RegistrySecretRepository implements SecretRepository {
             return null;
         }
 
-        String decryptedText = new String(decyptProvider.decrypt(propertyValue.trim().getBytes()));
+        byte[] decryptedBytes = decyptProvider.decrypt(encryptedValue.getBytes());
+        CharBuffer decryptedChars = Charset.defaultCharset().decode(ByteBuffer.wrap(decryptedBytes));
+        Arrays.fill(decryptedBytes, (byte) 0);
+        char[] secret = new char[decryptedChars.remaining()];
+        decryptedChars.get(secret);
+        Arrays.fill(decryptedChars.array(), '\0');
+        String decryptedText = new String(secret);
+        secretCache.put(tenantId, alias, encryptedValue, secret);
 
         if (log.isDebugEnabled()) {
             log.info("evaluation completed succesfully " + decryptedText);
@@ -111,6 +131,7 @@ public class RegistrySecretRepository implements SecretRepository {
             String encryptedValue = SecureVaultUtil.encryptValue(plainTextValue);
             registryResource.addProperty(alias, encryptedValue);
             registry.put(SecureVaultConstants.ENCRYPTED_PROPERTY_STORAGE_PATH, registryResource);
+            secretCache.invalidate(CarbonContext.getThreadLocalCarbonContext().getTenantId(), alias);
         } catch (RegistryException | AxisFault e) {
         }
     }
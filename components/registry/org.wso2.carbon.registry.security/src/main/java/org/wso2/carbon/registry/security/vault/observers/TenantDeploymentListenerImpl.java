@@ -23,6 +23,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.security.vault.DecryptedSecretCache;
 import org.wso2.carbon.registry.security.vault.util.SecureVaultUtil;
 import org.wso2.carbon.utils.AbstractAxis2ConfigurationContextObserver;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
@@ -40,4 +41,9 @@ public class TenantDeploymentListenerImpl extends AbstractAxis2ConfigurationCont
         }
     }
 
+    public void terminatedConfigurationContext(ConfigurationContext configurationContext) {
+        int tenantId = MultitenantUtils.getTenantId(configurationContext);
+        DecryptedSecretCache.getInstance().invalidate(tenantId);
+    }
+
 }
\ No newline at end of file
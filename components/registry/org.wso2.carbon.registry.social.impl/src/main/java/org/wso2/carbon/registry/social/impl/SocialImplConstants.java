@@ -42,6 +42,12 @@ public class SocialImplConstants {
     /* Activities  */
     public static final String NEXT_ACTIVITY_ID_PATH = "/nextActivityId";
     public static final String NEXT_ACTIVITY_ID = "nextActivityId";
+    public static final String ACTIVITY_MEDIA_TYPE = "application/vnd.wso2.social.activity";
+    public static final String ACTIVITY_TIMELINE_ROOT = "/timeline";
+    public static final String ACTIVITY_TIMELINE_PATH = "/timeline/";
+    public static final String ACTIVITY_TIMELINE_COMPLETE = "timelineComplete";
+    public static final String ACTIVITY_TIMELINE_TRUNCATED = "timelineTruncated";
+    public static final String ACTIVITY_TIMELINE_LENGTH_PROPERTY = "social.activity.timeline.length";
 
     /* Activity attributes */
     public static final String ACTIVITY_APP_ID = "appId";
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.registry.social.impl.activityStream;
+
+import org.wso2.carbon.registry.social.api.activityStream.ActivityEntry;
+import org.wso2.carbon.registry.social.api.activityStream.ActivityObject;
+import org.wso2.carbon.registry.social.api.activityStream.MediaLink;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts an {@link ActivityEntry}, along with its activity objects and media links, to and from
+ * the compact binary form in which it is stored as the content of a single registry resource.
+ * <p>
+ * The first byte holds the version of the format, so that activities written in an earlier
+ * format can still be read once the format changes
+ * </p>
+ */
+public final class ActivityEntrySerializer {
+
+    /* The version of the format written by this serializer */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final String ENCODING = "UTF-8";
+
+    private ActivityEntrySerializer() {
+    }
+
+    /**
+     * Serializes the given activity
+     *
+     * @param activityEntry The activity to serialize
+     * @return The serialized activity
+     * @throws IOException if the activity could not be serialized
+     */
+    public static byte[] serialize(ActivityEntry activityEntry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+        writeString(out, activityEntry.getId());
+        writeString(out, activityEntry.getUrl());
+        writeString(out, activityEntry.getVerb());
+        writeString(out, activityEntry.getTitle());
+        writeString(out, activityEntry.getContent());
+        writeString(out, activityEntry.getPublished());
+        writeString(out, activityEntry.getUpdated());
+        writeMediaLink(out, activityEntry.getIcon());
+        writeActivityObject(out, activityEntry.getActor());
+        writeActivityObject(out, activityEntry.getGenerator());
+        writeActivityObject(out, activityEntry.getObject());
+        writeActivityObject(out, activityEntry.getTarget());
+        writeActivityObject(out, activityEntry.getProvider());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads an activity serialized in this or an earlier version of the format
+     *
+     * @param content The serialized activity
+     * @return The activity
+     * @throws IOException if the content is not a serialized activity
+     */
+    public static ActivityEntry deserialize(byte[] content) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported activity format version " + version);
+        }
+        ActivityEntry activityEntry = new ActivityEntryImpl();
+        activityEntry.setId(readString(in));
+        activityEntry.setUrl(readString(in));
+        activityEntry.setVerb(readString(in));
+        activityEntry.setTitle(readString(in));
+        activityEntry.setContent(readString(in));
+        activityEntry.setPublished(readString(in));
+        activityEntry.setUpdated(readString(in));
+        activityEntry.setIcon(readMediaLink(in));
+        activityEntry.setActor(readActivityObject(in));
+        activityEntry.setGenerator(readActivityObject(in));
+        activityEntry.setObject(readActivityObject(in));
+        activityEntry.setTarget(readActivityObject(in));
+        activityEntry.setProvider(readActivityObject(in));
+        return activityEntry;
+    }
+
+    private static void writeActivityObject(DataOutputStream out, ActivityObject activityObject)
+            throws IOException {
+        out.writeBoolean(activityObject != null);
+        if (activityObject == null) {
+            return;
+        }
+        writeString(out, activityObject.getId());
+        writeString(out, activityObject.getUrl());
+        writeString(out, activityObject.getDisplayName());
+        writeString(out, activityObject.getObjectType());
+        writeString(out, activityObject.getSummary());
+        writeString(out, activityObject.getContent());
+        writeString(out, activityObject.getPublished());
+        writeString(out, activityObject.getUpdated());
+        writeMediaLink(out, activityObject.getImage());
+        writeActivityObject(out, activityObject.getAuthor());
+        List<ActivityObject> attachments = activityObject.getAttachments();
+        out.writeInt(attachments == null ? -1 : attachments.size());
+        if (attachments != null) {
+            for (ActivityObject attachment : attachments) {
+                writeActivityObject(out, attachment);
+            }
+        }
+        writeStrings(out, activityObject.getDownstreamDuplicates());
+        writeStrings(out, activityObject.getUpstreamDuplicates());
+    }
+
+    private static ActivityObject readActivityObject(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        ActivityObject activityObject = new ActivityObjectImpl();
+        activityObject.setId(readString(in));
+        activityObject.setUrl(readString(in));
+        activityObject.setDisplayName(readString(in));
+        activityObject.setObjectType(readString(in));
+        activityObject.setSummary(readString(in));
+        activityObject.setContent(readString(in));
+        activityObject.setPublished(readString(in));
+        activityObject.setUpdated(readString(in));
+        activityObject.setImage(readMediaLink(in));
+        activityObject.setAuthor(readActivityObject(in));
+        int attachmentCount = in.readInt();
+        if (attachmentCount >= 0) {
+            List<ActivityObject> attachments = new ArrayList<ActivityObject>(attachmentCount);
+            for (int i = 0; i < attachmentCount; i++) {
+                attachments.add(readActivityObject(in));
+            }
+            activityObject.setAttachments(attachments);
+        }
+        activityObject.setDownstreamDuplicates(readStrings(in));
+        activityObject.setUpstreamDuplicates(readStrings(in));
+        return activityObject;
+    }
+
+    private static void writeMediaLink(DataOutputStream out, MediaLink mediaLink)
+            throws IOException {
+        out.writeBoolean(mediaLink != null);
+        if (mediaLink == null) {
+            return;
+        }
+        writeString(out, mediaLink.getUrl());
+        writeInteger(out, mediaLink.getDuration());
+        writeInteger(out, mediaLink.getHeight());
+        writeInteger(out, mediaLink.getWidth());
+    }
+
+    private static MediaLink readMediaLink(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        MediaLink mediaLink = new MediaLinkImpl();
+        mediaLink.setUrl(readString(in));
+        mediaLink.setDuration(readInteger(in));
+        mediaLink.setHeight(readInteger(in));
+        mediaLink.setWidth(readInteger(in));
+        return mediaLink;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values)
+            throws IOException {
+        out.writeInt(values == null ? -1 : values.size());
+        if (values != null) {
+            for (String value : values) {
+                writeString(out, value);
+            }
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        // not writeUTF, which is limited to 64K
+        byte[] bytes = value.getBytes(ENCODING);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, ENCODING);
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+}
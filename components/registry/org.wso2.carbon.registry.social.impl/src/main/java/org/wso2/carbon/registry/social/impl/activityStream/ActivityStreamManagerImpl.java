@@ -21,29 +21,34 @@ import org.wso2.carbon.registry.core.Collection;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
 import org.wso2.carbon.registry.social.api.SocialDataException;
 import org.wso2.carbon.registry.social.api.activityStream.ActivityEntry;
 import org.wso2.carbon.registry.social.api.activityStream.ActivityObject;
 import org.wso2.carbon.registry.social.api.activityStream.ActivityStreamManager;
 import org.wso2.carbon.registry.social.api.activityStream.MediaLink;
-import org.wso2.carbon.registry.social.api.people.relationship.RelationshipManager;
 import org.wso2.carbon.registry.social.api.utils.FilterOptions;
 import org.wso2.carbon.registry.social.impl.SocialImplConstants;
 import org.wso2.carbon.registry.social.impl.internal.SocialDSComponent;
 import org.wso2.carbon.registry.social.impl.people.relationship.RelationshipManagerImpl;
 import org.wso2.carbon.registry.social.impl.utils.FilterOptionsImpl;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.text.DateFormat;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /*implementation of the {@link org.wso2.carbon.registry.social.api.activityStream.ActivityStreamManager}
  interface
@@ -54,7 +59,13 @@ import java.util.Set;
 * <p>
 * An activity is stored as a {@link org.wso2.carbon.registry.core.Registry}
  * {@link org.wso2.carbon.registry.core.Resource}
-* and the attributes of that activity are stored as properties of that registry resource
+* and the activity, including its activity objects and media links, is stored as the content of
+* that registry resource in the form written by {@link ActivityEntrySerializer}
+* </p>
+* <p>
+* Activities stored by earlier versions, as a collection with the attributes of the activity as
+* properties and a resource for each activity object and media link, are converted to a single
+* resource when they are next read
 * </p>
 * <p>
 * <p/>
@@ -63,6 +74,16 @@ import java.util.Set;
 * <p>
 * Resource path : users/{userId}/{appId}/{activityId}
 * </p>
+* <p>
+* Optionally, a capped timeline of the activities of each person and their friends is kept, to which
+* an activity is written when it is created. The activities of friends are then read from the
+* timeline, rather than from the activities of each friend. A timeline is built from the stored
+* activities when it is first read, and is dropped when the friends of the person change. Pages
+* reaching past the activities kept in a timeline are read from the activities of each friend
+* </p>
+* <p>
+* Timeline path : users/{userId}/timeline/{appId}/{item}
+* </p>
 */
 public class ActivityStreamManagerImpl implements ActivityStreamManager {
     private static Log log = LogFactory.getLog(ActivityStreamManagerImpl.class);
@@ -70,11 +91,25 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
     /* The Registry object used throughout */
     private Registry registry = null;
 
+    /* The number of activities kept in the timeline of each person, 0 if no timelines are kept */
+    private int timelineLength =
+            Integer.getInteger(SocialImplConstants.ACTIVITY_TIMELINE_LENGTH_PROPERTY, 0);
+
     /* Setting the Registry object */
 
     public void setRegistry(Registry reg) {
         this.registry = reg;
     }
+
+    /**
+     * Sets the number of activities kept in the timeline of each person. Timelines are only kept
+     * if the length is positive.
+     *
+     * @param timelineLength the maximum number of activities in a timeline
+     */
+    public void setTimelineLength(int timelineLength) {
+        this.timelineLength = timelineLength;
+    }
     /* Getting the Registry object for this manager */
 
     public Registry getRegistry() throws RegistryException {
@@ -108,7 +143,17 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
         try {
             registry = getRegistry();
             if (registry.resourceExists(activityResourcePath)) {
+                String published = null;
+                if (timelineLength > 0) {
+                    published = readActivity(activityResourcePath,
+                                             registry.get(activityResourcePath),
+                                             null).getPublished();
+                }
                 registry.delete(activityResourcePath);
+                if (timelineLength > 0) {
+                    removeFromTimelines(userId, appId,
+                                        getTimelineItemName(userId, activityId, published));
+                }
             } else {
                 throw new SocialDataException
                         ("Activity with specified activityId " + activityId + " doesn't exist");
@@ -124,8 +169,18 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
     public ActivityEntry[] getActivityEntries(String[] userIds, String groupId, String appId,
                                               Set<String> fields, FilterOptions options)
             throws SocialDataException {
-        RelationshipManager relationshipManager = new RelationshipManagerImpl();
+        if (timelineLength > 0 && (groupId.equals(SocialImplConstants.GROUP_ID_FRIENDS) ||
+                                   groupId.equals(SocialImplConstants.GROUP_ID_ALL))) {
+            ActivityEntry[] timelineEntries = getTimelineEntries(userIds, groupId, appId, options);
+            if (timelineEntries != null) {
+                return timelineEntries;
+            }
+        }
+        RelationshipManagerImpl relationshipManager = new RelationshipManagerImpl();
+        relationshipManager.setRegistry(registry);
         List<ActivityEntry> activityList = new ArrayList<ActivityEntry>();
+        // activities stored by an earlier version, converted together once all are read
+        Map<String, ActivityEntry> migrations = new LinkedHashMap<String, ActivityEntry>();
         List<String> userIdsToFetch = new ArrayList<String>();
         String[] userIdArray;
         // Handle GroupId
@@ -156,23 +211,30 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
         } else {
             return new ActivityEntryImpl[0];
         }
+        if (options == null) {
+            options = new FilterOptionsImpl();
+            options.setMax(0);
+            options.setFirst(0);
+        }
+        int max = options.getMax() == 0 ? SocialImplConstants.DEFAULT_RETURN_ARRAY_SIZE
+                                        : options.getMax();
+        // the activities of several persons are merged by published time before the page is
+        // taken, as the page of each person's activities is not a page of the merged ones
+        boolean merge = userIdArray.length > 1;
         for (String userId : userIdArray) {    /*for each userId */
             try {
                 registry = getRegistry();
                 String resourcePath = SocialImplConstants.USER_REGISTRY_ROOT + userId +
                                       SocialImplConstants.ACTIVITY_PATH + appId;
                 Collection activityCollection;
-                if (options == null) {
-                    options = new FilterOptionsImpl();
-                    options.setMax(0);
-                    options.setFirst(0);
-                }
                 if (registry.resourceExists(resourcePath)) {
-                    int max = options.getMax() == 0 ? SocialImplConstants.DEFAULT_RETURN_ARRAY_SIZE
-                                                    : options.getMax();
-                    activityCollection = registry.get(resourcePath,
-                                                      options.getFirst(),
-                                                      max);
+                    if (merge) {
+                        activityCollection = (Collection) registry.get(resourcePath);
+                    } else {
+                        activityCollection = registry.get(resourcePath,
+                                                          options.getFirst(),
+                                                          max);
+                    }
 
                     String[] activityResourcePaths = activityCollection.getChildren();
                     for (String path : activityResourcePaths) {   /* for each activity resource */
@@ -180,10 +242,12 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
                         String activityId = path.substring(
                                 path.lastIndexOf(SocialImplConstants.SEPARATOR) + 1);
                         // Checks whether the path is the of the nextActivityId resource
-                        if ((!activityId.equalsIgnoreCase(SocialImplConstants.NEXT_ACTIVITY_ID)) &&
-                            getUserActivity(userId, appId, activityId) != null) {
-                            activityList.add(getUserActivity(userId, appId, activityId));
-
+                        if (!activityId.equalsIgnoreCase(SocialImplConstants.NEXT_ACTIVITY_ID)) {
+                            ActivityEntry activityEntry =
+                                    getUserActivity(userId, appId, activityId, migrations);
+                            if (activityEntry != null) {
+                                activityList.add(activityEntry);
+                            }
                         }
                     }
                 }
@@ -194,6 +258,15 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
             }
 
         }
+        migrateActivities(migrations);
+        if (merge) {
+            // newest first, as read from the timelines
+            Collections.sort(activityList,
+                             Collections.reverseOrder(new ActivityEntryComparator()));
+            int first = Math.min(options.getFirst(), activityList.size());
+            activityList = activityList.subList(first,
+                                                Math.min(first + max, activityList.size()));
+        }
         ActivityEntry[] activityEntries = new ActivityEntryImpl[activityList.size()];
         return activityList.toArray(activityEntries);
     }
@@ -235,7 +308,9 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
             registry = getRegistry();
             if (groupId == null || groupId.equals(SocialImplConstants.GROUP_ID_SELF)) {
                 // retrieve activity for user {userId}
-                userActivityEntry = getUserActivity(userId, appId, activityId);
+                Map<String, ActivityEntry> migrations = new LinkedHashMap<String, ActivityEntry>();
+                userActivityEntry = getUserActivity(userId, appId, activityId, migrations);
+                migrateActivities(migrations);
 
             }
             //TODO: Handle GroupID= @friends, @topfriends etc
@@ -254,146 +329,127 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
      * @param userId     The id of the person
      * @param appId      Application id
      * @param activityId The ide of the activity
+     * @param migrations Collects the activity if it was stored by an earlier version
      * @return An Activiy object for the passed in userId,appId,activityId combination
      * @throws RegistryException registry exception
      */
 
-    private ActivityEntry getUserActivity(String userId, String appId, String activityId)
+    private ActivityEntry getUserActivity(String userId, String appId, String activityId,
+                                          Map<String, ActivityEntry> migrations)
             throws RegistryException {
         registry = getRegistry();
-        ActivityEntry userActivityEntry;
         // retrieve activity for user {userId}
 
         String selfActivityResourcePath = SocialImplConstants.USER_REGISTRY_ROOT + userId +
                                           SocialImplConstants.ACTIVITY_PATH + appId +
                                           SocialImplConstants.SEPARATOR + activityId;
-        Resource selfActivityResource;
         if (registry.resourceExists(selfActivityResourcePath)) {
             // requested activity exists
-            selfActivityResource = registry.get(selfActivityResourcePath);
-            userActivityEntry = getPropertyAddedActivityEntry(selfActivityResource);
-
-            /*Handling mediaLinks */
-            String mediaLinkResourcePath = selfActivityResourcePath +
-                                           SocialImplConstants.ACTIVITY_STREAM_MEDIA_PATH;
-            Resource mediaResource;
-            if (registry.resourceExists(mediaLinkResourcePath)) {
-                mediaResource = registry.get(mediaLinkResourcePath);
-                userActivityEntry.setIcon(getPropertyAddedMediaLink(mediaResource));
-            }
-            /*Handling actor object*/
-            String actorResourcePath = selfActivityResourcePath +
-                                       SocialImplConstants.ACTIVITY_STREAM_ACTOR_PATH;
-            Resource actorResource;
-            if (registry.resourceExists(actorResourcePath)) {
-                actorResource = registry.get(actorResourcePath);
-                String actorMediaResourcePath = actorResourcePath +
-                                                SocialImplConstants.ACTIVITY_STREAM_MEDIA_PATH;
-                Resource actorMediaResource;
-                ActivityObject ackObj = new ActivityObjectImpl();
-                if (registry.resourceExists(actorMediaResourcePath)) {
-                    actorMediaResource = registry.get(actorMediaResourcePath);
-
-                    ackObj.setImage(getPropertyAddedMediaLink(actorMediaResource));
-                }
-                ackObj = getPropertyAddedActivityObject(actorResource);
-                userActivityEntry.setActor(ackObj);
-            }
-
-            /*Handling generator object*/
-            String generatorResourcePath = selfActivityResourcePath +
-                                           SocialImplConstants.ACTIVITY_STREAM_GENERATOR_PATH;
-            Resource generatorResource;
-            if (registry.resourceExists(generatorResourcePath)) {
-                generatorResource = registry.get(generatorResourcePath);
-                String generatorMediaResourcePath = generatorResourcePath +
-                                                    SocialImplConstants.ACTIVITY_STREAM_MEDIA_PATH;
-                Resource generatorMediaResource;
-                ActivityObject ackGenObj = new ActivityObjectImpl();
-                if (registry.resourceExists(generatorMediaResourcePath)) {
-                    generatorMediaResource = registry.get(generatorMediaResourcePath);
-
-                    ackGenObj.setImage(getPropertyAddedMediaLink(generatorMediaResource));
-                }
-                ackGenObj = getPropertyAddedActivityObject(generatorResource);
-
-                userActivityEntry.setGenerator(ackGenObj);
-            }
+            return readActivity(selfActivityResourcePath,
+                                registry.get(selfActivityResourcePath), migrations);
+        } else {
+            //requested activity doesn't exist
+            log.error("No activity found with id " + activityId);
+            return null;
 
-            /*Handling 'object' object*/
-            String objectResourcePath = selfActivityResourcePath +
-                                        SocialImplConstants.ACTIVITY_STREAM_OBJECT_PATH;
-            Resource objectResource;
-            if (registry.resourceExists(objectResourcePath)) {
-                objectResource = registry.get(objectResourcePath);
-                String objectMediaResourcePath = objectResourcePath +
-                                                 SocialImplConstants.ACTIVITY_STREAM_MEDIA_PATH;
-                Resource objectMediaResource;
-                ActivityObject ackObObj = new ActivityObjectImpl();
-                if (registry.resourceExists(objectMediaResourcePath)) {
-                    objectMediaResource = registry.get(objectMediaResourcePath);
-
-                    ackObObj.setImage(getPropertyAddedMediaLink(objectMediaResource));
-                }
-                ackObObj = getPropertyAddedActivityObject(objectResource);
-                userActivityEntry.setObject(ackObObj);
+        }
+    }
 
+    /**
+     * Retrieves the Activity object stored in the given registry resource. An activity stored by
+     * an earlier version, as a collection holding a resource for each activity object and media
+     * link, can be collected to be converted to the serialized form by
+     * {@link #migrateActivities(Map)}.
+     *
+     * @param activityPath     The path of the activity resource
+     * @param activityResource The activity resource
+     * @param migrations       Collects the activity, by its path, if it was stored by an earlier
+     *                         version, or null if it is not to be converted
+     * @return The Activity object
+     * @throws RegistryException registry exception
+     */
+    private ActivityEntry readActivity(String activityPath, Resource activityResource,
+                                       Map<String, ActivityEntry> migrations)
+            throws RegistryException {
+        if (!(activityResource instanceof Collection)) {
+            return deserializeActivity(activityResource);
+        }
+        ActivityEntry activityEntry = getLegacyActivity(activityPath, activityResource);
+        if (migrations != null) {
+            migrations.put(activityPath, activityEntry);
+        }
+        return activityEntry;
+    }
 
-            }
+    /**
+     * Retrieves an activity stored by an earlier version, with the attributes of the activity as
+     * properties of a collection and each activity object and media link in a resource of its own.
+     * The target and provider of such an activity were written over its generator, so only the
+     * last of them written can be recovered, as the generator.
+     *
+     * @param activityPath     The path of the activity collection
+     * @param activityResource The activity collection
+     * @return The Activity object
+     * @throws RegistryException registry exception
+     */
+    private ActivityEntry getLegacyActivity(String activityPath, Resource activityResource)
+            throws RegistryException {
+        ActivityEntry activityEntry = getPropertyAddedActivityEntry(activityResource);
+
+        /*Handling mediaLinks */
+        String mediaLinkResourcePath = activityPath +
+                                       SocialImplConstants.ACTIVITY_STREAM_MEDIA_PATH;
+        if (registry.resourceExists(mediaLinkResourcePath)) {
+            activityEntry.setIcon(getPropertyAddedMediaLink(registry.get(mediaLinkResourcePath)));
+        }
+        activityEntry.setActor(getLegacyActivityObject(
+                activityPath + SocialImplConstants.ACTIVITY_STREAM_ACTOR_PATH));
+        activityEntry.setGenerator(getLegacyActivityObject(
+                activityPath + SocialImplConstants.ACTIVITY_STREAM_GENERATOR_PATH));
+        activityEntry.setObject(getLegacyActivityObject(
+                activityPath + SocialImplConstants.ACTIVITY_STREAM_OBJECT_PATH));
+        return activityEntry;
+    }
 
+    private ActivityObject getLegacyActivityObject(String objectPath) throws RegistryException {
+        if (!registry.resourceExists(objectPath)) {
+            return null;
+        }
+        // images of activity objects were never written by earlier versions
+        return getPropertyAddedActivityObject(registry.get(objectPath));
+    }
 
-            /*Handling 'target' object*/
-            String targetResourcePath = selfActivityResourcePath +
-                                        SocialImplConstants.ACTIVITY_STREAM_OBJECT_PATH;
-            Resource targetResource;
-            if (registry.resourceExists(targetResourcePath)) {
-                targetResource = registry.get(targetResourcePath);
-                String targetMediaResourcePath = targetResourcePath +
-                                                 SocialImplConstants.ACTIVITY_STREAM_MEDIA_PATH;
-                Resource targetMediaResource;
-                ActivityObject acktargetObj = new ActivityObjectImpl();
-                if (registry.resourceExists(targetMediaResourcePath)) {
-                    targetMediaResource = registry.get(targetMediaResourcePath);
-
-                    acktargetObj.setImage(getPropertyAddedMediaLink(targetMediaResource));
-                }
-                acktargetObj = getPropertyAddedActivityObject(targetResource);
-                userActivityEntry.setTarget(acktargetObj);
+    /**
+     * Replaces activities stored by an earlier version with their serialized form, in a single
+     * transaction. A failure is only logged, leaving the activities to be converted when they
+     * are read again.
+     *
+     * @param migrations The activities read from the earlier form, by their paths
+     */
+    private void migrateActivities(Map<String, ActivityEntry> migrations) {
+        if (migrations.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, Resource> activityResources = new LinkedHashMap<String, Resource>();
+            for (Map.Entry<String, ActivityEntry> migration : migrations.entrySet()) {
+                activityResources.put(migration.getKey(),
+                                      newActivityResource(serializeActivity(migration.getValue())));
             }
-
-
-            /*Handling 'provider' object*/
-            String providerResourcePath = selfActivityResourcePath +
-                                          SocialImplConstants.ACTIVITY_STREAM_OBJECT_PATH;
-            Resource providerResource;
-
-
-            if (registry.resourceExists(providerResourcePath)) {
-                providerResource = registry.get(providerResourcePath);
-
-                String providerMediaResourcePath = providerResourcePath +
-                                                   SocialImplConstants.ACTIVITY_STREAM_MEDIA_PATH;
-                Resource providerMediaResource;
-                ActivityObject ackproviderObj = new ActivityObjectImpl();
-                if (registry.resourceExists(providerMediaResourcePath)) {
-                    providerMediaResource = registry.get(providerMediaResourcePath);
-
-                    ackproviderObj.setImage(getPropertyAddedMediaLink(providerMediaResource));
+            registry.beginTransaction();
+            try {
+                for (Map.Entry<String, Resource> activityResource : activityResources.entrySet()) {
+                    registry.delete(activityResource.getKey());
+                    registry.put(activityResource.getKey(), activityResource.getValue());
                 }
-                ackproviderObj = getPropertyAddedActivityObject(providerResource);
-                userActivityEntry.setTarget(ackproviderObj);
-
-
+                registry.commitTransaction();
+            } catch (RegistryException e) {
+                registry.rollbackTransaction();
+                throw e;
             }
-
-
-        } else {
-            //requested activity doesn't exist
-            log.error("No activity found with id " + activityId);
-            return null;
-
+        } catch (RegistryException e) {
+            log.warn("Unable to convert the activities at " + migrations.keySet(), e);
         }
-        return userActivityEntry;
     }
 
     @Override
@@ -454,9 +510,10 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
      * @param isUpdate      true- if required to update &persist
      *                      false- if required to persist
      * @throws RegistryException registry exception
+     * @throws SocialDataException if the friends of the person could not be retrieved
      */
     private void saveActivity(String userId, ActivityEntry activityEntry, boolean isUpdate)
-            throws RegistryException {
+            throws RegistryException, SocialDataException {
         registry = getRegistry();
         String nextActivityPath = SocialImplConstants.USER_REGISTRY_ROOT +
                                   userId +
@@ -529,78 +586,106 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
                                  SocialImplConstants.SEPARATOR +
                                  activityEntry.getId();
 
-        Resource newActivityResource;
+        ActivityEntry previousEntry = null;
+        boolean isLegacyActivity = false;
         if (registry.resourceExists(newActivityPath)) {
-            newActivityResource = registry.get(newActivityPath);
-        } else {
-            newActivityResource = registry.newCollection();
-        }
-
-        newActivityResource = saveActivityEntryResourceProperties(activityEntry,
-                                                                  newActivityResource, isUpdate);
-        registry.put(newActivityPath, newActivityResource);
-        /* Handling MediaLinks */
-        if (activityEntry.getIcon() != null) {
-            String resourcePath = newActivityPath +
-                                  SocialImplConstants.ACTIVITY_STREAM_MEDIA_PATH;
-            Resource mediaResource;
-            if (registry.resourceExists(resourcePath)) {
-                mediaResource = registry.get(resourcePath);
-            } else {
-                mediaResource = registry.newCollection();
-            }
-
-            saveMediaLinkResourceProperties(
-                    activityEntry.getIcon(), mediaResource, isUpdate);
-            registry.put(resourcePath, mediaResource);
+            Resource previousResource = registry.get(newActivityPath);
+            previousEntry = readActivity(newActivityPath, previousResource, null);
+            isLegacyActivity = previousResource instanceof Collection;
         }
-
-        /*Handling actor object of the activity */
-        if (activityEntry.getActor() != null) {
-            HashMap<String, String> pathVals = new HashMap<String, String>();
-            pathVals.put("activityPath", newActivityPath);
-            pathVals.put("registryObjectPath", SocialImplConstants.ACTIVITY_STREAM_ACTOR_PATH);
-
-            saveActivityObjectResourceProperties(activityEntry.getActor(), pathVals, isUpdate);
+        if (isUpdate && previousEntry != null) {
+            // attributes which are not set keep their stored values
+            activityEntry = getMergedActivityEntry(activityEntry, previousEntry);
         }
-
-        /*Handling generator object of the activity */
-        if (activityEntry.getGenerator() != null) {
-            HashMap<String, String> pathVals = new HashMap<String, String>();
-            pathVals.put("activityPath", newActivityPath);
-            pathVals.put("registryObjectPath", SocialImplConstants.ACTIVITY_STREAM_GENERATOR_PATH);
-
-            saveActivityObjectResourceProperties(activityEntry.getGenerator(), pathVals, isUpdate);
+        byte[] content = serializeActivity(activityEntry);
+        registry.beginTransaction();
+        try {
+            if (isLegacyActivity) {
+                // stored by an earlier version as a collection of resources
+                registry.delete(newActivityPath);
+            }
+            registry.put(newActivityPath, newActivityResource(content));
+            registry.commitTransaction();
+        } catch (RegistryException e) {
+            registry.rollbackTransaction();
+            throw e;
         }
 
-        /*Handling 'object' object of the activity */
-        if (activityEntry.getObject() != null) {
-            HashMap<String, String> pathVals = new HashMap<String, String>();
-            pathVals.put("activityPath", newActivityPath);
-            pathVals.put("registryObjectPath", SocialImplConstants.ACTIVITY_STREAM_OBJECT_PATH);
-
-            saveActivityObjectResourceProperties(activityEntry.getObject(), pathVals, isUpdate);
+        if (timelineLength > 0) {
+            saveToTimelines(userId, activityEntry, content, previousEntry == null ? null :
+                    getTimelineItemName(userId, activityEntry.getId(),
+                                        previousEntry.getPublished()));
         }
 
-        /*Handling target object of the activity */
-        if (activityEntry.getTarget() != null) {
-            HashMap<String, String> pathVals = new HashMap<String, String>();
-            pathVals.put("activityPath", newActivityPath);
-            pathVals.put("registryObjectPath", SocialImplConstants.ACTIVITY_STREAM_GENERATOR_PATH);
+    }
 
-            saveActivityObjectResourceProperties(activityEntry.getTarget(), pathVals, isUpdate);
-        }
+    /**
+     * Returns an ActivityEntry holding the attributes of the update, and the stored attributes
+     * for those the update does not set
+     *
+     * @param update   The updated activity
+     * @param previous The stored activity
+     * @return The merged ActivityEntry object
+     */
+    private ActivityEntry getMergedActivityEntry(ActivityEntry update, ActivityEntry previous) {
+        ActivityEntry activityEntry = new ActivityEntryImpl();
+        activityEntry.setId(update.getId());
+        activityEntry.setUrl(update.getUrl() != null ? update.getUrl() : previous.getUrl());
+        activityEntry.setVerb(update.getVerb() != null ? update.getVerb() : previous.getVerb());
+        activityEntry.setTitle(
+                update.getTitle() != null ? update.getTitle() : previous.getTitle());
+        activityEntry.setContent(
+                update.getContent() != null ? update.getContent() : previous.getContent());
+        activityEntry.setPublished(
+                update.getPublished() != null ? update.getPublished() : previous.getPublished());
+        activityEntry.setUpdated(
+                update.getUpdated() != null ? update.getUpdated() : previous.getUpdated());
+        activityEntry.setIcon(update.getIcon() != null ? update.getIcon() : previous.getIcon());
+        activityEntry.setActor(
+                update.getActor() != null ? update.getActor() : previous.getActor());
+        activityEntry.setGenerator(
+                update.getGenerator() != null ? update.getGenerator() : previous.getGenerator());
+        activityEntry.setObject(
+                update.getObject() != null ? update.getObject() : previous.getObject());
+        activityEntry.setTarget(
+                update.getTarget() != null ? update.getTarget() : previous.getTarget());
+        activityEntry.setProvider(
+                update.getProvider() != null ? update.getProvider() : previous.getProvider());
+        return activityEntry;
+    }
 
-        /*Handling provider object of the activity */
-        if (activityEntry.getProvider() != null) {
-            HashMap<String, String> pathVals = new HashMap<String, String>();
-            pathVals.put("activityPath", newActivityPath);
-            pathVals.put("registryObjectPath", SocialImplConstants.ACTIVITY_STREAM_GENERATOR_PATH);
+    /**
+     * Creates a registry resource holding a serialized activity
+     *
+     * @param content The serialized activity
+     * @return The registry resource
+     * @throws RegistryException registry exception
+     */
+    private Resource newActivityResource(byte[] content) throws RegistryException {
+        Resource activityResource = registry.newResource();
+        activityResource.setMediaType(SocialImplConstants.ACTIVITY_MEDIA_TYPE);
+        activityResource.setContent(content);
+        return activityResource;
+    }
 
-            saveActivityObjectResourceProperties(activityEntry.getProvider(), pathVals, isUpdate);
+    private byte[] serializeActivity(ActivityEntry activityEntry) throws RegistryException {
+        try {
+            return ActivityEntrySerializer.serialize(activityEntry);
+        } catch (IOException e) {
+            String msg = "Failed to serialize activity " + activityEntry.getId();
+            log.error(msg, e);
+            throw new RegistryException(msg, e);
         }
+    }
 
-
+    private ActivityEntry deserializeActivity(Resource activityResource) throws RegistryException {
+        try {
+            return ActivityEntrySerializer.deserialize((byte[]) activityResource.getContent());
+        } catch (IOException e) {
+            String msg = "Failed to read the activity at " + activityResource.getPath();
+            log.error(msg, e);
+            throw new RegistryException(msg, e);
+        }
     }
 
     /**
@@ -653,77 +738,6 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
         return activityEntry;
     }
 
-    /**
-     * Adds or update the attributes of the Activity Entry as properties for the Activity registry resource
-     *
-     * @param userActivity     The ActivityEntry object from which to retrieve the attributes
-     * @param activityResource The registry Resource object to add/update properties
-     * @param isUpdate         true - if required to update the properties
-     *                         false - if required to add the properties
-     * @return The registry resource passed as method parameter added/updated with its properties
-     */
-    private Resource saveActivityEntryResourceProperties(ActivityEntry userActivity,
-                                                         Resource activityResource,
-                                                         boolean isUpdate) {
-        if (userActivity == null || activityResource == null) {
-            return null;
-        }
-        /* Retrieves attributes of the Activity and adds it to a Map */
-        Map<String, String> properties = new HashMap<String, String>();
-        if (userActivity.getId() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_STREAM_ID, userActivity.getId());
-        }
-        if (userActivity.getContent() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_STREAM_CONTENT, userActivity.getContent());
-        }
-
-        if (userActivity.getPublished() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_STREAM_PUBLISHED,
-                           userActivity.getPublished());
-        }
-        if (userActivity.getTitle() != null) {
-            properties.put(SocialImplConstants.ACTIVITYSTREAM_TITLE,
-                           userActivity.getTitle());
-        }
-        if (userActivity.getUpdated() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_STREAM_UPDATED, userActivity.getUpdated());
-        }
-        if (userActivity.getUrl() != null) {
-            properties.put(SocialImplConstants.ACTIVITYSTREAM_URL, userActivity.getUrl());
-        }
-        if (userActivity.getVerb() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_STREAM_VERB, userActivity.getVerb());
-        }
-        /* Attach the property map to the registry resource */
-        attachPropertyToResource(activityResource, properties, isUpdate);
-        return activityResource;
-
-    }
-
-    /**
-     * Add/ edit a property value for the given Registry resource
-     *
-     * @param activityResource Registry resource to add/set property
-     * @param properties       A Map consisting properties and it's values
-     * @param isUpdate         True, if it is an update. False, if it is an addition
-     */
-    private void attachPropertyToResource(Resource activityResource, Map<String, String> properties,
-                                          boolean isUpdate) {
-
-
-        for (Map.Entry<String, String> e : properties.entrySet()) {
-            if (e.getValue() != null) {
-                if (isUpdate) {
-                    String oldValue = activityResource.getProperty(e.getKey());
-                    activityResource.editPropertyValue(e.getKey(), oldValue, e.getValue());
-                } else {
-                    activityResource.addProperty(e.getKey(), e.getValue());
-                }
-            }
-        }
-
-    }
-
     /**
      * Adds or update the attributes of the ActivityObject as properties for the ActivityObject
      * registry resource
@@ -782,10 +796,10 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
     }
 
     /**
-     * Adds or update the attributes of the MediaLink as properties for the MediaLink
-     * registry resource
+     * Retrieves a MediaLink stored by an earlier version, which wrote its attributes under the
+     * property names of media items
      *
-     * @param mediaLinkResource The MediaLink object to retrieve properties
+     * @param mediaLinkResource The MediaLink resource to retrieve properties from
      * @return MediaLink object
      */
     private MediaLink getPropertyAddedMediaLink(Resource mediaLinkResource
@@ -796,19 +810,19 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
             return null;
         }
         if ((value = mediaLinkResource.getProperty(
-                SocialImplConstants.ACTIVITY_STREAM_MEDIA_URL)) != null) {
+                SocialImplConstants.ACTIVITY_MEDIA_ITEM_MIME_TYPE)) != null) {
             mLink.setUrl(value);
         }
-        if ((value = mediaLinkResource.getProperty(SocialImplConstants.ACTIVITY_STREAM_MEDIA_DURATION))
+        if ((value = mediaLinkResource.getProperty(SocialImplConstants.ACTIVITY_MEDIA_ITEM_URL))
             != null
             ) {
             mLink.setDuration(Integer.valueOf(value));
         }
-        if ((value = mediaLinkResource.getProperty(SocialImplConstants.ACTIVITY_STREAM_MEDIA_HEIGHT))
-            != null) {
+        if ((value = mediaLinkResource.getProperty(
+                SocialImplConstants.ACTIVITY_MEDIA_ITEM_THUMBNAIL_URL)) != null) {
             mLink.setHeight(Integer.valueOf(value));
         }
-        if ((value = mediaLinkResource.getProperty(SocialImplConstants.ACTIVITY_STREAM_MEDIA_WIDTH))
+        if ((value = mediaLinkResource.getProperty(SocialImplConstants.ACTIVITY_MEDIA_ITEM_TYPE))
             != null) {
             mLink.setWidth(Integer.valueOf(value));
         }
@@ -838,147 +852,325 @@ public class ActivityStreamManagerImpl implements ActivityStreamManager {
     }
 
     /**
-     * Method to store MediaLink object as a registry resource
+     * Retrieves the activities of the friends of the given persons from their timelines, newest
+     * first. The timelines which have not been built yet are built from the stored activities.
      *
-     * @param activityMediaLink MediaLink object
-     * @param mediaItemResource resource
-     * @param isUpdate          update/save
-     * @return registry resource
+     * @param userIds The set of userIds for which activities to be fetched
+     * @param groupId The groupId, either friends or all
+     * @param appId   The appId of the activities to be fetched
+     * @param options The pagination options
+     * @return The activities, or null if the page reaches past the activities kept in the
+     *         timelines
+     * @throws SocialDataException if the timelines could not be read
      */
-    private Resource saveMediaLinkResourceProperties(MediaLink activityMediaLink,
-                                                     Resource mediaItemResource,
-                                                     boolean isUpdate) {
-        if (mediaItemResource == null || activityMediaLink == null) {
-            return null;
+    private ActivityEntry[] getTimelineEntries(String[] userIds, String groupId, String appId,
+                                               FilterOptions options)
+            throws SocialDataException {
+        boolean includeSelf = groupId.equals(SocialImplConstants.GROUP_ID_ALL);
+        // the item names sort newest first, and are the same in each timeline
+        SortedMap<String, String> itemPaths = new TreeMap<String, String>();
+        // the oldest item up to which all the truncated timelines are complete
+        String lastCompleteItem = null;
+        boolean truncated = false;
+        List<ActivityEntry> activityList = new ArrayList<ActivityEntry>();
+        try {
+            registry = getRegistry();
+            for (String userId : userIds) {
+                Collection timeline = getTimeline(userId, appId);
+                String oldestItem = null;
+                for (String path : timeline.getChildren()) {
+                    String itemName = path.substring(
+                            path.lastIndexOf(SocialImplConstants.SEPARATOR) + 1);
+                    if (oldestItem == null || itemName.compareTo(oldestItem) > 0) {
+                        oldestItem = itemName;
+                    }
+                    if (includeSelf || !userId.equals(getTimelineItemUserId(itemName))) {
+                        itemPaths.put(itemName, path);
+                    }
+                }
+                if (timeline.getProperty(SocialImplConstants.ACTIVITY_TIMELINE_TRUNCATED) != null) {
+                    if (oldestItem == null) {
+                        return null;
+                    }
+                    if (!truncated || oldestItem.compareTo(lastCompleteItem) < 0) {
+                        lastCompleteItem = oldestItem;
+                    }
+                    truncated = true;
+                }
+            }
+            int first = options == null ? 0 : options.getFirst();
+            int max = options == null || options.getMax() == 0 ?
+                      SocialImplConstants.DEFAULT_RETURN_ARRAY_SIZE : options.getMax();
+            if (truncated) {
+                // older activities have been dropped from the timelines
+                int completeItems = itemPaths.headMap(lastCompleteItem).size() +
+                                    (itemPaths.containsKey(lastCompleteItem) ? 1 : 0);
+                if (first + max > completeItems) {
+                    return null;
+                }
+            }
+            int index = 0;
+            for (String path : itemPaths.values()) {
+                if (activityList.size() >= max) {
+                    break;
+                }
+                if (index++ < first) {
+                    continue;
+                }
+                try {
+                    activityList.add(deserializeActivity(registry.get(path)));
+                } catch (ResourceNotFoundException e) {
+                    // dropped from the timeline since it was listed
+                }
+            }
+        } catch (RegistryException e) {
+            log.error(e.getMessage(), e);
+            throw new SocialDataException("Error while retrieving the activity timeline", e);
         }
-        Map<String, String> properties = new HashMap<String, String>();
+        ActivityEntry[] activityEntries = new ActivityEntryImpl[activityList.size()];
+        return activityList.toArray(activityEntries);
+    }
 
-        if (activityMediaLink.getUrl() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_MEDIA_ITEM_MIME_TYPE,
-                           activityMediaLink.getUrl());
-        }
-        if (activityMediaLink.getWidth() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_MEDIA_ITEM_TYPE,
-                           activityMediaLink.getWidth().toString());
-        }
-        if (activityMediaLink.getHeight() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_MEDIA_ITEM_THUMBNAIL_URL,
-                           activityMediaLink.getHeight().toString());
-        }
-        if (activityMediaLink.getDuration() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_MEDIA_ITEM_URL,
-                           activityMediaLink.getDuration().toString());
+    /**
+     * Returns the timeline of a person, building it from the stored activities of the person and
+     * their friends if it has not been built yet
+     *
+     * @param userId The id of the person
+     * @param appId  The appId of the activities
+     * @return The timeline collection
+     * @throws RegistryException   registry exception
+     * @throws SocialDataException if the friends of the person could not be retrieved
+     */
+    private Collection getTimeline(String userId, String appId)
+            throws RegistryException, SocialDataException {
+        String timelinePath = getTimelinePath(userId, appId);
+        if (registry.resourceExists(timelinePath)) {
+            Collection timeline = (Collection) registry.get(timelinePath);
+            if (timeline.getProperty(SocialImplConstants.ACTIVITY_TIMELINE_COMPLETE) != null) {
+                return timeline;
+            }
         }
-        attachPropertyToResource(mediaItemResource, properties, isUpdate);
-        return mediaItemResource;
+        buildTimeline(userId, appId);
+        return (Collection) registry.get(timelinePath);
     }
 
     /**
-     * Method to set attributes of ActivityObject object to the registry
+     * Builds the timeline of a person from the stored activities of the person and their
+     * friends, keeping the newest of them up to the timeline length. The timeline collection is
+     * created first, so that activities saved while it is built are written to it as well.
      *
-     * @param actObject ActivityObject
-     * @param pathVals  registry path values
-     * @param isUpdate  update/save
+     * @param userId The id of the person
+     * @param appId  The appId of the activities
+     * @throws RegistryException   registry exception
+     * @throws SocialDataException if the friends of the person could not be retrieved
      */
-    private void saveActivityObjectResourceProperties(ActivityObject actObject,
-                                                      HashMap<String, String> pathVals,
-                                                      boolean isUpdate) {
-        String activityPath = pathVals.get("activityPath");
-        String registryObjectPath = pathVals.get("registryObjectPath");
-        String registryMediaPath = SocialImplConstants.ACTIVITY_STREAM_MEDIA_PATH;
-
-        String resourceObjectPath = activityPath +
-                                    registryObjectPath;
-        Resource objectResource;
-        try {
-            if (registry.resourceExists(resourceObjectPath)) {
-                objectResource = registry.get(resourceObjectPath);
-            } else {
-                objectResource = registry.newCollection();
+    private void buildTimeline(String userId, String appId)
+            throws RegistryException, SocialDataException {
+        String timelinePath = getTimelinePath(userId, appId);
+        if (!registry.resourceExists(timelinePath)) {
+            registry.put(timelinePath, registry.newCollection());
+        }
+        SortedMap<String, byte[]> items = new TreeMap<String, byte[]>();
+        boolean truncated = false;
+        // the persons whose activities a timeline shows are those whose timelines show the
+        // activities of its owner
+        for (String author : getTimelineRecipients(userId)) {
+            String activitiesPath = SocialImplConstants.USER_REGISTRY_ROOT + author +
+                                    SocialImplConstants.ACTIVITY_PATH + appId;
+            if (!registry.resourceExists(activitiesPath)) {
+                continue;
             }
-            saveActivityObjectProperties(
-                    actObject, objectResource, isUpdate);
-            registry.put(resourceObjectPath, objectResource);
-            if (actObject.getImage() != null) {
-                String resourceActorMediaPath = resourceObjectPath + registryMediaPath;
-                Resource objectMediaResource;
-                if (registry.resourceExists(resourceActorMediaPath)) {
-                    objectMediaResource = registry.get(resourceActorMediaPath);
-                } else {
-                    objectMediaResource = registry.newCollection();
+            for (String path : ((Collection) registry.get(activitiesPath)).getChildren()) {
+                String activityId = path.substring(
+                        path.lastIndexOf(SocialImplConstants.SEPARATOR) + 1);
+                if (activityId.equalsIgnoreCase(SocialImplConstants.NEXT_ACTIVITY_ID)) {
+                    continue;
+                }
+                ActivityEntry activityEntry;
+                try {
+                    activityEntry = readActivity(path, registry.get(path), null);
+                } catch (ResourceNotFoundException e) {
+                    // deleted since it was listed
+                    continue;
+                }
+                items.put(getTimelineItemName(author, activityId, activityEntry.getPublished()),
+                          serializeActivity(activityEntry));
+                if (items.size() > timelineLength) {
+                    items.remove(items.lastKey());
+                    truncated = true;
                 }
-                saveMediaLinkResourceProperties(
-                        actObject.getImage(), objectMediaResource, isUpdate);
             }
-            //TODO:Handle attachments and author property of activity objects.
+        }
+        registry.beginTransaction();
+        try {
+            for (Map.Entry<String, byte[]> item : items.entrySet()) {
+                registry.put(timelinePath + SocialImplConstants.SEPARATOR + item.getKey(),
+                             newActivityResource(item.getValue()));
+            }
+            Resource timeline = registry.get(timelinePath);
+            timeline.setProperty(SocialImplConstants.ACTIVITY_TIMELINE_COMPLETE,
+                                 Boolean.TRUE.toString());
+            if (truncated) {
+                timeline.setProperty(SocialImplConstants.ACTIVITY_TIMELINE_TRUNCATED,
+                                     Boolean.TRUE.toString());
+            }
+            registry.put(timelinePath, timeline);
+            registry.commitTransaction();
         } catch (RegistryException e) {
-            log.error("Exception occured in registry" + e.getMessage());
-
+            registry.rollbackTransaction();
+            throw e;
         }
-
-
+        // activities saved while the timeline was built may have overfilled it
+        trimTimeline(timelinePath);
     }
 
     /**
-     * Method to store ActivityObject object as a registry resource
+     * Writes a saved activity to the timelines of its author and the friends of the author. A
+     * new activity is added to each timeline, while an updated activity only replaces the
+     * timeline items it already has. Timelines which have not been built yet are left to be
+     * built with the activity when they are first read.
      *
-     * @param activityObject    ActivityObject
-     * @param mediaItemResource Registry resource
-     * @param isUpdate          save/update
-     * @return Registry resource
+     * @param userId           The id of the author
+     * @param activityEntry    The saved activity
+     * @param content          The serialized activity
+     * @param previousItemName The timeline item name of the activity before the update, or null
+     *                         for a new activity
+     * @throws RegistryException   registry exception
+     * @throws SocialDataException if the friends of the author could not be retrieved
      */
-    private Resource saveActivityObjectProperties(ActivityObject activityObject,
-                                                  Resource mediaItemResource,
-                                                  boolean isUpdate) {
-        if (mediaItemResource == null || activityObject == null) {
-            return null;
+    private void saveToTimelines(String userId, ActivityEntry activityEntry, byte[] content,
+                                 String previousItemName)
+            throws RegistryException, SocialDataException {
+        String appId = activityEntry.getGenerator().getDisplayName();
+        String itemName = getTimelineItemName(userId, activityEntry.getId(),
+                                              activityEntry.getPublished());
+        for (String recipient : getTimelineRecipients(userId)) {
+            String timelinePath = getTimelinePath(recipient, appId);
+            if (!registry.resourceExists(timelinePath)) {
+                continue;
+            }
+            if (previousItemName != null) {
+                String previousItemPath = timelinePath + SocialImplConstants.SEPARATOR +
+                                          previousItemName;
+                if (!registry.resourceExists(previousItemPath)) {
+                    continue;
+                }
+                if (!previousItemName.equals(itemName)) {
+                    registry.delete(previousItemPath);
+                }
+            }
+            registry.put(timelinePath + SocialImplConstants.SEPARATOR + itemName,
+                         newActivityResource(content));
+            if (previousItemName == null) {
+                trimTimeline(timelinePath);
+            }
         }
-        Map<String, String> properties = new HashMap<String, String>();
+    }
 
-        if (activityObject.getUrl() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_STREAM_OBJECT_URL,
-                           activityObject.getUrl());
-        }
-        if (activityObject.getDisplayName() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_STREAM_OBJECT_DISPLAYNAME,
-                           activityObject.getDisplayName());
-        }
-        if (activityObject.getId() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_STREAM_OBJECT_ID,
-                           activityObject.getId());
-        }
-        if (activityObject.getContent() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_STREAM_OBJECT_CONTENT,
-                           activityObject.getContent());
-        }
-        if (activityObject.getObjectType() != null) {
-            properties.put(SocialImplConstants.ACTIVITYSTREAM_OBJECT_TYPE,
-                           activityObject.getObjectType());
+    /**
+     * Removes a deleted activity from the timelines of its author and the friends of the author
+     *
+     * @param userId   The id of the author
+     * @param appId    The appId of the activity
+     * @param itemName The timeline item name of the activity
+     * @throws RegistryException   registry exception
+     * @throws SocialDataException if the friends of the author could not be retrieved
+     */
+    private void removeFromTimelines(String userId, String appId, String itemName)
+            throws RegistryException, SocialDataException {
+        for (String recipient : getTimelineRecipients(userId)) {
+            String itemPath = getTimelinePath(recipient, appId) + SocialImplConstants.SEPARATOR +
+                              itemName;
+            if (registry.resourceExists(itemPath)) {
+                registry.delete(itemPath);
+            }
         }
-        if (activityObject.getPublished() != null) {
-            properties.put(SocialImplConstants.ACTIVITYSTREAM_OBJECT_PUBLISHED,
-                           activityObject.getPublished());
+    }
+
+    /**
+     * Drops the oldest items of a timeline beyond the configured timeline length
+     *
+     * @param timelinePath The path of the timeline
+     * @throws RegistryException registry exception
+     */
+    private void trimTimeline(String timelinePath) throws RegistryException {
+        Collection timeline = (Collection) registry.get(timelinePath);
+        String[] paths = timeline.getChildren();
+        if (paths.length <= timelineLength) {
+            return;
+        }
+        Arrays.sort(paths);
+        for (int i = timelineLength; i < paths.length; i++) {
+            try {
+                registry.delete(paths[i]);
+            } catch (ResourceNotFoundException e) {
+                // trimmed by a concurrent save
+            }
         }
-        if (activityObject.getSummary() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_STREAM_OBJECT_SUMMARY,
-                           activityObject.getSummary());
+        if (timeline.getProperty(SocialImplConstants.ACTIVITY_TIMELINE_TRUNCATED) == null) {
+            timeline.setProperty(SocialImplConstants.ACTIVITY_TIMELINE_TRUNCATED,
+                                 Boolean.TRUE.toString());
+            registry.put(timelinePath, timeline);
         }
-        if (activityObject.getUpdated() != null) {
-            properties.put(SocialImplConstants.ACTIVITY_STREAM_OBJECT_UPDATED,
-                           activityObject.getUpdated());
+    }
+
+    /**
+     * Returns the persons whose timelines show the activities of the given person, being the
+     * person and their friends
+     *
+     * @param userId The id of the person
+     * @return The ids of the persons
+     * @throws SocialDataException if the friends of the person could not be retrieved
+     */
+    private List<String> getTimelineRecipients(String userId) throws SocialDataException {
+        List<String> recipients = new ArrayList<String>();
+        recipients.add(userId);
+        RelationshipManagerImpl relationshipManager = new RelationshipManagerImpl();
+        relationshipManager.setRegistry(registry);
+        String[] friends = relationshipManager.getRelationshipList(userId);
+        if (friends != null) {
+            recipients.addAll(Arrays.asList(friends));
+        }
+        return recipients;
+    }
+
+    private String getTimelinePath(String userId, String appId) {
+        return SocialImplConstants.USER_REGISTRY_ROOT + userId +
+               SocialImplConstants.ACTIVITY_TIMELINE_PATH + appId;
+    }
+
+    /**
+     * Returns the name of the timeline item of an activity, which is the same in every timeline.
+     * Names order newest first, and hold the id of the author, so that the activities of a
+     * person can be told apart without reading them.
+     * <p/>
+     * Item name : {inverted published time}_{length of userId}_{userId}_{activityId}
+     *
+     * @param userId     The id of the author
+     * @param activityId The id of the activity
+     * @param published  The published time of the activity
+     * @return The item name
+     */
+    private String getTimelineItemName(String userId, String activityId, String published) {
+        long time = 0;
+        if (published != null) {
+            try {
+                time = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").parse(published).getTime();
+            } catch (ParseException e) {
+                log.debug("Unable to parse the published time " + published + " of activity " +
+                          activityId);
+            }
         }
-        /* if (activityObject.getDownstreamDuplicates() != null) {
-          properties.put(SocialImplConstants.ACTIVITY_STREAM_OBJECT_DOWNSTREAM_DUPLICATES,
-                         activityObject.getDownstreamDuplicates());
-      }
-      if (activityObject.getUpstreamDuplicates() != null) {
-          properties.put(SocialImplConstants.ACTIVITY_STREAM_OBJECT_UPSTREAM_DUPLICATES,
-                         activityObject.getUpstreamDuplicates());
-      }  */
-        attachPropertyToResource(mediaItemResource, properties, isUpdate);
-        return mediaItemResource;
+        return String.format("%019d_%d_%s_%s", Long.MAX_VALUE - time, userId.length(), userId,
+                             activityId);
     }
 
+    private String getTimelineItemUserId(String itemName) {
+        int start = itemName.indexOf('_') + 1;
+        int separator = itemName.indexOf('_', start);
+        int length = Integer.parseInt(itemName.substring(start, separator));
+        return itemName.substring(separator + 1, separator + 1 + length);
+    }
 
     /**
      * A Comparator to sort activities according to posted time
@@ -22,6 +22,7 @@ import org.wso2.carbon.registry.core.Collection;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
 import org.wso2.carbon.registry.social.api.SocialMessageException;
 import org.wso2.carbon.registry.social.api.message.Message;
 import org.wso2.carbon.registry.social.api.message.MessageCollection;
@@ -106,9 +107,10 @@ public class MessageManagerImpl implements MessageManager {
                 String[] childResourcePath = messageCollections.getChildren();
                 List<MessageCollection> resultList = new ArrayList<MessageCollection>();
                 for (String path : childResourcePath) {       // Creates MessageCollection objects for each child resource
-                    if (registry.resourceExists(path)) {
+                    Resource collectionResource = getResourceIfExists(path);
+                    if (collectionResource != null) {
                         resultList.add(getPropertiesAddedMessageCollectionObj(
-                                registry.get(path), fields));
+                                collectionResource, fields));
                     }
 
                 }
@@ -205,39 +207,63 @@ public class MessageManagerImpl implements MessageManager {
 
     /**
      * Returns an array of messages that correspond to the passed in data
+     * <p>
+     * If no message ids are given, a page of the messages in the message collection is returned,
+     * listing the collection once and reading each message of the page in a single call
+     * </p>
      *
      * @param userId          The userId of the person to fetch message for
      * @param msgCollectionId The message Collection ID to fetch from, default @all
-     * @param fields          The fields to fetch for the messages
-     * @param msgIds          An explicit set of message ids to fetch
-     * @param options         Options to control the fetch
+     * @param fields          The fields to fetch for the messages, all fields if null or empty
+     * @param msgIds          An explicit set of message ids to fetch, or null or empty to fetch
+     *                        the messages of the collection
+     * @param options         Pagination details. Explicit message ids are only paged if given
      * @throws SocialMessageException
      */
     public Message[] getMessages(String userId, String msgCollectionId, Set<String> fields,
                                  List<String> msgIds, FilterOptions options)
             throws SocialMessageException {
-        if (userId == null || msgCollectionId == null || msgIds == null) {
+        if (userId == null || msgCollectionId == null) {
             throw new SocialMessageException("Invalid input parameters to retrieve message");
         }
         Message[] messages;
         List<Message> messagesList = new ArrayList<Message>();
+        String msgCollectionPath = SocialImplConstants.USER_REGISTRY_ROOT + userId +
+                                   SocialImplConstants.MESSAGES_PATH +
+                                   SocialImplConstants.SEPARATOR + msgCollectionId;
+        int first = options != null ? options.getFirst() : 0;
+        int max = options != null && options.getMax() > 0 ? options.getMax() :
+                  SocialImplConstants.DEFAULT_RETURN_ARRAY_SIZE;
 
         try {
             registry = getRegistry();
-            for (String id : msgIds) {
-                String messageResourcePath = SocialImplConstants.USER_REGISTRY_ROOT + userId +
-                                             SocialImplConstants.MESSAGES_PATH +
-                                             SocialImplConstants.SEPARATOR + msgCollectionId +
-                                             SocialImplConstants.SEPARATOR + id;
-                Resource messageResource;
-                if (registry.resourceExists(messageResourcePath)) {
-                    messageResource = registry.get(messageResourcePath);
-                    //TODO: FilterOptions
+            String[] messageResourcePaths;
+            if (msgIds == null || msgIds.isEmpty()) {
+                if (!registry.resourceExists(msgCollectionPath)) {
+                    log.error("No messages found for the user " + userId);
+                    return null;
+                }
+                messageResourcePaths = ((Collection) registry.get(msgCollectionPath, first, max))
+                        .getChildren();
+            } else {
+                List<String> pageIds = msgIds;
+                if (options != null) {
+                    pageIds = msgIds.subList(Math.min(first, msgIds.size()),
+                                             Math.min(first + max, msgIds.size()));
+                }
+                messageResourcePaths = new String[pageIds.size()];
+                for (int i = 0; i < messageResourcePaths.length; i++) {
+                    messageResourcePaths[i] = msgCollectionPath + SocialImplConstants.SEPARATOR +
+                                              pageIds.get(i);
+                }
+            }
+            for (String messageResourcePath : messageResourcePaths) {
+                Resource messageResource = getResourceIfExists(messageResourcePath);
+                if (messageResource != null) {
                     messagesList.add(getPropertiesAddedMessageOjb(messageResource, fields));
 
                 } else {
-                    log.error("Message with specified messageId " + id +
-                              " is not found");
+                    log.error("Message at " + messageResourcePath + " is not found");
 
                 }
             }
@@ -365,6 +391,21 @@ public class MessageManagerImpl implements MessageManager {
         }
     }
 
+    /**
+     * Reads a registry resource in a single call, rather than checking for its existence first
+     *
+     * @param path The path of the resource
+     * @return The resource, or null if there is no resource at the path
+     * @throws RegistryException
+     */
+    private Resource getResourceIfExists(String path) throws RegistryException {
+        try {
+            return registry.get(path);
+        } catch (ResourceNotFoundException e) {
+            return null;
+        }
+    }
+
     /**
      * Saves MessageCollection object as a Registry resource
      *
@@ -687,41 +728,86 @@ public class MessageManagerImpl implements MessageManager {
      * @return
      */
     private Message getPropertiesAddedMessageOjb(Resource msgResource, Set<String> fields) {
-        Message messageObj = new MessageImpl();
-        for (String field : fields) {
-            if (SocialImplConstants.MSG_APP_URL.equalsIgnoreCase(field.trim())) {
-                messageObj.setAppUrl(msgResource.getProperty(SocialImplConstants.MSG_APP_URL));
-            } else if (SocialImplConstants.MSG_BODY.equalsIgnoreCase(field.trim())) {
-                messageObj.setBody(msgResource.getProperty(SocialImplConstants.MSG_BODY));
-            } else if (SocialImplConstants.MSG_BODY_ID.equalsIgnoreCase(field.trim())) {
-                messageObj.setBodyId(msgResource.getProperty(SocialImplConstants.MSG_BODY_ID));
-            } else if (SocialImplConstants.MSG_ID.equalsIgnoreCase(field.trim())) {
-                messageObj.setId(msgResource.getProperty(SocialImplConstants.MSG_ID));
-            } else if (SocialImplConstants.MSG_IN_REPLY_TO.equalsIgnoreCase(field.trim())) {
-                messageObj.setInReplyTo(
-                        msgResource.getProperty(SocialImplConstants.MSG_IN_REPLY_TO));
-            } else if (SocialImplConstants.MSG_SENDER_ID.equalsIgnoreCase(field.trim())) {
-                messageObj.setSenderId(msgResource.getProperty(SocialImplConstants.MSG_SENDER_ID));
-            } else if (SocialImplConstants.MSG_STATUS.equalsIgnoreCase(field.trim())) {
-                messageObj.setStatus(Message.Status.valueOf(
-                        msgResource.getProperty(SocialImplConstants.MSG_STATUS)));
-            } else if (SocialImplConstants.MSG_TIME_SENT.equalsIgnoreCase(field.trim())) {
-                messageObj.setTimeSent(new Date(Long.valueOf(
-                        msgResource.getProperty(SocialImplConstants.MSG_TIME_SENT))));
-            } else if (SocialImplConstants.MSG_TITLE.equalsIgnoreCase(field.trim())) {
-                messageObj.setTitle(msgResource.getProperty(SocialImplConstants.MSG_TITLE));
-            } else if (SocialImplConstants.MSG_TITLE_ID.equalsIgnoreCase(field.trim())) {
-                messageObj.setTitleId(msgResource.getProperty(SocialImplConstants.MSG_TITLE_ID));
-            } else if (SocialImplConstants.MSG_TYPE.equalsIgnoreCase(field.trim())) {
-                messageObj.setType(Message.Type.valueOf(
-                        msgResource.getProperty(SocialImplConstants.MSG_TYPE)));
-            } else if (SocialImplConstants.MSG_UPDATED.equalsIgnoreCase(field.trim())) {
-                messageObj.setUpdated(new Date(Long.valueOf(
-                        msgResource.getProperty(SocialImplConstants.MSG_UPDATED))));
+        MessageImpl messageObj = new MessageImpl();
+        String value;
+        if (isFieldRequested(fields, SocialImplConstants.MSG_APP_URL)) {
+            messageObj.setAppUrl(msgResource.getProperty(SocialImplConstants.MSG_APP_URL));
+        }
+        if (isFieldRequested(fields, SocialImplConstants.MSG_BODY)) {
+            messageObj.setBody(msgResource.getProperty(SocialImplConstants.MSG_BODY));
+        }
+        if (isFieldRequested(fields, SocialImplConstants.MSG_BODY_ID)) {
+            messageObj.setBodyId(msgResource.getProperty(SocialImplConstants.MSG_BODY_ID));
+        }
+        if (isFieldRequested(fields, SocialImplConstants.MSG_ID)) {
+            messageObj.setId(msgResource.getProperty(SocialImplConstants.MSG_ID));
+        }
+        if (isFieldRequested(fields, SocialImplConstants.MSG_IN_REPLY_TO)) {
+            messageObj.setInReplyTo(msgResource.getProperty(SocialImplConstants.MSG_IN_REPLY_TO));
+        }
+        if (isFieldRequested(fields, SocialImplConstants.MSG_SENDER_ID)) {
+            messageObj.setSenderId(msgResource.getProperty(SocialImplConstants.MSG_SENDER_ID));
+        }
+        if (isFieldRequested(fields, SocialImplConstants.MSG_STATUS) &&
+            (value = msgResource.getProperty(SocialImplConstants.MSG_STATUS)) != null) {
+            messageObj.setStatus(Message.Status.valueOf(value));
+        }
+        if (isFieldRequested(fields, SocialImplConstants.MSG_TIME_SENT) &&
+            (value = msgResource.getProperty(SocialImplConstants.MSG_TIME_SENT)) != null) {
+            messageObj.setTimeSent(new Date(Long.valueOf(value)));
+        }
+        if (isFieldRequested(fields, SocialImplConstants.MSG_TITLE)) {
+            messageObj.setTitle(msgResource.getProperty(SocialImplConstants.MSG_TITLE));
+        }
+        if (isFieldRequested(fields, SocialImplConstants.MSG_TITLE_ID)) {
+            messageObj.setTitleId(msgResource.getProperty(SocialImplConstants.MSG_TITLE_ID));
+        }
+        if (isFieldRequested(fields, SocialImplConstants.MSG_TYPE) &&
+            (value = msgResource.getProperty(SocialImplConstants.MSG_TYPE)) != null) {
+            messageObj.setType(Message.Type.valueOf(value));
+        }
+        if (isFieldRequested(fields, SocialImplConstants.MSG_UPDATED) &&
+            (value = msgResource.getProperty(SocialImplConstants.MSG_UPDATED)) != null) {
+            messageObj.setUpdated(new Date(Long.valueOf(value)));
+        }
+        if (isFieldRequested(fields, SocialImplConstants.MSG_RECIPIENTS)) {
+            messageObj.setRecipients(
+                    msgResource.getPropertyValues(SocialImplConstants.MSG_RECIPIENTS));
+        }
+        if (isFieldRequested(fields, SocialImplConstants.MSG_REPLIES)) {
+            messageObj.setReplies(msgResource.getPropertyValues(SocialImplConstants.MSG_REPLIES));
+        }
+        List<String> urlValues;
+        if (isFieldRequested(fields, SocialImplConstants.MSG_URLS) &&
+            (urlValues = msgResource.getPropertyValues(SocialImplConstants.MSG_URLS)) != null) {
+            List<Url> urls = new ArrayList<Url>();
+            for (String urlString : urlValues) {
+                Url url = new UrlImpl();
+                url.setLinkText(urlString);
+                urls.add(url);
             }
+            messageObj.setUrls(urls);
         }
 
-
         return messageObj;
     }
+
+    /**
+     * Checks whether a field is to be set, where no fields at all means all of them
+     *
+     * @param fields The requested fields
+     * @param field  The field to check
+     * @return true if the field is to be set
+     */
+    private boolean isFieldRequested(Set<String> fields, String field) {
+        if (fields == null || fields.isEmpty()) {
+            return true;
+        }
+        for (String requested : fields) {
+            if (field.equalsIgnoreCase(requested.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
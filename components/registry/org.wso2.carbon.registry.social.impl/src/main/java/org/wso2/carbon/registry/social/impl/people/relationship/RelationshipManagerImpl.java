@@ -228,6 +228,8 @@ public class RelationshipManagerImpl implements RelationshipManager {
                                     SocialImplConstants.ASS_TYPE_RELATIONSHIP);
             registry.addAssociation(ownerResourcePath, viewerResourcePath,
                                     SocialImplConstants.ASS_TYPE_RELATIONSHIP);
+            removeTimelines(viewer);
+            removeTimelines(owner);
             /* remove owner from viewer's pending requests list */
             viewerResourcePath = viewerResourcePath +
                                  SocialImplConstants.PENDING_RELATIONSHIP_REQUEST_PATH;
@@ -280,6 +282,21 @@ public class RelationshipManagerImpl implements RelationshipManager {
         return newResult;
     }
 
+    /**
+     * Removes the activity timelines of a person, which show the activities of their friends.
+     * They are built again from the stored activities when they are next read.
+     *
+     * @param userId The userId of the person whose friends have changed
+     * @throws RegistryException registry exception
+     */
+    private void removeTimelines(String userId) throws RegistryException {
+        String timelinesPath = SocialImplConstants.USER_REGISTRY_ROOT + userId +
+                               SocialImplConstants.ACTIVITY_TIMELINE_ROOT;
+        if (registry.resourceExists(timelinesPath)) {
+            registry.delete(timelinesPath);
+        }
+    }
+
     private String getUserName(String profilePath) throws SocialDataException {
         String userName ;
         userName = profilePath.substring(7); // because of '/users/'
@@ -358,6 +375,8 @@ public class RelationshipManagerImpl implements RelationshipManager {
                                        SocialImplConstants.ASS_TYPE_RELATIONSHIP);
             registry.removeAssociation(ownerResourcePath, viewerResourcePath,
                                        SocialImplConstants.ASS_TYPE_RELATIONSHIP);
+            removeTimelines(viewer);
+            removeTimelines(owner);
 
         } catch (RegistryException e) {
             log.error(e.getMessage(), e);
@@ -0,0 +1,83 @@
+/*
+*  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.registry.social.impl.test.activity;
+
+import junit.framework.TestCase;
+import org.wso2.carbon.registry.social.api.activityStream.ActivityEntry;
+import org.wso2.carbon.registry.social.api.activityStream.ActivityObject;
+import org.wso2.carbon.registry.social.api.activityStream.MediaLink;
+import org.wso2.carbon.registry.social.impl.activityStream.ActivityEntryImpl;
+import org.wso2.carbon.registry.social.impl.activityStream.ActivityEntrySerializer;
+import org.wso2.carbon.registry.social.impl.activityStream.ActivityObjectImpl;
+import org.wso2.carbon.registry.social.impl.activityStream.MediaLinkImpl;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class ActivityEntrySerializerTest extends TestCase {
+
+    public void testRoundTrip() throws IOException {
+        ActivityEntry activityEntry = new ActivityEntryImpl();
+        activityEntry.setId("7");
+        activityEntry.setTitle("A title with non-ASCII \u00e9\u4e2d");
+        activityEntry.setVerb("post");
+        activityEntry.setPublished("2010/06/18 10:15:30");
+
+        MediaLink icon = new MediaLinkImpl();
+        icon.setUrl("http://example.com/icon.png");
+        icon.setWidth(16);
+        activityEntry.setIcon(icon);
+
+        ActivityObject actor = new ActivityObjectImpl();
+        actor.setDisplayName("admin");
+        ActivityObject author = new ActivityObjectImpl();
+        author.setId("author");
+        actor.setAuthor(author);
+        actor.setAttachments(Arrays.<ActivityObject>asList(new ActivityObjectImpl()));
+        actor.setUpstreamDuplicates(Arrays.asList("a", "b"));
+        activityEntry.setActor(actor);
+
+        ActivityEntry result = ActivityEntrySerializer.deserialize(
+                ActivityEntrySerializer.serialize(activityEntry));
+
+        assertEquals("7", result.getId());
+        assertEquals(activityEntry.getTitle(), result.getTitle());
+        assertEquals("post", result.getVerb());
+        assertEquals("2010/06/18 10:15:30", result.getPublished());
+        assertNull(result.getContent());
+        assertEquals("http://example.com/icon.png", result.getIcon().getUrl());
+        assertEquals(Integer.valueOf(16), result.getIcon().getWidth());
+        assertNull(result.getIcon().getHeight());
+        assertEquals("admin", result.getActor().getDisplayName());
+        assertEquals("author", result.getActor().getAuthor().getId());
+        assertEquals(1, result.getActor().getAttachments().size());
+        assertEquals(Arrays.asList("a", "b"), result.getActor().getUpstreamDuplicates());
+        assertNull(result.getActor().getDownstreamDuplicates());
+        assertNull(result.getGenerator());
+        assertNull(result.getTarget());
+    }
+
+    public void testUnsupportedVersion() {
+        try {
+            ActivityEntrySerializer.deserialize(new byte[]{0});
+            fail("A format version which was never written should not be read");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+*  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.registry.social.impl.test.activity;
+
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.internal.RegistryCoreServiceComponent;
+import org.wso2.carbon.registry.core.jdbc.EmbeddedRegistryService;
+import org.wso2.carbon.registry.social.api.activityStream.ActivityEntry;
+import org.wso2.carbon.registry.social.impl.SocialImplConstants;
+import org.wso2.carbon.registry.social.impl.activityStream.ActivityEntryImpl;
+import org.wso2.carbon.registry.social.impl.activityStream.ActivityStreamManagerImpl;
+import org.wso2.carbon.registry.social.impl.people.relationship.RelationshipManagerImpl;
+import org.wso2.carbon.registry.social.impl.utils.FilterOptionsImpl;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class ActivityStreamManagerImplTest extends BaseTestCase {
+
+    protected static Registry registry = null;
+
+    public void setUp() throws RegistryException {
+        super.setUp();
+        if (registry == null) {
+            EmbeddedRegistryService embeddedRegistry = ctx.getEmbeddedRegistryService();
+            RegistryCoreServiceComponent component = new RegistryCoreServiceComponent() {
+                {
+                    setRealmService(ctx.getRealmService());
+                }
+            };
+            component.registerBuiltInHandlers(embeddedRegistry);
+            registry = embeddedRegistry.getGovernanceUserRegistry("admin", "admin");
+        }
+    }
+
+    public void testTimelineIsBuiltFromStoredActivities() throws Exception {
+        makeFriends("timelineUserA", "timelineUserB");
+        ActivityStreamManagerImpl manager = newManager(0);
+        createActivity(manager, "timelineUserB", "first", "2010/01/01 10:00:00");
+        createActivity(manager, "timelineUserB", "second", "2010/01/02 10:00:00");
+        createActivity(manager, "timelineUserB", "third", "2010/01/03 10:00:00");
+
+        // the activities saved before enabling timelines are shown by them
+        ActivityStreamManagerImpl timelineManager = newManager(2);
+        ActivityEntry[] activities = getFriendsActivities(timelineManager, "timelineUserA", 0, 2);
+        assertEquals(2, activities.length);
+        assertEquals("third", activities[0].getTitle());
+        assertEquals("second", activities[1].getTitle());
+
+        // a page reaching past the timeline is read from the activities of each friend
+        activities = getFriendsActivities(timelineManager, "timelineUserA", 0, 0);
+        assertEquals(titles("first", "second", "third"), titles(activities));
+
+        createActivity(timelineManager, "timelineUserB", "fourth", "2010/01/04 10:00:00");
+        activities = getFriendsActivities(timelineManager, "timelineUserA", 0, 2);
+        assertEquals(2, activities.length);
+        assertEquals("fourth", activities[0].getTitle());
+        assertEquals("third", activities[1].getTitle());
+        activities = getFriendsActivities(timelineManager, "timelineUserA", 0, 0);
+        assertEquals(titles("first", "second", "third", "fourth"), titles(activities));
+    }
+
+    public void testTimelineFollowsFriendshipChanges() throws Exception {
+        ActivityStreamManagerImpl manager = newManager(5);
+        createActivity(manager, "timelineUserC", "news", "2010/01/01 10:00:00");
+        assertEquals(0, getFriendsActivities(manager, "timelineUserD", 0, 0).length);
+
+        makeFriends("timelineUserD", "timelineUserC");
+        ActivityEntry[] activities = getFriendsActivities(manager, "timelineUserD", 0, 0);
+        assertEquals(1, activities.length);
+        assertEquals("news", activities[0].getTitle());
+
+        RelationshipManagerImpl relationshipManager = new RelationshipManagerImpl();
+        relationshipManager.setRegistry(registry);
+        relationshipManager.removeRelationship("timelineUserC", "timelineUserD");
+        assertEquals(0, getFriendsActivities(manager, "timelineUserD", 0, 0).length);
+    }
+
+    public void testActivitiesOfFriendsArePagedTogether() throws Exception {
+        makeFriends("pagingUserA", "pagingUserB");
+        makeFriends("pagingUserA", "pagingUserC");
+        ActivityStreamManagerImpl manager = newManager(1);
+        createActivity(manager, "pagingUserB", "b1", "2010/01/01 10:00:00");
+        createActivity(manager, "pagingUserC", "c1", "2010/01/02 10:00:00");
+        createActivity(manager, "pagingUserB", "b2", "2010/01/03 10:00:00");
+        createActivity(manager, "pagingUserC", "c2", "2010/01/04 10:00:00");
+
+        // the page reaches past the timeline, and is taken from the activities of both friends
+        // merged by published time
+        ActivityEntry[] activities = getFriendsActivities(manager, "pagingUserA", 1, 2);
+        assertEquals(2, activities.length);
+        assertEquals("b2", activities[0].getTitle());
+        assertEquals("c1", activities[1].getTitle());
+    }
+
+    public void testLegacyActivitiesAreConverted() throws Exception {
+        String activitiesPath = SocialImplConstants.USER_REGISTRY_ROOT + "legacyUser" +
+                                SocialImplConstants.ACTIVITY_PATH + "legacy";
+        putLegacyActivity(activitiesPath, "1", "legacy post");
+        putLegacyActivity(activitiesPath, "2", "legacy comment");
+
+        ActivityStreamManagerImpl manager = newManager(0);
+        ActivityEntry[] activities = manager.getActivityEntries(new String[]{"legacyUser"},
+                SocialImplConstants.GROUP_ID_SELF, "legacy", null, null);
+        assertEquals(titles("legacy post", "legacy comment"), titles(activities));
+        for (String activityId : new String[]{"1", "2"}) {
+            Resource activityResource = registry.get(activitiesPath + "/" + activityId);
+            assertFalse(activityResource instanceof Collection);
+            assertEquals(SocialImplConstants.ACTIVITY_MEDIA_TYPE, activityResource.getMediaType());
+        }
+
+        ActivityEntry activityEntry = manager.getActivityEntry("legacyUser",
+                SocialImplConstants.GROUP_ID_SELF, "legacy", null, "1");
+        assertEquals("1", activityEntry.getId());
+        assertEquals("legacy post", activityEntry.getTitle());
+        assertEquals("post", activityEntry.getVerb());
+        assertEquals("legacyUser", activityEntry.getActor().getDisplayName());
+    }
+
+    private void putLegacyActivity(String activitiesPath, String activityId, String title)
+            throws RegistryException {
+        String activityPath = activitiesPath + "/" + activityId;
+        Collection activityCollection = registry.newCollection();
+        activityCollection.setProperty(SocialImplConstants.ACTIVITY_STREAM_ID, activityId);
+        activityCollection.setProperty(SocialImplConstants.ACTIVITYSTREAM_TITLE, title);
+        activityCollection.setProperty(SocialImplConstants.ACTIVITY_STREAM_VERB, "post");
+        registry.put(activityPath, activityCollection);
+        Resource actor = registry.newResource();
+        actor.setProperty(SocialImplConstants.ACTIVITY_STREAM_OBJECT_DISPLAYNAME, "legacyUser");
+        registry.put(activityPath + SocialImplConstants.ACTIVITY_STREAM_ACTOR_PATH, actor);
+    }
+
+    private ActivityStreamManagerImpl newManager(int timelineLength) {
+        ActivityStreamManagerImpl manager = new ActivityStreamManagerImpl();
+        manager.setRegistry(registry);
+        manager.setTimelineLength(timelineLength);
+        return manager;
+    }
+
+    private void makeFriends(String viewer, String owner) throws Exception {
+        RelationshipManagerImpl relationshipManager = new RelationshipManagerImpl();
+        relationshipManager.setRegistry(registry);
+        relationshipManager.requestRelationship(viewer, owner);
+        relationshipManager.acceptRelationshipRequest(owner, viewer);
+    }
+
+    private void createActivity(ActivityStreamManagerImpl manager, String userId, String title,
+                                String published) throws Exception {
+        ActivityEntry activityEntry = new ActivityEntryImpl();
+        activityEntry.setTitle(title);
+        activityEntry.setPublished(published);
+        manager.createActivityEntry(userId, SocialImplConstants.GROUP_ID_SELF, "timeline", null,
+                                    activityEntry);
+    }
+
+    private ActivityEntry[] getFriendsActivities(ActivityStreamManagerImpl manager, String userId,
+                                                 int first, int max) throws Exception {
+        FilterOptionsImpl options = new FilterOptionsImpl();
+        options.setFirst(first);
+        options.setMax(max);
+        return manager.getActivityEntries(new String[]{userId},
+                                          SocialImplConstants.GROUP_ID_FRIENDS, "timeline", null,
+                                          options);
+    }
+
+    private static Set<String> titles(String... titles) {
+        Set<String> result = new HashSet<String>();
+        for (String title : titles) {
+            result.add(title);
+        }
+        return result;
+    }
+
+    private static Set<String> titles(ActivityEntry[] activities) {
+        Set<String> result = new HashSet<String>();
+        for (ActivityEntry activity : activities) {
+            result.add(activity.getTitle());
+        }
+        return result;
+    }
+}
@@ -26,11 +26,13 @@ import org.wso2.carbon.registry.core.jdbc.realm.RegistryRealm;
 import org.wso2.carbon.registry.social.api.message.Message;
 import org.wso2.carbon.registry.social.api.message.MessageCollection;
 import org.wso2.carbon.registry.social.api.people.userprofile.model.Url;
+import org.wso2.carbon.registry.social.impl.SocialImplConstants;
 import org.wso2.carbon.registry.social.impl.message.MessageCollectionImpl;
 import org.wso2.carbon.registry.social.impl.message.MessageImpl;
 import org.wso2.carbon.registry.social.impl.message.MessageManagerImpl;
 import org.wso2.carbon.registry.social.impl.people.userprofile.model.impl.UrlImpl;
 import org.wso2.carbon.registry.social.impl.test.activity.BaseTestCase;
+import org.wso2.carbon.registry.social.impl.utils.FilterOptionsImpl;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -180,5 +182,71 @@ public class MessageManagerImplTest extends BaseTestCase {
 
     }
 
+    // methods to test
+    // getMessages() without message ids
+    public void testMessagePages() throws Exception {
+        manager = new MessageManagerImpl();
+        manager.setRegistry(registry);
+        MessageCollection msgColl = new MessageCollectionImpl();
+        msgColl.setTitle("inbox");
+        msgColl.setId("1");
+        manager.createMessageCollection("UserB", msgColl, "1");
+        for (int i = 0; i < 5; i++) {
+            Message message = new MessageImpl();
+            message.setId(Integer.toString(i));
+            message.setTitle("Message " + i);
+            message.setBody("Body " + i);
+            manager.createMessage("UserB", "1", message);
+        }
+        /* all messages, all fields */
+        Message[] messages = manager.getMessages("UserB", "1", null, null, null);
+        assertNotNull(messages);
+        assertEquals(5, messages.length);
+        assertNotNull(messages[0].getBody());
+        /* a page of the messages, with only the title */
+        Set<String> fields = new HashSet<String>();
+        fields.add("title");
+        FilterOptionsImpl options = new FilterOptionsImpl();
+        options.setFirst(1);
+        options.setMax(2);
+        messages = manager.getMessages("UserB", "1", fields, new ArrayList<String>(), options);
+        assertNotNull(messages);
+        assertEquals(2, messages.length);
+        assertNotNull(messages[0].getTitle());
+        assertNull(messages[0].getBody());
+        assertNull(messages[0].getId());
+    }
+
+    public void testExplicitMessageIds() throws Exception {
+        manager = new MessageManagerImpl();
+        manager.setRegistry(registry);
+        MessageCollection msgColl = new MessageCollectionImpl();
+        msgColl.setTitle("inbox");
+        msgColl.setId("1");
+        manager.createMessageCollection("UserE", msgColl, "1");
+        int count = SocialImplConstants.DEFAULT_RETURN_ARRAY_SIZE + 5;
+        List<String> msgIds = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            Message message = new MessageImpl();
+            message.setId(Integer.toString(i));
+            message.setTitle("Message " + i);
+            manager.createMessage("UserE", "1", message);
+            msgIds.add(Integer.toString(i));
+        }
+        /* explicit ids are all returned without pagination details */
+        Message[] messages = manager.getMessages("UserE", "1", null, msgIds, null);
+        assertNotNull(messages);
+        assertEquals(count, messages.length);
+        /* and paged with them */
+        FilterOptionsImpl options = new FilterOptionsImpl();
+        options.setFirst(3);
+        options.setMax(2);
+        messages = manager.getMessages("UserE", "1", null, msgIds, options);
+        assertNotNull(messages);
+        assertEquals(2, messages.length);
+        assertEquals("Message 3", messages[0].getTitle());
+        assertEquals("Message 4", messages[1].getTitle());
+    }
+
 
 }
@@ -17,6 +17,9 @@
 */
 package org.wso2.carbon.registry.webdav;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -28,7 +31,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.jackrabbit.webdav.DavConstants;
 import org.apache.jackrabbit.webdav.DavCompliance;
 import org.apache.jackrabbit.webdav.DavException;
@@ -63,6 +69,8 @@ import org.wso2.carbon.registry.core.ResourceImpl;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 
 public class RegistryResource implements DavResource {
+    private static final Log log = LogFactory.getLog(RegistryResource.class);
+
 	private Resource underLineResource;
 	private Registry registry;
 	private RegistryWebDavContext resourceCache;
@@ -70,10 +78,16 @@ public class RegistryResource implements DavResource {
 	private String path;
 	private boolean doesNotExists = false;
 	private Map<DavPropertyName,DavProperty> properties = new HashMap<DavPropertyName,DavProperty>();
+	// the metadata the live properties above were computed from
+	private Resource propertiesSource;
 	private boolean lockable = false;
 	private LockManager lockManager;
 	private DavSession session;
 
+	// buffer used to copy content streams, large enough to keep the number of reads and writes low
+	// for big files
+	private static final int BUFFER_SIZE = 64 * 1024;
+
 	private static final String COMPLIANCE_CLASSES = DavCompliance.concatComplianceClasses( new String[] {DavCompliance._1_});
 
 	public RegistryResource(RegistryWebDavContext webdavContext,
@@ -98,8 +112,6 @@ public class RegistryResource implements DavResource {
 	private Resource getUnderlineResource(){
 		try {
 			this.underLineResource = registry.get(path);
-	        // adding the properties requested from the webDAV client
-			addRequiredProperties();
 			return underLineResource;
 		} catch (RegistryException e) {
 			doesNotExists = true;
@@ -107,9 +119,27 @@ public class RegistryResource implements DavResource {
 		}
 	}
 
+    // PROPFIND is answered from the resource metadata cached in the webDAV context, the content
+    // is only read when it is actually requested.
+    private Resource getResourceMetaData() {
+        try {
+            Resource metaData = resourceCache.getResourceMetaData(path);
+            // adding the properties requested from the webDAV client, once for each metadata read
+            if (metaData != propertiesSource) {
+                addRequiredProperties(metaData);
+                propertiesSource = metaData;
+            }
+            return metaData;
+        } catch (RegistryException e) {
+            doesNotExists = true;
+            throw new RuntimeException(e);
+        }
+    }
+
     // add the properties required by the webDAV client
-    private void addRequiredProperties() {
-        if (underLineResource instanceof Collection) {
+    private void addRequiredProperties(Resource metaData) {
+        String eTag = getETag(metaData);
+        if (metaData instanceof Collection) {
             addDavProperty(DavPropertyName.RESOURCETYPE, new ResourceType(ResourceType.COLLECTION));
             // Windows XP support
             addDavProperty(DavPropertyName.ISCOLLECTION, "1");
@@ -117,39 +147,32 @@ public class RegistryResource implements DavResource {
             addDavProperty(DavPropertyName.RESOURCETYPE, new ResourceType(ResourceType.DEFAULT_RESOURCE));
             // Windows XP support
             addDavProperty(DavPropertyName.ISCOLLECTION, "0");
-            addDavProperty(DavPropertyName.GETCONTENTLENGTH, getContentLength());
-            addDavProperty(DavPropertyName.GETCONTENTTYPE, underLineResource.getMediaType());
+            // left out when the length was not recorded, rather than reading the content
+            long contentLength = resourceCache.getContentLength(path, eTag, metaData);
+            if (contentLength >= 0) {
+                addDavProperty(DavPropertyName.GETCONTENTLENGTH, contentLength);
+            }
+            addDavProperty(DavPropertyName.GETCONTENTTYPE, metaData.getMediaType());
         }
 
-        addDavProperty(DavPropertyName.create("author"), underLineResource.getAuthorUserName());
-        addDavProperty(DavPropertyName.GETETAG, getETag());
+        addDavProperty(DavPropertyName.create("author"), metaData.getAuthorUserName());
+        addDavProperty(DavPropertyName.GETETAG, eTag);
         addDavProperty(DavPropertyName.DISPLAYNAME, getDisplayName());
         addDavProperty(DavPropertyName.CREATIONDATE, DavConstants.creationDateFormat.format(
-                                                                                   underLineResource.getCreatedTime()));
+                                                                                   metaData.getCreatedTime()));
         addDavProperty(DavPropertyName.GETLASTMODIFIED, DavConstants.modificationDateFormat.format(
-                                                                                  underLineResource.getLastModified()));
+                                                                                  metaData.getLastModified()));
 
     }
 
-    //TODO: fix ETag
-    // the proper ETag implementation should be applied in the future.
-    private String getETag() {
-        return path;
-    }
-    // returns the size -the number of bytes - of the content
-    private int getContentLength() {
-        int bytesRead = 0;
-        try {
-
-            Object o = this.underLineResource.getContent();
-            if (null != o && o instanceof byte[]) {
-                bytesRead = ((byte[]) o).length;
-            }
-        } catch (RegistryException e) {
-            bytesRead = 0;
+    // the ETag changes whenever a new version of the resource is stored
+    private static String getETag(Resource metaData) {
+        long versionNumber = 0;
+        if (metaData instanceof ResourceImpl) {
+            versionNumber = ((ResourceImpl) metaData).getVersionNumber();
         }
-
-        return bytesRead;
+        long lastModified = metaData.getLastModified() != null ? metaData.getLastModified().getTime() : 0;
+        return "\"" + versionNumber + "-" + lastModified + "\"";
     }
 
     // creates and adds a dav property
@@ -165,10 +188,13 @@ public class RegistryResource implements DavResource {
 //        }
         try {
             if (resource instanceof RegistryResource) {
-                if (getUnderlineResource() instanceof Collection) {
+                if (isCollection()) {
                     if (resource.getResourcePath().contains(path)) {
 
                         Resource resourceImpl = ((RegistryResource) resource).getUnderLineResource();
+                        if (null == resourceImpl && resource.exists()) {
+                            resourceImpl = ((RegistryResource) resource).getUnderlineResource();
+                        }
                         boolean isCollection = resourceImpl instanceof Collection;
                         // 'resourceImpl == null' indicates it's a new non-collection resource created by the client
                         // @see:  org.wso2.carbon.registry.webdav.RegistryServlet.doMkCol()
@@ -186,10 +212,16 @@ public class RegistryResource implements DavResource {
                             }
                             //}
                         }
-                        if (!isCollection) {
-                            resourceImpl.setContentStream(inputContext.getInputStream());
+                        if (isCollection) {
+                            resourceCache.getRegistry().put(resource.getResourcePath(), resourceImpl);
+                            resourceCache.invalidate(resource.getResourcePath());
+                        } else {
+                            long length = putContent(resource.getResourcePath(), resourceImpl, inputContext);
+                            resourceCache.invalidate(resource.getResourcePath());
+                            // the length is known now, so it never has to be measured from the content
+                            resourceCache.setContentLength(resource.getResourcePath(),
+                                    getETag(resourceCache.getResourceMetaData(resource.getResourcePath())), length);
                         }
-                        resourceCache.getRegistry().put(resource.getResourcePath(), resourceImpl);
 					} else {
 						throw new DavException(DavServletResponse.SC_BAD_REQUEST,
 						"Internal Error, Parent and target path does not match");
@@ -209,12 +241,55 @@ public class RegistryResource implements DavResource {
 
 	}
 
+    // The uploaded content is first spooled to a temporary file, so that an incomplete upload never
+    // reaches the registry and the registry is handed a stream of known length, which is returned.
+    private long putContent(String resourcePath, Resource resourceImpl, InputContext inputContext)
+            throws DavException, RegistryException {
+        File tempFile = null;
+        InputStream in = null;
+        try {
+            tempFile = File.createTempFile("registry-webdav", ".tmp");
+            long length;
+            OutputStream out = new FileOutputStream(tempFile);
+            try {
+                length = copy(inputContext.getInputStream(), out, -1);
+            } finally {
+                out.close();
+            }
+            long expectedLength = inputContext.getContentLength();
+            if (expectedLength >= 0 && expectedLength != length) {
+                throw new DavException(DavServletResponse.SC_BAD_REQUEST, "Received " + length +
+                        " bytes for " + resourcePath + ", expected " + expectedLength);
+            }
+            in = new FileInputStream(tempFile);
+            resourceImpl.setContentStream(in);
+            // recorded with the content, so that the length is known without reading the content
+            resourceImpl.setProperty(RegistryWebDavContext.CONTENT_LENGTH_PROPERTY, Long.toString(length));
+            resourceCache.getRegistry().put(resourcePath, resourceImpl);
+            return length;
+        } catch (IOException e) {
+            log.error("Failed to read the content of " + resourcePath, e);
+            throw new DavException(DavServletResponse.SC_INTERNAL_SERVER_ERROR, e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close the content of " + resourcePath, e);
+                }
+            }
+            if (tempFile != null && !tempFile.delete()) {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+
 	public boolean exists() {
 		if(doesNotExists){
 			return false;
 		}else{
 			try{
-				getUnderlineResource();
+				getResourceMetaData();
 				return true;
 			} catch (RuntimeException e) {
 				return false;
@@ -223,7 +298,7 @@ public class RegistryResource implements DavResource {
 	}
 
 	public boolean isCollection() {
-        return exists() && getUnderlineResource() instanceof Collection;
+        return exists() && getResourceMetaData() instanceof Collection;
 	}
 
 	public DavResource getCollection() {
@@ -343,6 +418,7 @@ public class RegistryResource implements DavResource {
             resourceCache.saveDavResourceMimeType((RegistryResource) member);
 			resourceCache.removeRegistryResource(path);
 			registry.delete(path);
+			resourceCache.invalidate(path);
 		} catch (RegistryException e) {
 			throw new DavException(DavServletResponse.SC_BAD_REQUEST);
 		}
@@ -365,9 +441,11 @@ public class RegistryResource implements DavResource {
 
 	public void move(DavResource destination) throws DavException {
 		try {
+            resourceCache.saveDavResourceMimeType(this);
 			registry.move(path, destination
 					.getResourcePath());
-            resourceCache.saveDavResourceMimeType(this);
+			resourceCache.invalidate(path);
+			resourceCache.invalidate(destination.getResourcePath());
 		} catch (RegistryException e) {
 			throw new DavException(DavServletResponse.SC_BAD_REQUEST);
 		}
@@ -381,6 +459,7 @@ public class RegistryResource implements DavResource {
 			}
 			registry.copy(path, destination
 					.getResourcePath());
+			resourceCache.invalidate(destination.getResourcePath());
 		} catch (RegistryException e) {
 			throw new DavException(DavServletResponse.SC_BAD_REQUEST,e);
 		}		
@@ -460,13 +539,23 @@ public class RegistryResource implements DavResource {
 
 	public DavResourceIterator getMembers() {
 		try {
-			String[] childrenNames = ((CollectionImpl)getUnderlineResource()).getChildren();
-			
+			String[] childrenNames = resourceCache.getChildren(path);
+
+			// links are found with one query over the collection rather than by reading every child
+			Set<String> linkedChildren = null;
+			try {
+				linkedChildren = resourceCache.getLinkedChildren(path);
+			} catch (RegistryException e) {
+				log.debug("Unable to query the links of " + path + ", reading the children instead", e);
+			}
+
 			List childrenList = new ArrayList();
 			
 			for(String name:childrenNames){
 				RegistryResource registryResource = resourceCache.getRegistryResource(name);
-                if(!"true".equals(registryResource.getUnderlineResource().getProperty("registry.link"))) {
+				boolean isLink = linkedChildren != null ? linkedChildren.contains(name) :
+						"true".equals(resourceCache.getResourceMetaData(name).getProperty("registry.link"));
+                if(!isLink) {
 				    childrenList.add(registryResource);
                 }
 			}
@@ -480,11 +569,11 @@ public class RegistryResource implements DavResource {
 	}
 
 	public long getModificationTime() {
-		return getUnderlineResource().getLastModified().getTime();
+		return getResourceMetaData().getLastModified().getTime();
 	}
 
 	public DavPropertySet getProperties() {
-		final Properties properties = getUnderlineResource().getProperties();
+		final Properties properties = getResourceMetaData().getProperties();
 		DavPropertySet davproperties = new DavPropertySet();
 		
 		Iterator it = properties.keySet().iterator();
@@ -512,6 +601,10 @@ public class RegistryResource implements DavResource {
 	}
 
 	public DavProperty getProperty(final DavPropertyName name) {
+		if (!doesNotExists) {
+			// refreshes the live properties from the cached metadata
+			exists();
+		}
 		DavProperty property = properties.get(name);
 		if(property != null){
 			return property;
@@ -524,7 +617,7 @@ public class RegistryResource implements DavResource {
 					return false;
 				}
 				public Object getValue() {
-					return getUnderlineResource().getProperty(name.getName());
+					return getResourceMetaData().getProperty(name.getName());
 				}
 				public DavPropertyName getName() {
 					return name;
@@ -535,7 +628,7 @@ public class RegistryResource implements DavResource {
 
 	public DavPropertyName[] getPropertyNames() {
 		List<DavPropertyName> list = new ArrayList<DavPropertyName>();
-		Iterator it  = getUnderlineResource().getProperties().keySet().iterator();
+		Iterator it  = getResourceMetaData().getProperties().keySet().iterator();
 		while(it.hasNext()){
 			list.add(DavPropertyName.create((String)it.next()));
 		}
@@ -556,17 +649,55 @@ public class RegistryResource implements DavResource {
 	}
 
     public void spool(OutputContext outputContext) throws IOException {
+        spool(outputContext, 0, -1);
+    }
+
+    /**
+     * Writes a byte range of the resource content to the given output context.
+     *
+     * @param outputContext the output context
+     * @param offset        the index of the first byte to write
+     * @param length        the number of bytes to write, or -1 to write up to the end of the content
+     * @throws IOException if the content cannot be read or written
+     */
+    public void spool(OutputContext outputContext, long offset, long length) throws IOException {
         try {
             if (exists()) {
                 if (!isCollection()) {
-                    final InputStream in = getUnderLineResource().getContentStream();
-                    final OutputStream out = outputContext.getOutputStream();
-
-                    if (null != out) {
-                        byte[] buf = new byte[1024];
-                        int read;
-                        while ((read = in.read(buf)) >= 0) {
-                            out.write(buf, 0, read);
+                    Resource metaData = getResourceMetaData();
+                    outputContext.setContentType(metaData.getMediaType());
+                    outputContext.setETag(getETag(metaData));
+                    outputContext.setModificationTime(metaData.getLastModified().getTime());
+                    outputContext.setProperty("Accept-Ranges", "bytes");
+
+                    // the content is streamed, the length comes from the WebDAV context so the
+                    // content is not read just to measure it
+                    long contentLength = resourceCache.getContentLength(path, getETag(metaData), metaData);
+                    long start;
+                    long count;
+                    if (contentLength >= 0) {
+                        start = Math.min(offset, contentLength);
+                        count = length < 0 ? contentLength - start : Math.min(length, contentLength - start);
+                        outputContext.setContentLength(count);
+                    } else {
+                        // the length is unknown, the content is sent without one
+                        start = offset;
+                        count = length;
+                    }
+                    if (outputContext.hasStream() && count != 0) {
+                        InputStream in = getUnderlineResource().getContentStream();
+                        if (in == null) {
+                            throw new IOException("Resource " + path + " has no content");
+                        }
+                        try {
+                            skipFully(in, start);
+                            long copied = copy(in, outputContext.getOutputStream(), count);
+                            if (count >= 0 && copied < count) {
+                                throw new IOException("Content of " + path + " ended after " +
+                                        (start + copied) + " bytes, expected " + contentLength);
+                            }
+                        } finally {
+                            in.close();
                         }
                     }
                 }
@@ -578,6 +709,53 @@ public class RegistryResource implements DavResource {
         }
     }
 
+    /**
+     * @return the ETag of the resource
+     */
+    public String getETag() {
+        return getETag(getResourceMetaData());
+    }
+
+    /**
+     * @return the number of bytes in the content of the resource, or -1 if it is not known
+     */
+    public long getContentLength() {
+        Resource metaData = getResourceMetaData();
+        return resourceCache.getContentLength(path, getETag(metaData), metaData);
+    }
+
+    // skips exactly n bytes, the headers of a partial response are committed by now so a short
+    // stream must fail the response rather than send the wrong bytes
+    private void skipFully(InputStream in, long n) throws IOException {
+        long remaining = n;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("Content of " + path + " ended before offset " + n);
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    // copies up to length bytes, or the whole stream if length is -1, and returns the bytes copied
+    private static long copy(InputStream in, OutputStream out, long length) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        long copied = 0;
+        while (length < 0 || copied < length) {
+            int toRead = length < 0 ? buf.length : (int) Math.min(buf.length, length - copied);
+            int read = in.read(buf, 0, toRead);
+            if (read < 0) {
+                break;
+            }
+            out.write(buf, 0, read);
+            copied += read;
+        }
+        return copied;
+    }
+
 	public Resource getUnderLineResource() {
 		return underLineResource;
 	}
@@ -114,6 +114,103 @@ public class RegistryServlet extends SimpleWebdavServlet {
 		}
 	}
 
+    /**
+     * Serves single byte range requests of resources, so that clients which have mounted the
+     * registry can read parts of a file without downloading all of it. An If-Range validator which
+     * does not match the current ETag or modification time, multiple ranges, malformed ranges and
+     * content of unknown length fall back to sending the full content.
+     */
+    @Override
+    protected void doGet(WebdavRequest request, WebdavResponse response, DavResource resource)
+            throws IOException, DavException {
+        String range = request.getHeader("Range");
+        if (range == null || !(resource instanceof RegistryResource) || !resource.exists() ||
+                resource.isCollection() || !isIfRangeSatisfied(request, (RegistryResource) resource)) {
+            super.doGet(request, response, resource);
+            return;
+        }
+        RegistryResource registryResource = (RegistryResource) resource;
+        long contentLength = registryResource.getContentLength();
+        if (contentLength < 0) {
+            // ranges cannot be resolved without the length, which is never measured
+            super.doGet(request, response, resource);
+            return;
+        }
+        long[] byteRange = parseRange(range, contentLength);
+        if (byteRange == null) {
+            super.doGet(request, response, resource);
+            return;
+        }
+        if (byteRange[0] >= contentLength) {
+            response.setHeader("Content-Range", "bytes */" + contentLength);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader("Content-Range", "bytes " + byteRange[0] + "-" + byteRange[1] + "/" +
+                contentLength);
+        registryResource.spool(getOutputContext(response, response.getOutputStream()), byteRange[0],
+                byteRange[1] - byteRange[0] + 1);
+        response.flushBuffer();
+    }
+
+    private boolean isIfRangeSatisfied(WebdavRequest request, RegistryResource resource) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(resource.getETag());
+        }
+        try {
+            long ifRangeTime = request.getDateHeader("If-Range");
+            return resource.getModificationTime() / 1000 * 1000 == ifRangeTime;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parses a single "bytes=" range against the content length.
+     *
+     * @return the first and last byte positions of the range, or null if the header has to be
+     *         ignored
+     */
+    private long[] parseRange(String range, long contentLength) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int index = spec.indexOf('-');
+        if (index < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (index == 0) {
+                // suffix range, the last n bytes
+                long suffixLength = Long.parseLong(spec.substring(1).trim());
+                if (suffixLength <= 0) {
+                    return null;
+                }
+                start = Math.max(0, contentLength - suffixLength);
+                end = contentLength - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, index).trim());
+                String last = spec.substring(index + 1).trim();
+                end = last.length() == 0 ? contentLength - 1 :
+                        Math.min(Long.parseLong(last), contentLength - 1);
+                if (end < start && start < contentLength) {
+                    return null;
+                }
+            }
+            return new long[] {start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
 	@Override
     protected void doMkCol(WebdavRequest request, WebdavResponse response, DavResource resource)
             throws IOException, DavException {
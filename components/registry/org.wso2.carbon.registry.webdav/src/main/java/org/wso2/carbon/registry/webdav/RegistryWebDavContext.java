@@ -17,20 +17,51 @@
 */
 package org.wso2.carbon.registry.webdav;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.jackrabbit.webdav.DavException;
 import org.apache.jackrabbit.webdav.DavResourceLocator;
 import org.apache.jackrabbit.webdav.DavSession;
+import org.wso2.carbon.registry.core.Collection;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.config.StaticConfiguration;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
 
 public class RegistryWebDavContext {
+
+    private static final Log log = LogFactory.getLog(RegistryWebDavContext.class);
+
+    // WebDAV clients issue PROPFIND requests for the same paths over and over again, so the
+    // metadata read for a session is kept for a short while. Writes done through this session
+    // invalidate the affected paths straight away, the timeout bounds how long changes done by
+    // others go unnoticed.
+    private static final int METADATA_CACHE_SIZE = 1000;
+    private static final long METADATA_CACHE_TIMEOUT = 15000;
+
+    private static final String REGISTRY_LINK = "registry.link";
+
+    /**
+     * The property holding the number of bytes in the content written through WebDAV.
+     */
+    public static final String CONTENT_LENGTH_PROPERTY = "registry.webdav.contentLength";
+
 	private final Registry registry;
     private final String contextPath;
 	private Map<String, RegistryResource> resourceMap = new HashMap<String, RegistryResource>();
     private Map<String, Metadata> metadataMap = new HashMap<String, Metadata>();
+    private final Map<String, CachedEntry> resourceMetaDataCache = new LRUCache(METADATA_CACHE_SIZE);
+    private final Map<String, CachedEntry> childrenCache = new LRUCache(METADATA_CACHE_SIZE);
+    private final Map<String, CachedEntry> linkedChildrenCache = new LRUCache(METADATA_CACHE_SIZE);
+    private final Map<String, CachedEntry> contentLengthCache = new LRUCache(METADATA_CACHE_SIZE);
 	private org.wso2.carbon.registry.webdav.WebDavEnviorment enviorment;
 	private DavSession session;
 
@@ -52,6 +83,35 @@ public class RegistryWebDavContext {
         }
     }
 
+    private static class CachedEntry {
+        private Object value;
+        private String version;
+        private long cachedTime;
+
+        private CachedEntry(Object value, String version) {
+            this.value = value;
+            this.version = version;
+            this.cachedTime = System.currentTimeMillis();
+        }
+
+        private boolean isExpired() {
+            return (System.currentTimeMillis() - cachedTime) >= METADATA_CACHE_TIMEOUT;
+        }
+    }
+
+    private static class LRUCache extends LinkedHashMap<String, CachedEntry> {
+        private final int maxSize;
+
+        private LRUCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<String, CachedEntry> eldest) {
+            return size() > maxSize;
+        }
+    }
+
 	public RegistryWebDavContext(Registry registry, String contextPath) {
 		this.registry = registry;
         this.contextPath = contextPath;
@@ -71,8 +131,12 @@ public class RegistryWebDavContext {
 
     public void saveDavResourceMimeType(RegistryResource resource) {
         if(!resource.isCollection()) {
-            Resource r = resource.getUnderLineResource();
-            metadataMap.put(r.getPath(), new Metadata(r.getMediaType()));
+            try {
+                Resource r = getResourceMetaData(resource.getResourcePath());
+                metadataMap.put(r.getPath(), new Metadata(r.getMediaType()));
+            } catch (RegistryException e) {
+                log.debug("Unable to read the media type of " + resource.getResourcePath(), e);
+            }
         }
     }
 
@@ -101,6 +165,181 @@ public class RegistryWebDavContext {
 		resourceMap.remove(path);
 	}
 
+    /**
+     * Returns the metadata of the resource at the given path, without its content. The metadata
+     * is cached for the session.
+     *
+     * @param path the resource path
+     * @return the resource metadata
+     * @throws RegistryException if the resource does not exist or cannot be read
+     */
+    public Resource getResourceMetaData(String path) throws RegistryException {
+        synchronized (resourceMetaDataCache) {
+            CachedEntry entry = resourceMetaDataCache.get(path);
+            if (entry != null && !entry.isExpired()) {
+                return (Resource) entry.value;
+            }
+        }
+        Resource metaData = registry.getMetaData(path);
+        synchronized (resourceMetaDataCache) {
+            resourceMetaDataCache.put(path, new CachedEntry(metaData, null));
+        }
+        return metaData;
+    }
+
+    /**
+     * Returns the content length of the resource at the given path. Content written through
+     * WebDAV has its length stored in a property along with it, and the length is kept for as
+     * long as the given ETag of the resource stays the same. The content is never read to
+     * measure it, so the length of content written by other means is unknown.
+     *
+     * @param path     the resource path
+     * @param eTag     the current ETag of the resource
+     * @param metaData the metadata of the resource
+     * @return the number of bytes in the content, or -1 if it is not known
+     */
+    public long getContentLength(String path, String eTag, Resource metaData) {
+        synchronized (contentLengthCache) {
+            CachedEntry entry = contentLengthCache.get(path);
+            if (entry != null && eTag.equals(entry.version)) {
+                return (Long) entry.value;
+            }
+        }
+        String property = metaData.getProperty(CONTENT_LENGTH_PROPERTY);
+        if (property == null) {
+            return -1;
+        }
+        long length;
+        try {
+            length = Long.parseLong(property);
+        } catch (NumberFormatException e) {
+            log.debug("Invalid content length recorded for " + path + ": " + property);
+            return -1;
+        }
+        setContentLength(path, eTag, length);
+        return length;
+    }
+
+    /**
+     * Records the content length of the resource at the given path, known from writing it.
+     *
+     * @param path   the resource path
+     * @param eTag   the ETag of the resource holding the content
+     * @param length the number of bytes in the content
+     */
+    public void setContentLength(String path, String eTag, long length) {
+        synchronized (contentLengthCache) {
+            contentLengthCache.put(path, new CachedEntry(length, eTag));
+        }
+    }
+
+    /**
+     * Returns the paths of the children of the given collection. The children are cached for
+     * the session like the metadata.
+     *
+     * @param collectionPath the collection path
+     * @return the paths of the children
+     * @throws RegistryException if the collection does not exist or cannot be read
+     */
+    public String[] getChildren(String collectionPath) throws RegistryException {
+        synchronized (childrenCache) {
+            CachedEntry entry = childrenCache.get(collectionPath);
+            if (entry != null && !entry.isExpired()) {
+                return (String[]) entry.value;
+            }
+        }
+        Resource resource = registry.get(collectionPath);
+        if (!(resource instanceof Collection)) {
+            throw new RegistryException("Resource at " + collectionPath + " is not a collection");
+        }
+        String[] children = ((Collection) resource).getChildren();
+        if (children == null) {
+            children = new String[0];
+        }
+        synchronized (childrenCache) {
+            childrenCache.put(collectionPath, new CachedEntry(children, null));
+        }
+        return children;
+    }
+
+    /**
+     * Returns the paths of the children of the given collection which are symbolic links or
+     * mount points, found with a single query instead of reading each child.
+     *
+     * @param collectionPath the collection path
+     * @return the paths of the linked children
+     * @throws RegistryException if the query fails
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> getLinkedChildren(String collectionPath) throws RegistryException {
+        synchronized (linkedChildrenCache) {
+            CachedEntry entry = linkedChildrenCache.get(collectionPath);
+            if (entry != null && !entry.isExpired()) {
+                return (Set<String>) entry.value;
+            }
+        }
+        String parentPath = collectionPath.endsWith("/") ?
+                collectionPath.substring(0, collectionPath.length() - 1) : collectionPath;
+        String propertyJoin;
+        if (StaticConfiguration.isVersioningProperties()) {
+            propertyJoin = "R.REG_VERSION=RP.REG_VERSION";
+        } else {
+            propertyJoin = "R.REG_PATH_ID=RP.REG_PATH_ID AND ((R.REG_NAME IS NULL AND " +
+                    "RP.REG_RESOURCE_NAME IS NULL) OR R.REG_NAME=RP.REG_RESOURCE_NAME)";
+        }
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("query", "SELECT R.REG_PATH_ID, R.REG_NAME FROM REG_RESOURCE R, REG_PATH P, " +
+                "REG_RESOURCE_PROPERTY RP, REG_PROPERTY PP WHERE R.REG_PATH_ID=P.REG_PATH_ID AND " +
+                propertyJoin + " AND RP.REG_PROPERTY_ID=PP.REG_ID AND PP.REG_NAME=? AND " +
+                "PP.REG_VALUE=? AND ((R.REG_NAME IS NOT NULL AND P.REG_PATH_VALUE=?) OR " +
+                "(R.REG_NAME IS NULL AND P.REG_PATH_VALUE LIKE ? AND P.REG_PATH_VALUE NOT LIKE ?))");
+        parameters.put("1", REGISTRY_LINK);
+        parameters.put("2", "true");
+        parameters.put("3", parentPath.length() == 0 ? "/" : parentPath);
+        parameters.put("4", parentPath + "/%");
+        parameters.put("5", parentPath + "/%/%");
+        String[] paths = (String[]) registry.executeQuery(null, parameters).getContent();
+        Set<String> linkedChildren = new HashSet<String>();
+        if (paths != null) {
+            linkedChildren.addAll(Arrays.asList(paths));
+        }
+        synchronized (linkedChildrenCache) {
+            linkedChildrenCache.put(collectionPath, new CachedEntry(linkedChildren, null));
+        }
+        return linkedChildren;
+    }
+
+    /**
+     * Drops the cached metadata of a path which has been written through this session, along
+     * with that of its descendants and its parent collection.
+     *
+     * @param path the modified path
+     */
+    public void invalidate(String path) {
+        String normalizedPath = (path.length() > 1 && path.endsWith("/")) ?
+                path.substring(0, path.length() - 1) : path;
+        int index = normalizedPath.lastIndexOf('/');
+        String parentPath = index > 0 ? normalizedPath.substring(0, index) : "/";
+        invalidate(resourceMetaDataCache, normalizedPath, parentPath);
+        invalidate(childrenCache, normalizedPath, parentPath);
+        invalidate(linkedChildrenCache, normalizedPath, parentPath);
+        invalidate(contentLengthCache, normalizedPath, parentPath);
+    }
+
+    private void invalidate(Map<String, CachedEntry> cache, String path, String parentPath) {
+        String prefix = path.equals("/") ? path : path + "/";
+        synchronized (cache) {
+            Iterator<String> it = cache.keySet().iterator();
+            while (it.hasNext()) {
+                String key = it.next();
+                if (key.equals(path) || key.startsWith(prefix) || key.equals(parentPath) ||
+                        key.equals(parentPath + "/")) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
 	public Registry getRegistry() {
 		return registry;
 	}
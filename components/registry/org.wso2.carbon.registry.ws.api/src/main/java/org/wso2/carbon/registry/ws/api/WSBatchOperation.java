@@ -0,0 +1,131 @@
+/*
+*  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.registry.ws.api;
+
+/**
+ * This class is used as a data transfer object class in web service calls. It describes a single
+ * registry operation of a batch that is sent to the server in one message.
+ */
+public class WSBatchOperation {
+
+    public static final String PUT = "put";
+    public static final String DELETE = "delete";
+    public static final String APPLY_TAG = "applyTag";
+    public static final String REMOVE_TAG = "removeTag";
+    public static final String ADD_ASSOCIATION = "addAssociation";
+    public static final String REMOVE_ASSOCIATION = "removeAssociation";
+    public static final String CREATE_VERSION = "createVersion";
+    public static final String COPY = "copy";
+    public static final String MOVE = "move";
+
+    private String operation;
+    private String path;
+    private String targetPath;
+    private String value;
+    private WSResource resource;
+
+    /**
+     * Method to get the name of the operation.
+     *
+     * @return the name of the operation.
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Method to set the name of the operation.
+     *
+     * @param operation the name of the operation.
+     */
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Method to get the path of the resource the operation is performed on.
+     *
+     * @return the resource path.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Method to set the path of the resource the operation is performed on.
+     *
+     * @param path the resource path.
+     */
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Method to get the target path of a copy, move or association operation.
+     *
+     * @return the target path.
+     */
+    public String getTargetPath() {
+        return targetPath;
+    }
+
+    /**
+     * Method to set the target path of a copy, move or association operation.
+     *
+     * @param targetPath the target path.
+     */
+    public void setTargetPath(String targetPath) {
+        this.targetPath = targetPath;
+    }
+
+    /**
+     * Method to get the tag or the association type of the operation.
+     *
+     * @return the tag or the association type.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Method to set the tag or the association type of the operation.
+     *
+     * @param value the tag or the association type.
+     */
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Method to get the resource of a put operation.
+     *
+     * @return the resource.
+     */
+    public WSResource getResource() {
+        return resource;
+    }
+
+    /**
+     * Method to set the resource of a put operation.
+     *
+     * @param resource the resource.
+     */
+    public void setResource(WSResource resource) {
+        this.resource = resource;
+    }
+}
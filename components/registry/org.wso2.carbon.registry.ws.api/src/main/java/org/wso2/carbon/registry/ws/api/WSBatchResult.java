@@ -0,0 +1,102 @@
+/*
+*  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.registry.ws.api;
+
+/**
+ * This class is used as a data transfer object class in web service calls. It carries the outcome
+ * of a single {@link WSBatchOperation}.
+ */
+public class WSBatchResult {
+
+    private boolean success;
+    private String result;
+    private String errorMessage;
+
+    /**
+     * Default constructor for the WSBatchResult class.
+     */
+    public WSBatchResult() { }
+
+    /**
+     * Construct a batch result.
+     *
+     * @param success      whether the operation succeeded.
+     * @param result       the value returned by the operation, if any.
+     * @param errorMessage the reason of the failure, if the operation failed.
+     */
+    public WSBatchResult(boolean success, String result, String errorMessage) {
+        this.success = success;
+        this.result = result;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * Method to check whether the operation succeeded.
+     *
+     * @return true if the operation succeeded.
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Method to set whether the operation succeeded.
+     *
+     * @param success whether the operation succeeded.
+     */
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    /**
+     * Method to get the value returned by the operation. This is the actual path for put, copy and
+     * move operations.
+     *
+     * @return the value returned by the operation.
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Method to set the value returned by the operation.
+     *
+     * @param result the value returned by the operation.
+     */
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    /**
+     * Method to get the reason of the failure.
+     *
+     * @return the error message.
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * Method to set the reason of the failure.
+     *
+     * @param errorMessage the error message.
+     */
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
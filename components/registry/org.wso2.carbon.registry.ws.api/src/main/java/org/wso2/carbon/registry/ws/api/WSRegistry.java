@@ -47,6 +47,7 @@ public class WSRegistry extends RegistryAbstractAdmin implements Registry {
 
 	private Log log = LogFactory.getLog(WSRegistry.class);
     private static final String REGISTRY_WS_API_TENANT = "registry.ws.api.tenant";
+    private static final int MAX_BATCH_SIZE = 1000;
 
 	private String workingDir = System.getProperty(ServerConstants.WORK_DIR);
 	private File tempFile;
@@ -1121,6 +1122,95 @@ public class WSRegistry extends RegistryAbstractAdmin implements Registry {
         return resourceData;
     }
 
+    /**
+     * Executes a batch of registry operations that were sent in a single message. When the batch
+     * is atomic, all operations are performed inside one registry transaction and the first
+     * failure rolls back the whole batch. Otherwise, each operation is performed independently
+     * and its failure is reported in the corresponding result.
+     *
+     * @param operations the operations to execute, in order.
+     * @param atomic     whether the batch should be executed as a single transaction.
+     * @return the results of the operations, in the same order as the operations.
+     * @throws RegistryException if the batch is too large, or if an atomic batch failed.
+     */
+    public WSBatchResult[] WSexecuteBatch(WSBatchOperation[] operations, boolean atomic)
+            throws RegistryException {
+        if (operations == null) {
+            return new WSBatchResult[0];
+        }
+        if (operations.length > MAX_BATCH_SIZE) {
+            throw new RegistryException("The batch contains " + operations.length +
+                    " operations, which exceeds the maximum of " + MAX_BATCH_SIZE + ".");
+        }
+        Registry registry = getRegistryForTenant();
+        WSBatchResult[] results = new WSBatchResult[operations.length];
+        if (!atomic) {
+            for (int i = 0; i < operations.length; i++) {
+                try {
+                    results[i] = new WSBatchResult(true, executeOperation(registry, operations[i]),
+                            null);
+                } catch (Exception e) {
+                    log.debug("Failed to execute operation " + i + " of the batch", e);
+                    results[i] = new WSBatchResult(false, null, e.getMessage());
+                }
+            }
+            return results;
+        }
+        boolean success = false;
+        registry.beginTransaction();
+        try {
+            for (int i = 0; i < operations.length; i++) {
+                results[i] = new WSBatchResult(true, executeOperation(registry, operations[i]), null);
+            }
+            success = true;
+        } catch (IOException e) {
+            throw new RegistryException("Failed to read the content of the batch", e);
+        } finally {
+            if (success) {
+                registry.commitTransaction();
+            } else {
+                registry.rollbackTransaction();
+            }
+        }
+        return results;
+    }
+
+    private String executeOperation(Registry registry, WSBatchOperation operation)
+            throws RegistryException, IOException {
+        String name = operation.getOperation();
+        String path = operation.getPath();
+        if (WSBatchOperation.PUT.equals(name)) {
+            WSResource wsResource = operation.getResource();
+            Object content = CommonUtil.makeBytesFromDataHandler(wsResource);
+            Resource resource;
+            if (wsResource.isCollection()) {
+                resource = CommonUtil.transformWSCollectiontoCollection(wsResource, content);
+            } else {
+                resource = CommonUtil.transformWSResourcetoResource(wsResource, content);
+            }
+            return registry.put(path, resource);
+        } else if (WSBatchOperation.DELETE.equals(name)) {
+            registry.delete(path);
+        } else if (WSBatchOperation.APPLY_TAG.equals(name)) {
+            registry.applyTag(path, operation.getValue());
+        } else if (WSBatchOperation.REMOVE_TAG.equals(name)) {
+            registry.removeTag(path, operation.getValue());
+        } else if (WSBatchOperation.ADD_ASSOCIATION.equals(name)) {
+            registry.addAssociation(path, operation.getTargetPath(), operation.getValue());
+        } else if (WSBatchOperation.REMOVE_ASSOCIATION.equals(name)) {
+            registry.removeAssociation(path, operation.getTargetPath(), operation.getValue());
+        } else if (WSBatchOperation.CREATE_VERSION.equals(name)) {
+            registry.createVersion(path);
+        } else if (WSBatchOperation.COPY.equals(name)) {
+            return registry.copy(path, operation.getTargetPath());
+        } else if (WSBatchOperation.MOVE.equals(name)) {
+            return registry.move(path, operation.getTargetPath());
+        } else {
+            throw new RegistryException("Unsupported batch operation: " + name);
+        }
+        return null;
+    }
+
 
     /**
      *
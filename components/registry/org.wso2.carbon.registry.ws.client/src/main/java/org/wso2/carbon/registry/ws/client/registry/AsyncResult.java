@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) WSO2 Inc. (http://www.wso2.com) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.ws.client.registry;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A {@link Future} that is completed by the callback of a non-blocking stub invocation. The
+ * underlying message exchange cannot be aborted once sent, hence this future cannot be cancelled.
+ *
+ * @param <T> the type of the result.
+ */
+class AsyncResult<T> implements Future<T> {
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile T result;
+    private volatile Throwable error;
+
+    void complete(T result) {
+        this.result = result;
+        latch.countDown();
+    }
+
+    void fail(Throwable error) {
+        this.error = error;
+        latch.countDown();
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    public boolean isCancelled() {
+        return false;
+    }
+
+    public boolean isDone() {
+        return latch.getCount() == 0;
+    }
+
+    public T get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return getResult();
+    }
+
+    public T get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException("The registry operation did not complete within " +
+                    timeout + " " + unit.toString().toLowerCase());
+        }
+        return getResult();
+    }
+
+    private T getResult() throws ExecutionException {
+        if (error != null) {
+            throw new ExecutionException(error);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) WSO2 Inc. (http://www.wso2.com) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.registry.ws.client.registry;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.ws.stub.xsd.WSBatchOperation;
+import org.wso2.carbon.registry.ws.stub.xsd.WSBatchResult;
+import org.wso2.carbon.registry.ws.stub.xsd.WSResource;
+
+import javax.activation.DataHandler;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects registry operations on the client side and sends them to the WS Registry in as few
+ * messages as possible. Operations are executed on the server in the order in which they were
+ * added. Resource content is sent as MTOM attachments.
+ * <p/>
+ * A batch is not thread safe, and it is cleared once executed.
+ */
+public class RegistryBatch {
+
+    private static final Log log = LogFactory.getLog(RegistryBatch.class);
+
+    /**
+     * The default number of operations sent in a single message.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final WSRegistryServiceClient client;
+    private final List<WSBatchOperation> operations = new ArrayList<WSBatchOperation>();
+    private final List<File> tempFiles = new ArrayList<File>();
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean atomic;
+
+    RegistryBatch(WSRegistryServiceClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Sets the maximum number of operations sent in a single message.
+     *
+     * @param batchSize the number of operations per message.
+     * @return this batch.
+     */
+    public RegistryBatch setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be a positive number");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets whether each message should be executed in a single registry transaction. If set, a
+     * failure of any operation rolls back all the operations of the same message. Operations of
+     * messages that were already sent are not rolled back.
+     *
+     * @param atomic whether each message should be executed atomically.
+     * @return this batch.
+     */
+    public RegistryBatch setAtomic(boolean atomic) {
+        this.atomic = atomic;
+        return this;
+    }
+
+    public RegistryBatch put(String path, Resource resource) throws RegistryException {
+        WSResource wsResource;
+        try {
+            File tempFile = File.createTempFile("wsResource", "tmp");
+            tempFile.deleteOnExit();
+            tempFiles.add(tempFile);
+            DataHandler dataHandler = WSRegistryClientUtils.makeDataHandler(resource, tempFile);
+            wsResource = WSRegistryClientUtils.transformResourceToWSResource(resource, dataHandler);
+        } catch (IOException e) {
+            String msg = "Failed to add put operation to the batch.";
+            log.error(msg, e);
+            throw new RegistryException(msg, e);
+        }
+        if (resource instanceof Collection) {
+            wsResource.setCollection(true);
+        }
+        WSBatchOperation operation = newOperation("put", path);
+        operation.setResource(wsResource);
+        return add(operation);
+    }
+
+    public RegistryBatch delete(String path) {
+        return add(newOperation("delete", path));
+    }
+
+    public RegistryBatch applyTag(String path, String tag) {
+        WSBatchOperation operation = newOperation("applyTag", path);
+        operation.setValue(tag);
+        return add(operation);
+    }
+
+    public RegistryBatch removeTag(String path, String tag) {
+        WSBatchOperation operation = newOperation("removeTag", path);
+        operation.setValue(tag);
+        return add(operation);
+    }
+
+    public RegistryBatch addAssociation(String sourcePath, String targetPath,
+                                        String associationType) {
+        WSBatchOperation operation = newOperation("addAssociation", sourcePath);
+        operation.setTargetPath(targetPath);
+        operation.setValue(associationType);
+        return add(operation);
+    }
+
+    public RegistryBatch removeAssociation(String sourcePath, String targetPath,
+                                           String associationType) {
+        WSBatchOperation operation = newOperation("removeAssociation", sourcePath);
+        operation.setTargetPath(targetPath);
+        operation.setValue(associationType);
+        return add(operation);
+    }
+
+    public RegistryBatch createVersion(String path) {
+        return add(newOperation("createVersion", path));
+    }
+
+    public RegistryBatch copy(String sourcePath, String targetPath) {
+        WSBatchOperation operation = newOperation("copy", sourcePath);
+        operation.setTargetPath(targetPath);
+        return add(operation);
+    }
+
+    public RegistryBatch move(String currentPath, String newPath) {
+        WSBatchOperation operation = newOperation("move", currentPath);
+        operation.setTargetPath(newPath);
+        return add(operation);
+    }
+
+    /**
+     * Returns the number of operations that are waiting to be executed.
+     *
+     * @return the number of pending operations.
+     */
+    public int size() {
+        return operations.size();
+    }
+
+    /**
+     * Sends all pending operations to the server, one message per {@link #setBatchSize batch
+     * size} operations.
+     *
+     * @return the values returned by each operation, in the order in which the operations were
+     *         added. This is the actual path for put, copy and move operations and null otherwise.
+     * @throws RegistryException if any of the operations failed.
+     */
+    public String[] execute() throws RegistryException {
+        String[] results = new String[operations.size()];
+        List<String> failures = new ArrayList<String>();
+        try {
+            for (int start = 0; start < operations.size(); start += batchSize) {
+                int end = Math.min(start + batchSize, operations.size());
+                WSBatchOperation[] chunk = operations.subList(start, end).toArray(
+                        new WSBatchOperation[end - start]);
+                WSBatchResult[] chunkResults = client.executeBatch(chunk, atomic);
+                for (int i = 0; chunkResults != null && i < chunkResults.length; i++) {
+                    if (chunkResults[i] == null) {
+                        continue;
+                    }
+                    if (chunkResults[i].getSuccess()) {
+                        results[start + i] = chunkResults[i].getResult();
+                    } else {
+                        failures.add("operation " + (start + i) + " (" +
+                                chunk[i].getOperation() + " " + chunk[i].getPath() + "): " +
+                                chunkResults[i].getErrorMessage());
+                    }
+                }
+            }
+        } finally {
+            clear();
+        }
+        if (!failures.isEmpty()) {
+            throw new RegistryException(failures.size() + " operation(s) of the batch failed. " +
+                    failures);
+        }
+        return results;
+    }
+
+    /**
+     * Discards all pending operations.
+     */
+    public void clear() {
+        operations.clear();
+        for (File tempFile : tempFiles) {
+            if (!tempFile.delete()) {
+                log.debug("Unable to delete temp file " + tempFile.getAbsolutePath());
+            }
+        }
+        tempFiles.clear();
+    }
+
+    private WSBatchOperation newOperation(String name, String path) {
+        WSBatchOperation operation = new WSBatchOperation();
+        operation.setOperation(name);
+        operation.setPath(path);
+        return operation;
+    }
+
+    private RegistryBatch add(WSBatchOperation operation) {
+        operations.add(operation);
+        return this;
+    }
+}
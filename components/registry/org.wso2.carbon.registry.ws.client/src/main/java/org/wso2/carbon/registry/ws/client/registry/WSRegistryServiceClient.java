@@ -53,8 +53,11 @@ import org.wso2.carbon.registry.core.pagination.PaginationUtils;
 import org.wso2.carbon.registry.ws.client.internal.WSClientDataHolder;
 import org.wso2.carbon.registry.ws.client.resource.OnDemandContentCollectionImpl;
 import org.wso2.carbon.registry.ws.client.resource.OnDemandContentResourceImpl;
+import org.wso2.carbon.registry.ws.stub.WSRegistryServiceCallbackHandler;
 import org.wso2.carbon.registry.ws.stub.WSRegistryServiceStub;
 import org.wso2.carbon.registry.ws.stub.xsd.WSAssociation;
+import org.wso2.carbon.registry.ws.stub.xsd.WSBatchOperation;
+import org.wso2.carbon.registry.ws.stub.xsd.WSBatchResult;
 import org.wso2.carbon.registry.ws.stub.xsd.WSCollection;
 import org.wso2.carbon.registry.ws.stub.xsd.WSComment;
 import org.wso2.carbon.registry.ws.stub.xsd.WSLogEntry;
@@ -84,6 +87,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 public class WSRegistryServiceClient implements Registry {
 	private static final Log log = LogFactory.getLog(WSRegistryServiceClient.class);
@@ -407,6 +411,135 @@ public class WSRegistryServiceClient implements Registry {
 		}
 	}
 
+    /**
+     * Creates a new batch of operations, which is sent to the server in as few messages as
+     * possible when executed.
+     *
+     * @return a new, empty batch bound to this client.
+     */
+    public RegistryBatch newBatch() {
+        return new RegistryBatch(this);
+    }
+
+    WSBatchResult[] executeBatch(WSBatchOperation[] operations, boolean atomic)
+            throws RegistryException {
+        try {
+            return stub.wSexecuteBatch(operations, atomic);
+        } catch (Exception e) {
+            String msg = "Failed to perform executeBatch operation.";
+            log.error(msg, e);
+            throw new RegistryException(msg, e);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #get(String)}. The returned future fails with a
+     * {@link RegistryException} if the resource could not be fetched.
+     *
+     * @param path the path of the resource.
+     * @return a future that holds the resource once received.
+     * @throws RegistryException if the request could not be sent.
+     */
+    public Future<Resource> getAsync(final String path) throws RegistryException {
+        final AsyncResult<Resource> future = new AsyncResult<Resource>();
+        try {
+            stub.startwSget(path, new WSRegistryServiceCallbackHandler() {
+                public void receiveResultwSget(WSResource wsResource) {
+                    try {
+                        Resource resource;
+                        if (wsResource.getCollection()) {
+                            resource = WSRegistryClientUtils.transformWSCollectiontoCollection(
+                                    WSRegistryServiceClient.this, (WSCollection) wsResource, null);
+                            ((OnDemandContentCollectionImpl) resource).setPathWithVersion(path);
+                        } else {
+                            resource = WSRegistryClientUtils.transformWSResourcetoResource(
+                                    WSRegistryServiceClient.this, wsResource, null);
+                            ((OnDemandContentResourceImpl) resource).setPathWithVersion(path);
+                        }
+                        future.complete(resource);
+                    } catch (Exception e) {
+                        future.fail(new RegistryException("Failed to perform get operation.", e));
+                    }
+                }
+
+                public void receiveErrorwSget(Exception e) {
+                    future.fail(new RegistryException("Failed to perform get operation.", e));
+                }
+            });
+        } catch (Exception e) {
+            String msg = "Failed to perform get operation.";
+            log.error(msg, e);
+            throw new RegistryException(msg, e);
+        }
+        return future;
+    }
+
+    /**
+     * Non-blocking variant of {@link #put(String, Resource)}. The content of the resource is
+     * read before this method returns.
+     *
+     * @param path     the path which we'd like to use for the resource.
+     * @param resource the resource to add or update.
+     * @return a future that holds the actual path of the resource once stored.
+     * @throws RegistryException if the request could not be sent.
+     */
+    public Future<String> putAsync(String path, Resource resource) throws RegistryException {
+        final AsyncResult<String> future = new AsyncResult<String>();
+        try {
+            final File tempFile = File.createTempFile("wsResource","tmp");
+            tempFile.deleteOnExit();
+            DataHandler dataHandler = WSRegistryClientUtils.makeDataHandler(resource, tempFile);
+            WSResource wsResource = WSRegistryClientUtils.transformResourceToWSResource(resource, dataHandler);
+            if (resource instanceof Collection) {
+                wsResource.setCollection(true);
+            }
+            stub.startwSput(path, wsResource, new WSRegistryServiceCallbackHandler() {
+                public void receiveResultwSput(String result) {
+                    tempFile.delete();
+                    future.complete(result);
+                }
+
+                public void receiveErrorwSput(Exception e) {
+                    tempFile.delete();
+                    future.fail(new RegistryException("Failed to perform put operation.", e));
+                }
+            });
+        } catch (Exception e) {
+            String msg = "Failed to perform put operation.";
+            log.error(msg, e);
+            throw new RegistryException(msg, e);
+        }
+        return future;
+    }
+
+    /**
+     * Non-blocking variant of {@link #resourceExists(String)}.
+     *
+     * @param path the path of the resource.
+     * @return a future that holds whether the resource exists.
+     * @throws RegistryException if the request could not be sent.
+     */
+    public Future<Boolean> resourceExistsAsync(String path) throws RegistryException {
+        final AsyncResult<Boolean> future = new AsyncResult<Boolean>();
+        try {
+            stub.startresourceExists(path, new WSRegistryServiceCallbackHandler() {
+                public void receiveResultresourceExists(boolean result) {
+                    future.complete(result);
+                }
+
+                public void receiveErrorresourceExists(Exception e) {
+                    future.fail(new RegistryException(
+                            "Failed to perform resourceExists operation.", e));
+                }
+            });
+        } catch (Exception e) {
+            String msg = "Failed to perform resourceExists operation.";
+            log.error(msg, e);
+            throw new RegistryException(msg, e);
+        }
+        return future;
+    }
+
     public void delete(String path) throws RegistryException {
 		try {
 			stub.delete(path);